@@ -27,6 +27,8 @@ public class PeerDTO extends BaseDTO {
     private Integer weight;
     private Long downloadedVolume;
     private Long uploadedVolume;
+    private Long encodingTime;
+    private Long decodingTime;
     private String application;
     private String version;
     private String platform;
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.api.dto.info;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class PeerRequestLatencyDto {
+    public String requestType;
+    public String pool;
+    public long count;
+    public double meanMs;
+    public long p50Ms;
+    public long p90Ms;
+    public long p99Ms;
+    public long maxMs;
+    /**
+     * Number of requests by the bucket upper bound in milliseconds, 'inf' for the longer requests
+     */
+    public Map<String, Long> histogram;
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.api.dto.info;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class PeerRequestPoolDto {
+    public String name;
+    public int threads;
+    public int active;
+    public int queued;
+    public long completed;
+    /**
+     * Requests rejected because the pool queue is full
+     */
+    public long rejected;
+    /**
+     * Requests rejected because the peer has too many requests in the pool
+     */
+    public long rejectedPerPeer;
+    public double meanWaitMs;
+}
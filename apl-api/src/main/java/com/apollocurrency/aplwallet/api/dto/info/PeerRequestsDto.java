@@ -0,0 +1,29 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.api.dto.info;
+
+import com.apollocurrency.aplwallet.api.dto.BaseDTO;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Load of the incoming peer request pools and processing time of the peer request handlers
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class PeerRequestsDto extends BaseDTO {
+    public List<PeerRequestPoolDto> pools;
+    public List<PeerRequestLatencyDto> handlers;
+}
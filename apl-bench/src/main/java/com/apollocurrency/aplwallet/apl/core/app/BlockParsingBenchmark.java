@@ -0,0 +1,96 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.crypto.Crypto;
+import com.apollocurrency.aplwallet.apl.util.AplException;
+import com.apollocurrency.aplwallet.apl.util.env.config.Chain;
+import com.apollocurrency.aplwallet.apl.util.env.config.ChainsConfigLoader;
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the block json received from the peers with and without the block and transaction signatures verification
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BlockParsingBenchmark {
+    private static final int PRUNABLE_LIFETIME = 14 * 1440 * 60;
+
+    @Param({"0", "10", "255"})
+    private int transactionCount;
+
+    private WeldContainer container;
+    private String blockJson;
+
+    @Setup
+    public void setUp() throws AplException.NotValidException {
+        // block requires blockchain config for the initial base target
+        container = new Weld().disableDiscovery().addBeanClasses(BlockchainConfig.class).initialize();
+        Chain chain = new ChainsConfigLoader().load().values().stream()
+            .filter(Chain::isActive)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No active chain in the chains.json"));
+        container.select(BlockchainConfig.class).get().updateChain(chain, PRUNABLE_LIFETIME, PRUNABLE_LIFETIME);
+
+        List<Transaction> transactions = new ArrayList<>();
+        MessageDigest digest = Crypto.sha256();
+        long totalAmountATM = 0;
+        long totalFeeATM = 0;
+        int payloadLength = 0;
+        for (int i = 1; i <= transactionCount; i++) {
+            Transaction transaction = TransactionParsingBenchmark.newTransaction(0, i);
+            transactions.add(transaction);
+            digest.update(transaction.getBytes());
+            totalAmountATM += transaction.getAmountATM();
+            totalFeeATM += transaction.getFeeATM();
+            payloadLength += transaction.getFullSize();
+        }
+        byte[] keySeed = Crypto.getKeySeed("apl-bench generator secret phrase");
+        BlockImpl block = new BlockImpl(Block.REGULAR_BLOCK_VERSION, 100_000, -1L, totalAmountATM, totalFeeATM,
+            payloadLength, digest.digest(), Crypto.getPublicKey(keySeed), new byte[64], new byte[32], 0,
+            transactions, keySeed);
+        blockJson = block.getJSONObject().toJSONString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.shutdown();
+    }
+
+    @Benchmark
+    public Block parseBlock() throws AplException.NotValidException {
+        return BlockImpl.parseBlock((JSONObject) JSONValue.parse(blockJson), false);
+    }
+
+    @Benchmark
+    public Block parseAndVerifyBlock() throws AplException.NotValidException {
+        return BlockImpl.parseBlock((JSONObject) JSONValue.parse(blockJson), true);
+    }
+}
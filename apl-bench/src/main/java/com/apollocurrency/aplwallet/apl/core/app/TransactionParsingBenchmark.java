@@ -0,0 +1,87 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.transaction.messages.Attachment;
+import com.apollocurrency.aplwallet.apl.core.transaction.messages.MessageAppendix;
+import com.apollocurrency.aplwallet.apl.crypto.Crypto;
+import com.apollocurrency.aplwallet.apl.util.AplException;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the signed transaction from the bytes and from the json, as it is received from the peers and clients
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransactionParsingBenchmark {
+    /**
+     * Size of the attached plain text message, 0 - ordinary payment without appendices
+     */
+    @Param({"0", "160"})
+    private int messageSize;
+
+    private byte[] transactionBytes;
+    private String transactionJson;
+
+    @Setup
+    public void setUp() throws AplException.NotValidException {
+        Transaction transaction = newTransaction(messageSize);
+        transactionBytes = transaction.getBytes();
+        transactionJson = transaction.getJSONObject().toJSONString();
+    }
+
+    @Benchmark
+    public Transaction parseBytes() throws AplException.NotValidException {
+        return Transaction.newTransactionBuilder(transactionBytes).build();
+    }
+
+    @Benchmark
+    public Transaction parseJson() throws AplException.NotValidException {
+        return Transaction.newTransactionBuilder((JSONObject) JSONValue.parse(transactionJson)).build();
+    }
+
+    @Benchmark
+    public byte[] serializeBytes() throws AplException.NotValidException {
+        return Transaction.newTransactionBuilder(transactionBytes).build().getBytes();
+    }
+
+    /**
+     * Create signed payment transaction, does not require blockchain since ec block is set explicitly
+     */
+    static Transaction newTransaction(int messageSize) throws AplException.NotValidException {
+        return newTransaction(messageSize, 1);
+    }
+
+    static Transaction newTransaction(int messageSize, int nonce) throws AplException.NotValidException {
+        byte[] keySeed = Crypto.getKeySeed("apl-bench sender secret phrase");
+        Transaction.Builder builder = Transaction.newTransactionBuilder(Crypto.getPublicKey(keySeed),
+            100_000_000L * nonce, 100_000_000L, (short) 1440, Attachment.ORDINARY_PAYMENT, 100_000 + nonce)
+            .recipientId(-6_000_000_000_000_000L)
+            .ecBlockHeight(0)
+            .ecBlockId(0);
+        if (messageSize > 0) {
+            builder.appendix(new MessageAppendix("m".repeat(messageSize)));
+        }
+        return builder.build(keySeed);
+    }
+}
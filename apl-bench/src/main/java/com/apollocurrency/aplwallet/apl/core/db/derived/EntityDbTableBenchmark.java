@@ -0,0 +1,144 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db.derived;
+
+import com.apollocurrency.aplwallet.apl.core.account.dao.AccountTable;
+import com.apollocurrency.aplwallet.apl.core.account.model.Account;
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManagerImpl;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.core.db.cdi.transaction.JdbiHandleFactory;
+import com.apollocurrency.aplwallet.apl.util.injectable.DbProperties;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.enterprise.inject.Produces;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup of the latest and historical versions of the entity by the key on the embedded H2 with the full db schema
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EntityDbTableBenchmark {
+    /**
+     * Number of the versions of each account
+     */
+    private static final int VERSIONS = 4;
+
+    @Param({"10000"})
+    private int accountCount;
+
+    private WeldContainer container;
+    private DatabaseManager databaseManager;
+    private AccountTable table;
+    private long[] ids;
+    private int index;
+
+    @Setup
+    public void setUp() throws SQLException {
+        DbProperties dbProperties = new DbProperties()
+            .dbUrl("jdbc:h2:mem:entity_bench" + System.nanoTime() + ";MV_STORE=TRUE;CACHE_SIZE=16000")
+            .dbType("h2")
+            .dbUsername("sa")
+            .dbPassword("sa")
+            .dbParams("")
+            .maxConnections(10)
+            .chainId(UUID.randomUUID())
+            .loginTimeout(10)
+            .maxMemoryRows(100000)
+            .defaultLockTimeout(10 * 1000);
+        databaseManager = new DatabaseManagerImpl(dbProperties, new PropertiesHolder(), new JdbiHandleFactory());
+        DatabaseManagerProducer.databaseManager = databaseManager;
+        // derived tables look up the database manager
+        container = new Weld().disableDiscovery().addBeanClasses(DatabaseManagerProducer.class).initialize();
+        table = new AccountTable(null, new BlockchainConfig());
+        ids = new long[accountCount];
+        populate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.shutdown();
+        databaseManager.shutdown();
+    }
+
+    @Benchmark
+    public Account getLatest() {
+        return table.get(AccountTable.newKey(nextId()));
+    }
+
+    @Benchmark
+    public Account getAtHeight() {
+        return table.get(AccountTable.newKey(nextId()), VERSIONS / 2);
+    }
+
+    private long nextId() {
+        index = index + 1 == ids.length ? 0 : index + 1;
+        return ids[index];
+    }
+
+    private void populate() throws SQLException {
+        Random random = new Random(accountCount);
+        TransactionalDataSource dataSource = databaseManager.getDataSource();
+        Connection con = dataSource.begin();
+        try (PreparedStatement pstmt = con.prepareStatement("INSERT INTO account (id, balance, unconfirmed_balance, "
+            + "forged_balance, active_lessee_id, has_control_phasing, height, latest, deleted) "
+            + "VALUES (?, ?, ?, 0, NULL, FALSE, ?, ?, FALSE)")) {
+            for (int i = 0; i < accountCount; i++) {
+                ids[i] = random.nextLong();
+                for (int height = 0; height < VERSIONS; height++) {
+                    long balance = random.nextInt(Integer.MAX_VALUE);
+                    pstmt.setLong(1, ids[i]);
+                    pstmt.setLong(2, balance);
+                    pstmt.setLong(3, balance);
+                    pstmt.setInt(4, height);
+                    pstmt.setBoolean(5, height == VERSIONS - 1);
+                    pstmt.addBatch();
+                }
+                if (i % 1000 == 999) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+            dataSource.commit();
+        } catch (SQLException e) {
+            dataSource.rollback();
+            throw e;
+        }
+    }
+
+    public static class DatabaseManagerProducer {
+        private static DatabaseManager databaseManager;
+
+        @Produces
+        public DatabaseManager databaseManager() {
+            return databaseManager;
+        }
+    }
+}
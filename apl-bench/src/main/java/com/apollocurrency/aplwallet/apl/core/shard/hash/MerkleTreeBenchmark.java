@@ -0,0 +1,96 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.shard.hash;
+
+import com.apollocurrency.aplwallet.apl.crypto.Crypto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building of the Merkle tree over the shard data, from the whole list and by appending leaves one by one,
+ * and root calculation of the streaming tree in the current thread and in parallel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MerkleTreeBenchmark {
+    @Param({"1000", "100000"})
+    private int leafCount;
+
+    @Param({"256"})
+    private int leafSize;
+
+    private List<byte[]> data;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(leafCount);
+        data = new ArrayList<>(leafCount);
+        for (int i = 0; i < leafCount; i++) {
+            byte[] leaf = new byte[leafSize];
+            random.nextBytes(leaf);
+            data.add(leaf);
+        }
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public byte[] build() {
+        return new MerkleTree(Crypto.sha256(), data).getRoot().getValue();
+    }
+
+    @Benchmark
+    public byte[] append() {
+        MerkleTree tree = new MerkleTree(Crypto.sha256());
+        for (byte[] leaf : data) {
+            tree.appendLeaf(leaf);
+        }
+        return tree.getRoot().getValue();
+    }
+
+    @Benchmark
+    public byte[] stream() {
+        StreamingMerkleTree tree = new StreamingMerkleTree(Crypto.sha256());
+        for (byte[] leaf : data) {
+            tree.appendLeaf(leaf);
+        }
+        return tree.getRoot();
+    }
+
+    @Benchmark
+    public byte[] streamParallel() {
+        StreamingMerkleTree tree = new StreamingMerkleTree(Crypto.sha256());
+        for (byte[] leaf : data) {
+            tree.appendLeaf(leaf);
+        }
+        return tree.getRoot(executor);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.shard.helper.csv;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the shard export to csv and import from csv on the table of the typical derived entity
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CsvBenchmark {
+    private static final String SELECT_ROWS = "SELECT * FROM bench_entity ORDER BY db_id";
+
+    @Param({"10000"})
+    private int rowCount;
+
+    private Path dataExportPath;
+    private Connection connection;
+    private String csv;
+
+    @Setup
+    public void setUp() throws SQLException, IOException {
+        dataExportPath = Files.createTempDirectory("apl-bench-csv");
+        connection = DriverManager.getConnection("jdbc:h2:mem:csv_bench;DB_CLOSE_DELAY=-1", "sa", "sa");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE bench_entity (db_id BIGINT AUTO_INCREMENT PRIMARY KEY, id BIGINT NOT NULL, "
+                + "account_id BIGINT NOT NULL, name VARCHAR NOT NULL, description VARCHAR, data VARBINARY, "
+                + "amount BIGINT NOT NULL, height INT NOT NULL, latest BOOLEAN NOT NULL DEFAULT TRUE)");
+        }
+        Random random = new Random(rowCount);
+        try (PreparedStatement pstmt = connection.prepareStatement("INSERT INTO bench_entity "
+            + "(id, account_id, name, description, data, amount, height) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rowCount; i++) {
+                byte[] data = new byte[64];
+                random.nextBytes(data);
+                pstmt.setLong(1, random.nextLong());
+                pstmt.setLong(2, random.nextLong());
+                pstmt.setString(3, "name-" + i);
+                pstmt.setString(4, i % 2 == 0 ? null : "description, with 'quotes' of the entity " + i);
+                pstmt.setBytes(5, data);
+                pstmt.setLong(6, random.nextInt(Integer.MAX_VALUE));
+                pstmt.setInt(7, i);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        csv = export();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException, IOException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DROP TABLE bench_entity");
+        }
+        connection.close();
+        Files.deleteIfExists(dataExportPath);
+    }
+
+    @Benchmark
+    public String write() throws SQLException {
+        return export();
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws SQLException, IOException {
+        try (CsvReaderImpl reader = new CsvReaderImpl(dataExportPath, new CsvEscaperImpl());
+             ResultSet rs = reader.read(new StringReader(csv), null)) {
+            int columnCount = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int i = 1; i <= columnCount; i++) {
+                    blackhole.consume(rs.getObject(i));
+                }
+            }
+        }
+    }
+
+    private String export() throws SQLException {
+        StringWriter writer = new StringWriter();
+        try (CsvWriterImpl csvWriter = new CsvWriterImpl(dataExportPath, Set.of("DB_ID"), new CsvEscaperImpl());
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_ROWS)) {
+            csvWriter.write(writer, rs);
+        }
+        return writer.toString();
+    }
+}
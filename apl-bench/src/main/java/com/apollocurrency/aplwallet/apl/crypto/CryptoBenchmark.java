@@ -0,0 +1,80 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.crypto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing and verification of the transactions and blocks, Curve25519 primitives used by them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CryptoBenchmark {
+    /**
+     * Size of the signed message, ordinary payment transaction and max block payload
+     */
+    @Param({"176", "4096"})
+    private int messageSize;
+
+    private byte[] keySeed;
+    private byte[] publicKey;
+    private byte[] privateKey;
+    private byte[] message;
+    private byte[] signature;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(messageSize);
+        keySeed = Crypto.getKeySeed("apl-bench secret phrase");
+        publicKey = Crypto.getPublicKey(keySeed);
+        privateKey = Crypto.getPrivateKey(keySeed);
+        message = new byte[messageSize];
+        random.nextBytes(message);
+        signature = Crypto.sign(message, keySeed);
+    }
+
+    @Benchmark
+    public byte[] sign() {
+        return Crypto.sign(message, keySeed);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return Crypto.verify(signature, message, publicKey);
+    }
+
+    @Benchmark
+    public byte[] curve25519Keygen() {
+        byte[] p = new byte[32];
+        byte[] s = new byte[32];
+        byte[] k = privateKey.clone();
+        Curve25519.keygen(p, s, k);
+        return p;
+    }
+
+    @Benchmark
+    public byte[] curve25519SharedKey() {
+        byte[] z = new byte[32];
+        Curve25519.curve(z, privateKey, publicKey);
+        return z;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.exchange.service;
+
+import com.apollocurrency.aplwallet.apl.core.app.TimeService;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexCurrency;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrder;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderStatus;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.apollocurrency.aplwallet.apl.util.Constants.OFFER_VALIDATE_ERROR_IN_PARAMETER;
+import static com.apollocurrency.aplwallet.apl.util.Constants.OFFER_VALIDATE_OK;
+
+/**
+ * <p>Search of the counter order for the created order, which is done by the DexService for each new order
+ * and by the DexOrderProcessor for the pending orders.</p>
+ * <p>Candidate orders are returned from memory and only the last candidate passes the validation, so that benchmark
+ * measures the worst case of the matching loop without the order book lookup and eth node calls.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DexMatcherBenchmark {
+    /**
+     * Number of the open counter orders selected for the matching
+     */
+    @Param({"10", "1000"})
+    private int candidateCount;
+
+    private DexMatcherServiceImpl matcher;
+    private DexOrder sellOrder;
+    private DexOrder buyOrder;
+
+    @Setup
+    public void setUp() {
+        List<DexOrder> buyOrders = newOrders(OrderType.BUY);
+        List<DexOrder> sellOrders = newOrders(OrderType.SELL);
+        DexMatchingService matchingService = new DexMatchingService(null) {
+            @Override
+            public List<DexOrder> getOffersForMatching(DexOrder createdOrder, int currentTime) {
+                return createdOrder.getType().isSell() ? buyOrders : sellOrders;
+            }
+        };
+        DexOrder lastBuy = buyOrders.get(buyOrders.size() - 1);
+        DexOrder lastSell = sellOrders.get(sellOrders.size() - 1);
+        matcher = new DexMatcherServiceImpl(matchingService, new FixedTimeService(), new LastOrderValidator(lastBuy, lastSell));
+        sellOrder = new DexOrder(1L, 1L, "APL-X5JH-TJKJ-DVGC-5T2V8", "0x" + "1".repeat(40), OrderType.SELL,
+            OrderStatus.OPEN, DexCurrency.APL, 100_000_000_000L, DexCurrency.ETH, new BigDecimal("0.0001"), 200_000);
+        buyOrder = new DexOrder(2L, 2L, "0x" + "2".repeat(40), "APL-X5JH-TJKJ-DVGC-5T2V8", OrderType.BUY,
+            OrderStatus.OPEN, DexCurrency.APL, 100_000_000_000L, DexCurrency.ETH, new BigDecimal("0.0001"), 200_000);
+    }
+
+    @Benchmark
+    public DexOrder matchSellOrder() {
+        return matcher.findCounterOffer(sellOrder);
+    }
+
+    @Benchmark
+    public DexOrder matchBuyOrder() {
+        return matcher.findCounterOffer(buyOrder);
+    }
+
+    private List<DexOrder> newOrders(OrderType type) {
+        List<DexOrder> orders = new ArrayList<>(candidateCount);
+        for (int i = 0; i < candidateCount; i++) {
+            long id = (type.ordinal() + 1) * 1_000_000L + i;
+            orders.add(new DexOrder(id, id, "APL-X5JH-TJKJ-DVGC-5T2V8", "0x" + "3".repeat(40), type, OrderStatus.OPEN,
+                DexCurrency.APL, 100_000_000_000L, DexCurrency.ETH, new BigDecimal("0.0001"), 200_000));
+        }
+        return orders;
+    }
+
+    private static class FixedTimeService implements TimeService {
+        @Override
+        public int getEpochTime() {
+            return 100_000;
+        }
+
+        @Override
+        public long systemTime() {
+            return 1_600_000_000L;
+        }
+    }
+
+    private static class LastOrderValidator implements IDexValidator {
+        private final DexOrder lastBuy;
+        private final DexOrder lastSell;
+
+        LastOrderValidator(DexOrder lastBuy, DexOrder lastSell) {
+            this.lastBuy = lastBuy;
+            this.lastSell = lastSell;
+        }
+
+        private int validate(DexOrder hisOffer) {
+            return hisOffer == lastBuy || hisOffer == lastSell ? OFFER_VALIDATE_OK : OFFER_VALIDATE_ERROR_IN_PARAMETER;
+        }
+
+        @Override
+        public int validateOfferBuyAplEth(DexOrder myOffer, DexOrder hisOffer) {
+            return validate(hisOffer);
+        }
+
+        @Override
+        public int validateOfferBuyAplEthPhasing(DexOrder myOffer, DexOrder hisOffer, Long txId) {
+            return validate(hisOffer);
+        }
+
+        @Override
+        public int validateOfferSellAplEthActiveDeposit(DexOrder myOffer, DexOrder hisOffer) {
+            return validate(hisOffer);
+        }
+
+        @Override
+        public int validateOfferSellAplEthAtomicSwap(DexOrder myOffer, DexOrder hisOffer, byte[] secretHash) {
+            return validate(hisOffer);
+        }
+
+        @Override
+        public int validateOfferBuyAplPax(DexOrder myOffer, DexOrder hisOffer) {
+            return validate(hisOffer);
+        }
+
+        @Override
+        public int validateOfferSellAplPaxActiveDeposit(DexOrder myOffer, DexOrder hisOffer) {
+            return validate(hisOffer);
+        }
+
+        @Override
+        public int validateOfferSellAplPaxAtomicSwap(DexOrder myOffer, DexOrder hisOffer, byte[] secretHash) {
+            return validate(hisOffer);
+        }
+    }
+}
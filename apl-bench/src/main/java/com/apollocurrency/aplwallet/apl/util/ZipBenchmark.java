@@ -0,0 +1,114 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time of the shard archive creation with hash and chunk CRCs calculation.
+ * <p>Real shard export is compressed when its directory is set by the {@code apl.bench.shardExportDir}
+ * system property, otherwise csv files of the typical shard tables are generated.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ZipBenchmark {
+    private static final String SHARD_EXPORT_DIR_PROPERTY = "apl.bench.shardExportDir";
+    private static final String[] TABLES = {"block", "transaction", "block_index", "transaction_shard_index", "account", "public_key"};
+
+    @Param({"1", "6", "9"})
+    private int compressionLevel;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    @Param({"50000"})
+    private int rowCount;
+
+    private Path tempDir;
+    private Path inputDir;
+    private String zipFile;
+    private ZipImpl zip;
+
+    @Setup
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("apl-bench-zip");
+        zipFile = tempDir.resolve("shard.zip").toString();
+        String shardExportDir = System.getProperty(SHARD_EXPORT_DIR_PROPERTY);
+        if (shardExportDir != null) {
+            inputDir = Paths.get(shardExportDir);
+        } else {
+            inputDir = Files.createDirectory(tempDir.resolve("export"));
+            generateCsv();
+        }
+        zip = new ZipImpl(compressionLevel, threads);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public byte[] compressAndHash() throws IOException {
+        Files.deleteIfExists(Paths.get(zipFile));
+        return zip.compressAndHash(zipFile, inputDir.toString(), null, null, false).getFileHash();
+    }
+
+    /**
+     * Archive is read back to calculate hash and chunk CRCs, as it was done before the hashing while writing
+     */
+    @Benchmark
+    public byte[] compressThenHash() throws IOException {
+        Files.deleteIfExists(Paths.get(zipFile));
+        zip.compress(zipFile, inputDir.toString(), null, null, false);
+        return new ChunkedFileOps(zipFile).getFileHashSums();
+    }
+
+    private void generateCsv() throws IOException {
+        Random random = new Random(rowCount);
+        for (int t = 0; t < TABLES.length; t++) {
+            try (BufferedWriter writer = Files.newBufferedWriter(inputDir.resolve(TABLES[t] + ".csv"))) {
+                writer.write("ID(-5|19|0),ACCOUNT_ID(-5|19|0),HASH(-3|32|0),NAME(12|100|0),AMOUNT(-5|19|0),HEIGHT(4|10|0)");
+                writer.newLine();
+                int rows = rowCount * (t + 1);
+                byte[] hash = new byte[32];
+                for (int i = 0; i < rows; i++) {
+                    random.nextBytes(hash);
+                    writer.write(random.nextLong() + "," + random.nextInt(1000) + ",'" + Base64.getEncoder().encodeToString(hash)
+                        + "','name-" + i + "'," + random.nextInt(Integer.MAX_VALUE) + "," + i);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account.dao;
+
+import com.apollocurrency.aplwallet.apl.core.account.model.AccountGuaranteedBalance;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionCallback;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * <p>In-memory copy of the account_guaranteed_balance table, which replaces the SUM(additions) queries of the
+ * guaranteed and effective balance calculation.</p>
+ * <p>Additions of each account are kept in a ring ordered by height together with their running total, so that
+ * the sum of additions over the last confirmations window is a difference of two running totals. The ring holds
+ * the same heights as the table: it grows at the current height, is cut from the tail by the table rollback
+ * and from the head by the table trim, which keeps the guaranteed balance confirmations below the trim height.</p>
+ * <p>Index is loaded from the {@link AccountGuaranteedBalanceTable} on the first access and answers only the height
+ * ranges, which are known to be complete in memory, otherwise null is returned and caller should query the table.
+ * Index is cleared and loaded again, when the db transaction, which changed it, is rolled back. Caller is responsible
+ * to register this index as a {@link TransactionCallback} for the current transaction.</p>
+ */
+@Slf4j
+public class AccountGuaranteedBalanceIndex implements TransactionCallback {
+    private final Supplier<List<AccountGuaranteedBalance>> loader;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, AdditionsRing> byAccount = new HashMap<>();
+    private final NavigableMap<Integer, Set<Long>> byHeight = new TreeMap<>();
+    /**
+     * All the additions at this height and above are in memory
+     */
+    private int completeFromHeight = Integer.MAX_VALUE;
+    private volatile boolean loaded;
+
+    /**
+     * @param loader supplier of all the table rows sorted by height
+     */
+    public AccountGuaranteedBalanceIndex(Supplier<List<AccountGuaranteedBalance>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Load the index from the db, when it was not loaded yet. Should be called before the first modification
+     * of the account_guaranteed_balance table under the db transaction, so that index is loaded without uncommitted changes.
+     */
+    public void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                load();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sum of the account additions at the heights in the range (fromHeight, toHeight]
+     *
+     * @return sum of the additions or null, when the range is not available in memory
+     */
+    public Long getSumOfAdditions(long accountId, int fromHeight, int toHeight) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            if (!isAvailable(fromHeight)) {
+                return null;
+            }
+            AdditionsRing ring = byAccount.get(accountId);
+            return ring == null ? 0L : ring.sum(fromHeight, toHeight);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sums of the additions at the heights in the range (fromHeight, toHeight] for each of the given accounts,
+     * accounts without additions in the range are omitted
+     *
+     * @return sums of the additions by account id or null, when the range is not available in memory
+     */
+    public Map<Long, Long> getAdditions(Collection<Long> accountIds, int fromHeight, int toHeight) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            if (!isAvailable(fromHeight)) {
+                return null;
+            }
+            Map<Long, Long> additions = new HashMap<>();
+            for (Long accountId : accountIds) {
+                AdditionsRing ring = byAccount.get(accountId);
+                if (ring != null) {
+                    long sum = ring.sum(fromHeight, toHeight);
+                    if (sum != 0) {
+                        additions.put(accountId, sum);
+                    }
+                }
+            }
+            return additions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply the addition merged into the table row. Should be called under the db transaction.
+     */
+    public void add(long accountId, long amountATM, int height) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            put(accountId, amountATM, height);
+            if (completeFromHeight == Integer.MAX_VALUE) {
+                completeFromHeight = height;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the additions above the given height. Should be called under the db transaction, after the table rollback.
+     */
+    public void removeAbove(int height) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            NavigableMap<Integer, Set<Long>> removed = byHeight.tailMap(height, false);
+            for (Set<Long> accountIds : removed.values()) {
+                for (Long accountId : accountIds) {
+                    AdditionsRing ring = byAccount.get(accountId);
+                    if (ring != null) {
+                        ring.removeAbove(height);
+                        if (ring.isEmpty()) {
+                            byAccount.remove(accountId);
+                        }
+                    }
+                }
+            }
+            removed.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the additions below the given height, after the table trim.
+     */
+    public void removeBelow(int height) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            NavigableMap<Integer, Set<Long>> removed = byHeight.headMap(height, false);
+            for (Set<Long> accountIds : removed.values()) {
+                for (Long accountId : accountIds) {
+                    AdditionsRing ring = byAccount.get(accountId);
+                    if (ring != null) {
+                        ring.removeBelow(height);
+                        if (ring.isEmpty()) {
+                            byAccount.remove(accountId);
+                        }
+                    }
+                }
+            }
+            removed.clear();
+            if (completeFromHeight != Integer.MAX_VALUE) {
+                completeFromHeight = Math.max(completeFromHeight, height);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Clear the index. It will be loaded from the db again on the next access.
+     */
+    public void reset() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of accounts with additions in memory
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byAccount.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void commit() {
+    }
+
+    @Override
+    public void rollback() {
+        reset();
+        log.debug("Guaranteed balance index was reset after db transaction rollback");
+    }
+
+    private boolean isAvailable(int fromHeight) {
+        return loaded && fromHeight >= completeFromHeight - 1;
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        clear();
+        int rows = 0;
+        for (AccountGuaranteedBalance balance : loader.get()) {
+            put(balance.getAccountId(), balance.getAdditions(), balance.getHeight());
+            rows++;
+        }
+        completeFromHeight = byHeight.isEmpty() ? Integer.MAX_VALUE : byHeight.firstKey();
+        loaded = true;
+        log.info("Guaranteed balance index loaded {} additions of {} accounts in {} ms", rows, byAccount.size(),
+            System.currentTimeMillis() - start);
+    }
+
+    private void clear() {
+        byAccount.clear();
+        byHeight.clear();
+        completeFromHeight = Integer.MAX_VALUE;
+    }
+
+    private void put(long accountId, long amountATM, int height) {
+        byAccount.computeIfAbsent(accountId, id -> new AdditionsRing()).add(height, amountATM);
+        byHeight.computeIfAbsent(height, h -> new HashSet<>()).add(accountId);
+    }
+
+    /**
+     * Account additions sorted by height in the circular arrays. Instead of the additions their running totals are
+     * stored, which may overflow, but their differences are still exact.
+     */
+    static class AdditionsRing {
+        private int[] heights = new int[4];
+        private long[] totals = new long[4];
+        private int head;
+        private int size;
+        /**
+         * Running total of the removed head additions
+         */
+        private long base;
+
+        void add(int height, long amountATM) {
+            int position = size;
+            while (position > 0 && heights[index(position - 1)] > height) {
+                position--;
+            }
+            for (int i = position; i < size; i++) {
+                totals[index(i)] += amountATM;
+            }
+            if (position > 0 && heights[index(position - 1)] == height) {
+                totals[index(position - 1)] += amountATM;
+                return;
+            }
+            if (size == heights.length) {
+                grow();
+            }
+            for (int i = size; i > position; i--) {
+                heights[index(i)] = heights[index(i - 1)];
+                totals[index(i)] = totals[index(i - 1)];
+            }
+            heights[index(position)] = height;
+            totals[index(position)] = (position == 0 ? base : totals[index(position - 1)]) + amountATM;
+            size++;
+        }
+
+        /**
+         * @return sum of the additions at the heights in the range (fromHeight, toHeight]
+         */
+        long sum(int fromHeight, int toHeight) {
+            if (toHeight <= fromHeight) {
+                return 0;
+            }
+            return totalAt(toHeight) - totalAt(fromHeight);
+        }
+
+        void removeAbove(int height) {
+            while (size > 0 && heights[index(size - 1)] > height) {
+                size--;
+            }
+        }
+
+        void removeBelow(int height) {
+            while (size > 0 && heights[head] < height) {
+                base = totals[head];
+                head = index(1);
+                size--;
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * @return running total of the additions at the heights less than or equal to the given height
+         */
+        private long totalAt(int height) {
+            if (size == 0 || height < heights[head]) {
+                return base;
+            }
+            int last = size - 1;
+            if (height >= heights[index(last)]) {
+                return totals[index(last)];
+            }
+            int low = 0;
+            int high = last;
+            // invariant: heights[low] <= height < heights[high]
+            while (high - low > 1) {
+                int middle = (low + high) >>> 1;
+                if (heights[index(middle)] <= height) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            return totals[index(low)];
+        }
+
+        private int index(int position) {
+            return (head + position) % heights.length;
+        }
+
+        private void grow() {
+            int[] newHeights = new int[heights.length * 2];
+            long[] newTotals = new long[totals.length * 2];
+            for (int i = 0; i < size; i++) {
+                newHeights[i] = heights[index(i)];
+                newTotals[i] = totals[index(i)];
+            }
+            heights = newHeights;
+            totals = newTotals;
+            head = 0;
+        }
+
+    }
+}
@@ -20,6 +20,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +43,7 @@ public class AccountGuaranteedBalanceTable extends DerivedDbTable {
     };
     private final BlockchainConfig blockchainConfig;
     private final int batchCommitSize;
+    private final AccountGuaranteedBalanceIndex balanceIndex = new AccountGuaranteedBalanceIndex(this::getAllAdditions);
 
     @Inject
     public AccountGuaranteedBalanceTable(BlockchainConfig blockchainConfig, PropertiesHolder propertiesHolder) {
@@ -54,14 +56,23 @@ public class AccountGuaranteedBalanceTable extends DerivedDbTable {
         return accountGuaranteedBalanceLongKeyFactory.newKey(id);
     }
 
+    /**
+     * @return in-memory index of the additions, which is kept in sync with this table
+     */
+    public AccountGuaranteedBalanceIndex getBalanceIndex() {
+        return balanceIndex;
+    }
+
     @Override
     public void trim(int height) {
+        balanceIndex.ensureLoaded();
+        int trimHeight = height - blockchainConfig.getGuaranteedBalanceConfirmations();
         TransactionalDataSource dataSource = getDatabaseManager().getDataSource();
         try (Connection con = dataSource.getConnection();
              @DatabaseSpecificDml(DmlMarker.DELETE_WITH_LIMIT)
              PreparedStatement pstmtDelete = con.prepareStatement("DELETE FROM account_guaranteed_balance "
                  + "WHERE height < ? AND height >= 0 LIMIT " + batchCommitSize)) {
-            pstmtDelete.setInt(1, height - blockchainConfig.getGuaranteedBalanceConfirmations());
+            pstmtDelete.setInt(1, trimHeight);
             int count;
             do {
                 count = pstmtDelete.executeUpdate();
@@ -70,6 +81,22 @@ public class AccountGuaranteedBalanceTable extends DerivedDbTable {
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
+        balanceIndex.removeBelow(trimHeight);
+    }
+
+    @Override
+    public int rollback(int height) {
+        balanceIndex.ensureLoaded();
+        int rc = super.rollback(height);
+        balanceIndex.removeAbove(height);
+        getDatabaseManager().getDataSource().registerCallback(balanceIndex);
+        return rc;
+    }
+
+    @Override
+    public void truncate() {
+        super.truncate();
+        balanceIndex.reset();
     }
 
     @Override
@@ -78,6 +105,10 @@ public class AccountGuaranteedBalanceTable extends DerivedDbTable {
     }
 
     public Long getSumOfAdditions(long accountId, int height, int currentHeight) {
+        Long sum = balanceIndex.getSumOfAdditions(accountId, height, currentHeight);
+        if (sum != null) {
+            return sum;
+        }
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT SUM (" + ADDITIONS_COLUMN_NAME + ") AS " + ADDITIONS_COLUMN_NAME + " "
@@ -97,7 +128,12 @@ public class AccountGuaranteedBalanceTable extends DerivedDbTable {
     }
 
     public Map<Long, Long> getLessorsAdditions(List<Long> lessors, int height, int blockchainHeight) {
-        Map<Long, Long> lessorsAdditions = new HashMap<>();
+        Map<Long, Long> lessorsAdditions = balanceIndex.getAdditions(lessors,
+            height - blockchainConfig.getGuaranteedBalanceConfirmations(), height < blockchainHeight ? height : Integer.MAX_VALUE);
+        if (lessorsAdditions != null) {
+            return lessorsAdditions;
+        }
+        lessorsAdditions = new HashMap<>();
         Long[] lessorIds = lessors.toArray(new Long[]{});
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
@@ -128,6 +164,7 @@ public class AccountGuaranteedBalanceTable extends DerivedDbTable {
         if (amountATM <= 0) {
             return;
         }
+        balanceIndex.ensureLoaded();
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
              PreparedStatement pstmtSelect = con.prepareStatement("SELECT additions FROM account_guaranteed_balance "
@@ -150,5 +187,26 @@ public class AccountGuaranteedBalanceTable extends DerivedDbTable {
         } catch (SQLException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
+        balanceIndex.add(accountId, amountATM, blockchainHeight);
+        dataSource.registerCallback(balanceIndex);
+    }
+
+    /**
+     * @return all the additions sorted by height
+     */
+    private List<AccountGuaranteedBalance> getAllAdditions() {
+        List<AccountGuaranteedBalance> additions = new ArrayList<>();
+        TransactionalDataSource dataSource = databaseManager.getDataSource();
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT account_id, additions, height "
+                 + "FROM account_guaranteed_balance ORDER BY height, account_id");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                additions.add(new AccountGuaranteedBalance(rs.getLong("account_id"), rs.getLong(ADDITIONS_COLUMN_NAME), rs.getInt("height")));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        return additions;
     }
 }
@@ -110,6 +110,20 @@ public class Account extends VersionedDeletableEntity {
         return controls;
     }
 
+    /**
+     * Copy account together with its mutable public key entity
+     *
+     * @return copy of this account
+     */
+    @Override
+    public Account copy() {
+        Account copy = (Account) super.copy();
+        if (publicKey != null) {
+            copy.publicKey = publicKey.copy();
+        }
+        return copy;
+    }
+
     /**
      * Add control into account
      *
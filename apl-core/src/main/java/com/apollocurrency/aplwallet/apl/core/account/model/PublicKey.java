@@ -36,6 +36,15 @@ public final class PublicKey extends VersionedDerivedEntity {
         setDbKey(dbKey);
     }
 
+    @Override
+    public PublicKey copy() {
+        PublicKey copy = (PublicKey) super.copy();
+        if (publicKey != null) {
+            copy.publicKey = Arrays.copyOf(publicKey, publicKey.length);
+        }
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -15,13 +15,11 @@ import com.apollocurrency.aplwallet.apl.core.app.observer.events.AccountLedgerEv
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
 import com.apollocurrency.aplwallet.apl.crypto.Convert;
 import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.SortedSet;
@@ -70,13 +68,12 @@ public class AccountLedgerServiceImpl implements AccountLedgerService {
     /**
      * Pending ledger entries
      */
-    @Getter
-    private final List<LedgerEntry> pendingEntries = new ArrayList<>();
+    private final PendingLedgerEntries pendingEntries = new PendingLedgerEntries();
 
-    private Event<LedgerEntry> accountLedgerEntryEvent;
+    private Event<List<LedgerEntry>> accountLedgerEntryEvent;
 
     @Inject
-    public AccountLedgerServiceImpl(AccountLedgerTable accountLedgerTable, Blockchain blockchain, BlockchainProcessor blockchainProcessor, PropertiesHolder propertiesHolder, BlockchainConfig blockchainConfig, Event<LedgerEntry> accountLedgerEntryEvent) {
+    public AccountLedgerServiceImpl(AccountLedgerTable accountLedgerTable, Blockchain blockchain, BlockchainProcessor blockchainProcessor, PropertiesHolder propertiesHolder, BlockchainConfig blockchainConfig, Event<List<LedgerEntry>> accountLedgerEntryEvent) {
         this.accountLedgerTable = accountLedgerTable;
         this.blockchain = blockchain;
         this.blockchainProcessor = blockchainProcessor;
@@ -167,34 +164,27 @@ public class AccountLedgerServiceImpl implements AccountLedgerService {
         //
         // Combine multiple ledger entries
         //
-        int index = pendingEntries.indexOf(ledgerEntry);
-        if (index >= 0) {
-            LedgerEntry existingEntry = pendingEntries.remove(index);
-            ledgerEntry.updateChange(existingEntry.getChange());
-            long adjustedBalance = existingEntry.getBalance() - existingEntry.getChange();
-            for (; index < pendingEntries.size(); index++) {
-                existingEntry = pendingEntries.get(index);
-                if (existingEntry.getAccountId() == ledgerEntry.getAccountId() &&
-                    existingEntry.getHolding() == ledgerEntry.getHolding() &&
-                    ((existingEntry.getHoldingId() == null && ledgerEntry.getHoldingId() == null) ||
-                        (existingEntry.getHoldingId() != null && existingEntry.getHoldingId().equals(ledgerEntry.getHoldingId())))) {
-                    adjustedBalance += existingEntry.getChange();
-                    existingEntry.setBalance(adjustedBalance);
-                }
-            }
-        }
         pendingEntries.add(ledgerEntry);
     }
 
+    /**
+     * @return pending ledger entries in the log order
+     */
+    public List<LedgerEntry> getPendingEntries() {
+        return pendingEntries.getEntries();
+    }
+
     /**
      * Commit pending ledger entries
      */
     @Override
     public void commitEntries() {
-        for (LedgerEntry ledgerEntry : pendingEntries) {
-            accountLedgerTable.insert(ledgerEntry);
-            accountLedgerEntryEvent.select(AccountLedgerEventBinding.literal(AccountLedgerEventType.ADD_ENTRY)).fire(ledgerEntry);
+        if (pendingEntries.isEmpty()) {
+            return;
         }
+        List<LedgerEntry> entries = pendingEntries.getEntries();
+        accountLedgerTable.insert(entries);
+        accountLedgerEntryEvent.select(AccountLedgerEventBinding.literal(AccountLedgerEventType.ADD_ENTRIES)).fire(entries);
         pendingEntries.clear();
     }
 
@@ -0,0 +1,164 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account.service;
+
+import com.apollocurrency.aplwallet.apl.core.account.LedgerHolding;
+import com.apollocurrency.aplwallet.apl.core.account.model.LedgerEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>Ledger entries logged during the block processing in the log order.</p>
+ * <p>Entry of the same event, account and holding as already logged one is combined with it: changes are summed and
+ * combined entry is moved to the end. Balances of the entries of the same account holding logged after the combined
+ * one no longer include its change, such balance adjustments are recorded in O(1) and applied, when entries are
+ * requested.</p>
+ */
+class PendingLedgerEntries {
+    private final Map<LedgerEntry, PendingEntry> entries = new LinkedHashMap<>();
+    private final Map<HoldingKey, HoldingBalances> holdings = new HashMap<>();
+
+    void add(LedgerEntry ledgerEntry) {
+        HoldingBalances holding = holdings.computeIfAbsent(new HoldingKey(ledgerEntry), k -> new HoldingBalances());
+        PendingEntry existing = entries.remove(ledgerEntry);
+        if (existing != null) {
+            long change = existing.entry.getChange();
+            ledgerEntry.updateChange(change);
+            holding.adjust(existing.position + 1, -change);
+        }
+        entries.put(ledgerEntry, new PendingEntry(ledgerEntry, holding, holding.nextPosition()));
+    }
+
+    /**
+     * @return entries in the log order with the adjusted balances
+     */
+    List<LedgerEntry> getEntries() {
+        holdings.values().forEach(HoldingBalances::prepareAdjustments);
+        List<LedgerEntry> result = new ArrayList<>(entries.size());
+        for (PendingEntry pending : entries.values()) {
+            long adjustment = pending.holding.getAdjustment(pending.position);
+            if (adjustment != 0) {
+                pending.entry.setBalance(pending.entry.getBalance() + adjustment);
+            }
+            result.add(pending.entry);
+        }
+        holdings.values().forEach(HoldingBalances::clearAdjustments);
+        return result;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    void clear() {
+        entries.clear();
+        holdings.clear();
+    }
+
+    private static class PendingEntry {
+        private final LedgerEntry entry;
+        private final HoldingBalances holding;
+        private final int position;
+
+        PendingEntry(LedgerEntry entry, HoldingBalances holding, int position) {
+            this.entry = entry;
+            this.holding = holding;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Balance adjustments of the account holding entries by their positions in the holding log order
+     */
+    private static class HoldingBalances {
+        private int positions;
+        /**
+         * Difference array: adjustment of the position is a sum of all the elements up to it
+         */
+        private long[] diff = new long[4];
+        private boolean adjusted;
+
+        int nextPosition() {
+            return positions++;
+        }
+
+        /**
+         * Adjust balances of all the already logged entries starting from the given position
+         */
+        void adjust(int fromPosition, long delta) {
+            if (fromPosition >= positions) {
+                return;
+            }
+            // entries logged later should not be adjusted
+            ensureCapacity(positions + 1);
+            diff[fromPosition] += delta;
+            diff[positions] -= delta;
+            adjusted = true;
+        }
+
+        void prepareAdjustments() {
+            if (adjusted) {
+                ensureCapacity(positions + 1);
+                for (int i = 1; i < positions; i++) {
+                    diff[i] += diff[i - 1];
+                }
+            }
+        }
+
+        long getAdjustment(int position) {
+            return adjusted ? diff[position] : 0;
+        }
+
+        void clearAdjustments() {
+            if (adjusted) {
+                Arrays.fill(diff, 0);
+                adjusted = false;
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (diff.length < capacity) {
+                diff = Arrays.copyOf(diff, Math.max(capacity, diff.length * 2));
+            }
+        }
+    }
+
+    private static class HoldingKey {
+        private final long accountId;
+        private final LedgerHolding holding;
+        private final Long holdingId;
+
+        HoldingKey(LedgerEntry entry) {
+            this.accountId = entry.getAccountId();
+            this.holding = entry.getHolding();
+            this.holdingId = entry.getHoldingId();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof HoldingKey)) return false;
+            HoldingKey that = (HoldingKey) o;
+            return accountId == that.accountId &&
+                holding == that.holding &&
+                Objects.equals(holdingId, that.holdingId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, holding, holdingId);
+        }
+    }
+}
@@ -23,6 +23,7 @@ package com.apollocurrency.aplwallet.apl.core.app;
 
 import com.apollocurrency.aplwallet.apl.core.account.service.AccountPublicKeyService;
 import com.apollocurrency.aplwallet.apl.core.addons.AddOns;
+import com.apollocurrency.aplwallet.apl.core.cache.BlockCacheConfig;
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfigUpdater;
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
@@ -49,6 +50,7 @@ import com.apollocurrency.aplwallet.apl.util.cache.InMemoryCacheManager;
 import com.apollocurrency.aplwallet.apl.util.env.RuntimeParams;
 import com.apollocurrency.aplwallet.apl.util.env.dirprovider.DirProvider;
 import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import com.google.common.cache.Cache;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -67,6 +69,8 @@ public final class AplCore {
     private static BlockchainConfig blockchainConfig;
     private static TransportInteractionService transportInteractionService;
     private static volatile boolean initialized = false;
+    private static final String TRANSACTION_FILTER_FILE_NAME = "transaction-filter.bin";
+    private static final double TRANSACTION_FILTER_FPP = 0.001;
     @Inject
     @Setter
     PeersService peers;
@@ -81,6 +85,7 @@ public final class AplCore {
     private TimeService time;
     private Blockchain blockchain;
     private BlockchainProcessor blockchainProcessor;
+    private TransactionProcessor transactionProcessor;
     private DatabaseManager databaseManager;
     private FullTextSearchService fullTextSearchService;
     private API apiServer;
@@ -110,6 +115,7 @@ public final class AplCore {
     @Setter
     private PrunableArchiveMonitor prunableArchiveMonitor;
     private String initCoreTaskID;
+    private ConfirmedTransactionFilter transactionFilter;
 
     public AplCore() {
         time = CDI.current().select(TimeService.class).get();
@@ -159,6 +165,14 @@ public final class AplCore {
             blockchainProcessor.shutdown();
             log.info("blockchainProcessor Shutdown...");
         }
+        if (transactionProcessor != null) {
+            transactionProcessor.shutdown();
+            log.info("transactionProcessor Shutdown...");
+        }
+        if (transactionFilter != null) {
+            transactionFilter.shutdown(blockchain.getLastBlock());
+            log.info("confirmed transaction filter shutdown...");
+        }
         if (fullTextSearchService != null) fullTextSearchService.shutdown();
         log.info("full text service shutdown...");
 
@@ -243,9 +257,14 @@ public final class AplCore {
             tcs.initialize();
 
 
+            CDI.current().select(GlobalSyncImpl.class).get()
+                .setMetricsEnabled(propertiesHolder.getBooleanProperty("apl.globalSync.metrics"));
             bcValidator = CDI.current().select(DefaultBlockValidator.class).get();
             blockchainProcessor = CDI.current().select(BlockchainProcessorImpl.class).get();
+            transactionProcessor = CDI.current().select(TransactionProcessor.class).get();
             blockchain = CDI.current().select(BlockchainImpl.class).get();
+            enableBlockCache((BlockchainImpl) blockchain);
+            enableTransactionFilter((BlockchainImpl) blockchain);
             peers.init();
             GenesisAccounts.init();
 
@@ -314,6 +333,32 @@ public final class AplCore {
         }
     }
 
+    private void enableBlockCache(BlockchainImpl blockchainImpl) {
+        if (!propertiesHolder.getBooleanProperty("apl.enableBlockCache", true)) {
+            log.info("'{}' is TURNED OFF...", BlockCacheConfig.BLOCK_CACHE_NAME);
+            return;
+        }
+        Cache<Integer, Block> blocks = cacheManager.acquireCache(BlockCacheConfig.BLOCK_CACHE_NAME);
+        Cache<Long, Integer> blockHeights = cacheManager.acquireCache(BlockCacheConfig.BLOCK_HEIGHT_CACHE_NAME);
+        Cache<Long, Integer> transactionHeights = cacheManager.acquireCache(BlockCacheConfig.TRANSACTION_HEIGHT_CACHE_NAME);
+        if (blocks != null && blockHeights != null && transactionHeights != null) {
+            blockchainImpl.setBlockCache(new BlockCache(blocks, blockHeights, transactionHeights));
+            log.info("'{}' is TURNED ON...", BlockCacheConfig.BLOCK_CACHE_NAME);
+        }
+    }
+
+    private void enableTransactionFilter(BlockchainImpl blockchainImpl) {
+        if (!propertiesHolder.getBooleanProperty("apl.enableTransactionFilter", true)) {
+            log.info("Confirmed transaction filter is TURNED OFF...");
+            return;
+        }
+        transactionFilter = new ConfirmedTransactionFilter(dirProvider.getDbDir().resolve(TRANSACTION_FILTER_FILE_NAME),
+            TRANSACTION_FILTER_FPP, CDI.current().select(GlobalSyncImpl.class).get(), databaseManager);
+        blockchainImpl.setTransactionFilter(transactionFilter);
+        transactionFilter.init(blockchainImpl.getLastBlock());
+        log.info("Confirmed transaction filter is TURNED ON...");
+    }
+
     private void recoverSharding() {
         CDI.current().select(ShardService.class).get().recoverSharding();
     }
@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.peer.PeersService;
+import com.apollocurrency.aplwallet.apl.crypto.Convert;
+import com.apollocurrency.aplwallet.apl.util.AplException;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.ParseException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <p>Compact binary representation of the blocks and transactions exchanged between peers.</p>
+ * <p>Blocks and transactions are written using their own byte serialization (the same bytes which are signed),
+ * so the receiver parses them directly from the bytes instead of building and parsing the json objects
+ * with the hex strings. Every item is prefixed by its length:</p>
+ * <pre>
+ *  blocks:       int count, count * (bytes block, int txCount, txCount * transaction)
+ *  transactions: int count, count * transaction
+ *  transaction:  bytes transaction, bytes prunable attachments json (empty when there is no prunable data)
+ *  bytes:        int length, length * byte
+ * </pre>
+ * <p>Binary data is sent base64 encoded inside the usual json message, so it goes through the same websocket
+ * and http transport. Peer asks for it by the {@link #REQUEST_KEY} request parameter, old peers ignore it
+ * and respond with the json data.</p>
+ */
+public final class BinaryWireFormat {
+    /**
+     * Request parameter with the binary format version accepted by the requesting peer
+     */
+    public static final String REQUEST_KEY = "binaryFormat";
+    public static final int VERSION = 1;
+    public static final String NEXT_BLOCKS_KEY = "nextBlocksBinary";
+    public static final String UNCONFIRMED_TRANSACTIONS_KEY = "unconfirmedTransactionsBinary";
+    private static final byte[] EMPTY = new byte[0];
+
+    private BinaryWireFormat() {
+    }
+
+    /**
+     * Add binary format request parameter if the binary protocol is enabled
+     *
+     * @param request peer request
+     */
+    public static void request(JSONObject request) {
+        if (PeersService.isBinaryProtocolEnabled) {
+            request.put(REQUEST_KEY, VERSION);
+        }
+    }
+
+    /**
+     * @param request peer request
+     * @return true when requesting peer accepts the binary response and it is enabled for our node
+     */
+    public static boolean isAccepted(JSONObject request) {
+        Object version = request.get(REQUEST_KEY);
+        return PeersService.isBinaryProtocolEnabled && version instanceof Number && ((Number) version).intValue() == VERSION;
+    }
+
+    public static String writeBlocks(List<? extends Block> blocks) {
+        return write(out -> {
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                writeBytes(out, block.getBytes());
+                List<Transaction> transactions = block.getOrLoadTransactions();
+                out.writeInt(transactions.size());
+                for (Transaction transaction : transactions) {
+                    writeTransaction(out, transaction);
+                }
+            }
+        });
+    }
+
+    public static String writeTransactions(Collection<? extends Transaction> transactions) {
+        return write(out -> {
+            out.writeInt(transactions.size());
+            for (Transaction transaction : transactions) {
+                writeTransaction(out, transaction);
+            }
+        });
+    }
+
+    /**
+     * Split binary blocks data into the blocks bytes without parsing them
+     *
+     * @param data base64 encoded binary data
+     * @return blocks data in the received order
+     * @throws AplException.NotValidException when data is malformed
+     */
+    static List<BlockData> readBlocks(String data) throws AplException.NotValidException {
+        ByteBuffer buffer = decode(data);
+        int count = readCount(buffer);
+        List<BlockData> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] blockBytes = readBytes(buffer);
+            blocks.add(new BlockData(blockBytes, readTransactions(buffer)));
+        }
+        checkEnd(buffer);
+        return blocks;
+    }
+
+    /**
+     * Split binary transactions data into the transactions bytes without parsing them
+     *
+     * @param data base64 encoded binary data
+     * @return transactions data in the received order
+     * @throws AplException.NotValidException when data is malformed
+     */
+    static List<TransactionData> readTransactions(String data) throws AplException.NotValidException {
+        ByteBuffer buffer = decode(data);
+        List<TransactionData> transactions = readTransactions(buffer);
+        checkEnd(buffer);
+        return transactions;
+    }
+
+    /**
+     * Parse block and its transactions, signatures are not verified and should be verified later
+     * by the {@link BlockSignatureVerifier}
+     */
+    static BlockImpl parseBlock(BlockData data) throws AplException.NotValidException {
+        List<Transaction> transactions = new ArrayList<>(data.transactions.size());
+        for (TransactionData transactionData : data.transactions) {
+            transactions.add(parseTransaction(transactionData, false));
+        }
+        return BlockImpl.parseBlock(data.bytes, transactions);
+    }
+
+    static TransactionImpl parseTransaction(TransactionData data, boolean checkSignature) throws AplException.NotValidException {
+        JSONObject prunableAttachments = null;
+        if (data.prunableAttachments.length > 0) {
+            try {
+                prunableAttachments = (JSONObject) JSONValue.parseWithException(new String(data.prunableAttachments, StandardCharsets.UTF_8));
+            } catch (ParseException | ClassCastException e) {
+                throw new AplException.NotValidException("Invalid prunable attachments json", e);
+            }
+        }
+        TransactionImpl transaction = TransactionImpl.newTransactionBuilder(data.bytes, prunableAttachments).build();
+        if (checkSignature && transaction.getSignature() != null && !transaction.checkSignature()) {
+            throw new AplException.NotValidException("Invalid transaction signature for transaction " + transaction.getStringId());
+        }
+        return transaction;
+    }
+
+    private static String write(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    private static void writeTransaction(DataOutputStream out, Transaction transaction) throws IOException {
+        writeBytes(out, transaction.getBytes());
+        JSONObject prunableAttachments = transaction.getPrunableAttachmentJSON();
+        writeBytes(out, prunableAttachments == null ? EMPTY : prunableAttachments.toJSONString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static ByteBuffer decode(String data) throws AplException.NotValidException {
+        try {
+            return ByteBuffer.wrap(Base64.getDecoder().decode(data));
+        } catch (IllegalArgumentException e) {
+            throw new AplException.NotValidException("Invalid binary data encoding", e);
+        }
+    }
+
+    private static List<TransactionData> readTransactions(ByteBuffer buffer) throws AplException.NotValidException {
+        int count = readCount(buffer);
+        List<TransactionData> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] transactionBytes = readBytes(buffer);
+            transactions.add(new TransactionData(transactionBytes, readBytes(buffer)));
+        }
+        return transactions;
+    }
+
+    private static int readCount(ByteBuffer buffer) throws AplException.NotValidException {
+        int count = readInt(buffer);
+        // every item takes at least 4 bytes of the length prefix
+        if (count < 0 || count > buffer.remaining() / 4) {
+            throw new AplException.NotValidException("Invalid items count " + count);
+        }
+        return count;
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) throws AplException.NotValidException {
+        int length = readInt(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new AplException.NotValidException("Invalid data length " + length + ", remaining " + buffer.remaining());
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static int readInt(ByteBuffer buffer) throws AplException.NotValidException {
+        if (buffer.remaining() < 4) {
+            throw new AplException.NotValidException("Unexpected end of binary data");
+        }
+        return buffer.getInt();
+    }
+
+    private static void checkEnd(ByteBuffer buffer) throws AplException.NotValidException {
+        if (buffer.hasRemaining()) {
+            throw new AplException.NotValidException("Binary data too long, " + buffer.remaining() + " extra bytes");
+        }
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    static final class BlockData {
+        private final byte[] bytes;
+        private final List<TransactionData> transactions;
+
+        BlockData(byte[] bytes, List<TransactionData> transactions) {
+            this.bytes = bytes;
+            this.transactions = transactions;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        List<TransactionData> getTransactions() {
+            return transactions;
+        }
+    }
+
+    static final class TransactionData {
+        private final byte[] bytes;
+        private final byte[] prunableAttachments;
+
+        TransactionData(byte[] bytes, byte[] prunableAttachments) {
+            this.bytes = bytes;
+            this.prunableAttachments = prunableAttachments;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        byte[] getPrunableAttachments() {
+            return prunableAttachments;
+        }
+
+        @Override
+        public String toString() {
+            return Convert.toHexString(bytes);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.google.common.cache.Cache;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>Cache of the recent blocks of the current chain keyed by the block height, with compact block id -&gt; height
+ * and transaction id -&gt; height indexes. Caches are allocated by the InMemoryCacheManager and are sized by the
+ * available memory, hit/miss stats are available from the cache manager by the cache names of the
+ * {@link com.apollocurrency.aplwallet.apl.core.cache.BlockCacheConfig}.</p>
+ * <p>Blocks above the height of the new last block are invalidated on pop-off and when the failed block push is
+ * rolled back. Since blocks are read from the db without the lock, block read before the invalidation
+ * is not cached after it: caller takes {@link #getStamp()} before the db read and passes it to the put method.</p>
+ * <p>Cache stores and returns copies of the blocks, cached copies are changed only by the cache itself, when
+ * the next block of the cached block is committed or popped off.</p>
+ */
+public class BlockCache {
+    private final Cache<Integer, Block> blocks;
+    private final Cache<Long, Integer> blockHeights;
+    private final Cache<Long, Integer> transactionHeights;
+    private final Object lock = new Object();
+    private volatile long invalidationCount;
+
+    public BlockCache(Cache<Integer, Block> blocks, Cache<Long, Integer> blockHeights, Cache<Long, Integer> transactionHeights) {
+        this.blocks = Objects.requireNonNull(blocks, "Block cache is NULL");
+        this.blockHeights = Objects.requireNonNull(blockHeights, "Block height cache is NULL");
+        this.transactionHeights = Objects.requireNonNull(transactionHeights, "Transaction height cache is NULL");
+    }
+
+    /**
+     * @return stamp to be taken before the db read of the block or transaction, which will be put into the cache
+     */
+    public long getStamp() {
+        return invalidationCount;
+    }
+
+    public Block getBlock(long blockId) {
+        Integer height = blockHeights.getIfPresent(blockId);
+        if (height == null) {
+            return null;
+        }
+        Block block = blocks.getIfPresent(height);
+        return block != null && block.getId() == blockId ? copy(block) : null;
+    }
+
+    public Block getBlockAtHeight(int height) {
+        Block block = blocks.getIfPresent(height);
+        return block == null ? null : copy(block);
+    }
+
+    /**
+     * @param transactionId id of the transaction
+     * @return height of the confirmed transaction or null, when transaction is unknown for the cache
+     */
+    public Integer getTransactionHeight(long transactionId) {
+        return transactionHeights.getIfPresent(transactionId);
+    }
+
+    /**
+     * @param transactionId id of the transaction
+     * @return confirmed transaction from the cached block, which transactions are loaded, otherwise null
+     */
+    public Transaction getTransaction(long transactionId) {
+        Integer height = transactionHeights.getIfPresent(transactionId);
+        if (height == null) {
+            return null;
+        }
+        Block block = blocks.getIfPresent(height);
+        List<Transaction> transactions = block == null ? null : block.getTransactions();
+        if (transactions != null) {
+            for (Transaction transaction : transactions) {
+                if (transaction.getId() == transactionId) {
+                    return transaction;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cache block and index its transactions, when they are loaded
+     *
+     * @param block block of the current chain
+     * @param stamp stamp taken before the block was read
+     */
+    public void put(Block block, long stamp) {
+        synchronized (lock) {
+            if (stamp != invalidationCount) {
+                return;
+            }
+            int height = block.getHeight();
+            blocks.put(height, copy(block));
+            blockHeights.put(block.getId(), height);
+            List<Transaction> transactions = block.getTransactions();
+            if (transactions != null) {
+                for (Transaction transaction : transactions) {
+                    transactionHeights.put(transaction.getId(), height);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cache committed block and link the cached previous block to it, the same as the db does
+     *
+     * @param block committed block, which is the last block of the chain
+     */
+    public void putCommitted(Block block) {
+        synchronized (lock) {
+            Block previousBlock = blocks.getIfPresent(block.getHeight() - 1);
+            if (previousBlock != null && previousBlock.getId() == block.getPreviousBlockId()) {
+                previousBlock.setNextBlockId(block.getId());
+            }
+            // previous block read from the db before the commit should not overwrite the linked one
+            invalidationCount++;
+            put(block, invalidationCount);
+        }
+    }
+
+    /**
+     * Index confirmed transaction
+     *
+     * @param transactionId id of the transaction
+     * @param height        height of the transaction
+     * @param stamp         stamp taken before the transaction was read
+     */
+    public void putTransactionHeight(long transactionId, int height, long stamp) {
+        synchronized (lock) {
+            if (stamp == invalidationCount) {
+                transactionHeights.put(transactionId, height);
+            }
+        }
+    }
+
+    /**
+     * Invalidate blocks and transactions above the given height and unlink the new last block from the removed ones
+     *
+     * @param height height of the new last block
+     */
+    public void invalidateAbove(int height) {
+        synchronized (lock) {
+            invalidationCount++;
+            blocks.asMap().keySet().removeIf(blockHeight -> blockHeight > height);
+            Block lastBlock = blocks.getIfPresent(height);
+            if (lastBlock != null) {
+                lastBlock.setNextBlockId(0);
+            }
+            blockHeights.asMap().values().removeIf(blockHeight -> blockHeight > height);
+            transactionHeights.asMap().values().removeIf(transactionHeight -> transactionHeight > height);
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            invalidationCount++;
+            blocks.invalidateAll();
+            blockHeights.invalidateAll();
+            transactionHeights.invalidateAll();
+        }
+    }
+
+    private static Block copy(Block block) {
+        return block instanceof BlockImpl ? ((BlockImpl) block).copy() : block;
+    }
+}
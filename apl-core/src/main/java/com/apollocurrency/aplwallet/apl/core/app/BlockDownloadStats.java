@@ -0,0 +1,77 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput counters of the blockchain download pipeline stages:
+ * <ul>
+ *     <li>download - getNextBlocks requests to the peers</li>
+ *     <li>verify - parsing, chain linkage and signatures verification of the downloaded blocks</li>
+ *     <li>apply - pushing verified blocks to the blockchain, including time the apply stage was waiting for the
+ *     next downloaded block</li>
+ * </ul>
+ * Download and verify stages are updated concurrently by the network threads.
+ */
+class BlockDownloadStats {
+    private final LongAdder downloadedBlocks = new LongAdder();
+    private final LongAdder downloadNanos = new LongAdder();
+    private final LongAdder verifiedBlocks = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final LongAdder appliedBlocks = new LongAdder();
+    private final LongAdder applyNanos = new LongAdder();
+    private final LongAdder applyWaitNanos = new LongAdder();
+
+    void downloaded(int blocks, long nanos) {
+        downloadedBlocks.add(blocks);
+        downloadNanos.add(nanos);
+    }
+
+    void verified(int blocks, long nanos) {
+        verifiedBlocks.add(blocks);
+        verifyNanos.add(nanos);
+    }
+
+    void applied(int blocks, long nanos) {
+        appliedBlocks.add(blocks);
+        applyNanos.add(nanos);
+    }
+
+    void applyWaited(long nanos) {
+        applyWaitNanos.add(nanos);
+    }
+
+    long getDownloadedBlocks() {
+        return downloadedBlocks.sum();
+    }
+
+    long getVerifiedBlocks() {
+        return verifiedBlocks.sum();
+    }
+
+    long getAppliedBlocks() {
+        return appliedBlocks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "download: " + stage(downloadedBlocks, downloadNanos)
+            + ", verify: " + stage(verifiedBlocks, verifyNanos)
+            + ", apply: " + stage(appliedBlocks, applyNanos)
+            + ", apply waited for download " + TimeUnit.NANOSECONDS.toMillis(applyWaitNanos.sum()) + " ms";
+    }
+
+    /**
+     * Stage throughput per thread, for the download and verify stages total throughput is higher, since they are
+     * executed concurrently
+     */
+    private static String stage(LongAdder blocks, LongAdder nanos) {
+        long count = blocks.sum();
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+        return count + " blocks in " + millis + " ms (" + (millis == 0 ? 0 : count * 1000 / millis) + " per s)";
+    }
+}
@@ -155,6 +155,19 @@ public final class BlockImpl implements Block {
     }
 
     static BlockImpl parseBlock(JSONObject blockData) throws AplException.NotValidException {
+        return parseBlock(blockData, true);
+    }
+
+    /**
+     * Parse block from json
+     *
+     * @param blockData       json representation of the block
+     * @param checkSignatures true - verify block and transactions signatures during parsing, false - skip signature
+     *                        verification (signatures should be verified later by the {@link BlockSignatureVerifier})
+     * @return parsed block
+     * @throws AplException.NotValidException when block or transaction is not valid
+     */
+    static BlockImpl parseBlock(JSONObject blockData, boolean checkSignatures) throws AplException.NotValidException {
         try {
             int version = ((Long) blockData.get("version")).intValue();
             int timestamp = ((Long) blockData.get("timestamp")).intValue();
@@ -171,11 +184,15 @@ public final class BlockImpl implements Block {
             int timeout = !requireTimeout(version) ? 0 : ((Long) timeoutJsonValue).intValue();
             List<Transaction> blockTransactions = new ArrayList<>();
             for (Object transactionData : (JSONArray) blockData.get("transactions")) {
-                blockTransactions.add(TransactionImpl.parseTransaction((JSONObject) transactionData));
+                if (checkSignatures) {
+                    blockTransactions.add(TransactionImpl.parseTransaction((JSONObject) transactionData));
+                } else {
+                    blockTransactions.add(TransactionImpl.newTransactionBuilder((JSONObject) transactionData).build());
+                }
             }
             BlockImpl block = new BlockImpl(version, timestamp, previousBlock, totalAmountATM, totalFeeATM, payloadLength, payloadHash, generatorPublicKey,
                 generationSignature, blockSignature, previousBlockHash, timeout, blockTransactions);
-            if (!block.checkSignature()) {
+            if (checkSignatures && !block.checkSignature()) {
                 throw new AplException.NotValidException("Invalid block signature");
             }
             return block;
@@ -186,6 +203,51 @@ public final class BlockImpl implements Block {
         }
     }
 
+    /**
+     * Parse block from its bytes received from the peer in the {@link BinaryWireFormat}
+     *
+     * @param blockBytes        block bytes including the block signature
+     * @param blockTransactions parsed block transactions
+     * @return parsed block, block signature is not verified (it should be verified later by the {@link BlockSignatureVerifier})
+     * @throws AplException.NotValidException when block bytes are malformed or do not match transactions
+     */
+    static BlockImpl parseBlock(byte[] blockBytes, List<Transaction> blockTransactions) throws AplException.NotValidException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(blockBytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int version = buffer.getInt();
+            int timestamp = buffer.getInt();
+            long previousBlock = buffer.getLong();
+            int transactionCount = buffer.getInt();
+            long totalAmountATM = buffer.getLong();
+            long totalFeeATM = buffer.getLong();
+            int payloadLength = buffer.getInt();
+            byte[] payloadHash = new byte[32];
+            buffer.get(payloadHash);
+            byte[] generatorPublicKey = new byte[32];
+            buffer.get(generatorPublicKey);
+            byte[] generationSignature = new byte[32];
+            buffer.get(generationSignature);
+            byte[] previousBlockHash = new byte[32];
+            buffer.get(previousBlockHash);
+            int timeout = requireTimeout(version) ? buffer.getInt() : 0;
+            byte[] blockSignature = new byte[64];
+            buffer.get(blockSignature);
+            if (buffer.hasRemaining()) {
+                throw new AplException.NotValidException("Block bytes too long, " + buffer.remaining() + " extra bytes");
+            }
+            if (transactionCount != blockTransactions.size()) {
+                throw new AplException.NotValidException("Block declares " + transactionCount + " transactions, but "
+                    + blockTransactions.size() + " received");
+            }
+            return new BlockImpl(version, timestamp, previousBlock, totalAmountATM, totalFeeATM, payloadLength, payloadHash, generatorPublicKey,
+                generationSignature, blockSignature, previousBlockHash, timeout, blockTransactions);
+        } catch (RuntimeException e) {
+            LOG.debug("Failed to parse block bytes: " + Convert.toHexString(blockBytes));
+            throw e;
+        }
+    }
+
     static boolean requireTimeout(int version) {
         return Block.ADAPTIVE_BLOCK_VERSION == version || Block.INSTANT_BLOCK_VERSION == version;
     }
@@ -423,7 +485,7 @@ public final class BlockImpl implements Block {
         return checkSignature() && lookupAccountService().setOrVerifyPublicKey(getGeneratorId(), getGeneratorPublicKey());
     }
 
-    private boolean checkSignature() {
+    boolean checkSignature() {
         if (!hasValidSignature) {
             byte[] data = Arrays.copyOf(bytes(), bytes.length - 64);
             hasValidSignature = blockSignature != null && Crypto.verify(blockSignature, data, getGeneratorPublicKey());
@@ -588,6 +650,18 @@ public final class BlockImpl implements Block {
     }
 
 
+    /**
+     * @return copy of this block, which shares the transactions list with this block
+     */
+    BlockImpl copy() {
+        BlockImpl copy = new BlockImpl(version, timestamp, previousBlockId, totalAmountATM, totalFeeATM, payloadLength, payloadHash,
+            generatorId, generatorPublicKey, generationSignature, blockSignature, previousBlockHash, cumulativeDifficulty, baseTarget,
+            nextBlockId, height, id, timeout, null);
+        copy.blockTransactions = blockTransactions;
+        copy.hasValidSignature = hasValidSignature;
+        return copy;
+    }
+
     @Override
     public String toString() {
         final StringBuffer sb = new StringBuffer("BlockImpl{");
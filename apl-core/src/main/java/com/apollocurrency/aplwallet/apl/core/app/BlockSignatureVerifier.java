@@ -0,0 +1,121 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.config.Property;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Pre-validation stage for the incoming blocks. Verifies block signature and signatures of all block transactions
+ * (including public key and signature canonicality checks performed by the Crypto.verify) on the separate fork-join pool,
+ * before the block enters the locked apply phase. Results of the verification are cached inside the
+ * {@link BlockImpl} and {@link TransactionImpl}, so that subsequent checks in the {@link BlockValidator} and
+ * {@link BlockchainProcessorImpl} are cheap.
+ * <p>
+ * Number of threads is configured by the 'apl.signatureVerificationThreads' property: 0 - one thread per
+ * processor core, 1 - serial verification on the caller thread.
+ */
+@Slf4j
+@Singleton
+public class BlockSignatureVerifier {
+    private final ForkJoinPool pool;
+
+    @Inject
+    public BlockSignatureVerifier(@Property(value = "apl.signatureVerificationThreads", defaultValue = "0") int threads) {
+        int parallelism = threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        log.info("Block signature verification will use {} thread(s)", parallelism);
+    }
+
+    /**
+     * Verify signatures of the block and all its transactions
+     *
+     * @param block block to verify
+     * @throws BlockchainProcessor.BlockNotAcceptedException when block or one of its transactions has invalid signature
+     */
+    public void verify(Block block) throws BlockchainProcessor.BlockNotAcceptedException {
+        verify(Collections.singletonList(block));
+    }
+
+    /**
+     * Verify signatures of the block batch. All signatures are verified concurrently, but the error is reported
+     * for the first (in order of the given list) invalid block, so that caller is able to accept all preceding blocks.
+     *
+     * @param blocks ordered list of blocks to verify
+     * @throws BlockchainProcessor.BlockNotAcceptedException for the first block, which or which transaction has invalid signature
+     */
+    public void verify(List<? extends Block> blocks) throws BlockchainProcessor.BlockNotAcceptedException {
+        List<SignatureCheck> checks = new ArrayList<>();
+        for (Block block : blocks) {
+            BlockImpl blockImpl = (BlockImpl) block;
+            checks.add(new SignatureCheck(block, null, blockImpl::checkSignature));
+            for (Transaction transaction : block.getOrLoadTransactions()) {
+                TransactionImpl transactionImpl = (TransactionImpl) transaction;
+                checks.add(new SignatureCheck(block, transaction, transactionImpl::checkSignature));
+            }
+        }
+        boolean[] results = new boolean[checks.size()];
+        if (pool == null || checks.size() == 1) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = checks.get(i).verifier.getAsBoolean();
+            }
+        } else {
+            try {
+                pool.submit(() -> IntStream.range(0, results.length).parallel()
+                    .forEach(i -> results[i] = checks.get(i).verifier.getAsBoolean())).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during signature verification", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Unable to verify signatures: " + e.getCause(), e.getCause());
+            }
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (!results[i]) {
+                SignatureCheck check = checks.get(i);
+                if (check.transaction == null) {
+                    throw new BlockchainProcessor.BlockNotAcceptedException("Block signature verification failed", check.block);
+                } else {
+                    throw new BlockchainProcessor.BlockNotAcceptedException("Transaction " + check.transaction.getStringId()
+                        + " signature verification failed", check.block);
+                }
+            }
+        }
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class SignatureCheck {
+        private final Block block;
+        private final Transaction transaction;
+        private final BooleanSupplier verifier;
+
+        SignatureCheck(Block block, Transaction transaction, BooleanSupplier verifier) {
+            this.block = block;
+            this.transaction = transaction;
+            this.verifier = verifier;
+        }
+    }
+}
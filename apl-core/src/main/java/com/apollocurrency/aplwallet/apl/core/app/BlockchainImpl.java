@@ -80,6 +80,8 @@ public class BlockchainImpl implements Blockchain {
 
     private final AtomicReference<Block> lastBlock;
     private final AtomicReference<Block> shardInitialBlock;
+    private volatile BlockCache blockCache;
+    private volatile ConfirmedTransactionFilter transactionFilter;
 
     @Inject
     public BlockchainImpl(BlockDao blockDao, TransactionDao transactionDao, BlockchainConfig blockchainConfig, TimeService timeService,
@@ -106,7 +108,51 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public void setLastBlock(Block block) {
-        lastBlock.set(block);
+        Block previousBlock = lastBlock.getAndSet(block);
+        BlockCache cache = blockCache;
+        if (cache != null && previousBlock != null && block != null && block.getHeight() <= previousBlock.getHeight()
+            && block.getId() != previousBlock.getId()) {
+            // pop-off or rollback of the failed push, blocks starting from the new block height are not in the chain anymore
+            cache.invalidateAbove(block.getHeight() < previousBlock.getHeight() ? block.getHeight() : block.getHeight() - 1);
+        }
+    }
+
+    /**
+     * Enable cache of the recent blocks and transactions
+     *
+     * @param blockCache cache to use or null to disable caching
+     */
+    public void setBlockCache(BlockCache blockCache) {
+        this.blockCache = blockCache;
+    }
+
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * Enable fast negative answers for the lookups of the unknown transactions
+     *
+     * @param transactionFilter filter of the confirmed transactions or null to always query the db
+     */
+    public void setTransactionFilter(ConfirmedTransactionFilter transactionFilter) {
+        this.transactionFilter = transactionFilter;
+    }
+
+    public ConfirmedTransactionFilter getTransactionFilter() {
+        return transactionFilter;
+    }
+
+    private boolean isUnknownTransaction(long transactionId) {
+        ConfirmedTransactionFilter filter = transactionFilter;
+        return filter != null && !filter.mightContain(transactionId);
+    }
+
+    private void transactionNotFound() {
+        ConfirmedTransactionFilter filter = transactionFilter;
+        if (filter != null) {
+            filter.falsePositive();
+        }
     }
 
     @PostConstruct
@@ -116,6 +162,11 @@ public class BlockchainImpl implements Blockchain {
         this.shardInitialBlock.set(findFirstBlock());
         ((ShardManagement) this.databaseManager).initFullShards(
             shardDao.getAllCompletedShards().stream().map(Shard::getShardId).collect(Collectors.toList()));
+        ConfirmedTransactionFilter filter = transactionFilter;
+        if (filter != null) {
+            // database was imported or restored
+            filter.invalidate();
+        }
     }
 
     @Override
@@ -148,9 +199,20 @@ public class BlockchainImpl implements Blockchain {
         if (block.getId() == blockId) {
             return block;
         }
-        TransactionalDataSource dataSource = getDataSourceWithSharding(blockId);
-
-        return blockDao.findBlock(blockId, dataSource);
+        BlockCache cache = blockCache;
+        if (cache == null) {
+            return blockDao.findBlock(blockId, getDataSourceWithSharding(blockId));
+        }
+        Block cachedBlock = cache.getBlock(blockId);
+        if (cachedBlock != null) {
+            return cachedBlock;
+        }
+        long stamp = cache.getStamp();
+        Block foundBlock = blockDao.findBlock(blockId, getDataSourceWithSharding(blockId));
+        if (foundBlock != null) {
+            cache.put(foundBlock, stamp);
+        }
+        return foundBlock;
     }
 
     @Transactional(readOnly = true)
@@ -253,13 +315,24 @@ public class BlockchainImpl implements Blockchain {
     @Override
     public void saveBlock(Connection con, Block block) {
         blockDao.saveBlock(con, block);
-        transactionDao.saveTransactions(con, block.getOrLoadTransactions());
+        List<Transaction> transactions = block.getOrLoadTransactions();
+        transactionDao.saveTransactions(con, transactions);
+        ConfirmedTransactionFilter filter = transactionFilter;
+        if (filter != null) {
+            for (Transaction transaction : transactions) {
+                filter.add(transaction.getId());
+            }
+        }
     }
 
     @Transactional
     @Override
     public void commit(Block block) {
         blockDao.commit(block);
+        BlockCache cache = blockCache;
+        if (cache != null) {
+            cache.putCommitted(block);
+        }
     }
 
     @Override
@@ -338,6 +411,12 @@ public class BlockchainImpl implements Blockchain {
         if (blockIdList.isEmpty()) {
             return Collections.emptyList();
         }
+        List<Block> cachedBlocks = getCachedBlocksAfter(blockId, blockIdList);
+        if (cachedBlocks != null) {
+            return cachedBlocks;
+        }
+        BlockCache cache = blockCache;
+        long stamp = cache == null ? 0 : cache.getStamp();
         List<Block> result = new ArrayList<>();
         TransactionalDataSource dataSource;
 //        long time = System.currentTimeMillis();
@@ -364,6 +443,33 @@ public class BlockchainImpl implements Blockchain {
             } while (result.size() != prevSize && dataSource != databaseManager.getDataSource() && getDataSourceWithShardingByHeight(fromBlockHeight + 1) != dataSource);
         }
 //        log.info("GetAfterBlock time {}", System.currentTimeMillis() - time);
+        if (cache != null) {
+            result.forEach(block -> cache.put(block, stamp));
+        }
+        return result;
+    }
+
+    /**
+     * @return all requested blocks with loaded transactions from the cache or null, when some of them are not cached
+     */
+    private List<Block> getCachedBlocksAfter(long blockId, List<Long> blockIdList) {
+        BlockCache cache = blockCache;
+        if (cache == null) {
+            return null;
+        }
+        Block previousBlock = cache.getBlock(blockId);
+        if (previousBlock == null) {
+            return null;
+        }
+        List<Block> result = new ArrayList<>(blockIdList.size());
+        int height = previousBlock.getHeight();
+        for (long id : blockIdList) {
+            Block block = cache.getBlockAtHeight(++height);
+            if (block == null || block.getId() != id || block.getTransactions() == null) {
+                return null;
+            }
+            result.add(block);
+        }
         return result;
     }
 
@@ -395,8 +501,20 @@ public class BlockchainImpl implements Blockchain {
         if (height == block.getHeight()) {
             return block;
         }
-        TransactionalDataSource dataSource = getDataSourceWithShardingByHeight(height);
-        return blockDao.findBlockAtHeight(height, dataSource);
+        BlockCache cache = blockCache;
+        if (cache == null) {
+            return blockDao.findBlockAtHeight(height, getDataSourceWithShardingByHeight(height));
+        }
+        Block cachedBlock = cache.getBlockAtHeight(height);
+        if (cachedBlock != null) {
+            return cachedBlock;
+        }
+        long stamp = cache.getStamp();
+        Block foundBlock = blockDao.findBlockAtHeight(height, getDataSourceWithShardingByHeight(height));
+        if (foundBlock != null) {
+            cache.put(foundBlock, stamp);
+        }
+        return foundBlock;
     }
 
 
@@ -428,12 +546,25 @@ public class BlockchainImpl implements Blockchain {
     public void deleteBlocksFromHeight(int height) {
         log.debug("deleteBlocksFromHeight ({})", height);
         blockDao.deleteBlocksFromHeight(height);
+        BlockCache cache = blockCache;
+        if (cache != null) {
+            cache.invalidateAbove(height - 1);
+        }
     }
 
     @Transactional
     @Override
     public Block deleteBlocksFrom(long blockId) {
-        return blockDao.deleteBlocksFrom(blockId);
+        Block previousBlock = blockDao.deleteBlocksFrom(blockId);
+        BlockCache cache = blockCache;
+        if (cache != null) {
+            if (previousBlock != null) {
+                cache.invalidateAbove(previousBlock.getHeight());
+            } else {
+                cache.clear();
+            }
+        }
+        return previousBlock;
     }
 
     @Override
@@ -445,6 +576,14 @@ public class BlockchainImpl implements Blockchain {
         shardDao.hardDeleteAllShards();
         transactionIndexDao.hardDeleteAllTransactionIndex();
         blockIndexService.hardDeleteAllBlockIndex();
+        BlockCache cache = blockCache;
+        if (cache != null) {
+            cache.clear();
+        }
+        ConfirmedTransactionFilter filter = transactionFilter;
+        if (filter != null) {
+            filter.invalidate();
+        }
         log.debug("finished deleteAll()");
     }
 
@@ -456,8 +595,29 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public Transaction findTransaction(long transactionId, int height) {
-        TransactionalDataSource datasource = getDatasourceWithShardingByTransactionId(transactionId);
-        return transactionDao.findTransaction(transactionId, height, datasource);
+        if (isUnknownTransaction(transactionId)) {
+            return null;
+        }
+        BlockCache cache = blockCache;
+        if (cache == null) {
+            return transactionDao.findTransaction(transactionId, height, getDatasourceWithShardingByTransactionId(transactionId));
+        }
+        Integer transactionHeight = cache.getTransactionHeight(transactionId);
+        if (transactionHeight != null) {
+            if (transactionHeight > height) {
+                return null;
+            }
+            Transaction cachedTransaction = cache.getTransaction(transactionId);
+            if (cachedTransaction != null) {
+                return cachedTransaction;
+            }
+        }
+        long stamp = cache.getStamp();
+        Transaction transaction = transactionDao.findTransaction(transactionId, height, getDatasourceWithShardingByTransactionId(transactionId));
+        if (transaction != null) {
+            cache.putTransactionHeight(transactionId, transaction.getHeight(), stamp);
+        }
+        return transaction;
     }
 
     @Transactional(readOnly = true)
@@ -474,20 +634,43 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public Transaction findTransactionByFullHash(byte[] fullHash, int height) {
-        TransactionalDataSource dataSource = getDatasourceWithShardingByTransactionId(Convert.fullHashToId(fullHash));
+        long transactionId = Convert.fullHashToId(fullHash);
+        if (isUnknownTransaction(transactionId)) {
+            return null;
+        }
+        TransactionalDataSource dataSource = getDatasourceWithShardingByTransactionId(transactionId);
         return transactionDao.findTransactionByFullHash(fullHash, height, dataSource);
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean hasTransaction(long transactionId) {
-        return transactionDao.hasTransaction(transactionId, databaseManager.getDataSource()) ||
+        BlockCache cache = blockCache;
+        if (cache != null && cache.getTransactionHeight(transactionId) != null) {
+            return true;
+        }
+        if (isUnknownTransaction(transactionId)) {
+            return false;
+        }
+        boolean hasTransaction = transactionDao.hasTransaction(transactionId, databaseManager.getDataSource()) ||
             transactionIndexDao.countByTransactionId(transactionId) == 1;
+        if (!hasTransaction) {
+            transactionNotFound();
+        }
+        return hasTransaction;
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean hasTransaction(long transactionId, int height) {
+        BlockCache cache = blockCache;
+        Integer cachedHeight = cache == null ? null : cache.getTransactionHeight(transactionId);
+        if (cachedHeight != null) {
+            return cachedHeight <= height;
+        }
+        if (isUnknownTransaction(transactionId)) {
+            return false;
+        }
         boolean hasTransaction = transactionDao.hasTransaction(transactionId, height, databaseManager.getDataSource());
         if (!hasTransaction) {
             Integer transactionHeight = transactionIndexDao.getTransactionHeightByTransactionId(transactionId);
@@ -521,12 +704,23 @@ public class BlockchainImpl implements Blockchain {
     @Override
     @Transactional(readOnly = true)
     public boolean hasTransactionByFullHash(byte[] fullHash, int height) {
-        return transactionDao.hasTransactionByFullHash(fullHash, height, databaseManager.getDataSource()) || hasShardTransactionByFullHash(fullHash, height);
+        if (isUnknownTransaction(Convert.fullHashToId(fullHash))) {
+            return false;
+        }
+        boolean hasTransaction = transactionDao.hasTransactionByFullHash(fullHash, height, databaseManager.getDataSource())
+            || hasShardTransactionByFullHash(fullHash, height);
+        if (!hasTransaction && height == Integer.MAX_VALUE) {
+            transactionNotFound();
+        }
+        return hasTransaction;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Integer getTransactionHeight(byte[] fullHash, int heightLimit) {
+        if (isUnknownTransaction(Convert.fullHashToId(fullHash))) {
+            return null;
+        }
         Transaction transaction = transactionDao.findTransactionByFullHash(fullHash, heightLimit, databaseManager.getDataSource());
         Integer txHeight = null;
         if (transaction != null) {
@@ -540,6 +734,14 @@ public class BlockchainImpl implements Blockchain {
     @Override
     @Transactional(readOnly = true)
     public byte[] getFullHash(long transactionId) {
+        BlockCache cache = blockCache;
+        Transaction cachedTransaction = cache == null ? null : cache.getTransaction(transactionId);
+        if (cachedTransaction != null) {
+            return cachedTransaction.getFullHash();
+        }
+        if (isUnknownTransaction(transactionId)) {
+            return null;
+        }
         byte[] fullHash = transactionDao.getFullHash(transactionId, databaseManager.getDataSource());
         if (fullHash == null) {
             TransactionIndex transactionIndex = transactionIndexDao.getByTransactionId(transactionId);
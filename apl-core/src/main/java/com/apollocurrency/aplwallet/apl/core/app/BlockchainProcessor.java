@@ -97,6 +97,10 @@ public interface BlockchainProcessor {
             this.block = block;
         }
 
+        public Block getBlock() {
+            return block;
+        }
+
         @Override
         public String getMessage() {
             return block == null ? super.getMessage() : super.getMessage() + ", block " + block.getStringId() + " " + block.getJSONObject().toJSONString();
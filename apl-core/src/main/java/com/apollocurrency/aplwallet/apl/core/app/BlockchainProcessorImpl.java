@@ -33,9 +33,7 @@ import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfigUpdater;
 import com.apollocurrency.aplwallet.apl.core.chainid.HeightConfig;
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManagerImpl;
-import com.apollocurrency.aplwallet.apl.core.db.DbIterator;
 import com.apollocurrency.aplwallet.apl.core.db.DerivedTablesRegistry;
-import com.apollocurrency.aplwallet.apl.core.db.FilteringIterator;
 import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
 import com.apollocurrency.aplwallet.apl.core.db.dao.ShardDao;
 import com.apollocurrency.aplwallet.apl.core.db.derived.DerivedTableInterface;
@@ -136,6 +134,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
     private final DatabaseManager databaseManager;
     private final ExecutorService networkService = Executors.newCachedThreadPool(new NamedThreadFactory("BlockchainProcessor:networkService"));
     private final int defaultNumberOfForkConfirmations = propertiesHolder.getIntProperty("apl.numberOfForkConfirmations");
+    private final int maxBlockSegmentsInFlight = Math.max(1, propertiesHolder.getIntProperty("apl.maxBlockSegmentsInFlight", 20));
     private final Set<Long> prunableTransactions = new HashSet<>();
     private final javax.enterprise.event.Event<Block> blockEvent;
     private final javax.enterprise.event.Event<AccountLedgerEventType> ledgerEvent;
@@ -154,6 +153,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
     private final ShardsDownloadService shardDownloader;
     private final ShardDao shardDao;
     private final PrunableMessageService prunableMessageService;
+    private final BlockSignatureVerifier signatureVerifier;
     private PeersService peers;
     private BlockchainConfigUpdater blockchainConfigUpdater;
     private FullTextSearchService fullTextSearchProvider;
@@ -185,7 +185,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                                    ShardImporter importer, PrunableMessageService prunableMessageService,
                                    TaskDispatchManager taskDispatchManager, Event<List<Transaction>> txEvent,
                                    Event<BlockchainConfig> blockchainEvent,
-                                   ShardDao shardDao) {
+                                   ShardDao shardDao, BlockSignatureVerifier signatureVerifier) {
         this.validator = validator;
         this.blockEvent = blockEvent;
         this.ledgerEvent = ledgerEvent;
@@ -207,6 +207,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         this.txEvent = txEvent;
         this.shardDao = shardDao;
         this.blockchainEvent = blockchainEvent;
+        this.signatureVerifier = signatureVerifier;
 
         configureBackgroundTasks();
 
@@ -338,20 +339,25 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
 
     @Override
     public void processPeerBlock(JSONObject request) throws AplException {
+        long peerBlockPreviousBlockId = Convert.parseUnsignedLong((String) request.get("previousBlock"));
+        Block candidateLastBlock = lookupBlockhain().getLastBlock();
+        if (peerBlockPreviousBlockId != candidateLastBlock.getId() && peerBlockPreviousBlockId != candidateLastBlock.getPreviousBlockId()) {
+            return; // ignore the block, which can not be pushed or replace our last block
+        }
+        // parse and verify signatures before acquiring the lock
+        Block block = BlockImpl.parseBlock(request, false);
+        signatureVerifier.verify(block);
         globalSync.updateLock();
         try {
             Block lastBlock = lookupBlockhain().getLastBlock();
-            long peerBlockPreviousBlockId = Convert.parseUnsignedLong((String) request.get("previousBlock"));
             log.trace("Timeout: peerBlock{},ourBlock{}", request.get("timeout"), lastBlock.getTimeout());
             log.trace("Timestamp: peerBlock{},ourBlock{}", request.get("timestamp"), lastBlock.getTimestamp());
             log.trace("PrevId: peerBlock{},ourBlock{}", peerBlockPreviousBlockId, lastBlock.getPreviousBlockId());
             // peer block is the next block in our blockchain
             if (peerBlockPreviousBlockId == lastBlock.getId()) {
                 log.debug("push peer last block");
-                Block block = BlockImpl.parseBlock(request);
                 pushBlock(block);
             } else if (peerBlockPreviousBlockId == lastBlock.getPreviousBlockId()) { //peer block is a candidate to replace our last block
-                Block block = BlockImpl.parseBlock(request);
                 //try to replace our last block by peer block only when timestamp of peer block is less than timestamp of our block or when
                 // timestamps are equal but timeout of peer block is greater, so that peer block is better.
                 if (((block.getTimestamp() < lastBlock.getTimestamp()
@@ -570,6 +576,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
             //blockchainEvent.select(BlockchainEventType.literal(BlockchainEventType.SHUTDOWN)).fire(blockchainConfig);//TODO: Is this event necessary at this point?
             suspendBlockchainDownloading();
             Tasks.shutdownExecutor("BlockchainProcessorNetworkService", networkService, 5);
+            signatureVerifier.shutdown();
             log.info("BlchProcImpl shutdown finished");
         } catch (Exception ex) {
             log.error(ex.getMessage(), ex);
@@ -660,6 +667,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         int curTime = timeService.getEpochTime();
         log.trace("push new block, prev_id = '{}', cutTime={}", block.getPreviousBlockId(), curTime);
         long startTime = System.currentTimeMillis();
+        signatureVerifier.verify(block); // no-op for already verified blocks
         globalSync.writeLock();
         long lockAquireTime = System.currentTimeMillis() - startTime;
         try {
@@ -1156,12 +1164,8 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         Map<TransactionType, Map<String, Integer>> duplicates, Block previousBlock, int blockTimestamp, int limit) {
 
         List<UnconfirmedTransaction> orderedUnconfirmedTransactions = new ArrayList<>();
-        DbIterator<UnconfirmedTransaction> allUnconfirmedTransactions = lookupTransactionProcessor().getAllUnconfirmedTransactions();
-        try (FilteringIterator<UnconfirmedTransaction> unconfirmedTransactions = new FilteringIterator<>(
-            allUnconfirmedTransactions,
-            transaction -> referencedTransactionService.hasAllReferencedTransactions(
-                transaction.getTransaction(), previousBlock.getHeight() + 1))) {
-            for (UnconfirmedTransaction unconfirmedTransaction : unconfirmedTransactions) {
+        for (UnconfirmedTransaction unconfirmedTransaction : lookupTransactionProcessor().getAllUnconfirmedTransactions()) {
+            if (referencedTransactionService.hasAllReferencedTransactions(unconfirmedTransaction.getTransaction(), previousBlock.getHeight() + 1)) {
                 orderedUnconfirmedTransactions.add(unconfirmedTransaction);
             }
         }
@@ -1645,6 +1649,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         private boolean peerHasMore;
         private List<Peer> connectedPublicPeers;
         private List<Long> chainBlockIds;
+        private final BlockDownloadStats stats = new BlockDownloadStats();
         private long totalTime = 1;
         private int totalBlocks;
 
@@ -1835,6 +1840,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                         log.info("Downloaded " + numBlocks + " blocks in "
                             + time / 1000 + " s, " + (totalBlocks * 1000) / totalTime + " per s, "
                             + totalTime * (lastBlockchainFeederHeight - lookupBlockhain().getHeight()) / ((long) totalBlocks * 1000 * 60) + " min left");
+                        log.debug("Blockchain download pipeline {}", stats);
                     } else {
                         log.debug("Did not accept peer's blocks, back to our own fork");
                     }
@@ -1976,6 +1982,11 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
 
         /**
          * Download the block chain
+         * <p>
+         * Download is split into segments, which are requested from the different peers concurrently and processed
+         * in the chain order. When peer's chain continues our last block, blocks of each downloaded segment are
+         * pushed to the blockchain at once, while the following segments are still downloading. Otherwise all
+         * segments are downloaded first and processed as a fork.
          *
          * @param feederPeer  Peer supplying the blocks list
          * @param commonBlock Common block
@@ -1984,6 +1995,8 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         private void downloadBlockchain(final Peer feederPeer, final Block commonBlock, final int startHeight) throws InterruptedException {
             log.debug("Downloading blockchain from: {} at height: {}", feederPeer.getHostWithPort(), startHeight);
             Map<Long, PeerBlock> blockMap = new HashMap<>();
+            boolean pipelined = lookupBlockhain().getLastBlock().getId() == commonBlock.getId();
+            int nextPushIndex = 1;
             //
             // Break the download into multiple segments.  The first block in each segment
             // is the common block for that segment.
@@ -1992,13 +2005,16 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
             int segSize = Constants.MAX_AUTO_ROLLBACK / 20;
             int stop = chainBlockIds.size() - 1;
             for (int start = 0; start < stop; start += segSize) {
-                getList.add(new GetNextBlocksTask(chainBlockIds, start, Math.min(start + segSize, stop), startHeight, blockchainConfig));
+                getList.add(new GetNextBlocksTask(chainBlockIds, start, Math.min(start + segSize, stop), startHeight, blockchainConfig, signatureVerifier, stats));
             }
             int nextPeerIndex = ThreadLocalRandom.current().nextInt(connectedPublicPeers.size());
             long maxResponseTime = 0;
             Peer slowestPeer = null;
             //
-            // Issue the getNextBlocks requests and get the results.  We will repeat
+            // Issue the getNextBlocks requests and get the results in the segments order.
+            // No more than maxBlockSegmentsInFlight requests are pending, the next segment
+            // is requested only when the first pending segment is downloaded, so that
+            // download does not run too far ahead of the blocks push.  We will repeat
             // a request if the peer didn't respond or returned a partial block list.
             // The download will be aborted if we are unable to get a segment after
             // retrying with different peers.
@@ -2012,7 +2028,10 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                 // from another peer.  We will stop the download and process any pending
                 // blocks if we are unable to download a segment from the feeder peer.
                 //
-                for (GetNextBlocksTask nextBlocks : getList) {
+                for (GetNextBlocksTask nextBlocks : getList.subList(0, Math.min(getList.size(), maxBlockSegmentsInFlight))) {
+                    if (nextBlocks.getFuture() != null) {
+                        continue;
+                    }
                     Peer peer;
                     if (nextBlocks.getRequestCount() > 1) {
                         break download;
@@ -2033,48 +2052,56 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                     nextBlocks.setFuture(future);
                 }
                 //
-                // Get the results.  A peer is on a different fork if a returned
+                // Get the result of the first segment.  A peer is on a different fork if a returned
                 // block is not in the block identifier list.
                 //
-                Iterator<GetNextBlocksTask> it = getList.iterator();
-                while (it.hasNext()) {
-                    GetNextBlocksTask nextBlocks = it.next();
-                    List<BlockImpl> blockList;
-                    try {
-                        blockList = nextBlocks.getFuture().get();
-                    } catch (ExecutionException exc) {
-                        throw new RuntimeException(exc.getMessage(), exc);
-                    }
-                    if (blockList == null) {
+                GetNextBlocksTask nextBlocks = getList.get(0);
+                List<BlockImpl> blockList;
+                long waitStartTime = System.nanoTime();
+                try {
+                    blockList = nextBlocks.getFuture().get();
+                } catch (ExecutionException exc) {
+                    throw new RuntimeException(exc.getMessage(), exc);
+                }
+                stats.applyWaited(System.nanoTime() - waitStartTime);
+                nextBlocks.setFuture(null);
+                if (blockList == null) {
 // most crtainly this is wrong. We should not kill peer if it does not have blocks higher then we
 //                        nextBlocks.getPeer().deactivate();
-                        continue;
-                    }
-                    Peer peer = nextBlocks.getPeer();
-                    int index = nextBlocks.getStart() + 1;
-                    for (Block block : blockList) {
-                        if (block.getId() != chainBlockIds.get(index)) {
-                            break;
-                        }
-                        blockMap.put(block.getId(), new PeerBlock(peer, block));
-                        index++;
-                    }
-                    if (index > nextBlocks.getStop()) {
-                        it.remove();
-                    } else {
-                        nextBlocks.setStart(index - 1);
+                    continue;
+                }
+                Peer peer = nextBlocks.getPeer();
+                int index = nextBlocks.getStart() + 1;
+                for (Block block : blockList) {
+                    if (block.getId() != chainBlockIds.get(index)) {
+                        break;
                     }
-                    if (nextBlocks.getResponseTime() > maxResponseTime) {
-                        maxResponseTime = nextBlocks.getResponseTime();
-                        slowestPeer = nextBlocks.getPeer();
+                    blockMap.put(block.getId(), new PeerBlock(peer, block));
+                    index++;
+                }
+                if (index > nextBlocks.getStop()) {
+                    getList.remove(0);
+                } else {
+                    nextBlocks.setStart(index - 1);
+                }
+                if (nextBlocks.getResponseTime() > maxResponseTime) {
+                    maxResponseTime = nextBlocks.getResponseTime();
+                    slowestPeer = nextBlocks.getPeer();
+                }
+                if (pipelined) {
+                    nextPushIndex = pushDownloadedBlocks(blockMap, nextPushIndex, startHeight);
+                    if (nextPushIndex < 0) {
+                        break;
                     }
                 }
-
             }
             if (slowestPeer != null && connectedPublicPeers.size() >= PeersService.maxNumberOfConnectedPublicPeers && chainBlockIds.size() > Constants.MAX_AUTO_ROLLBACK / 2) {
                 log.debug("Solwest peer {} took {} ms, disconnecting", slowestPeer.getHost(), maxResponseTime);
                 slowestPeer.deactivate("This peer is slowest");
             }
+            if (pipelined) {
+                return;
+            }
             //
             // Add the new blocks to the blockchain.  We will stop if we encounter
             // a missing block (this will happen if an invalid block is encountered
@@ -2115,6 +2142,45 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
 
         }
 
+        /**
+         * Push downloaded blocks, which continue the blockchain without gaps. Pushed blocks are removed from the
+         * block map.
+         *
+         * @param blockMap    downloaded blocks
+         * @param index       index of the next block to push in the chain block ids list
+         * @param startHeight height of the block from which download was started
+         * @return index of the next block to push or -1, when block was not accepted and download should be stopped
+         */
+        private int pushDownloadedBlocks(Map<Long, PeerBlock> blockMap, int index, int startHeight) {
+            long startTime = System.nanoTime();
+            int pushed = 0;
+            globalSync.writeLock();
+            try {
+                for (; index < chainBlockIds.size() && lookupBlockhain().getHeight() - startHeight < Constants.MAX_AUTO_ROLLBACK; index++) {
+                    PeerBlock peerBlock = blockMap.get(chainBlockIds.get(index));
+                    if (peerBlock == null) {
+                        break;
+                    }
+                    blockMap.remove(chainBlockIds.get(index));
+                    Block block = peerBlock.getBlock();
+                    if (lookupBlockhain().getLastBlock().getId() != block.getPreviousBlockId()) {
+                        return -1;
+                    }
+                    try {
+                        pushBlock(block);
+                        pushed++;
+                    } catch (BlockNotAcceptedException e) {
+                        peerBlock.getPeer().blacklist(e);
+                        return -1;
+                    }
+                }
+            } finally {
+                globalSync.writeUnlock();
+                stats.applied(pushed, System.nanoTime() - startTime);
+            }
+            return index;
+        }
+
         private void processFork(final Peer peer, final List<Block> forkBlocks, final Block commonBlock) {
 
             BigInteger curCumulativeDifficulty = lookupBlockhain().getLastBlock().getCumulativeDifficulty();
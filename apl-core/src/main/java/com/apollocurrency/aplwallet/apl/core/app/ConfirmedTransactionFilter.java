@@ -0,0 +1,300 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.util.task.NamedThreadFactory;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Bloom filter over ids of the confirmed transactions (including transactions moved to the shards), which allows to
+ * answer negative 'has transaction' queries without the db lookup. Since transaction id is derived from the full hash,
+ * the same filter serves queries by the full hash.</p>
+ * <p>Filter is built by the full scan of the transaction and transaction_shard_index tables in the background and
+ * answers 'might contain' until it is ready. Ids of the saved transactions are added to the filter immediately,
+ * ids of the popped off transactions are not removed, since it only raises the false positive rate. Filter is rebuilt
+ * with the bigger capacity, when it is overfilled or the observed false positive rate is much higher than expected,
+ * and when the database is replaced.</p>
+ * <p>Filter is saved to the file on shutdown together with the last block id and is loaded on startup, when the
+ * blockchain still ends by the same block.</p>
+ */
+@Slf4j
+public class ConfirmedTransactionFilter {
+    private static final long MIN_EXPECTED_INSERTIONS = 1_000_000;
+    /**
+     * Rebuild filter, when observed false positive rate is that many times higher than expected
+     */
+    private static final int MAX_FPP_EXCESS = 10;
+    private static final int MIN_FALSE_POSITIVES_TO_REBUILD = 1000;
+
+    private final Path file;
+    private final double fpp;
+    private final GlobalSync globalSync;
+    private final DatabaseManager databaseManager;
+    private final ExecutorService rebuildService = Executors.newSingleThreadExecutor(new NamedThreadFactory("ConfirmedTransactionFilter", true));
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    /**
+     * Filter ready to answer queries or null, when filter is not built yet
+     */
+    private volatile BloomFilter<Long> filter;
+    /**
+     * Filter, which is being built, receives ids of the saved transactions as well
+     */
+    private volatile BloomFilter<Long> building;
+    private volatile long expectedInsertions;
+
+    public ConfirmedTransactionFilter(Path file, double fpp, GlobalSync globalSync, DatabaseManager databaseManager) {
+        this.file = file;
+        this.fpp = fpp;
+        this.globalSync = globalSync;
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * Load filter saved for the given last block or schedule the filter build
+     *
+     * @param lastBlock current last block of the blockchain
+     */
+    public void init(Block lastBlock) {
+        if (!load(lastBlock)) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * @param transactionId id of the transaction
+     * @return false, when transaction is definitely not confirmed, true, when transaction might be confirmed or
+     * filter is not ready
+     */
+    public boolean mightContain(long transactionId) {
+        BloomFilter<Long> current = filter;
+        if (current == null) {
+            return true;
+        }
+        checks.increment();
+        if (!current.mightContain(transactionId)) {
+            negatives.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Record, that transaction, which might be confirmed according to the filter, was not found in the db
+     */
+    public void falsePositive() {
+        if (filter == null) {
+            return;
+        }
+        falsePositives.increment();
+        long fp = falsePositives.sum();
+        if (fp >= MIN_FALSE_POSITIVES_TO_REBUILD && getFalsePositiveRate() > fpp * MAX_FPP_EXCESS) {
+            log.info("Observed false positive rate of the confirmed transaction filter is too high, {}", this);
+            scheduleRebuild();
+        }
+    }
+
+    public void add(long transactionId) {
+        BloomFilter<Long> current = filter;
+        if (current != null) {
+            current.put(transactionId);
+            if (current.approximateElementCount() > expectedInsertions) {
+                scheduleRebuild();
+            }
+        }
+        BloomFilter<Long> next = building;
+        if (next != null) {
+            next.put(transactionId);
+        }
+    }
+
+    /**
+     * Drop the filter and build it again, should be called, when transactions were removed or imported bypassing
+     * the {@link #add(long)}
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        filter = null;
+        scheduleRebuild();
+    }
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    public long getChecks() {
+        return checks.sum();
+    }
+
+    public long getNegatives() {
+        return negatives.sum();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * @return share of the transactions, which are not confirmed, but might be confirmed according to the filter
+     */
+    public double getFalsePositiveRate() {
+        long fp = falsePositives.sum();
+        long total = fp + negatives.sum();
+        return total == 0 ? 0 : (double) fp / total;
+    }
+
+    public void shutdown(Block lastBlock) {
+        rebuildService.shutdownNow();
+        log.info("Confirmed transaction filter stats: {}", this);
+        save(lastBlock);
+    }
+
+    @Override
+    public String toString() {
+        BloomFilter<Long> current = filter;
+        return "ready=" + (current != null)
+            + ", elements=" + (current == null ? 0 : current.approximateElementCount())
+            + ", checks=" + getChecks()
+            + ", negatives=" + getNegatives()
+            + ", falsePositives=" + getFalsePositives()
+            + ", falsePositiveRate=" + getFalsePositiveRate()
+            + ", expectedFpp=" + (current == null ? 0 : current.expectedFpp());
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildService.submit(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.error("Unable to build confirmed transaction filter", e);
+                }
+            });
+        }
+    }
+
+    void rebuild() {
+        rebuildScheduled.set(false);
+        int buildGeneration = generation.get();
+        long startTime = System.currentTimeMillis();
+        long expected = Math.max(MIN_EXPECTED_INSERTIONS, count() * 2);
+        BloomFilter<Long> newFilter = BloomFilter.create(Funnels.longFunnel(), expected, fpp);
+        // transactions are saved under the write lock, so that all transactions saved before are committed
+        // and will be read by the scan, all transactions saved after will be put into the new filter
+        globalSync.writeLock();
+        try {
+            building = newFilter;
+        } finally {
+            globalSync.writeUnlock();
+        }
+        try {
+            // transaction table is scanned first, so that transactions moved to the shard concurrently are not missed
+            scan("SELECT id FROM transaction", newFilter);
+            scan("SELECT transaction_id FROM transaction_shard_index", newFilter);
+            if (generation.get() == buildGeneration) {
+                expectedInsertions = expected;
+                filter = newFilter;
+                checks.reset();
+                negatives.reset();
+                falsePositives.reset();
+                log.info("Confirmed transaction filter of {} transactions was built in {} ms",
+                    newFilter.approximateElementCount(), System.currentTimeMillis() - startTime);
+            }
+        } finally {
+            building = null;
+        }
+    }
+
+    private long count() {
+        try (Connection con = databaseManager.getDataSource().getConnection();
+             PreparedStatement pstmt = con.prepareStatement(
+                 "SELECT (SELECT COUNT(*) FROM transaction) + (SELECT COUNT(*) FROM transaction_shard_index)");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    private void scan(String sql, BloomFilter<Long> target) {
+        try (Connection con = databaseManager.getDataSource().getConnection();
+             PreparedStatement pstmt = con.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                target.put(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    private boolean load(Block lastBlock) {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try {
+            try (InputStream is = Files.newInputStream(file);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+                long blockId = in.readLong();
+                long expected = in.readLong();
+                if (lastBlock == null || blockId != lastBlock.getId()) {
+                    log.debug("Confirmed transaction filter was saved for another last block, will be rebuilt");
+                    return false;
+                }
+                BloomFilter<Long> loaded = BloomFilter.readFrom(in, Funnels.longFunnel());
+                expectedInsertions = expected;
+                filter = loaded;
+                log.info("Confirmed transaction filter of {} transactions was loaded", loaded.approximateElementCount());
+                return true;
+            } finally {
+                // saved filter is valid only for the moment of shutdown
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to load confirmed transaction filter from " + file, e);
+            return false;
+        }
+    }
+
+    private void save(Block lastBlock) {
+        BloomFilter<Long> current = filter;
+        if (current == null || lastBlock == null) {
+            return;
+        }
+        try (OutputStream os = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            out.writeLong(lastBlock.getId());
+            out.writeLong(expectedInsertions);
+            current.writeTo(out);
+        } catch (IOException e) {
+            log.warn("Unable to save confirmed transaction filter to " + file, e);
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Callable method to get the next block segment from the selected peer
@@ -28,6 +29,14 @@ public class GetNextBlocksTask implements Callable<List<BlockImpl>> {
      */
     private final List<Long> blockIds;
     private BlockchainConfig blockchainConfig;
+    /**
+     * Verifier of the downloaded blocks signatures
+     */
+    private final BlockSignatureVerifier signatureVerifier;
+    /**
+     * Download pipeline throughput counters
+     */
+    private final BlockDownloadStats stats;
     /**
      * Callable future
      */
@@ -64,9 +73,14 @@ public class GetNextBlocksTask implements Callable<List<BlockImpl>> {
      * @param start       Start index within the list
      * @param stop        Stop index within the list
      * @param startHeight Height of the block from which we will start to download blockchain
+     * @param signatureVerifier Verifier of the downloaded blocks signatures
+     * @param stats       Download pipeline throughput counters
      */
-    public GetNextBlocksTask(List<Long> blockIds, int start, int stop, int startHeight, BlockchainConfig blockchainConfig) {
+    public GetNextBlocksTask(List<Long> blockIds, int start, int stop, int startHeight, BlockchainConfig blockchainConfig,
+                             BlockSignatureVerifier signatureVerifier, BlockDownloadStats stats) {
         this.blockchainConfig = blockchainConfig;
+        this.signatureVerifier = signatureVerifier;
+        this.stats = stats;
         this.blockIds = blockIds;
         this.start = start;
         this.stop = stop;
@@ -94,14 +108,16 @@ public class GetNextBlocksTask implements Callable<List<BlockImpl>> {
         request.put("blockIds", idList);
         request.put("blockId", Long.toUnsignedString(blockIds.get(start)));
         request.put("chainId", blockchainConfig.getChain().getChainId());
-        long startTime = System.currentTimeMillis();
+        BinaryWireFormat.request(request);
+        long startTime = System.nanoTime();
         JSONObject response;
         try {
             response = peer.send(JSON.prepareRequest(request), blockchainConfig.getChain().getChainId());
         } catch (PeerNotConnectedException ex) {
             response = null;
         }
-        responseTime = System.currentTimeMillis() - startTime;
+        long responseNanos = System.nanoTime() - startTime;
+        responseTime = TimeUnit.NANOSECONDS.toMillis(responseNanos);
         if (response == null) {
             return null;
         }
@@ -110,7 +126,19 @@ public class GetNextBlocksTask implements Callable<List<BlockImpl>> {
         // an invalid block.  We will return the valid blocks and reset the stop
         // index so no more blocks will be processed.
         //
-        List<JSONObject> nextBlocks = (List<JSONObject>) response.get("nextBlocks");
+        List<?> nextBlocks = (List<?>) response.get("nextBlocks");
+        String binaryBlocks = (String) response.get(BinaryWireFormat.NEXT_BLOCKS_KEY);
+        if (binaryBlocks != null) {
+            long decodingStartTime = System.nanoTime();
+            try {
+                nextBlocks = BinaryWireFormat.readBlocks(binaryBlocks);
+                peer.updateDecodingTime(System.nanoTime() - decodingStartTime);
+            } catch (AplException.NotValidException e) {
+                log.debug("Peer " + peer.getHost() + " sends malformed binary nextBlocks: " + e.getMessage());
+                peer.blacklist(e);
+                return null;
+            }
+        }
         if (nextBlocks == null) {
             return null;
         }
@@ -119,11 +147,17 @@ public class GetNextBlocksTask implements Callable<List<BlockImpl>> {
             peer.blacklist("Too many nextBlocks");
             return null;
         }
+        stats.downloaded(nextBlocks.size(), responseNanos);
+        long verifyStartTime = System.nanoTime();
         List<BlockImpl> blockList = new ArrayList<>(nextBlocks.size());
         try {
             int count = stop - start;
-            for (JSONObject blockData : nextBlocks) {
-                blockList.add(BlockImpl.parseBlock(blockData));
+            for (Object blockData : nextBlocks) {
+                if (blockData instanceof BinaryWireFormat.BlockData) {
+                    blockList.add(BinaryWireFormat.parseBlock((BinaryWireFormat.BlockData) blockData));
+                } else {
+                    blockList.add(BlockImpl.parseBlock((JSONObject) blockData, false));
+                }
                 if (--count <= 0) {
                     break;
                 }
@@ -133,9 +167,49 @@ public class GetNextBlocksTask implements Callable<List<BlockImpl>> {
             peer.blacklist(e);
             stop = start + blockList.size();
         }
+        //
+        // Keep only blocks which continue the requested chain. Peer on a different
+        // fork returns other blocks, they are rejected later by the block ids check,
+        // so do not waste time verifying them.
+        //
+        int linked = linkedBlocks(blockList);
+        if (linked < blockList.size()) {
+            blockList = new ArrayList<>(blockList.subList(0, linked));
+        }
+        //
+        // Verify signatures of the whole batch at once. Blocks after the first
+        // invalid block are discarded as well as not parsed blocks.
+        //
+        try {
+            signatureVerifier.verify(blockList);
+        } catch (BlockchainProcessor.BlockNotAcceptedException e) {
+            log.debug("Failed to verify block signatures: " + e.toString());
+            peer.blacklist(e);
+            blockList = new ArrayList<>(blockList.subList(0, blockList.indexOf(e.getBlock())));
+            stop = start + blockList.size();
+        }
+        stats.verified(blockList.size(), System.nanoTime() - verifyStartTime);
         return blockList;
     }
 
+    /**
+     * Count blocks, which have expected ids and point to the preceding block of the requested chain
+     *
+     * @param blockList downloaded blocks in the chain order
+     * @return number of the leading blocks linked into the requested chain
+     */
+    private int linkedBlocks(List<BlockImpl> blockList) {
+        int index = start;
+        for (BlockImpl block : blockList) {
+            if (index + 1 >= blockIds.size() || block.getPreviousBlockId() != blockIds.get(index)
+                || block.getId() != blockIds.get(index + 1)) {
+                return index - start;
+            }
+            index++;
+        }
+        return blockList.size();
+    }
+
     /**
      * Return the callable future
      *
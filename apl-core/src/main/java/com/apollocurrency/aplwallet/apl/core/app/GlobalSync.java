@@ -4,6 +4,8 @@
 
 package com.apollocurrency.aplwallet.apl.core.app;
 
+import java.util.function.Supplier;
+
 public interface GlobalSync {
     void readLock();
 
@@ -16,4 +18,48 @@ public interface GlobalSync {
     void writeLock();
 
     void writeUnlock();
+
+    /**
+     * Start the optimistic read, which does not block writers
+     *
+     * @return non-zero stamp to validate the read by {@link #validate(long)} or zero, when write lock is currently held
+     */
+    long tryOptimisticRead();
+
+    /**
+     * @param stamp stamp returned by the {@link #tryOptimisticRead()}
+     * @return true, when write lock was not acquired since the stamp was issued, so that data read is consistent
+     */
+    boolean validate(long stamp);
+
+    /**
+     * Read data optimistically without the read lock and retry the read under the read lock, when write lock was
+     * acquired during the read. Reader should not modify any state and may observe inconsistent data on the optimistic
+     * attempt, exceptions thrown on such attempt are ignored.
+     *
+     * @param reader data reader
+     * @param <T>    type of the data
+     * @return consistent data
+     */
+    default <T> T readOptimistically(Supplier<T> reader) {
+        long stamp = tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        readLock();
+        try {
+            return reader.get();
+        } finally {
+            readUnlock();
+        }
+    }
 }
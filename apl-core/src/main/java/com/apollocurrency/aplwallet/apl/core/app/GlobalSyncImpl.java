@@ -7,37 +7,140 @@ package com.apollocurrency.aplwallet.apl.core.app;
 import com.apollocurrency.aplwallet.apl.util.ReadWriteUpdateLock;
 
 import javax.inject.Singleton;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * <p>Global read-update-write lock of the blockchain state.</p>
+ * <p>Besides the lock, maintains the write version, which is odd while the write lock is held, to support optimistic
+ * reads in the seqlock manner: reader remembers even version before the read and validates, that version was not
+ * changed after the read.</p>
+ * <p>When metrics are enabled, collects lock wait and hold time per lock mode and call site.</p>
+ */
 @Singleton
 public class GlobalSyncImpl implements GlobalSync {
+    private static final String READ = "READ";
+    private static final String UPDATE = "UPDATE";
+    private static final String WRITE = "WRITE";
     private final ReadWriteUpdateLock lock = new ReadWriteUpdateLock();
+    private final AtomicLong version = new AtomicLong(2);
+    private final LockMetrics metrics = new LockMetrics(GlobalSyncImpl.class, GlobalSync.class);
+    private final LongAdder optimisticReads = new LongAdder();
+    private final LongAdder failedOptimisticReads = new LongAdder();
+    /**
+     * Write lock hold count of the thread, which holds the write lock, accessed only under the write lock
+     */
+    private int writeHoldCount;
+    private volatile boolean metricsEnabled;
 
     @Override
     public void readLock() {
+        long start = metricsEnabled ? System.nanoTime() : 0;
         lock.readLock().lock();
+        if (metricsEnabled) {
+            metrics.acquired(READ, System.nanoTime() - start);
+        }
     }
 
     @Override
     public void readUnlock() {
         lock.readLock().unlock();
+        if (metricsEnabled) {
+            metrics.released();
+        }
     }
 
     @Override
     public void updateLock() {
+        long start = metricsEnabled ? System.nanoTime() : 0;
         lock.updateLock().lock();
+        if (metricsEnabled) {
+            metrics.acquired(UPDATE, System.nanoTime() - start);
+        }
     }
 
     @Override
     public void updateUnlock() {
         lock.updateLock().unlock();
+        if (metricsEnabled) {
+            metrics.released();
+        }
     }
 
     public void writeLock() {
+        long start = metricsEnabled ? System.nanoTime() : 0;
         lock.writeLock().lock();
+        if (writeHoldCount++ == 0) {
+            version.incrementAndGet();
+        }
+        if (metricsEnabled) {
+            metrics.acquired(WRITE, System.nanoTime() - start);
+        }
     }
 
     public void writeUnlock() {
+        if (--writeHoldCount == 0) {
+            version.incrementAndGet();
+        }
         lock.writeLock().unlock();
+        if (metricsEnabled) {
+            metrics.released();
+        }
+    }
+
+    @Override
+    public long tryOptimisticRead() {
+        long stamp = version.get();
+        if ((stamp & 1) != 0) {
+            return 0;
+        }
+        if (metricsEnabled) {
+            optimisticReads.increment();
+        }
+        return stamp;
+    }
+
+    @Override
+    public boolean validate(long stamp) {
+        VarHandle.acquireFence();
+        if (stamp == 0) {
+            return false;
+        }
+        boolean valid = version.get() == stamp;
+        if (!valid && metricsEnabled) {
+            failedOptimisticReads.increment();
+        }
+        return valid;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
     }
-}
 
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * @return lock metrics per lock mode and call site sorted by the total hold time descending
+     */
+    public List<LockMetrics.SiteMetrics> getLockMetrics() {
+        return metrics.getSiteMetrics();
+    }
+
+    public long getOptimisticReads() {
+        return optimisticReads.sum();
+    }
+
+    public long getFailedOptimisticReads() {
+        return failedOptimisticReads.sum();
+    }
+
+    public void resetMetrics() {
+        metrics.reset();
+        optimisticReads.reset();
+        failedOptimisticReads.reset();
+    }
+}
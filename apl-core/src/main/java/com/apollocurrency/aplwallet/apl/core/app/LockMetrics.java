@@ -0,0 +1,134 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Collects wait and hold time of the lock per lock mode and call site. Call site is the first stack frame outside
+ * of the lock classes. Lock and unlock of the same lock mode by the thread are expected to be nested.
+ */
+public class LockMetrics {
+    private final Set<String> lockClasses;
+    private final Map<String, SiteMetrics> sites = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deque<Acquisition>> acquisitions = ThreadLocal.withInitial(ArrayDeque::new);
+    private final StackWalker stackWalker = StackWalker.getInstance();
+
+    public LockMetrics(Class<?>... lockClasses) {
+        this.lockClasses = Arrays.stream(lockClasses).map(Class::getName).collect(Collectors.toSet());
+    }
+
+    /**
+     * Record acquisition of the lock by the current thread
+     *
+     * @param mode      lock mode
+     * @param waitNanos time spent waiting for the lock
+     */
+    public void acquired(String mode, long waitNanos) {
+        SiteMetrics metrics = sites.computeIfAbsent(mode + " " + callSite(), SiteMetrics::new);
+        metrics.waitTime(waitNanos);
+        acquisitions.get().push(new Acquisition(metrics, System.nanoTime()));
+    }
+
+    /**
+     * Record release of the lock, which was acquired last by the current thread
+     */
+    public void released() {
+        Acquisition acquisition = acquisitions.get().poll();
+        if (acquisition != null) {
+            acquisition.metrics.holdTime(System.nanoTime() - acquisition.acquiredAt);
+        }
+    }
+
+    /**
+     * @return metrics of all call sites sorted by the total hold time descending
+     */
+    public List<SiteMetrics> getSiteMetrics() {
+        List<SiteMetrics> result = new ArrayList<>(sites.values());
+        result.sort(Comparator.comparingLong(SiteMetrics::getTotalHoldNanos).reversed());
+        return result;
+    }
+
+    public void reset() {
+        sites.clear();
+    }
+
+    private String callSite() {
+        return stackWalker.walk(frames -> frames
+            .filter(frame -> !lockClasses.contains(frame.getClassName()))
+            .findFirst()
+            .map(frame -> frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+            .orElse("unknown"));
+    }
+
+    public static class SiteMetrics {
+        private final String site;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder totalHoldNanos = new LongAdder();
+        private final LongAccumulator maxHoldNanos = new LongAccumulator(Long::max, 0);
+
+        SiteMetrics(String site) {
+            this.site = site;
+        }
+
+        void waitTime(long nanos) {
+            count.increment();
+            totalWaitNanos.add(nanos);
+            maxWaitNanos.accumulate(nanos);
+        }
+
+        void holdTime(long nanos) {
+            totalHoldNanos.add(nanos);
+            maxHoldNanos.accumulate(nanos);
+        }
+
+        public String getSite() {
+            return site;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalWaitNanos() {
+            return totalWaitNanos.sum();
+        }
+
+        public long getMaxWaitNanos() {
+            return maxWaitNanos.get();
+        }
+
+        public long getTotalHoldNanos() {
+            return totalHoldNanos.sum();
+        }
+
+        public long getMaxHoldNanos() {
+            return maxHoldNanos.get();
+        }
+    }
+
+    private static class Acquisition {
+        private final SiteMetrics metrics;
+        private final long acquiredAt;
+
+        Acquisition(SiteMetrics metrics, long acquiredAt) {
+            this.metrics = metrics;
+            this.acquiredAt = acquiredAt;
+        }
+    }
+}
@@ -767,7 +767,7 @@ public class TransactionImpl implements Transaction {
         return checkSignature() && lookupAndInjectAccountService().setOrVerifyPublicKey(getSenderId(), getSenderPublicKey());
     }
 
-    private boolean checkSignature() {
+    boolean checkSignature() {
         if (!hasValidSignature) {
             hasValidSignature = signature != null && Crypto.verify(signature, zeroSignature(getBytes()), getSenderPublicKey());
         }
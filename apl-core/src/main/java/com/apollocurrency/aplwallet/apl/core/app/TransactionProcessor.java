@@ -20,7 +20,6 @@
 
 package com.apollocurrency.aplwallet.apl.core.app;
 
-import com.apollocurrency.aplwallet.apl.core.db.DbIterator;
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -33,13 +32,21 @@ public interface TransactionProcessor {
 
     void init();
 
-    DbIterator<UnconfirmedTransaction> getAllUnconfirmedTransactions();
+    void shutdown();
 
-    DbIterator<? extends Transaction> getAllUnconfirmedTransactions(int from, int to);
+    /**
+     * @return snapshot of the unconfirmed transactions pool in the block selection order
+     */
+    List<UnconfirmedTransaction> getAllUnconfirmedTransactions();
 
-    DbIterator<? extends Transaction> getAllUnconfirmedTransactions(String sort);
+    /**
+     * @param from index of the first transaction, inclusive
+     * @param to   index of the last transaction, inclusive, negative value means no limit
+     * @return snapshot of the unconfirmed transactions pool page in the block selection order
+     */
+    List<UnconfirmedTransaction> getAllUnconfirmedTransactions(int from, int to);
 
-    DbIterator<? extends Transaction> getAllUnconfirmedTransactions(int from, int to, String sort);
+    List<UnconfirmedTransaction> getUnconfirmedTransactionsBySender(long senderId);
 
     Transaction getUnconfirmedTransaction(long transactionId);
 
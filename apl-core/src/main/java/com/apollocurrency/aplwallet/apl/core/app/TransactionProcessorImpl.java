@@ -25,8 +25,6 @@ import com.apollocurrency.aplwallet.apl.core.account.service.AccountServiceImpl;
 import com.apollocurrency.aplwallet.apl.core.app.observer.events.TxEventType;
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
-import com.apollocurrency.aplwallet.apl.core.db.DbClause;
-import com.apollocurrency.aplwallet.apl.core.db.DbIterator;
 import com.apollocurrency.aplwallet.apl.core.db.DbKey;
 import com.apollocurrency.aplwallet.apl.core.db.KeyFactory;
 import com.apollocurrency.aplwallet.apl.core.db.LongKeyFactory;
@@ -64,7 +62,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -75,20 +72,14 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
-import static java.util.Comparator.comparingInt;
-import static java.util.Comparator.comparingLong;
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Singleton
 public class TransactionProcessorImpl implements TransactionProcessor {
     private static final Logger LOG = getLogger(TransactionProcessorImpl.class);
-    private static final Comparator<UnconfirmedTransaction> cachedUnconfirmedTransactionComparator =
-        comparingInt(UnconfirmedTransaction::getHeight) // Sort by transaction_height ASC
-            .thenComparing(comparingLong(UnconfirmedTransaction::getFeePerByte).reversed()) // Sort by fee_per_byte DESC
-            .thenComparingLong(UnconfirmedTransaction::getArrivalTimestamp) // Sort by arrival_timestamp ASC
-            .thenComparingLong(UnconfirmedTransaction::getId); // Sort by transaction ID ASC
-    private final Map<DbKey, UnconfirmedTransaction> transactionCache = new HashMap<>();
+    private final UnconfirmedTransactionPool pool = new UnconfirmedTransactionPool();
     private final LongKeyFactory<UnconfirmedTransaction> transactionKeyFactory;
     private final EntityDbTable<UnconfirmedTransaction> unconfirmedTransactionTable;
     private final TransactionValidator validator;
@@ -98,6 +89,11 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     private final Map<TransactionType, Map<String, Integer>> unconfirmedDuplicates = new HashMap<>();
     private PropertiesHolder propertiesHolder = CDI.current().select(PropertiesHolder.class).get();
     private final boolean enableTransactionRebroadcasting = propertiesHolder.getBooleanProperty("apl.enableTransactionRebroadcasting");
+    /**
+     * Store unconfirmed transactions also in the unconfirmed_transaction table to survive node crash,
+     * otherwise table is used only to save pool snapshot on shutdown
+     */
+    private final boolean writeThrough = propertiesHolder.getBooleanProperty("apl.unconfirmedPool.writeThrough", true);
     private BlockchainConfig blockchainConfig = CDI.current().select(BlockchainConfig.class).get();
     private NtpTime ntpTime = CDI.current().select(NtpTime.class).get();
     private Blockchain blockchain;
@@ -189,10 +185,23 @@ public class TransactionProcessorImpl implements TransactionProcessor {
                 Collections.sort(exclude);
                 request.put("exclude", exclude);
                 request.put("chainId", blockchainConfig.getChain().getChainId());
+                BinaryWireFormat.request(request);
                 JSONObject response = peer.send(JSON.prepareRequest(request), blockchainConfig.getChain().getChainId());
                 if (response == null) {
                     return;
                 }
+                String binaryTransactions = (String) response.get(BinaryWireFormat.UNCONFIRMED_TRANSACTIONS_KEY);
+                if (binaryTransactions != null) {
+                    try {
+                        long startTime = System.nanoTime();
+                        List<BinaryWireFormat.TransactionData> transactions = BinaryWireFormat.readTransactions(binaryTransactions);
+                        peer.updateDecodingTime(System.nanoTime() - startTime);
+                        processPeerTransactions(transactions, transactionData -> BinaryWireFormat.parseTransaction(transactionData, true));
+                    } catch (AplException.NotValidException | RuntimeException e) {
+                        peer.blacklist(e);
+                    }
+                    return;
+                }
                 JSONArray transactionsData = (JSONArray) response.get("unconfirmedTransactions");
                 if (transactionsData == null || transactionsData.size() == 0) {
                     return;
@@ -227,7 +236,7 @@ public class TransactionProcessorImpl implements TransactionProcessor {
             System.exit(1);
         }
     };
-    private volatile boolean cacheInitialized = false;
+    private volatile boolean poolLoaded = false;
 
     @Inject
     public TransactionProcessorImpl(LongKeyFactory<UnconfirmedTransaction> transactionKeyFactory, TransactionValidator validator, TransactionApplier applier, javax.enterprise.event.Event<List<Transaction>> txEvent) {
@@ -270,37 +279,25 @@ public class TransactionProcessorImpl implements TransactionProcessor {
 
                 @Override
                 public void save(Connection con, UnconfirmedTransaction unconfirmedTransaction) throws SQLException {
-                    unconfirmedTransaction.save(con);
-                    if (transactionCache.size() < maxUnconfirmedTransactions) {
-                        DbKey dbKey = transactionKeyFactory.newKey(unconfirmedTransaction.getId());
-                        transactionCache.put(dbKey, unconfirmedTransaction);
-                    }
+                    unconfirmedTransaction.save(con, blockchain.getHeight());
                 }
 
                 @Override
                 public int rollback(int height) {
-                    int rc;
-                    try (Connection con = lookupDataSource().getConnection();
-                         PreparedStatement pstmt = con.prepareStatement("SELECT * FROM unconfirmed_transaction WHERE height > ?")) {
-                        pstmt.setInt(1, height);
-                        try (ResultSet rs = pstmt.executeQuery()) {
-                            while (rs.next()) {
-                                UnconfirmedTransaction unconfirmedTransaction = load(con, rs, null);
-                                waitingTransactions.add(unconfirmedTransaction);
-                                DbKey dbKey = transactionKeyFactory.newKey(unconfirmedTransaction.getId());
-                                transactionCache.remove(dbKey);
-                            }
-                        }
-                    } catch (SQLException e) {
-                        throw new RuntimeException(e.toString(), e);
-                    }
-                    rc = super.rollback(height);
+                    UnconfirmedTransactionPool unconfirmedPool = lookupPool();
+                    enlistPool(lookupDataSource());
+                    List<UnconfirmedTransaction> removed = unconfirmedPool.removeAbove(height);
+                    waitingTransactions.addAll(removed);
+                    int rc = writeThrough ? super.rollback(height) : removed.size();
                     unconfirmedDuplicates.clear();
                     return rc;
                 }
 
                 @Override
                 public void truncate() {
+                    UnconfirmedTransactionPool unconfirmedPool = lookupPool();
+                    enlistPool(lookupDataSource());
+                    unconfirmedPool.clear();
                     super.truncate();
                 }
 
@@ -319,13 +316,10 @@ public class TransactionProcessorImpl implements TransactionProcessor {
                     if (lookupBlockchainProcessor().isDownloading()) {
                         return;
                     }
-                    List<UnconfirmedTransaction> expiredTransactions = new ArrayList<>();
-                    try (DbIterator<UnconfirmedTransaction> iterator = unconfirmedTransactionTable.getManyBy(
-                        new DbClause.IntClause("expiration", DbClause.Op.LT, timeService.getEpochTime()), 0, -1, "")) {
-                        while (iterator.hasNext()) {
-                            expiredTransactions.add(iterator.next());
-                        }
-                    }
+                    int epochTime = timeService.getEpochTime();
+                    List<UnconfirmedTransaction> expiredTransactions = lookupPool().getAll().stream()
+                        .filter(unconfirmedTransaction -> unconfirmedTransaction.getExpiration() < epochTime)
+                        .collect(Collectors.toList());
                     if (expiredTransactions.size() > 0) {
                         globalSync.writeLock();
                         try {
@@ -403,68 +397,116 @@ public class TransactionProcessorImpl implements TransactionProcessor {
         }
     }
 
+    /**
+     * Save snapshot of the unconfirmed transactions pool to the db, when pool is not written through
+     */
     @Override
-    public DbIterator<UnconfirmedTransaction> getAllUnconfirmedTransactions() {
-        return unconfirmedTransactionTable.getAll(0, -1);
+    public void shutdown() {
+        if (writeThrough || !poolLoaded) {
+            return;
+        }
+        globalSync.writeLock();
+        try {
+            TransactionalDataSource dataSource = lookupDataSource();
+            try (Connection con = dataSource.begin();
+                 PreparedStatement pstmt = con.prepareStatement("DELETE FROM unconfirmed_transaction")) {
+                pstmt.executeUpdate();
+                for (UnconfirmedTransaction unconfirmedTransaction : pool.getAll()) {
+                    unconfirmedTransaction.save(con, pool.getHeight(unconfirmedTransaction.getId()));
+                }
+                dataSource.commit();
+                LOG.info("Saved snapshot of {} unconfirmed transactions", pool.size());
+            } catch (SQLException e) {
+                dataSource.rollback();
+                LOG.error("Unable to save unconfirmed transactions snapshot", e);
+            }
+        } finally {
+            globalSync.writeUnlock();
+        }
     }
 
     @Override
-    public DbIterator<UnconfirmedTransaction> getAllUnconfirmedTransactions(int from, int to) {
-        return unconfirmedTransactionTable.getAll(from, to);
+    public List<UnconfirmedTransaction> getAllUnconfirmedTransactions() {
+        return lookupPool().getAll();
     }
 
     @Override
-    public DbIterator<UnconfirmedTransaction> getAllUnconfirmedTransactions(String sort) {
-        return unconfirmedTransactionTable.getAll(0, -1, sort);
+    public List<UnconfirmedTransaction> getAllUnconfirmedTransactions(int from, int to) {
+        return lookupPool().getAll(from, to);
     }
 
     @Override
-    public DbIterator<UnconfirmedTransaction> getAllUnconfirmedTransactions(int from, int to, String sort) {
-        return unconfirmedTransactionTable.getAll(from, to, sort);
+    public List<UnconfirmedTransaction> getUnconfirmedTransactionsBySender(long senderId) {
+        return lookupPool().getBySender(senderId);
     }
 
     @Override
     public Transaction getUnconfirmedTransaction(long transactionId) {
-        DbKey dbKey = transactionKeyFactory.newKey(transactionId);
-        return getUnconfirmedTransaction(dbKey);
+        return lookupPool().get(transactionId);
     }
 
-    Transaction getUnconfirmedTransaction(DbKey dbKey) {
-        globalSync.readLock();
-        try {
-            Transaction transaction = transactionCache.get(dbKey);
-            if (transaction != null) {
-                return transaction;
+    private List<Long> getAllUnconfirmedTransactionIds() {
+        return lookupPool().getAll().stream().map(UnconfirmedTransaction::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Load unconfirmed transactions stored in the db on the first access to the pool, since db is not ready
+     * on the {@link #init()}. Pool snapshot is removed from the db after loading, when pool is not written through.
+     */
+    private UnconfirmedTransactionPool lookupPool() {
+        if (!poolLoaded) {
+            synchronized (pool) {
+                if (!poolLoaded) {
+                    loadPool();
+                    poolLoaded = true;
+                }
             }
-        } finally {
-            globalSync.readUnlock();
         }
-        return unconfirmedTransactionTable.get(dbKey);
+        return pool;
     }
 
-    private List<Long> getAllUnconfirmedTransactionIds() {
-        List<Long> result = new ArrayList<>();
-        try (Connection con = lookupDataSource().getConnection();
-             PreparedStatement pstmt = con.prepareStatement("SELECT id FROM unconfirmed_transaction");
-             ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                result.add(rs.getLong("id"));
+    private void loadPool() {
+        TransactionalDataSource dataSource = lookupDataSource();
+        boolean inTransaction = dataSource.isInTransaction();
+        try {
+            Connection con = inTransaction ? dataSource.getConnection() : dataSource.begin();
+            try (PreparedStatement pstmt = con.prepareStatement("SELECT * FROM unconfirmed_transaction");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    pool.add(new UnconfirmedTransaction(rs), rs.getInt("height"));
+                }
+            }
+            if (!writeThrough) {
+                try (PreparedStatement pstmt = con.prepareStatement("DELETE FROM unconfirmed_transaction")) {
+                    pstmt.executeUpdate();
+                }
+            }
+            if (!inTransaction) {
+                dataSource.commit();
             }
         } catch (SQLException e) {
+            if (!inTransaction) {
+                dataSource.rollback();
+            }
             throw new RuntimeException(e.toString(), e);
         }
-        return result;
+        LOG.info("Loaded {} unconfirmed transactions", pool.size());
+    }
+
+    /**
+     * Revert pool modifications made under the current db transaction, when such transaction is rolled back
+     */
+    private void enlistPool(TransactionalDataSource dataSource) {
+        if (dataSource.isInTransaction()) {
+            dataSource.registerCallback(pool);
+            pool.startUndoLog();
+        }
     }
 
     @Override
     public UnconfirmedTransaction[] getAllWaitingTransactions() {
-        UnconfirmedTransaction[] transactions;
-        globalSync.readLock();
-        try {
-            transactions = waitingTransactions.toArray(new UnconfirmedTransaction[waitingTransactions.size()]);
-        } finally {
-            globalSync.readUnlock();
-        }
+        UnconfirmedTransaction[] transactions = globalSync.readOptimistically(
+            () -> waitingTransactions.toArray(new UnconfirmedTransaction[0]));
         Arrays.sort(transactions, waitingTransactions.comparator());
         return transactions;
     }
@@ -475,12 +517,7 @@ public class TransactionProcessorImpl implements TransactionProcessor {
 
     @Override
     public TransactionImpl[] getAllBroadcastedTransactions() {
-        globalSync.readLock();
-        try {
-            return broadcastedTransactions.toArray(new TransactionImpl[broadcastedTransactions.size()]);
-        } finally {
-            globalSync.readUnlock();
-        }
+        return broadcastedTransactions.toArray(new TransactionImpl[0]);
     }
 
     @Override
@@ -491,8 +528,7 @@ public class TransactionProcessorImpl implements TransactionProcessor {
                 LOG.info("Transaction {} already in blockchain, will not broadcast again", transaction.getStringId());
                 return;
             }
-            DbKey dbKey = transactionKeyFactory.newKey(transaction.getId());
-            if (getUnconfirmedTransaction(dbKey) != null) {
+            if (lookupPool().contains(transaction.getId())) {
                 if (enableTransactionRebroadcasting) {
                     broadcastedTransactions.add(transaction);
                     LOG.info("Transaction {} already in unconfirmed pool, will re-broadcast", transaction.getStringId());
@@ -537,11 +573,9 @@ public class TransactionProcessorImpl implements TransactionProcessor {
             TransactionalDataSource dataSource = lookupDataSource();
             try {
                 dataSource.begin();
-                try (DbIterator<UnconfirmedTransaction> unconfirmedTransactions = getAllUnconfirmedTransactions()) {
-                    for (UnconfirmedTransaction unconfirmedTransaction : unconfirmedTransactions) {
-                        transactionApplier.undoUnconfirmed(unconfirmedTransaction.getTransaction());
-                        removed.add(unconfirmedTransaction.getTransaction());
-                    }
+                for (UnconfirmedTransaction unconfirmedTransaction : getAllUnconfirmedTransactions()) {
+                    transactionApplier.undoUnconfirmed(unconfirmedTransaction.getTransaction());
+                    removed.add(unconfirmedTransaction.getTransaction());
                 }
                 unconfirmedTransactionTable.truncate();
                 dataSource.commit();
@@ -553,7 +587,6 @@ public class TransactionProcessorImpl implements TransactionProcessor {
             unconfirmedDuplicates.clear();
             waitingTransactions.clear();
             broadcastedTransactions.clear();
-            transactionCache.clear();
             txsEvent.select(TxEventType.literal(TxEventType.REMOVED_UNCONFIRMED_TRANSACTIONS)).fire(removed);
         } finally {
             globalSync.writeUnlock();
@@ -578,18 +611,15 @@ public class TransactionProcessorImpl implements TransactionProcessor {
                 return;
             }
             List<Transaction> removed = new ArrayList<>();
-            try (DbIterator<UnconfirmedTransaction> unconfirmedTransactions = getAllUnconfirmedTransactions()) {
-                for (UnconfirmedTransaction unconfirmedTransaction : unconfirmedTransactions) {
-                    transactionApplier.undoUnconfirmed(unconfirmedTransaction.getTransaction());
-                    if (removed.size() < maxUnconfirmedTransactions) {
-                        removed.add(unconfirmedTransaction.getTransaction());
-                    }
-                    waitingTransactions.add(unconfirmedTransaction);
+            for (UnconfirmedTransaction unconfirmedTransaction : getAllUnconfirmedTransactions()) {
+                transactionApplier.undoUnconfirmed(unconfirmedTransaction.getTransaction());
+                if (removed.size() < maxUnconfirmedTransactions) {
+                    removed.add(unconfirmedTransaction.getTransaction());
                 }
+                waitingTransactions.add(unconfirmedTransaction);
             }
             unconfirmedTransactionTable.truncate();
             unconfirmedDuplicates.clear();
-            transactionCache.clear();
             txsEvent.select(TxEventType.literal(TxEventType.REMOVED_UNCONFIRMED_TRANSACTIONS)).fire(removed);
         } finally {
             globalSync.writeUnlock();
@@ -600,13 +630,11 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     public void rebroadcastAllUnconfirmedTransactions() {
         globalSync.writeLock();
         try {
-            try (DbIterator<UnconfirmedTransaction> oldNonBroadcastedTransactions = getAllUnconfirmedTransactions()) {
-                for (UnconfirmedTransaction unconfirmedTransaction : oldNonBroadcastedTransactions) {
-                    if (unconfirmedTransaction.getTransaction().isUnconfirmedDuplicate(unconfirmedDuplicates)) {
-                        LOG.debug("Skipping duplicate unconfirmed transaction " + unconfirmedTransaction.getTransaction().getJSONObject().toString());
-                    } else if (enableTransactionRebroadcasting) {
-                        broadcastedTransactions.add(unconfirmedTransaction.getTransaction());
-                    }
+            for (UnconfirmedTransaction unconfirmedTransaction : getAllUnconfirmedTransactions()) {
+                if (unconfirmedTransaction.getTransaction().isUnconfirmedDuplicate(unconfirmedDuplicates)) {
+                    LOG.debug("Skipping duplicate unconfirmed transaction " + unconfirmedTransaction.getTransaction().getJSONObject().toString());
+                } else if (enableTransactionRebroadcasting) {
+                    broadcastedTransactions.add(unconfirmedTransaction.getTransaction());
                 }
             }
         } finally {
@@ -628,20 +656,23 @@ public class TransactionProcessorImpl implements TransactionProcessor {
             }
             return;
         }
-        try (Connection con = dataSource.getConnection();
-             PreparedStatement pstmt = con.prepareStatement("DELETE FROM unconfirmed_transaction WHERE id = ?")) {
-            pstmt.setLong(1, transaction.getId());
-            int deleted = pstmt.executeUpdate();
-            if (deleted > 0) {
-                transactionApplier.undoUnconfirmed(transaction);
-                DbKey dbKey = transactionKeyFactory.newKey(transaction.getId());
-                transactionCache.remove(dbKey);
-                txsEvent.select(TxEventType.literal(TxEventType.REMOVED_UNCONFIRMED_TRANSACTIONS)).fire(Collections.singletonList(transaction));
+        UnconfirmedTransactionPool unconfirmedPool = lookupPool();
+        enlistPool(dataSource);
+        if (unconfirmedPool.remove(transaction.getId()) == null) {
+            return;
+        }
+        if (writeThrough) {
+            try (Connection con = dataSource.getConnection();
+                 PreparedStatement pstmt = con.prepareStatement("DELETE FROM unconfirmed_transaction WHERE id = ?")) {
+                pstmt.setLong(1, transaction.getId());
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                LOG.error(e.toString(), e);
+                throw new RuntimeException(e.toString(), e);
             }
-        } catch (SQLException e) {
-            LOG.error(e.toString(), e);
-            throw new RuntimeException(e.toString(), e);
         }
+        transactionApplier.undoUnconfirmed(transaction);
+        txsEvent.select(TxEventType.literal(TxEventType.REMOVED_UNCONFIRMED_TRANSACTIONS)).fire(Collections.singletonList(transaction));
     }
 
     @Override
@@ -697,6 +728,10 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     }
 
     private void processPeerTransactions(JSONArray transactionsData) throws AplException.NotValidException {
+        processPeerTransactions((List<Object>) transactionsData, transactionData -> TransactionImpl.parseTransaction((JSONObject) transactionData));
+    }
+
+    private <T> void processPeerTransactions(List<T> transactionsData, TransactionParser<T> parser) throws AplException.NotValidException {
         if (blockchain.getHeight() <= blockchainConfig.getLastKnownBlock()) {
             return;
         }
@@ -708,12 +743,11 @@ public class TransactionProcessorImpl implements TransactionProcessor {
         List<Transaction> sendToPeersTransactions = new ArrayList<>();
         List<Transaction> addedUnconfirmedTransactions = new ArrayList<>();
         List<Exception> exceptions = new ArrayList<>();
-        for (Object transactionData : transactionsData) {
+        for (T transactionData : transactionsData) {
             try {
-                Transaction transaction = TransactionImpl.parseTransaction((JSONObject) transactionData);
+                Transaction transaction = parser.parse(transactionData);
                 receivedTransactions.add(transaction);
-                DbKey dbKey = transactionKeyFactory.newKey(transaction.getId());
-                if (getUnconfirmedTransaction(dbKey) != null || blockchain.hasTransaction(transaction.getId())) {
+                if (lookupPool().contains(transaction.getId()) || blockchain.hasTransaction(transaction.getId())) {
                     continue;
                 }
                 validator.validate(transaction);
@@ -729,7 +763,7 @@ public class TransactionProcessorImpl implements TransactionProcessor {
 
             } catch (AplException.NotCurrentlyValidException ignore) {
             } catch (AplException.ValidationException | RuntimeException e) {
-                LOG.debug(String.format("Invalid transaction from peer: %s", ((JSONObject) transactionData).toJSONString()), e);
+                LOG.debug(String.format("Invalid transaction from peer: %s", transactionData), e);
                 exceptions.add(e);
             }
         }
@@ -766,10 +800,15 @@ public class TransactionProcessorImpl implements TransactionProcessor {
                 if (blockchain.getHeight() < blockchainConfig.getLastKnownBlock()) {
                     throw new AplException.NotCurrentlyValidException("Blockchain not ready to accept transactions");
                 }
-                DbKey dbKey = transactionKeyFactory.newKey(transaction.getId());
-                if (getUnconfirmedTransaction(dbKey) != null || blockchain.hasTransaction(transaction.getId())) {
+                UnconfirmedTransactionPool unconfirmedPool = lookupPool();
+                if (unconfirmedPool.contains(transaction.getId()) || blockchain.hasTransaction(transaction.getId())) {
                     throw new AplException.ExistingTransactionException("Transaction already processed");
                 }
+                UnconfirmedTransaction lowestFeeTransaction = unconfirmedPool.size() >= maxUnconfirmedTransactions
+                    ? unconfirmedPool.getLowestFee() : null;
+                if (lowestFeeTransaction != null && unconfirmedTransaction.getFeePerByte() <= lowestFeeTransaction.getFeePerByte()) {
+                    throw new AplException.NotCurrentlyValidException("Unconfirmed transaction pool is full");
+                }
 
                 if (!transaction.verifySignature()) {
                     if (lookupAccountService().getAccount(transaction.getSenderId()) != null) {
@@ -787,7 +826,16 @@ public class TransactionProcessorImpl implements TransactionProcessor {
                     throw new AplException.NotCurrentlyValidException("Duplicate unconfirmed transaction");
                 }
 
-                unconfirmedTransactionTable.insert(unconfirmedTransaction);
+                if (lowestFeeTransaction != null) {
+                    LOG.debug("Evict unconfirmed transaction {} with the lowest fee per byte {}",
+                        lowestFeeTransaction.getStringId(), lowestFeeTransaction.getFeePerByte());
+                    removeUnconfirmedTransaction(lowestFeeTransaction.getTransaction());
+                }
+                if (writeThrough) {
+                    unconfirmedTransactionTable.insert(unconfirmedTransaction);
+                }
+                enlistPool(dataSource);
+                unconfirmedPool.add(unconfirmedTransaction, blockchain.getHeight());
 
                 dataSource.commit();
             } catch (Exception e) {
@@ -806,33 +854,11 @@ public class TransactionProcessorImpl implements TransactionProcessor {
      */
     @Override
     public SortedSet<? extends Transaction> getCachedUnconfirmedTransactions(List<String> exclude) {
-        SortedSet<UnconfirmedTransaction> transactionSet = new TreeSet<>(cachedUnconfirmedTransactionComparator);
-        globalSync.readLock();
-        try {
-            //
-            // Initialize the unconfirmed transaction cache if it hasn't been done yet
-            //
-            synchronized (transactionCache) {
-                if (!cacheInitialized) {
-                    DbIterator<UnconfirmedTransaction> it = getAllUnconfirmedTransactions();
-                    while (it.hasNext()) {
-                        UnconfirmedTransaction unconfirmedTransaction = it.next();
-                        DbKey dbKey = transactionKeyFactory.newKey(unconfirmedTransaction.getId());
-                        transactionCache.put(dbKey, unconfirmedTransaction);
-                    }
-                    cacheInitialized = true;
-                }
+        SortedSet<UnconfirmedTransaction> transactionSet = new TreeSet<>(UnconfirmedTransactionPool.ORDER_COMPARATOR);
+        for (UnconfirmedTransaction transaction : lookupPool().getAll()) {
+            if (Collections.binarySearch(exclude, transaction.getStringId()) < 0) {
+                transactionSet.add(transaction);
             }
-            //
-            // Build the result set
-            //
-            transactionCache.values().forEach(transaction -> {
-                if (Collections.binarySearch(exclude, transaction.getStringId()) < 0) {
-                    transactionSet.add(transaction);
-                }
-            });
-        } finally {
-            globalSync.readUnlock();
         }
         return transactionSet;
     }
@@ -953,4 +979,11 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     public void broadcastWhenConfirmed(Transaction tx, Transaction unconfirmedTx) {
         txToBroadcastWhenConfirmed.put(tx, unconfirmedTx);
     }
+
+    /**
+     * Parser of the transaction received from the peer in json or binary format
+     */
+    private interface TransactionParser<T> {
+        Transaction parse(T transactionData) throws AplException.ValidationException;
+    }
 }
@@ -5,6 +5,8 @@
 package com.apollocurrency.aplwallet.apl.core.app;
 
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.util.annotation.DatabaseSpecificDml;
+import com.apollocurrency.aplwallet.apl.util.annotation.DmlMarker;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -91,4 +93,52 @@ public class TrimDao {
             throw new RuntimeException(e.toString(), e);
         }
     }
+
+    /**
+     * Save db_id of the last trimmed chunk of the table
+     *
+     * @param table    name of the table
+     * @param height   trim height
+     * @param lastDbId last processed db_id
+     */
+    public void saveProgress(String table, int height, long lastDbId) {
+        try (Connection con = databaseManager.getDataSource().getConnection();
+             @DatabaseSpecificDml(DmlMarker.MERGE)
+             PreparedStatement pstmt = con.prepareStatement("MERGE INTO trim_progress (table_name, height, db_id) KEY (table_name) VALUES (?, ?, ?)")) {
+            pstmt.setString(1, table);
+            pstmt.setInt(2, height);
+            pstmt.setLong(3, lastDbId);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    /**
+     * @param table  name of the table
+     * @param height trim height
+     * @return db_id of the last trimmed chunk of the table at the given height or 0, when trim of the table at such height was not started
+     */
+    public long getProgress(String table, int height) {
+        try (Connection con = databaseManager.getDataSource().getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT db_id FROM trim_progress WHERE table_name = ? AND height = ?")) {
+            pstmt.setString(1, table);
+            pstmt.setInt(2, height);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    public void clearProgress() {
+        try (Connection con = databaseManager.getDataSource().getConnection();
+             PreparedStatement pstmt = con.prepareStatement("DELETE FROM trim_progress")
+        ) {
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
 }
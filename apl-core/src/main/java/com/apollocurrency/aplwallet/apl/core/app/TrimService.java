@@ -11,7 +11,9 @@ import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
 import com.apollocurrency.aplwallet.apl.core.db.DerivedTablesRegistry;
 import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
 import com.apollocurrency.aplwallet.apl.core.db.cdi.Transactional;
+import com.apollocurrency.aplwallet.apl.core.db.derived.BasicDbTable;
 import com.apollocurrency.aplwallet.apl.core.db.derived.DerivedTableInterface;
+import com.apollocurrency.aplwallet.apl.core.db.derived.TrimProgressHandler;
 import com.apollocurrency.aplwallet.apl.core.shard.observer.TrimData;
 import com.apollocurrency.aplwallet.apl.util.Constants;
 import com.apollocurrency.aplwallet.apl.util.ThreadUtils;
@@ -33,6 +35,8 @@ public class TrimService {
     @Getter
     private final int maxRollback;
     private final int trimFrequency;
+    private final int trimChunkSize;
+    private final int trimThrottleMs;
     private final DatabaseManager dbManager;
     private final DerivedTablesRegistry dbTablesRegistry;
     private final TrimDao trimDao;
@@ -52,9 +56,13 @@ public class TrimService {
                        Event<TrimData> trimEvent,
                        Event<TrimConfig> trimConfigEvent,
                        TrimDao trimDao,
-                       @Property(value = "apl.maxRollback", defaultValue = "720") int maxRollback
+                       @Property(value = "apl.maxRollback", defaultValue = "720") int maxRollback,
+                       @Property(value = "apl.trimChunkSize", defaultValue = "10000") int trimChunkSize,
+                       @Property(value = "apl.trimThrottleMs", defaultValue = "10") int trimThrottleMs
     ) {
         this.maxRollback = maxRollback;
+        this.trimChunkSize = trimChunkSize > 0 ? trimChunkSize : TrimProgressHandler.DEFAULT_CHUNK_SIZE;
+        this.trimThrottleMs = Math.max(trimThrottleMs, 0);
         this.trimDao = Objects.requireNonNull(trimDao, "trimDao is NULL");
         this.dbManager = Objects.requireNonNull(databaseManager, "Database manager cannot be null");
         this.dbTablesRegistry = Objects.requireNonNull(derivedDbTablesRegistry, "Db tables registry cannot be null");
@@ -142,7 +150,7 @@ public class TrimService {
                     trimDao.clear();
                     trimEntry = trimDao.save(trimEntry);
                     dbManager.getDataSource().commit(false);
-                    int pruningTime = doTrimDerivedTablesOnHeight(trimHeight, false);
+                    int pruningTime = doTrimDerivedTablesOnHeight(trimHeight, false, async);
                     if (async) {
                         log.debug("Fire doTrimDerived event height '{}' Async, trimHeight={}", blockchainHeight, trimHeight);
                         trimEvent.select(new AnnotationLiteral<TrimEvent>() {
@@ -154,6 +162,7 @@ public class TrimService {
                     }
                     trimEntry.setDone(true);
                     trimDao.save(trimEntry);
+                    trimDao.clearProgress();
                     log.debug("doTrimDerived saved {} at height '{}'", trimEntry, blockchainHeight);
                 } else {
                     log.debug("doTrimDerived skipped at blockchain height={} and trim height={}", blockchainHeight, trimHeight);
@@ -178,6 +187,7 @@ public class TrimService {
                     dataSource.begin();
                 }
                 trimDao.clear();
+                trimDao.clearProgress();
                 if (height > 0) {
                     trimDao.save(new TrimEntry(null, height, true));
                     log.debug("Reset Trim to height={}", height);
@@ -206,9 +216,17 @@ public class TrimService {
         return res;
     }
 
-    @Transactional
     private int doTrimDerivedTablesOnHeight(int height, boolean isSharding) {
-        log.debug("TRIM: doTrimDerivedTablesOnHeight on height={}, isSharding={}", height, isSharding);
+        return doTrimDerivedTablesOnHeight(height, isSharding, false);
+    }
+
+    /**
+     * @param throttle whether to release the global read lock between trim chunks of the multiversion tables,
+     *                 should be used only for the background trim, when the current thread does not hold other global locks
+     */
+    @Transactional
+    private int doTrimDerivedTablesOnHeight(int height, boolean isSharding, boolean throttle) {
+        log.debug("TRIM: doTrimDerivedTablesOnHeight on height={}, isSharding={}, throttle={}", height, isSharding, throttle);
         long start = System.currentTimeMillis();
 
         TransactionalDataSource dataSource = dbManager.getDataSource();
@@ -220,11 +238,15 @@ public class TrimService {
         long onlyTrimTime = 0;
         int epochTime = timeService.getEpochTime();
         int pruningTime = epochTime - epochTime % DEFAULT_PRUNABLE_UPDATE_PERIOD;
+        TrimProgressHandler progressHandler = new TableTrimProgressHandler(throttle);
 
         for (DerivedTableInterface table : dbTablesRegistry.getDerivedTables()) {
             log.trace("Try to acquire lock...");
             globalSync.readLock();
             log.trace("Got it.");
+            if (table instanceof BasicDbTable) {
+                ((BasicDbTable<?>) table).setTrimProgressHandler(progressHandler);
+            }
             try {
                 long startTime = System.currentTimeMillis();
                 table.prune(pruningTime);
@@ -235,6 +257,9 @@ public class TrimService {
                 //                    log.trace("Trim of {} took {} ms", table.getName(), duration);
                 onlyTrimTime += duration;
             } finally {
+                if (table instanceof BasicDbTable) {
+                    ((BasicDbTable<?>) table).setTrimProgressHandler(null);
+                }
                 globalSync.readUnlock();
             }
         }
@@ -266,4 +291,44 @@ public class TrimService {
             count++;
         }
     }
+
+    /**
+     * Stores trim progress of the tables in the {@link TrimDao} and releases the global read lock between trim chunks
+     */
+    private class TableTrimProgressHandler implements TrimProgressHandler {
+        private final boolean throttle;
+
+        TableTrimProgressHandler(boolean throttle) {
+            this.throttle = throttle;
+        }
+
+        @Override
+        public int getChunkSize() {
+            return trimChunkSize;
+        }
+
+        @Override
+        public long getLastTrimmedDbId(String table, int height) {
+            return trimDao.getProgress(table, height);
+        }
+
+        @Override
+        public void saveProgress(String table, int height, long lastDbId) {
+            trimDao.saveProgress(table, height, lastDbId);
+        }
+
+        @Override
+        public void throttle() {
+            if (throttle) {
+                globalSync.readUnlock();
+                try {
+                    if (trimThrottleMs > 0) {
+                        ThreadUtils.sleep(trimThrottleMs);
+                    }
+                } finally {
+                    globalSync.readLock();
+                }
+            }
+        }
+    }
 }
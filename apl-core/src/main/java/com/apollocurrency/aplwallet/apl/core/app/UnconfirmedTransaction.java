@@ -37,7 +37,6 @@ import com.apollocurrency.aplwallet.apl.util.Filter;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 
-import javax.enterprise.inject.spi.CDI;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -48,7 +47,6 @@ import java.util.Map;
 
 public class UnconfirmedTransaction implements Transaction {
 
-    private static Blockchain blockchain = CDI.current().select(BlockchainImpl.class).get();
     private final Transaction transaction;
     private final long arrivalTimestamp;
     private final long feePerByte;
@@ -77,7 +75,7 @@ public class UnconfirmedTransaction implements Transaction {
         }
     }
 
-    void save(Connection con) throws SQLException {
+    void save(Connection con, int height) throws SQLException {
         try (PreparedStatement pstmt = con.prepareStatement("INSERT INTO unconfirmed_transaction (id, transaction_height, "
             + "fee_per_byte, expiration, transaction_bytes, prunable_json, arrival_timestamp, height) "
             + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
@@ -94,7 +92,7 @@ public class UnconfirmedTransaction implements Transaction {
                 pstmt.setNull(++i, Types.VARCHAR);
             }
             pstmt.setLong(++i, arrivalTimestamp);
-            pstmt.setInt(++i, blockchain.getHeight());
+            pstmt.setInt(++i, height);
             pstmt.executeUpdate();
         }
     }
@@ -0,0 +1,277 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.db.TransactionCallback;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static java.util.Comparator.comparingInt;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * <p>In-memory pool of the unconfirmed transactions, indexed by transaction id, by sender account
+ * and by the fee per byte priority.</p>
+ * <p>Reads do not require any lock and return weakly consistent snapshots of the pool. Modifications are serialized
+ * by the pool itself and are expected to be done under the {@link GlobalSync} write lock by the {@link TransactionProcessor}.</p>
+ * <p>Modifications made after {@link #startUndoLog()} are reverted, when db transaction is rolled back, so that pool
+ * stays consistent with the unconfirmed balances stored in the db. Caller is responsible to register this pool as a
+ * {@link TransactionCallback} for the current transaction.</p>
+ */
+public class UnconfirmedTransactionPool implements TransactionCallback {
+    /**
+     * Order of the unconfirmed transactions selection for the block, the same as the default sort of the
+     * unconfirmed_transaction table
+     */
+    public static final Comparator<UnconfirmedTransaction> ORDER_COMPARATOR =
+        comparingInt(UnconfirmedTransaction::getHeight) // Sort by transaction_height ASC
+            .thenComparing(comparingLong(UnconfirmedTransaction::getFeePerByte).reversed()) // Sort by fee_per_byte DESC
+            .thenComparingLong(UnconfirmedTransaction::getArrivalTimestamp) // Sort by arrival_timestamp ASC
+            .thenComparingLong(UnconfirmedTransaction::getId); // Sort by transaction ID ASC
+    /**
+     * The same order as {@link #ORDER_COMPARATOR} over the transaction height captured on pool insertion, since
+     * height of the transaction is changed, when it is included into the block
+     */
+    private static final Comparator<PoolEntry> ENTRY_ORDER_COMPARATOR =
+        Comparator.<PoolEntry>comparingInt(entry -> entry.transactionHeight)
+            .thenComparing(Comparator.<PoolEntry>comparingLong(entry -> entry.transaction.getFeePerByte()).reversed())
+            .thenComparingLong(entry -> entry.transaction.getArrivalTimestamp())
+            .thenComparingLong(entry -> entry.transaction.getId());
+    /**
+     * Eviction order: transaction with the lowest fee per byte, which arrived last, goes first
+     */
+    private static final Comparator<PoolEntry> ENTRY_FEE_COMPARATOR =
+        Comparator.<PoolEntry>comparingLong(entry -> entry.transaction.getFeePerByte())
+            .thenComparing(Comparator.<PoolEntry>comparingLong(entry -> entry.transaction.getArrivalTimestamp()).reversed())
+            .thenComparingLong(entry -> entry.transaction.getId());
+
+    private final Map<Long, PoolEntry> byId = new ConcurrentHashMap<>();
+    private final Map<Long, Set<UnconfirmedTransaction>> bySender = new ConcurrentHashMap<>();
+    private final NavigableSet<PoolEntry> byOrder = new ConcurrentSkipListSet<>(ENTRY_ORDER_COMPARATOR);
+    private final NavigableSet<PoolEntry> byFee = new ConcurrentSkipListSet<>(ENTRY_FEE_COMPARATOR);
+    private final ThreadLocal<Deque<Runnable>> undoLog = new ThreadLocal<>();
+
+    public UnconfirmedTransaction get(long id) {
+        PoolEntry entry = byId.get(id);
+        return entry == null ? null : entry.transaction;
+    }
+
+    /**
+     * @param id transaction id
+     * @return blockchain height, at which transaction was accepted to the pool, or -1, when transaction is not in the pool
+     */
+    public int getHeight(long id) {
+        PoolEntry entry = byId.get(id);
+        return entry == null ? -1 : entry.height;
+    }
+
+    public boolean contains(long id) {
+        return byId.containsKey(id);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * @return unconfirmed transactions in the block selection order
+     */
+    public List<UnconfirmedTransaction> getAll() {
+        List<UnconfirmedTransaction> result = new ArrayList<>(byId.size());
+        for (PoolEntry entry : byOrder) {
+            result.add(entry.transaction);
+        }
+        return result;
+    }
+
+    /**
+     * @param from index of the first transaction, inclusive
+     * @param to   index of the last transaction, inclusive, negative value means no limit
+     * @return unconfirmed transactions in the block selection order
+     */
+    public List<UnconfirmedTransaction> getAll(int from, int to) {
+        List<UnconfirmedTransaction> result = new ArrayList<>();
+        int index = 0;
+        for (PoolEntry entry : byOrder) {
+            if (to >= 0 && index > to) {
+                break;
+            }
+            if (index >= from) {
+                result.add(entry.transaction);
+            }
+            index++;
+        }
+        return result;
+    }
+
+    public List<UnconfirmedTransaction> getBySender(long senderId) {
+        Set<UnconfirmedTransaction> transactions = bySender.get(senderId);
+        if (transactions == null) {
+            return Collections.emptyList();
+        }
+        List<UnconfirmedTransaction> result = new ArrayList<>(transactions);
+        result.sort(ORDER_COMPARATOR);
+        return result;
+    }
+
+    /**
+     * @return unconfirmed transaction with the lowest fee per byte, which should be evicted first, or null,
+     * when pool is empty
+     */
+    public UnconfirmedTransaction getLowestFee() {
+        Iterator<PoolEntry> iterator = byFee.iterator();
+        return iterator.hasNext() ? iterator.next().transaction : null;
+    }
+
+    /**
+     * Add unconfirmed transaction to the pool
+     *
+     * @param transaction unconfirmed transaction
+     * @param height      blockchain height, at which transaction was accepted to the pool
+     * @return true, when transaction was added, false when transaction with the same id is already in the pool
+     */
+    public synchronized boolean add(UnconfirmedTransaction transaction, int height) {
+        PoolEntry entry = new PoolEntry(transaction, height);
+        if (byId.putIfAbsent(transaction.getId(), entry) != null) {
+            return false;
+        }
+        index(entry);
+        logUndo(() -> doRemove(transaction.getId()));
+        return true;
+    }
+
+    /**
+     * @param id transaction id
+     * @return removed unconfirmed transaction or null, when transaction is not in the pool
+     */
+    public synchronized UnconfirmedTransaction remove(long id) {
+        PoolEntry entry = doRemove(id);
+        if (entry == null) {
+            return null;
+        }
+        logUndo(() -> doAdd(entry));
+        return entry.transaction;
+    }
+
+    /**
+     * Remove unconfirmed transactions accepted to the pool above the given blockchain height
+     *
+     * @param height rollback height
+     * @return removed transactions
+     */
+    public synchronized List<UnconfirmedTransaction> removeAbove(int height) {
+        List<UnconfirmedTransaction> removed = new ArrayList<>();
+        Iterator<PoolEntry> iterator = byId.values().iterator();
+        while (iterator.hasNext()) {
+            PoolEntry entry = iterator.next();
+            if (entry.height > height) {
+                iterator.remove();
+                unindex(entry);
+                removed.add(entry.transaction);
+                logUndo(() -> doAdd(entry));
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        if (undoLog.get() != null) {
+            List<PoolEntry> entries = new ArrayList<>(byId.values());
+            logUndo(() -> entries.forEach(this::doAdd));
+        }
+        byId.clear();
+        bySender.clear();
+        byOrder.clear();
+        byFee.clear();
+    }
+
+    /**
+     * Start recording of the pool modifications made by the current thread, to revert them on the db transaction rollback
+     */
+    public void startUndoLog() {
+        if (undoLog.get() == null) {
+            undoLog.set(new ArrayDeque<>());
+        }
+    }
+
+    @Override
+    public void commit() {
+        undoLog.remove();
+    }
+
+    @Override
+    public void rollback() {
+        Deque<Runnable> log = undoLog.get();
+        if (log != null) {
+            undoLog.remove();
+            synchronized (this) {
+                while (!log.isEmpty()) {
+                    log.pop().run();
+                }
+            }
+        }
+    }
+
+    private void logUndo(Runnable undo) {
+        Deque<Runnable> log = undoLog.get();
+        if (log != null) {
+            log.push(undo);
+        }
+    }
+
+    private void doAdd(PoolEntry entry) {
+        if (byId.putIfAbsent(entry.transaction.getId(), entry) == null) {
+            index(entry);
+        }
+    }
+
+    private PoolEntry doRemove(long id) {
+        PoolEntry entry = byId.remove(id);
+        if (entry != null) {
+            unindex(entry);
+        }
+        return entry;
+    }
+
+    private void index(PoolEntry entry) {
+        bySender.computeIfAbsent(entry.senderId, id -> ConcurrentHashMap.newKeySet()).add(entry.transaction);
+        byOrder.add(entry);
+        byFee.add(entry);
+    }
+
+    private void unindex(PoolEntry entry) {
+        bySender.computeIfPresent(entry.senderId, (id, transactions) -> {
+            transactions.remove(entry.transaction);
+            return transactions.isEmpty() ? null : transactions;
+        });
+        byOrder.remove(entry);
+        byFee.remove(entry);
+    }
+
+    private static class PoolEntry {
+        private final UnconfirmedTransaction transaction;
+        private final int height;
+        private final int transactionHeight;
+        private final long senderId;
+
+        PoolEntry(UnconfirmedTransaction transaction, int height) {
+            this.transaction = transaction;
+            this.height = height;
+            this.transactionHeight = transaction.getHeight();
+            this.senderId = transaction.getSenderId();
+        }
+    }
+}
@@ -8,7 +8,7 @@ package com.apollocurrency.aplwallet.apl.core.app.observer.events;
  * @author andrew.zinchenko@gmail.com
  */
 public enum AccountLedgerEventType {
-    ADD_ENTRY,
+    ADD_ENTRIES,
     COMMIT_ENTRIES,
     CLEAR_ENTRIES,
     LOG_ENTRY, LOG_UNCONFIRMED_ENTRY
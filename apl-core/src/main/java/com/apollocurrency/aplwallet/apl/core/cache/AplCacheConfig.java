@@ -28,7 +28,15 @@ public class AplCacheConfig implements InMemoryCacheConfigurator {
         this.cacheConfigurations = new CacheConfiguration[]{
             new PublicKeyCacheConfig(60),
             new BlockIndexCacheConfig(60),
-            new DexOrderFreezingCacheConfig(15, orderFreezingCacheLoader)
+            new DexOrderFreezingCacheConfig(15, orderFreezingCacheLoader),
+            DerivedEntityCacheConfig.accountCacheConfig(20),
+            DerivedEntityCacheConfig.accountAssetCacheConfig(10),
+            DerivedEntityCacheConfig.accountCurrencyCacheConfig(5),
+            DerivedEntityCacheConfig.accountLeaseCacheConfig(5),
+            DerivedEntityCacheConfig.aliasCacheConfig(5),
+            BlockCacheConfig.blockCacheConfig(30),
+            BlockCacheConfig.blockHeightCacheConfig(5),
+            BlockCacheConfig.transactionHeightCacheConfig(10)
         };
     }
 
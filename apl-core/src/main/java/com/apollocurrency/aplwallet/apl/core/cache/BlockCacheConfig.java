@@ -0,0 +1,90 @@
+/*
+ * Copyright (c)  2018-2020. Apollo Foundation.
+ */
+
+package com.apollocurrency.aplwallet.apl.core.cache;
+
+import com.apollocurrency.aplwallet.apl.util.cache.CacheConfigurator;
+import com.apollocurrency.aplwallet.apl.util.cache.InMemoryCacheManager;
+
+/**
+ * Configuration of the recent blocks cache and its id indexes, see
+ * {@link com.apollocurrency.aplwallet.apl.core.app.BlockCache}
+ */
+public class BlockCacheConfig extends CacheConfigurator {
+
+    public static final String BLOCK_CACHE_NAME = "BLOCK_CACHE";
+    public static final String BLOCK_HEIGHT_CACHE_NAME = "BLOCK_HEIGHT_CACHE";
+    public static final String TRANSACTION_HEIGHT_CACHE_NAME = "TRANSACTION_HEIGHT_CACHE";
+    /**
+     * Expected number of transactions in the cached block, most of blocks are empty
+     */
+    private static final int AVERAGE_BLOCK_TRANSACTIONS = 5;
+
+    public BlockCacheConfig(String name, long elementSize, int priority) {
+        super(name, elementSize, priority);
+        cacheBuilder().initialCapacity(16);
+    }
+
+    public static BlockCacheConfig blockCacheConfig(int priority) {
+        return new BlockCacheConfig(BLOCK_CACHE_NAME,
+            InMemoryCacheManager.newCalc()
+                .addInt() // height
+                .addLongPrimitive() // id
+                .addLongPrimitive() // previousBlockId
+                .addLongPrimitive() // nextBlockId
+                .addLongPrimitive() // generatorId
+                .addLongPrimitive() // baseTarget
+                .addLongPrimitive() // totalAmountATM
+                .addLongPrimitive() // totalFeeATM
+                .addAggregation(32) // cumulativeDifficulty
+                .addArrayExtra(32) // generatorPublicKey
+                .addArrayExtra(64) // generationSignature
+                .addArrayExtra(64) // blockSignature
+                .addArrayExtra(32) // previousBlockHash
+                .addArrayExtra(32) // payloadHash
+                .addReference() // transactions list
+                .addAggregation(AVERAGE_BLOCK_TRANSACTIONS * transactionSize())
+                .calc(),
+            priority);
+    }
+
+    public static BlockCacheConfig blockHeightCacheConfig(int priority) {
+        return new BlockCacheConfig(BLOCK_HEIGHT_CACHE_NAME,
+            InMemoryCacheManager.newCalc()
+                .addLongPrimitive() // block id
+                .addInt() // height
+                .calc(),
+            priority);
+    }
+
+    public static BlockCacheConfig transactionHeightCacheConfig(int priority) {
+        return new BlockCacheConfig(TRANSACTION_HEIGHT_CACHE_NAME,
+            InMemoryCacheManager.newCalc()
+                .addLongPrimitive() // transaction id
+                .addInt() // height
+                .calc(),
+            priority);
+    }
+
+    /**
+     * Approximate size of the ordinary payment transaction with its attachment and parsed appendages
+     */
+    private static int transactionSize() {
+        return InMemoryCacheManager.newCalc()
+            .addLongPrimitive() // id
+            .addLongPrimitive() // senderId
+            .addLongPrimitive() // recipientId
+            .addLongPrimitive() // amountATM
+            .addLongPrimitive() // feeATM
+            .addLongPrimitive() // blockId
+            .addInt() // height
+            .addInt() // timestamp
+            .addArrayExtra(32) // senderPublicKey
+            .addArrayExtra(32) // fullHash
+            .addArrayExtra(64) // signature
+            .addArrayExtra(200) // bytes
+            .addAggregation(128) // attachment and appendages
+            .calc();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c)  2018-2020. Apollo Foundation.
+ */
+
+package com.apollocurrency.aplwallet.apl.core.cache;
+
+import com.apollocurrency.aplwallet.apl.util.cache.CacheConfigurator;
+import com.apollocurrency.aplwallet.apl.util.cache.InMemoryCacheManager;
+
+import static com.apollocurrency.aplwallet.apl.util.cache.InMemoryCacheManager.MemoryUsageCalculator.LONG_SIZE;
+
+/**
+ * Configuration of the latest entity versions caches for the derived tables, see
+ * {@link com.apollocurrency.aplwallet.apl.core.db.derived.VersionedEntityCache}
+ */
+public class DerivedEntityCacheConfig extends CacheConfigurator {
+
+    public static final String ACCOUNT_CACHE_NAME = "ACCOUNT_CACHE";
+    public static final String ACCOUNT_ASSET_CACHE_NAME = "ACCOUNT_ASSET_CACHE";
+    public static final String ACCOUNT_CURRENCY_CACHE_NAME = "ACCOUNT_CURRENCY_CACHE";
+    public static final String ACCOUNT_LEASE_CACHE_NAME = "ACCOUNT_LEASE_CACHE";
+    public static final String ALIAS_CACHE_NAME = "ALIAS_CACHE";
+
+    public DerivedEntityCacheConfig(String name, long elementSize, int priority) {
+        super(name, elementSize, priority);
+        cacheBuilder().initialCapacity(16);
+    }
+
+    public static DerivedEntityCacheConfig accountCacheConfig(int priority) {
+        return new DerivedEntityCacheConfig(ACCOUNT_CACHE_NAME,
+            entityCalc()
+                .addLongPrimitive() // id
+                .addReference() // publicKey
+                .addLongPrimitive() // balance
+                .addLongPrimitive() // unconfirmedBalance
+                .addLongPrimitive() // forgedBalance
+                .addLongPrimitive() // activeLesseeId
+                .addReference() // controls
+                .addBooleanPrimitive() // deleted
+                .calc(),
+            priority);
+    }
+
+    public static DerivedEntityCacheConfig accountAssetCacheConfig(int priority) {
+        return new DerivedEntityCacheConfig(ACCOUNT_ASSET_CACHE_NAME,
+            entityCalc()
+                .addLongPrimitive() // accountId
+                .addLongPrimitive() // assetId
+                .addLongPrimitive() // quantity
+                .addLongPrimitive() // unconfirmedQuantity
+                .addBooleanPrimitive() // deleted
+                .addLongPrimitive() // second id of the link dbKey
+                .calc(),
+            priority);
+    }
+
+    public static DerivedEntityCacheConfig accountCurrencyCacheConfig(int priority) {
+        return new DerivedEntityCacheConfig(ACCOUNT_CURRENCY_CACHE_NAME,
+            entityCalc()
+                .addLongPrimitive() // currencyId
+                .addLongPrimitive() // accountId
+                .addLongPrimitive() // units
+                .addLongPrimitive() // unconfirmedUnits
+                .addBooleanPrimitive() // deleted
+                .addLongPrimitive() // second id of the link dbKey
+                .calc(),
+            priority);
+    }
+
+    public static DerivedEntityCacheConfig accountLeaseCacheConfig(int priority) {
+        return new DerivedEntityCacheConfig(ACCOUNT_LEASE_CACHE_NAME,
+            entityCalc()
+                .addLongPrimitive() // lessorId
+                .addLongPrimitive() // currentLesseeId
+                .addInt() // currentLeasingHeightFrom
+                .addInt() // currentLeasingHeightTo
+                .addLongPrimitive() // nextLesseeId
+                .addInt() // nextLeasingHeightFrom
+                .addInt() // nextLeasingHeightTo
+                .addBooleanPrimitive() // deleted
+                .calc(),
+            priority);
+    }
+
+    public static DerivedEntityCacheConfig aliasCacheConfig(int priority) {
+        return new DerivedEntityCacheConfig(ALIAS_CACHE_NAME,
+            entityCalc()
+                .addLongPrimitive() // id
+                .addString(100) // aliasName
+                .addLongPrimitive() // accountId
+                .addString(100) // aliasURI
+                .addInt() // timestamp
+                .calc(),
+            priority);
+    }
+
+    /**
+     * Calculator, which includes common fields of the versioned derived entity
+     */
+    private static InMemoryCacheManager.MemoryUsageCalculator entityCalc() {
+        return InMemoryCacheManager.newCalc()
+            .addLongPrimitive() // dbId
+            .addInt() // height
+            .addBooleanPrimitive() // latest
+            .addAggregation(LONG_SIZE); // dbKey object
+    }
+}
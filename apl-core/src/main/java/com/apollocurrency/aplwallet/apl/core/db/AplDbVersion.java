@@ -893,7 +893,13 @@ public class AplDbVersion extends DbVersion {
             case 348:
                 apply("ALTER TABLE alias_offer ADD COLUMN IF NOT EXISTS deleted BOOLEAN NOT NULL DEFAULT FALSE");
             case 349:
-                return 349;
+                apply("CREATE TABLE IF NOT EXISTS trim_progress (table_name VARCHAR(100) NOT NULL PRIMARY KEY, height INT NOT NULL, db_id BIGINT NOT NULL)");
+            case 350:
+                apply("CREATE INDEX IF NOT EXISTS dex_offer_height_idx ON dex_offer (height)");
+            case 351:
+                apply("CREATE INDEX IF NOT EXISTS dex_contract_height_idx ON dex_contract (height)");
+            case 352:
+                return 352;
             default:
                 throw new RuntimeException("Blockchain database inconsistent with code, at update " + nextUpdate
                     + ", probably trying to run older code on newer database");
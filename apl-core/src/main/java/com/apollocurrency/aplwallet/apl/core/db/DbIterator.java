@@ -49,6 +49,22 @@ public final class DbIterator<T> implements Iterator<T>, Iterable<T>, AutoClosea
         }
     }
 
+    /**
+     * Iterate over the result set, which is not produced by the statement, for example, built in memory
+     */
+    public DbIterator(Connection con, ResultSet rs, ResultSetReader<T> rsReader) {
+        this.con = con;
+        this.pstmt = null;
+        this.rsReader = rsReader;
+        this.rs = rs;
+        try {
+            this.hasNext = rs.next();
+        } catch (SQLException e) {
+            DbUtils.close(rs, con);
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
     @Override
     public boolean hasNext() {
         if (!hasNext) {
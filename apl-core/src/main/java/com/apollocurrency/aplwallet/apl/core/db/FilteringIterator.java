@@ -27,7 +27,7 @@ import java.util.NoSuchElementException;
 
 public final class FilteringIterator<T> implements Iterator<T>, Iterable<T>, AutoCloseable {
 
-    private final DbIterator<T> dbIterator;
+    private final Iterator<T> iterator;
     private final Filter<T> filter;
     private final int from;
     private final int to;
@@ -36,16 +36,16 @@ public final class FilteringIterator<T> implements Iterator<T>, Iterable<T>, Aut
     private boolean iterated;
     private int count;
 
-    public FilteringIterator(DbIterator<T> dbIterator, Filter<T> filter) {
-        this(dbIterator, filter, 0, Integer.MAX_VALUE);
+    public FilteringIterator(Iterator<T> iterator, Filter<T> filter) {
+        this(iterator, filter, 0, Integer.MAX_VALUE);
     }
 
-    public FilteringIterator(DbIterator<T> dbIterator, int from, int to) {
-        this(dbIterator, t -> true, from, to);
+    public FilteringIterator(Iterator<T> iterator, int from, int to) {
+        this(iterator, t -> true, from, to);
     }
 
-    public FilteringIterator(DbIterator<T> dbIterator, Filter<T> filter, int from, int to) {
-        this.dbIterator = dbIterator;
+    public FilteringIterator(Iterator<T> iterator, Filter<T> filter, int from, int to) {
+        this.iterator = iterator;
         this.filter = filter;
         this.from = from;
         this.to = to;
@@ -56,8 +56,8 @@ public final class FilteringIterator<T> implements Iterator<T>, Iterable<T>, Aut
         if (hasNext) {
             return true;
         }
-        while (dbIterator.hasNext() && count <= to) {
-            next = dbIterator.next();
+        while (iterator.hasNext() && count <= to) {
+            next = iterator.next();
             if (filter.test(next)) {
                 if (count >= from) {
                     count += 1;
@@ -77,8 +77,8 @@ public final class FilteringIterator<T> implements Iterator<T>, Iterable<T>, Aut
             hasNext = false;
             return next;
         }
-        while (dbIterator.hasNext() && count <= to) {
-            next = dbIterator.next();
+        while (iterator.hasNext() && count <= to) {
+            next = iterator.next();
             if (filter.test(next)) {
                 if (count >= from) {
                     count += 1;
@@ -93,7 +93,9 @@ public final class FilteringIterator<T> implements Iterator<T>, Iterable<T>, Aut
 
     @Override
     public void close() {
-        dbIterator.close();
+        if (iterator instanceof DbIterator) {
+            ((DbIterator<T>) iterator).close();
+        }
     }
 
     @Override
@@ -17,7 +17,11 @@ import com.apollocurrency.aplwallet.apl.core.app.ShufflingParticipant;
 import com.apollocurrency.aplwallet.apl.core.app.TransactionProcessor;
 import com.apollocurrency.aplwallet.apl.core.app.Vote;
 import com.apollocurrency.aplwallet.apl.core.app.mint.CurrencyMint;
+import com.apollocurrency.aplwallet.apl.core.cache.DerivedEntityCacheConfig;
 import com.apollocurrency.aplwallet.apl.core.db.dao.ReferencedTransactionDao;
+import com.apollocurrency.aplwallet.apl.core.db.derived.EntityDbTable;
+import com.apollocurrency.aplwallet.apl.core.db.derived.VersionedEntityCache;
+import com.apollocurrency.aplwallet.apl.core.db.model.DerivedEntity;
 import com.apollocurrency.aplwallet.apl.core.dgs.dao.DGSFeedbackTable;
 import com.apollocurrency.aplwallet.apl.core.dgs.dao.DGSGoodsTable;
 import com.apollocurrency.aplwallet.apl.core.dgs.dao.DGSPublicFeedbackTable;
@@ -51,6 +55,10 @@ import com.apollocurrency.aplwallet.apl.core.tagged.dao.TaggedDataTimestampDao;
 import com.apollocurrency.aplwallet.apl.core.trade.dao.TradeTable;
 import com.apollocurrency.aplwallet.apl.exchange.dao.DexContractTable;
 import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderTable;
+import com.apollocurrency.aplwallet.apl.util.cache.InMemoryCacheManager;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import com.google.common.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -59,8 +67,13 @@ import javax.inject.Singleton;
 /**
  * @author silaev-firstbridge
  */
+@Slf4j
 @Singleton
 public class TableRegistryInitializer {
+    @Inject
+    private PropertiesHolder propertiesHolder;
+    @Inject
+    private InMemoryCacheManager cacheManager;
     @Inject
     private DatabaseManager databaseManager;
     @Inject
@@ -152,5 +165,22 @@ public class TableRegistryInitializer {
         CurrencyExchangeOffer.init();
         AccountRestrictions.init();
         AssetTransfer.init(databaseManager);
+
+        if (propertiesHolder.getBooleanProperty("apl.enableEntityCache")) {
+            enableEntityCache(accountTable, DerivedEntityCacheConfig.ACCOUNT_CACHE_NAME);
+            enableEntityCache(accountAssetTable, DerivedEntityCacheConfig.ACCOUNT_ASSET_CACHE_NAME);
+            enableEntityCache(accountCurrencyTable, DerivedEntityCacheConfig.ACCOUNT_CURRENCY_CACHE_NAME);
+            enableEntityCache(accountLeaseTable, DerivedEntityCacheConfig.ACCOUNT_LEASE_CACHE_NAME);
+            enableEntityCache(aliasTable, DerivedEntityCacheConfig.ALIAS_CACHE_NAME);
+        } else {
+            log.info("Derived entity caches are TURNED OFF...");
+        }
+    }
+
+    private <T extends DerivedEntity> void enableEntityCache(EntityDbTable<T> table, String cacheName) {
+        Cache<DbKey, T> cache = cacheManager.acquireCache(cacheName);
+        if (cache != null) {
+            table.setEntityCache(VersionedEntityCache.forDerivedEntities(cacheName, cache));
+        }
     }
 }
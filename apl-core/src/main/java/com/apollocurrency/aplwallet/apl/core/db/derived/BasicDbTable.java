@@ -25,9 +25,11 @@ import static org.slf4j.LoggerFactory.getLogger;
  */
 public abstract class BasicDbTable<T> extends DerivedDbTable<T> {
     private static final Logger LOG = getLogger(BasicDbTable.class);
+    private static final int ROLLBACK_BATCH_SIZE = 500;
 
     protected KeyFactory<T> keyFactory;
     protected boolean multiversion;
+    private volatile TrimProgressHandler trimProgressHandler = TrimProgressHandler.NONE;
 
     protected BasicDbTable(String table, KeyFactory<T> keyFactory, boolean multiversion, boolean init) {
         super(table, init);
@@ -43,6 +45,10 @@ public abstract class BasicDbTable<T> extends DerivedDbTable<T> {
         return multiversion;
     }
 
+    public void setTrimProgressHandler(TrimProgressHandler trimProgressHandler) {
+        this.trimProgressHandler = trimProgressHandler == null ? TrimProgressHandler.NONE : trimProgressHandler;
+    }
+
     @Override
     public int rollback(int height) {
         if (multiversion) {
@@ -52,74 +58,131 @@ public abstract class BasicDbTable<T> extends DerivedDbTable<T> {
         }
     }
 
+    /**
+     * <p>Delete all entity versions above the given height and restore 'latest' flag for the last versions
+     * of the affected entities at the given height. Entities, which were deleted at or below the given height
+     * (last version is 'deleted' and paired with previous 'deleted' version) are not restored.</p>
+     * <p>For single column keys the 'latest' flag is restored by one set-based statement, driven by the index on the
+     * key column, for composite keys (not supported by the IN subquery) - by the batch of per-key updates</p>
+     *
+     * @param height target height of the rollback
+     * @return number of deleted records
+     */
     private int doMultiversionRollback(int height) {
         LOG.trace("doMultiversionRollback(), height={}", height);
         int deletedRecordsCount;
+        int restoredRecordsCount;
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         if (!dataSource.isInTransaction()) {
             throw new IllegalStateException("Not in transaction");
         }
         long startTime = System.currentTimeMillis();
-        String sql = "UPDATE " + table
-            + " SET latest = TRUE " + (getDeletedSetStatementIfSupported(false)) + keyFactory.getPKClause() + " AND height ="
-            + " (SELECT MAX(height) FROM " + table + keyFactory.getPKClause() + ")";
-        LOG.trace(sql);
-        try (Connection con = dataSource.getConnection();
-             PreparedStatement pstmtSelectToDelete = con.prepareStatement("SELECT DISTINCT " + keyFactory.getPKColumns()
-                 + " FROM " + table + " WHERE height > ?");
-             PreparedStatement pstmtDelete = con.prepareStatement("DELETE FROM " + table
-                 + " WHERE height > ?");
-             PreparedStatement pstmtSetLatest = con.prepareStatement(sql)) {
-            pstmtSelectToDelete.setInt(1, height);
-            List<DbKey> dbKeys = new ArrayList<>();
-            try (ResultSet rs = pstmtSelectToDelete.executeQuery()) {
-                while (rs.next()) {
-                    dbKeys.add(keyFactory.newKey(rs));
-                }
+        try (Connection con = dataSource.getConnection()) {
+            if (isSingleColumnKey()) {
+                // should be done before delete to find rolled back keys
+                restoredRecordsCount = setLatestForRolledBackKeys(con, height);
+                deletedRecordsCount = deleteAbove(con, height);
+            } else {
+                List<DbKey> dbKeys = selectRolledBackKeys(con, height);
+                deletedRecordsCount = deleteAbove(con, height);
+                restoredRecordsCount = setLatestInBatch(con, dbKeys);
             }
+        } catch (SQLException e) {
+            LOG.error("Error", e);
+            throw new RuntimeException(e.toString(), e);
+        }
+        if (deletedRecordsCount > 0) {
+            LOG.trace("Rollback table {} deleted {} records, updated {} records to latest", table, deletedRecordsCount, restoredRecordsCount);
+        }
+        LOG.trace("Rollback for table {} took {} ms", table, System.currentTimeMillis() - startTime);
+        return deletedRecordsCount;
+    }
 
-            if (dbKeys.size() > 0) {
-                LOG.trace("Rollback table {} found {} records to update to latest", table, dbKeys.size());
-            }
+    private boolean isSingleColumnKey() {
+        return !keyFactory.getPKColumns().contains(",");
+    }
 
+    private int deleteAbove(Connection con, int height) throws SQLException {
+        try (PreparedStatement pstmtDelete = con.prepareStatement("DELETE FROM " + table + " WHERE height > ?")) {
             pstmtDelete.setInt(1, height);
-            deletedRecordsCount = pstmtDelete.executeUpdate();
+            return pstmtDelete.executeUpdate();
+        }
+    }
 
-            if (deletedRecordsCount > 0) {
-                LOG.trace("Rollback table {} deleting {} records", table, deletedRecordsCount);
+    private int setLatestForRolledBackKeys(Connection con, int height) throws SQLException {
+        String sql = "UPDATE " + table + " AS a SET latest = TRUE " + getDeletedSetStatementIfSupported(false)
+            + " WHERE a." + keyFactory.getPKColumns() + " IN (SELECT " + keyFactory.getPKColumns() + " FROM " + table + " WHERE height > ?)"
+            + " AND a.height = (SELECT MAX(b.height) FROM " + table + " AS b WHERE " + keyFactory.getSelfJoinClause() + " AND b.height <= ?)"
+            + (supportDelete() ? " AND (a.deleted = FALSE OR MOD((SELECT COUNT(DISTINCT b.height) FROM " + table + " AS b WHERE "
+            + keyFactory.getSelfJoinClause() + " AND b.height <= ? AND b.deleted = TRUE), 2) = 1)" : "");
+        LOG.trace(sql);
+        try (PreparedStatement pstmtSetLatest = con.prepareStatement(sql)) {
+            pstmtSetLatest.setInt(1, height);
+            pstmtSetLatest.setInt(2, height);
+            if (supportDelete()) {
+                pstmtSetLatest.setInt(3, height);
             }
-            if (supportDelete()) { // do not 'setLatest' for deleted entities ( if last entity below given height was deleted 'deleted=true')
-                try (PreparedStatement pstmtSelectDeletedCount = con.prepareStatement("SELECT " + keyFactory.getPKColumns() + " FROM " + table + " WHERE height <= ? AND deleted = true GROUP BY " + keyFactory.getPKColumns() + " HAVING COUNT(DISTINCT HEIGHT) % 2 = 0");
-                     PreparedStatement pstmtGetLatestDeleted = con.prepareStatement("SELECT deleted FROM " + table + keyFactory.getPKClause() + " AND height <=? ORDER BY db_id DESC LIMIT 1")) {
-                    pstmtSelectDeletedCount.setInt(1, height);
-                    try (ResultSet rs = pstmtSelectDeletedCount.executeQuery()) {
-                        while (rs.next()) {
-                            DbKey candidateToRemove = keyFactory.newKey(rs);
-                            int index = candidateToRemove.setPK(pstmtGetLatestDeleted, 1);
-                            pstmtGetLatestDeleted.setInt(index, height);
-                            try (ResultSet latestDeleted = pstmtGetLatestDeleted.executeQuery()) {
-                                if (latestDeleted.next()) {
-                                    boolean del = latestDeleted.getBoolean(1);
-                                    if (del) {
-                                        dbKeys.remove(candidateToRemove);
-                                    }
-                                }
-                            }
-                        }
-                    }
+            return pstmtSetLatest.executeUpdate();
+        }
+    }
+
+    private List<DbKey> selectRolledBackKeys(Connection con, int height) throws SQLException {
+        List<DbKey> dbKeys = new ArrayList<>();
+        try (PreparedStatement pstmtSelectToDelete = con.prepareStatement("SELECT DISTINCT " + keyFactory.getPKColumns()
+            + " FROM " + table + " WHERE height > ?")) {
+            pstmtSelectToDelete.setInt(1, height);
+            try (ResultSet rs = pstmtSelectToDelete.executeQuery()) {
+                while (rs.next()) {
+                    dbKeys.add(keyFactory.newKey(rs));
                 }
             }
+        }
+        return dbKeys;
+    }
+
+    /**
+     * Should be called after deletion of the rolled back records, so that the last remaining version of each key is
+     * the version at the rollback height
+     */
+    private int setLatestInBatch(Connection con, List<DbKey> dbKeys) throws SQLException {
+        if (dbKeys.isEmpty()) {
+            return 0;
+        }
+        String sql = "UPDATE " + table + " SET latest = TRUE " + getDeletedSetStatementIfSupported(false) + keyFactory.getPKClause()
+            + " AND height = (SELECT MAX(height) FROM " + table + keyFactory.getPKClause() + ")"
+            + (supportDelete() ? " AND (deleted = FALSE OR MOD((SELECT COUNT(DISTINCT height) FROM " + table + keyFactory.getPKClause()
+            + " AND deleted = TRUE), 2) = 1)" : "");
+        LOG.trace(sql);
+        int updated = 0;
+        try (PreparedStatement pstmtSetLatest = con.prepareStatement(sql)) {
+            int batchSize = 0;
             for (DbKey dbKey : dbKeys) {
                 int i = dbKey.setPK(pstmtSetLatest, 1);
-                dbKey.setPK(pstmtSetLatest, i);
-                pstmtSetLatest.executeUpdate();
+                i = dbKey.setPK(pstmtSetLatest, i);
+                if (supportDelete()) {
+                    dbKey.setPK(pstmtSetLatest, i);
+                }
+                pstmtSetLatest.addBatch();
+                if (++batchSize == ROLLBACK_BATCH_SIZE) {
+                    updated += sum(pstmtSetLatest.executeBatch());
+                    batchSize = 0;
+                }
+            }
+            if (batchSize > 0) {
+                updated += sum(pstmtSetLatest.executeBatch());
             }
-        } catch (SQLException e) {
-            LOG.error("Error", e);
-            throw new RuntimeException(e.toString(), e);
         }
-        LOG.trace("Rollback for table {} took {} ms", table, System.currentTimeMillis() - startTime);
-        return deletedRecordsCount;
+        return updated;
+    }
+
+    private static int sum(int[] updateCounts) {
+        int sum = 0;
+        for (int count : updateCounts) {
+            if (count > 0) {
+                sum += count;
+            }
+        }
+        return sum;
     }
 
 
@@ -136,6 +199,9 @@ public abstract class BasicDbTable<T> extends DerivedDbTable<T> {
      * <p>Delete old data from db before target height. Leave last actual entry for each entity to allow rollback to target height</p>
      * <p>Also will completely delete blockchain 'deleted' entries with latest=false & deleted=true (applies only for paired 'deleted' records to ensure rollback availability)</p>
      * <p>WARNING! Do not trim to your current blockchain height! It will delete all history data and you will not be able to rollback and switch to another fork</p>
+     * <p>Table is processed in db_id ordered chunks, outdated versions of the keys found in the chunk are deleted in one batch.
+     * Each chunk is committed together with the trim progress, stored by the {@link TrimProgressHandler}, so that interrupted trim
+     * is resumed from the last committed chunk</p>
      *
      * @param height target height of blockchain for trimming, should be less or equal to minRollbackHeight to allow rollback to such height
      *               <p>Example:</p>
@@ -180,37 +246,47 @@ public abstract class BasicDbTable<T> extends DerivedDbTable<T> {
         if (!dataSource.isInTransaction()) {
             throw new IllegalStateException("Not in transaction");
         }
+        TrimProgressHandler progressHandler = trimProgressHandler;
+        int chunkSize = progressHandler.getChunkSize();
         long startTime = System.currentTimeMillis();
         try (Connection con = dataSource.getConnection();
-             //find acc and max_height of last written record (accounts with one record will be omitted)
-             PreparedStatement pstmtSelect = con.prepareStatement("SELECT " + keyFactory.getPKColumns() + ", MAX(height) AS max_height"
-                 + " FROM " + table + " WHERE height < ? GROUP BY " + keyFactory.getPKColumns() + " HAVING COUNT(DISTINCT height) > 1")) {
-            pstmtSelect.setInt(1, height);
-            long startDeleteTime, deleted = 0L, deleteStm = 0L, startSelectTime = System.currentTimeMillis();
-            try (ResultSet rs = pstmtSelect.executeQuery();
-                 PreparedStatement pstmtDeleteById =
-                     con.prepareStatement("DELETE FROM " + table + " WHERE db_id = ?");
-                 PreparedStatement selectDbIdStatement =
-                     con.prepareStatement("SELECT db_id, height " + getDeletedColumnIfSupported() + " FROM " + table + " " + keyFactory.getPKClause())) {
-                LOG.trace("Select {} time: {}", table, System.currentTimeMillis() - startSelectTime);
-                startDeleteTime = System.currentTimeMillis();
-
-                while (rs.next()) {
-                    Set<Long> keysToDelete = selectDbIds(selectDbIdStatement, rs);
-                    // TODO migrate to PreparedStatement.addBatch for another db
-                    for (Long id : keysToDelete) {
-                        deleted += deleteByDbId(pstmtDeleteById, id);
-//                        deleted++;
-                        deleteStm++;
-                        if (deleted % 100 == 0) {
-                            dataSource.commit(false);
+             // keys with outdated versions, which are candidates for trim, non-latest versions are always outdated or 'deleted'
+             PreparedStatement pstmtSelectKeys = con.prepareStatement("SELECT DISTINCT " + keyFactory.getPKColumns() + " FROM " + table
+                 + " WHERE db_id > ? AND db_id <= ? AND height < ? AND latest = FALSE");
+             PreparedStatement pstmtDeleteById = con.prepareStatement("DELETE FROM " + table + " WHERE db_id = ?");
+             PreparedStatement selectDbIdStatement =
+                 con.prepareStatement("SELECT db_id, height " + getDeletedColumnIfSupported() + " FROM " + table + " " + keyFactory.getPKClause())) {
+            long[] dbIdRange = selectDbIdRange(con);
+            long fromDbId = Math.max(dbIdRange[0] - 1, progressHandler.getLastTrimmedDbId(table, height));
+            long maxDbId = dbIdRange[1];
+            long deleted = 0, chunks = 0;
+            while (fromDbId < maxDbId) {
+                long toDbId = Math.min(fromDbId + chunkSize, maxDbId);
+                pstmtSelectKeys.setLong(1, fromDbId);
+                pstmtSelectKeys.setLong(2, toDbId);
+                pstmtSelectKeys.setInt(3, height);
+                int batchSize = 0;
+                try (ResultSet rs = pstmtSelectKeys.executeQuery()) {
+                    while (rs.next()) {
+                        for (Long id : selectDbIds(selectDbIdStatement, keyFactory.newKey(rs), height)) {
+                            pstmtDeleteById.setLong(1, id);
+                            pstmtDeleteById.addBatch();
+                            batchSize++;
                         }
                     }
                 }
+                if (batchSize > 0) {
+                    for (int count : pstmtDeleteById.executeBatch()) {
+                        deleted += Math.max(count, 0);
+                    }
+                }
+                progressHandler.saveProgress(table, height, toDbId);
                 dataSource.commit(false);
-                LOG.trace("Delete time {} for table '{}': deleteStm=[{}], deleted=[{}]", System.currentTimeMillis() - startDeleteTime, table,
-                    deleteStm, deleted);
+                chunks++;
+                fromDbId = toDbId;
+                progressHandler.throttle();
             }
+            LOG.trace("Trim table '{}' at height {}: chunks=[{}], deleted=[{}]", table, height, chunks, deleted);
             long trimTime = System.currentTimeMillis() - startTime;
             if (trimTime > 1000) {
                 LOG.debug("Trim for table {} took {} ms", table, trimTime);
@@ -220,6 +296,14 @@ public abstract class BasicDbTable<T> extends DerivedDbTable<T> {
         }
     }
 
+    private long[] selectDbIdRange(Connection con) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement("SELECT MIN(db_id), MAX(db_id) FROM " + table);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return new long[]{rs.getLong(1), rs.getLong(2)};
+        }
+    }
+
     private String getDeletedColumnIfSupported() {
         return supportDelete() ? ", deleted" : "";
     }
@@ -228,40 +312,51 @@ public abstract class BasicDbTable<T> extends DerivedDbTable<T> {
         return supportDelete() ? ", deleted = " + deleted + " " : "";
     }
 
-    private Set<Long> selectDbIds(PreparedStatement selectDbIdStatement, ResultSet rs) throws SQLException {
-        DbKey dbKey = keyFactory.newKey(rs);
+    /**
+     * Select outdated versions of the entity, which should be deleted by trim. Entities with only one version
+     * below the trim height are omitted.
+     */
+    private Set<Long> selectDbIds(PreparedStatement selectDbIdStatement, DbKey dbKey, int height) throws SQLException {
         dbKey.setPK(selectDbIdStatement);
         Set<Long> keys = new HashSet<>();
-        int maxHeight = rs.getInt("max_height");
-        boolean lastDeleted = false;
-        Set<Integer> deleteHeights = new HashSet<>();
-        Set<Long> lastDbIds = new HashSet<>();
+        int maxHeight = -1;
+        Set<Integer> heights = new HashSet<>();
+        List<long[]> versions = new ArrayList<>();
         try (ResultSet dbIdsSet = selectDbIdStatement.executeQuery()) {
             while (dbIdsSet.next()) {
                 int currentHeight = dbIdsSet.getInt(2);
-                boolean entryDeleted = supportDelete() && dbIdsSet.getBoolean(3);
-                long dbId = dbIdsSet.getLong(1);
-                if (currentHeight == maxHeight) {
-                    lastDeleted = entryDeleted;
-                    lastDbIds.add(dbId);
-                } else if (currentHeight < maxHeight && currentHeight >= 0) {
-                    if (entryDeleted) {
-                        deleteHeights.add(currentHeight);
-                    }
-                    keys.add(dbId);
+                if (currentHeight < height) {
+                    boolean entryDeleted = supportDelete() && dbIdsSet.getBoolean(3);
+                    versions.add(new long[]{dbIdsSet.getLong(1), currentHeight, entryDeleted ? 1 : 0});
+                    heights.add(currentHeight);
+                    maxHeight = Math.max(maxHeight, currentHeight);
                 }
             }
         }
+        if (heights.size() <= 1) {
+            return keys;
+        }
+        boolean lastDeleted = false;
+        Set<Integer> deleteHeights = new HashSet<>();
+        Set<Long> lastDbIds = new HashSet<>();
+        for (long[] version : versions) {
+            long dbId = version[0];
+            int currentHeight = (int) version[1];
+            boolean entryDeleted = version[2] == 1;
+            if (currentHeight == maxHeight) {
+                lastDeleted = entryDeleted;
+                lastDbIds.add(dbId);
+            } else if (currentHeight >= 0) {
+                if (entryDeleted) {
+                    deleteHeights.add(currentHeight);
+                }
+                keys.add(dbId);
+            }
+        }
         // last existing record should be 'deleted' and paired with previously deleted records
         if (deleteHeights.size() % 2 != 0 && lastDeleted) {
             keys.addAll(lastDbIds);
         }
         return keys;
     }
-
-    private int deleteByDbId(PreparedStatement pstmtDeleteByDbId, long dbId) throws SQLException {
-        pstmtDeleteByDbId.setLong(1, dbId);
-        return pstmtDeleteByDbId.executeUpdate();
-
-    }
 }
@@ -27,6 +27,8 @@ import com.apollocurrency.aplwallet.apl.core.db.DbKey;
 import com.apollocurrency.aplwallet.apl.core.db.DbUtils;
 import com.apollocurrency.aplwallet.apl.core.db.KeyFactory;
 import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.core.db.fulltext.FullTextSearchResult;
+import com.apollocurrency.aplwallet.apl.core.db.fulltext.FullTextSearchService;
 import com.apollocurrency.aplwallet.apl.util.annotation.DatabaseSpecificDml;
 import com.apollocurrency.aplwallet.apl.util.annotation.DmlMarker;
 import lombok.Getter;
@@ -42,10 +44,13 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 public abstract class EntityDbTable<T> extends BasicDbTable<T> implements EntityDbTableInterface<T> {
     private static final Logger log = getLogger(EntityDbTable.class);
+    private static final String DEFAULT_SEARCH_SORT = " ORDER BY ft.score DESC ";
     private final String defaultSort;
     @Getter
     private final String fullTextSearchColumns;
     private Blockchain blockchain;
+    private FullTextSearchService fullTextSearchService;
+    private volatile VersionedEntityCache<T> entityCache;
 
     protected EntityDbTable(String table, KeyFactory<T> dbKeyFactory) {
         this(table, dbKeyFactory, false, null);
@@ -84,6 +89,23 @@ public abstract class EntityDbTable<T> extends BasicDbTable<T> implements Entity
         return defaultSort;
     }
 
+    /**
+     * Opt-in for the latest entity versions cache. Cache is supported only for multiversion tables.
+     *
+     * @param entityCache height-aware cache of the latest entity versions
+     */
+    public void setEntityCache(VersionedEntityCache<T> entityCache) {
+        if (!multiversion) {
+            throw new IllegalStateException("Entity cache is supported only for multiversion tables, table " + table);
+        }
+        log.info("--cache-- Enable entity cache '{}' for table {}", entityCache.getName(), table);
+        this.entityCache = entityCache;
+    }
+
+    public VersionedEntityCache<T> getEntityCache() {
+        return entityCache;
+    }
+
     @Override
     public T get(DbKey dbKey) {
         return get(dbKey, true);
@@ -91,12 +113,29 @@ public abstract class EntityDbTable<T> extends BasicDbTable<T> implements Entity
 
     @Override
     public T get(DbKey dbKey, boolean createDbKey) {
+        VersionedEntityCache<T> cache = entityCache;
+        long stamp = 0;
+        if (cache != null) {
+            T cached = cache.get(dbKey);
+            if (cached != null) {
+                return cached;
+            }
+            stamp = cache.stamp();
+        }
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT * FROM " + table + keyFactory.getPKClause()
                  + (multiversion ? " AND latest = TRUE LIMIT 1" : ""))) {
             dbKey.setPK(pstmt);
-            return get(con, pstmt, createDbKey);
+            T t = get(con, pstmt, createDbKey);
+            if (cache != null && t != null) {
+                boolean inTransaction = dataSource.isInTransaction();
+                cache.putLoaded(dbKey, t, stamp, inTransaction);
+                if (inTransaction) {
+                    dataSource.registerCallback(cache);
+                }
+            }
+            return t;
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
@@ -113,6 +152,13 @@ public abstract class EntityDbTable<T> extends BasicDbTable<T> implements Entity
      */
     @Override
     public T get(DbKey dbKey, int height) {
+        VersionedEntityCache<T> cache = entityCache;
+        if (cache != null) {
+            T cached = cache.get(dbKey, height);
+            if (cached != null) {
+                return cached;
+            }
+        }
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT * FROM " + table + keyFactory.getPKClause()
@@ -250,13 +296,20 @@ public abstract class EntityDbTable<T> extends BasicDbTable<T> implements Entity
 
     @Override
     public final DbIterator<T> search(String query, DbClause dbClause, int from, int to) {
-        return search(query, dbClause, from, to, " ORDER BY ft.score DESC ");
+        return search(query, dbClause, from, to, DEFAULT_SEARCH_SORT);
     }
 
     @Override
     public final DbIterator<T> search(String query, DbClause dbClause, int from, int to, String sort) {
         Connection con = null;
         TransactionalDataSource dataSource = databaseManager.getDataSource();
+        if (dbClause == DbClause.EMPTY_CLAUSE && DEFAULT_SEARCH_SORT.equals(sort) && !dataSource.isInTransaction()
+            && lookupFullTextSearchService().isStoreFields()) {
+            DbIterator<T> storedRows = searchStoredRows(query, from, to);
+            if (storedRows != null) {
+                return storedRows;
+            }
+        }
         try {
             con = dataSource.getConnection();
             @DatabaseSpecificDml(DmlMarker.FULL_TEXT_SEARCH)
@@ -277,6 +330,28 @@ public abstract class EntityDbTable<T> extends BasicDbTable<T> implements Entity
         }
     }
 
+    /**
+     * Read the page of search results from the row values stored in the fulltext index
+     *
+     * @return search results or null, when row values are not stored in the index or index is not at the blockchain height
+     */
+    private DbIterator<T> searchStoredRows(String query, int from, int to) {
+        int limit = DbUtils.calculateLimit(from, to);
+        if (limit == 0) {
+            return null;
+        }
+        try {
+            FullTextSearchResult result = lookupFullTextSearchService().searchHits("PUBLIC", table, query, limit, Math.max(from, 0), false);
+            // searcher may be ahead of the blockchain after pop-off, until the index is refreshed
+            if (!result.isStored() || result.getHeight() != lookupBlockchain().getHeight()) {
+                return null;
+            }
+            return new DbIterator<>(null, result.toResultSet(), (con, rs) -> load(con, rs, null));
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
     @Override
     public DbIterator<T> getAll(int from, int to) {
         return getAll(from, to, defaultSort());
@@ -406,6 +481,66 @@ public abstract class EntityDbTable<T> extends BasicDbTable<T> implements Entity
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
+        VersionedEntityCache<T> cache = entityCache;
+        if (cache != null) {
+            cache.put(dbKey, t);
+            bindToTransaction(cache);
+        }
+    }
+
+    @Override
+    public int rollback(int height) {
+        int rc = super.rollback(height);
+        VersionedEntityCache<T> cache = entityCache;
+        if (cache != null) {
+            cache.rollback(height);
+            bindToTransaction(cache);
+        }
+        return rc;
+    }
+
+    @Override
+    public void trim(int height) {
+        super.trim(height);
+        VersionedEntityCache<T> cache = entityCache;
+        if (cache != null) {
+            cache.trim(height);
+        }
+    }
+
+    @Override
+    public void truncate() {
+        super.truncate();
+        VersionedEntityCache<T> cache = entityCache;
+        if (cache != null) {
+            cache.clear();
+            bindToTransaction(cache);
+        }
+    }
+
+    /**
+     * Invalidate cached latest version of the deleted entity
+     *
+     * @param dbKey key of the deleted entity
+     */
+    protected void invalidateCached(DbKey dbKey) {
+        VersionedEntityCache<T> cache = entityCache;
+        if (cache != null) {
+            cache.invalidate(dbKey);
+            bindToTransaction(cache);
+        }
+    }
+
+    /**
+     * Cache changes are published, when the current db transaction is committed, or immediately without transaction
+     */
+    private void bindToTransaction(VersionedEntityCache<T> cache) {
+        TransactionalDataSource dataSource = databaseManager.getDataSource();
+        if (dataSource.isInTransaction()) {
+            dataSource.registerCallback(cache);
+        } else {
+            cache.commit();
+        }
     }
 
     /**
@@ -471,6 +606,13 @@ public abstract class EntityDbTable<T> extends BasicDbTable<T> implements Entity
         }
     }
 
+    private FullTextSearchService lookupFullTextSearchService() {
+        if (fullTextSearchService == null) {
+            fullTextSearchService = CDI.current().select(FullTextSearchService.class).get();
+        }
+        return fullTextSearchService;
+    }
+
     private Blockchain lookupBlockchain() {
         if (blockchain == null) {
             blockchain = CDI.current().select(Blockchain.class).get();
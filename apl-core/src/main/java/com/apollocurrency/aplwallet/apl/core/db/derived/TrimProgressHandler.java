@@ -0,0 +1,62 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db.derived;
+
+/**
+ * Controls the chunked multiversion trim of the {@link BasicDbTable}: provides chunk size, stores trim progress
+ * to resume interrupted trim and throttles trim between chunks
+ */
+public interface TrimProgressHandler {
+    int DEFAULT_CHUNK_SIZE = 10_000;
+
+    /**
+     * Handler, which does not store progress and does not throttle trim
+     */
+    TrimProgressHandler NONE = new TrimProgressHandler() {
+        @Override
+        public int getChunkSize() {
+            return DEFAULT_CHUNK_SIZE;
+        }
+
+        @Override
+        public long getLastTrimmedDbId(String table, int height) {
+            return 0;
+        }
+
+        @Override
+        public void saveProgress(String table, int height, long lastDbId) {
+        }
+
+        @Override
+        public void throttle() {
+        }
+    };
+
+    /**
+     * @return number of db_id values to process per chunk
+     */
+    int getChunkSize();
+
+    /**
+     * @param table  name of the table
+     * @param height trim height
+     * @return last db_id processed by the previous trim of the table at the same height or 0, when trim was not started
+     */
+    long getLastTrimmedDbId(String table, int height);
+
+    /**
+     * Save last processed db_id under the current db transaction, which will be committed by the table
+     *
+     * @param table    name of the table
+     * @param height   trim height
+     * @param lastDbId last processed db_id
+     */
+    void saveProgress(String table, int height, long lastDbId);
+
+    /**
+     * Called after commit of each chunk to give way to the block processing
+     */
+    void throttle();
+}
@@ -76,10 +76,12 @@ public abstract class VersionedDeletableEntityDbTable<T> extends EntityDbTable<T
                         save(con, t);
                         pstmt.executeUpdate();// delete after the save
                     }
+                    invalidateCached(dbKey);
                     return true;
                 } else {
                     try (PreparedStatement pstmtDelete = con.prepareStatement("DELETE FROM " + table + keyFactory.getPKClause())) {
                         dbKey.setPK(pstmtDelete);
+                        invalidateCached(dbKey);
                         return pstmtDelete.executeUpdate() > 0;
                     }
                 }
@@ -0,0 +1,345 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db.derived;
+
+import com.apollocurrency.aplwallet.apl.core.db.DbKey;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionCallback;
+import com.apollocurrency.aplwallet.apl.core.db.model.DerivedEntity;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>Height-aware write-through cache of the latest entity versions for the multiversion {@link EntityDbTable}.</p>
+ * <p>Keeps the latest committed version per {@link DbKey} in the Guava cache, allocated by the InMemoryCacheManager,
+ * and a short per-height undo log of the cached keys, so that {@link #rollback(int)} invalidates
+ * only keys changed above the rollback height without the full cache scan. Undo log entries below the trim height
+ * are dropped by {@link #trim(int)}.</p>
+ * <p>Entities written or loaded under the db transaction are visible only to the thread of this transaction and are
+ * published to the shared cache on {@link #commit()}, or dropped on {@link #rollback()}. Keys changed by the open
+ * transaction are invalidated in the shared cache and marked as dirty until the transaction end, so that other
+ * threads, which still see the committed rows, do not cache them. Cache stores and returns copies of the entities,
+ * so that modification of the returned entity does not affect the cached value until it is inserted.</p>
+ * <p>Caller is responsible to register this cache as a {@link TransactionCallback} for the transaction, which
+ * changes or loads entities, and to call {@link #commit()} after changes made without the transaction.</p>
+ *
+ * @param <T> type of the cached entity
+ */
+@Slf4j
+public class VersionedEntityCache<T> implements TransactionCallback {
+    private final String name;
+    private final Cache<DbKey, T> cache;
+    private final ToIntFunction<T> heightFunction;
+    private final UnaryOperator<T> copyFunction;
+    private final NavigableMap<Integer, Set<DbKey>> keysByHeight = new ConcurrentSkipListMap<>();
+    private final ThreadLocal<TransactionChanges<T>> transactionChanges = new ThreadLocal<>();
+    /**
+     * Number of the open transactions, which changed the key
+     */
+    private final Map<DbKey, Integer> dirtyKeys = new HashMap<>();
+    private final Object lock = new Object();
+    /**
+     * Number of the open transactions, which may change any key
+     */
+    private int dirtyTransactions;
+    private long modificationCount;
+    private volatile int trimHeight;
+
+    public VersionedEntityCache(String name, Cache<DbKey, T> cache, ToIntFunction<T> heightFunction, UnaryOperator<T> copyFunction) {
+        this.name = Objects.requireNonNull(name, "Cache name is NULL");
+        this.cache = Objects.requireNonNull(cache, "Cache is NULL");
+        this.heightFunction = Objects.requireNonNull(heightFunction, "Height function is NULL");
+        this.copyFunction = Objects.requireNonNull(copyFunction, "Copy function is NULL");
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E extends DerivedEntity> VersionedEntityCache<E> forDerivedEntities(String name, Cache<DbKey, E> cache) {
+        return new VersionedEntityCache<>(name, cache, DerivedEntity::getHeight, e -> (E) e.copy());
+    }
+
+    /**
+     * @param dbKey entity key
+     * @return copy of the cached latest entity or null, when entity is not cached
+     */
+    public T get(DbKey dbKey) {
+        T entity = getEntity(dbKey);
+        return entity == null ? null : copyFunction.apply(entity);
+    }
+
+    /**
+     * The latest entity version is also the actual version at any height above the latest version height
+     *
+     * @param dbKey  entity key
+     * @param height target height
+     * @return copy of the cached latest entity, when it is actual at the given height, otherwise null
+     */
+    public T get(DbKey dbKey, int height) {
+        T entity = getEntity(dbKey);
+        return entity == null || heightFunction.applyAsInt(entity) > height ? null : copyFunction.apply(entity);
+    }
+
+    /**
+     * Return a stamp, which should be passed to the {@link #putLoaded(DbKey, Object, long, boolean)} to detect concurrent
+     * cache modifications made while entity was loading from the db
+     *
+     * @return current modification stamp
+     */
+    public long stamp() {
+        synchronized (lock) {
+            return modificationCount;
+        }
+    }
+
+    /**
+     * Cache the latest entity version loaded from the db. Entity loaded without the transaction will not be cached,
+     * when cache was modified after the stamp was taken or its key is changed by the open transaction, to not
+     * overwrite the newer entity version by the stale one. Entity loaded under the db transaction is visible
+     * only to the current thread until the transaction is committed.
+     *
+     * @param dbKey         entity key
+     * @param entity        loaded latest entity
+     * @param stamp         stamp taken before entity loading
+     * @param inTransaction true, when entity was loaded under the db transaction
+     */
+    public void putLoaded(DbKey dbKey, T entity, long stamp, boolean inTransaction) {
+        if (inTransaction) {
+            TransactionChanges<T> changes = getOrCreateChanges();
+            if (!changes.values.containsKey(dbKey)) {
+                changes.values.put(dbKey, copyFunction.apply(entity));
+            }
+            return;
+        }
+        synchronized (lock) {
+            if (stamp != modificationCount || dirtyTransactions > 0 || dirtyKeys.containsKey(dbKey)) {
+                return;
+            }
+            cache.put(dbKey, copyFunction.apply(entity));
+            logKey(dbKey, heightFunction.applyAsInt(entity));
+        }
+    }
+
+    /**
+     * Write-through the inserted entity version, it will be published on the transaction commit
+     *
+     * @param dbKey  entity key
+     * @param entity inserted entity
+     */
+    public void put(DbKey dbKey, T entity) {
+        TransactionChanges<T> changes = getOrCreateChanges();
+        synchronized (lock) {
+            modificationCount++;
+            markDirty(changes, dbKey);
+            cache.invalidate(dbKey);
+        }
+        changes.values.put(dbKey, copyFunction.apply(entity));
+    }
+
+    /**
+     * Invalidate deleted entity
+     *
+     * @param dbKey entity key
+     */
+    public void invalidate(DbKey dbKey) {
+        TransactionChanges<T> changes = getOrCreateChanges();
+        synchronized (lock) {
+            modificationCount++;
+            markDirty(changes, dbKey);
+            cache.invalidate(dbKey);
+        }
+        changes.values.put(dbKey, null);
+    }
+
+    /**
+     * Invalidate all keys, which were cached at height greater than the given one
+     *
+     * @param height rollback height
+     */
+    public void rollback(int height) {
+        TransactionChanges<T> changes = getOrCreateChanges();
+        changes.values.replaceAll((dbKey, entity) -> entity == null || heightFunction.applyAsInt(entity) > height ? null : entity);
+        synchronized (lock) {
+            modificationCount++;
+            // rolled back rows of the not cached keys are unknown, so no key may be cached until the transaction end
+            markAllDirty(changes);
+            if (height < trimHeight) {
+                log.debug("--cache-- {} rollback to height {} below trim height {}, invalidate all", name, height, trimHeight);
+                changes.values.replaceAll((dbKey, entity) -> null);
+                clearAll();
+                return;
+            }
+            NavigableMap<Integer, Set<DbKey>> rolledBack = keysByHeight.tailMap(height, false);
+            int count = 0;
+            for (Set<DbKey> keys : rolledBack.values()) {
+                cache.invalidateAll(keys);
+                count += keys.size();
+            }
+            rolledBack.clear();
+            log.trace("--cache-- {} rollback to height {}, invalidated {} keys", name, height, count);
+        }
+    }
+
+    /**
+     * Drop undo log entries, which are not required anymore, since rollback below the trim height is not possible
+     *
+     * @param height trim height
+     */
+    public void trim(int height) {
+        synchronized (lock) {
+            trimHeight = Math.max(trimHeight, height);
+            keysByHeight.headMap(trimHeight, false).clear();
+        }
+    }
+
+    public void clear() {
+        TransactionChanges<T> changes = getOrCreateChanges();
+        synchronized (lock) {
+            modificationCount++;
+            markAllDirty(changes);
+            changes.values.replaceAll((dbKey, entity) -> null);
+            clearAll();
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Publish entities written and loaded by the current thread transaction
+     */
+    @Override
+    public void commit() {
+        TransactionChanges<T> changes = transactionChanges.get();
+        if (changes == null) {
+            return;
+        }
+        transactionChanges.remove();
+        synchronized (lock) {
+            modificationCount++;
+            endTransaction(changes);
+            for (Map.Entry<DbKey, T> entry : changes.values.entrySet()) {
+                DbKey dbKey = entry.getKey();
+                T entity = entry.getValue();
+                if (entity == null) {
+                    cache.invalidate(dbKey);
+                } else if (changes.dirtyKeys.contains(dbKey)
+                    || (dirtyTransactions == 0 && !dirtyKeys.containsKey(dbKey))) {
+                    // loaded entity is not published, when its key is changed by another open transaction
+                    cache.put(dbKey, entity);
+                    logKey(dbKey, heightFunction.applyAsInt(entity));
+                }
+            }
+        }
+        log.trace("--cache-- {} db transaction commit, published {} keys", name, changes.values.size());
+    }
+
+    /**
+     * Drop entities written and loaded by the current thread transaction
+     */
+    @Override
+    public void rollback() {
+        TransactionChanges<T> changes = transactionChanges.get();
+        if (changes == null) {
+            return;
+        }
+        transactionChanges.remove();
+        synchronized (lock) {
+            modificationCount++;
+            endTransaction(changes);
+        }
+        log.trace("--cache-- {} db transaction rollback, dropped {} keys", name, changes.values.size());
+    }
+
+    private T getEntity(DbKey dbKey) {
+        TransactionChanges<T> changes = transactionChanges.get();
+        if (changes != null && changes.values.containsKey(dbKey)) {
+            return changes.values.get(dbKey);
+        }
+        return cache.getIfPresent(dbKey);
+    }
+
+    private TransactionChanges<T> getOrCreateChanges() {
+        TransactionChanges<T> changes = transactionChanges.get();
+        if (changes == null) {
+            changes = new TransactionChanges<>();
+            transactionChanges.set(changes);
+        }
+        return changes;
+    }
+
+    private void markDirty(TransactionChanges<T> changes, DbKey dbKey) {
+        if (changes.dirtyKeys.add(dbKey)) {
+            dirtyKeys.merge(dbKey, 1, Integer::sum);
+        }
+    }
+
+    private void markAllDirty(TransactionChanges<T> changes) {
+        if (!changes.allDirty) {
+            changes.allDirty = true;
+            dirtyTransactions++;
+        }
+    }
+
+    private void endTransaction(TransactionChanges<T> changes) {
+        for (DbKey dbKey : changes.dirtyKeys) {
+            dirtyKeys.computeIfPresent(dbKey, (k, count) -> count == 1 ? null : count - 1);
+        }
+        if (changes.allDirty) {
+            dirtyTransactions--;
+        }
+    }
+
+    private void logKey(DbKey dbKey, int height) {
+        if (height >= trimHeight) {
+            keysByHeight.computeIfAbsent(height, h -> ConcurrentHashMap.newKeySet()).add(dbKey);
+        }
+    }
+
+    private void clearAll() {
+        cache.invalidateAll();
+        keysByHeight.clear();
+    }
+
+    @Override
+    public String toString() {
+        Map.Entry<Integer, Set<DbKey>> lastEntry = keysByHeight.lastEntry();
+        return "VersionedEntityCache{name=" + name + ", size=" + cache.size() + ", undoLogHeights=" + keysByHeight.size()
+            + ", lastHeight=" + (lastEntry == null ? "none" : lastEntry.getKey()) + ", trimHeight=" + trimHeight + "}";
+    }
+
+    /**
+     * Entities written (or invalidated, when null) and loaded by the thread under the db transaction
+     */
+    private static class TransactionChanges<T> {
+        private final Map<DbKey, T> values = new HashMap<>();
+        /**
+         * Keys changed by this transaction
+         */
+        private final Set<DbKey> dirtyKeys = new HashSet<>();
+        /**
+         * Any key may be changed by this transaction
+         */
+        private boolean allDirty;
+    }
+}
@@ -34,12 +34,26 @@ public interface FullTextSearchEngine {
     void indexRow(Object[] row, TableData tableData) throws SQLException;
 
     /**
-     * Commit current index immediately
+     * Make index changes visible for search. Changes are not required to be durable after this call
      *
      * @throws SQLException when index commit error occurred
      */
     void commitIndex() throws SQLException;
 
+    /**
+     * Durably commit all index changes and mark index as containing all rows changed up to the given height
+     *
+     * @param height blockchain height, which changes are already indexed
+     * @throws SQLException when index commit error occurred
+     */
+    void flushIndex(int height) throws SQLException;
+
+    /**
+     * @return blockchain height stored with the last durable commit or -1, when unknown. Rows changed above this height
+     * may be missing in the index after crash and should be reindexed
+     */
+    int getIndexedHeight();
+
     /**
      * Clear index data and restart engine
      *
@@ -77,4 +91,26 @@ public interface FullTextSearchEngine {
      */
     ResultSet search(String schema, String table, String queryText, int limit, int offset)
         throws SQLException;
+
+    /**
+     * Search the index and return the requested page of hits with the row values stored in the index, when available.
+     * Sequential pages of the same query are continued from the previous page last hit, while index is not changed.
+     *
+     * @param schema    Schema name
+     * @param table     Table name
+     * @param queryText Query expression
+     * @param limit     Number of hits to return, should be positive
+     * @param offset    Number of hits to skip
+     * @param countHits true to count all the documents matching query, otherwise total hits are reported as -1
+     * @return Search results page
+     * @throws SQLException Unable to search the index
+     */
+    FullTextSearchResult searchHits(String schema, String table, String queryText, int limit, int offset, boolean countHits)
+        throws SQLException;
+
+    /**
+     * @return true, when row values are stored in the index and can be returned by the
+     * {@link #searchHits(String, String, String, int, int, boolean)}
+     */
+    boolean isStoreFields();
 }
@@ -0,0 +1,47 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db.fulltext;
+
+import java.util.Map;
+
+/**
+ * Single fulltext search result: indexed row identification, score and row column values stored in the index
+ */
+public class FullTextSearchHit {
+    private final long dbId;
+    private final float score;
+    private final Map<String, Object> storedRow;
+
+    public FullTextSearchHit(long dbId, float score, Map<String, Object> storedRow) {
+        this.dbId = dbId;
+        this.score = score;
+        this.storedRow = storedRow;
+    }
+
+    public long getDbId() {
+        return dbId;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    /**
+     * @return all the table row column values by upper case column names in the table column order or null, when row
+     * values are not stored in the index
+     */
+    public Map<String, Object> getStoredRow() {
+        return storedRow;
+    }
+
+    @Override
+    public String toString() {
+        return "FullTextSearchHit{" +
+            "dbId=" + dbId +
+            ", score=" + score +
+            ", stored=" + (storedRow != null) +
+            '}';
+    }
+}
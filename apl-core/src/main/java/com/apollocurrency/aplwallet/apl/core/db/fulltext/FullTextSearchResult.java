@@ -0,0 +1,81 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db.fulltext;
+
+import org.h2.tools.SimpleResultSet;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Page of the fulltext search results
+ */
+public class FullTextSearchResult {
+    private final List<FullTextSearchHit> hits;
+    private final int totalHits;
+    private final int height;
+
+    public FullTextSearchResult(List<FullTextSearchHit> hits, int totalHits, int height) {
+        this.hits = hits;
+        this.totalHits = totalHits;
+        this.height = height;
+    }
+
+    /**
+     * @return hits of the requested page in the descending score order
+     */
+    public List<FullTextSearchHit> getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of all the documents matching query or -1, when hits were not counted
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * @return blockchain height, which changes are guaranteed to be visible in this result, -1 when unknown.
+     * Result is consistent with db only when this height is equal to the current blockchain height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return true, when all the hits have row values stored in the index
+     */
+    public boolean isStored() {
+        return hits.stream().allMatch(hit -> hit.getStoredRow() != null);
+    }
+
+    /**
+     * Represent stored rows of the hits as a result set, which has the same columns as the indexed table, so that
+     * rows can be read by the same code, which reads rows from db
+     *
+     * @return result set of the stored rows in the hits order
+     * @throws IllegalStateException when some of the hits have no stored row
+     */
+    public ResultSet toResultSet() {
+        if (!isStored()) {
+            throw new IllegalStateException("Not all the hits have stored row values");
+        }
+        SimpleResultSet rs = new SimpleResultSet();
+        if (hits.isEmpty()) {
+            return rs;
+        }
+        for (String column : hits.get(0).getStoredRow().keySet()) {
+            rs.addColumn(column, Types.OTHER, 0, 0);
+        }
+        for (FullTextSearchHit hit : hits) {
+            Map<String, Object> row = hit.getStoredRow();
+            rs.addRow(row.values().toArray());
+        }
+        return rs;
+    }
+}
@@ -68,6 +68,18 @@ public interface FullTextSearchService {
     ResultSet search(String schema, String table, String queryText, int limit, int offset)
         throws SQLException;
 
+    /**
+     * Perform index search returning page of hits. By default should forward method call
+     * to {@link FullTextSearchEngine#searchHits(String, String, String, int, int, boolean)}
+     */
+    FullTextSearchResult searchHits(String schema, String table, String queryText, int limit, int offset, boolean countHits)
+        throws SQLException;
+
+    /**
+     * @return true, when search hits contain row values stored in the index, see {@link FullTextSearchEngine#isStoreFields()}
+     */
+    boolean isStoreFields();
+
     /**
      * Shutdown fulltext search service.
      * Implementations should provide an ability for multiple init and shutdown operations on one instance
@@ -5,6 +5,7 @@
 package com.apollocurrency.aplwallet.apl.core.db.fulltext;
 
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.util.task.NamedThreadFactory;
 import com.apollocurrency.aplwallet.apl.util.annotation.DatabaseSpecificDml;
 import com.apollocurrency.aplwallet.apl.util.annotation.DmlMarker;
 import org.slf4j.Logger;
@@ -14,17 +15,26 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Singleton
 @DatabaseSpecificDml(DmlMarker.FULL_TEXT_SEARCH)
 public class FullTextSearchServiceImpl implements FullTextSearchService {
 
     private static final Logger LOG = LoggerFactory.getLogger(FullTextSearchServiceImpl.class);
+    private static final int MAX_REINDEX_THREADS = 4;
     private FullTextSearchEngine ftl;
     private Set<String> indexTables;
     private String schemaName;
@@ -108,6 +118,7 @@ public class FullTextSearchServiceImpl implements FullTextSearchService {
             }
             if (triggersExist && alreadyInitialized) {
                 LOG.info("Fulltext support is already initialized");
+                recoverIndex(conn);
                 return;
             }
             //
@@ -201,6 +212,17 @@ public class FullTextSearchServiceImpl implements FullTextSearchService {
         return ftl.search(schema, table, queryText, limit, offset);
     }
 
+    @Override
+    public FullTextSearchResult searchHits(String schema, String table, String queryText, int limit, int offset, boolean countHits)
+        throws SQLException {
+        return ftl.searchHits(schema, table, queryText, limit, offset, countHits);
+    }
+
+    @Override
+    public boolean isStoreFields() {
+        return ftl.isStoreFields();
+    }
+
     @Override
     public void shutdown() {
         try {
@@ -211,8 +233,21 @@ public class FullTextSearchServiceImpl implements FullTextSearchService {
     }
 
     public void reindex(Connection conn, String tableName, String schemaName) throws SQLException {
+        indexTable(conn, tableName, schemaName, -1);
         //
-        // Build the SELECT statement for just the indexed columns
+        // Commit the index updates
+        //
+        ftl.commitIndex();
+    }
+
+    /**
+     * Pass table rows to the index writer without committing them
+     *
+     * @param fromHeight when not negative, only rows changed above this height will be indexed
+     */
+    private void indexTable(Connection conn, String tableName, String schemaName, int fromHeight) throws SQLException {
+        //
+        // Build the SELECT statement for all the columns in the table order, the same as rows passed by the trigger
         //
         TableData tableData = DbUtils.getTableData(conn, tableName, schemaName);
         if (tableData.getDbIdColumnPosition() == -1) {
@@ -220,11 +255,17 @@ public class FullTextSearchServiceImpl implements FullTextSearchService {
             return;
         }
         StringBuilder sb = new StringBuilder();
-        sb.append("SELECT DB_ID");
-        for (int index : tableData.getIndexColumns()) {
-            sb.append(", ").append(tableData.getColumnNames().get(index));
-        }
+        StringJoiner columns = new StringJoiner(", ");
+        tableData.getColumnNames().forEach(column -> columns.add("\"" + column + "\""));
+        sb.append("SELECT ").append(columns);
         sb.append(" FROM ").append(tableName);
+        if (fromHeight >= 0 && tableData.getColumnNames().contains("HEIGHT")) {
+            sb.append(" WHERE HEIGHT > ").append(fromHeight);
+            if (tableData.getColumnNames().contains("LATEST")) {
+                // outdated versions may be replaced above the height, they are removed from index by indexRow
+                sb.append(" OR LATEST = FALSE");
+            }
+        }
         Object[] row = new Object[tableData.getColumnNames().size()];
         //
         // Index each row in the table
@@ -232,18 +273,14 @@ public class FullTextSearchServiceImpl implements FullTextSearchService {
         try (Statement qstmt = conn.createStatement();
              ResultSet rs = qstmt.executeQuery(sb.toString())) {
             while (rs.next()) {
-                row[tableData.getDbIdColumnPosition()] = rs.getObject(1);
-                int i = 2;
-                for (int index : tableData.getIndexColumns()) {
-                    row[index] = rs.getObject(i++);
+                for (int i = 0; i < row.length; i++) {
+                    Object value = rs.getObject(i + 1);
+                    // trigger receives arrays as Object[]
+                    row[i] = value instanceof Array ? ((Array) value).getArray() : value;
                 }
                 ftl.indexRow(row, tableData);
             }
         }
-        //
-        // Commit the index updates
-        //
-        ftl.commitIndex();
     }
 
     public void reindexAll(Connection conn) throws SQLException {
@@ -259,20 +296,84 @@ public class FullTextSearchServiceImpl implements FullTextSearchService {
             //
             ftl.clearIndex();
             //
-            // Reindex each table
+            // Reindex each table in parallel and commit the whole index once
             //
-            for (String tableName : tables) {
-                long startTable = System.currentTimeMillis();
-                LOG.debug("Reindexing {}", tableName);
-                reindex(conn, tableName, schema);
-                LOG.debug("Reindexing {} DONE in '{}' ms", tableName, System.currentTimeMillis() - startTable);
-            }
+            int height = getBlockchainHeight(conn);
+            indexTables(tables, schema, -1);
+            ftl.flushIndex(height);
+            ftl.commitIndex();
         } catch (SQLException exc) {
             throw new SQLException("Unable to rebuild the Lucene index", exc);
         }
         LOG.info("Rebuilding Lucene search index DONE in '{}' ms", System.currentTimeMillis() - start);
     }
 
+    /**
+     * Reindex rows changed above the height of the last durable index commit, which could be lost on crash.
+     * Full reindex is performed, when index height is unknown or index is ahead of the blockchain
+     */
+    private void recoverIndex(Connection conn) throws SQLException {
+        int indexedHeight = ftl.getIndexedHeight();
+        int height = getBlockchainHeight(conn);
+        if (indexedHeight < 0 || indexedHeight > height) {
+            LOG.info("Lucene index height {} does not match blockchain height {}", indexedHeight, height);
+            reindexAll(conn);
+        } else if (indexedHeight < height) {
+            long start = System.currentTimeMillis();
+            indexTables(indexTables, schemaName, indexedHeight);
+            ftl.flushIndex(height);
+            ftl.commitIndex();
+            LOG.info("Lucene search index recovered from height {} to {} in '{}' ms", indexedHeight, height,
+                System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Index tables concurrently, each table is read using its own connection
+     */
+    private void indexTables(Set<String> tables, String schema, int fromHeight) throws SQLException {
+        int threads = Math.max(1, Math.min(tables.size(), Math.min(MAX_REINDEX_THREADS, Runtime.getRuntime().availableProcessors())));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory("LuceneReindex", true));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String tableName : tables) {
+                futures.add(executor.submit(() -> {
+                    long startTable = System.currentTimeMillis();
+                    LOG.debug("Reindexing {}", tableName);
+                    try (Connection con = databaseManager.getDataSource().getConnection()) {
+                        indexTable(con, tableName, schema, fromHeight);
+                    }
+                    LOG.debug("Reindexing {} DONE in '{}' ms", tableName, System.currentTimeMillis() - startTable);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Reindexing was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Unable to reindex tables", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int getBlockchainHeight(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(height) FROM block")) {
+            if (rs.next()) {
+                int height = rs.getInt(1);
+                return rs.wasNull() ? -1 : height;
+            }
+            return -1;
+        }
+    }
+
 
     /**
      * Creates a new index for table to support fulltext search.
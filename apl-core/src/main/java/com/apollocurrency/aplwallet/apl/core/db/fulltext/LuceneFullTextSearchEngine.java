@@ -4,62 +4,144 @@
 
 package com.apollocurrency.aplwallet.apl.core.db.fulltext;
 
+import com.apollocurrency.aplwallet.apl.core.app.Block;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEvent;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
+import com.apollocurrency.aplwallet.apl.core.config.Property;
 import com.apollocurrency.aplwallet.apl.util.NtpTime;
 import com.apollocurrency.aplwallet.apl.util.ReadWriteUpdateLock;
 import com.apollocurrency.aplwallet.apl.util.annotation.DatabaseSpecificDml;
 import com.apollocurrency.aplwallet.apl.util.annotation.DmlMarker;
+import com.apollocurrency.aplwallet.apl.util.task.NamedThreadFactory;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.h2.tools.SimpleResultSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
+/**
+ * <p>Lucene index is searched in the near-real-time mode: committed db changes become searchable, when searcher is
+ * refreshed from the index writer, which happens every 'apl.fulltext.refreshInterval' milliseconds (or immediately
+ * on each {@link #commitIndex()}, when interval is 0), without flushing the index to disk.</p>
+ * <p>Index changes are durably committed every 'apl.fulltext.commitInterval' seconds or after
+ * 'apl.fulltext.commitBlocks' pushed blocks, whichever comes first, and immediately, when blocks were popped off below
+ * the last durable commit. Each commit stores the blockchain height, which changes are already in the index, so that
+ * index changes lost on crash are recovered from the db rows above that height, see {@link #getIndexedHeight()}.</p>
+ * <p>Only the latest versions of the multiversion table rows are indexed. When 'apl.fulltext.storeFields' is enabled,
+ * all the row column values are stored in the index too, so that search results can be returned without reading the
+ * rows from db, see {@link #searchHits(String, String, String, int, int, boolean)}.</p>
+ */
 @Singleton
 @DatabaseSpecificDml(DmlMarker.FULL_TEXT_SEARCH)
 public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
+    public static final int DEFAULT_REFRESH_INTERVAL = 1000; // ms
+    public static final int DEFAULT_COMMIT_INTERVAL = 60; // seconds
+    public static final int DEFAULT_COMMIT_BLOCKS = 100;
     private static final Logger LOG = LoggerFactory.getLogger(LuceneFullTextSearchEngine.class);
+    private static final String HEIGHT_COMMIT_DATA = "height";
+    private static final int MAINTENANCE_INTERVAL = 1000; // ms, when searcher is refreshed on commit
+    private static final double RAM_BUFFER_SIZE_MB = 64;
+    private static final int MAX_CURSORS = 1000;
     /**
-     * Lucene index reader (thread-safe)
+     * Prefixes of the stored row value fields, which define the value type
      */
-    private static DirectoryReader indexReader;
+    private static final String STRING_PREFIX = "_S_";
+    private static final String LONG_PREFIX = "_L_";
+    private static final String INT_PREFIX = "_I_";
+    private static final String BOOLEAN_PREFIX = "_B_";
+    private static final String DECIMAL_PREFIX = "_D_";
+    private static final String BYTES_PREFIX = "_Y_";
+    private static final String ARRAY_PREFIX = "_A_";
+    private static final String ARRAY_LENGTH_PREFIX = "_AL_";
     /**
-     * Lucene index searcher (thread-safe)
+     * Lucene index writer (thread-safe)
      */
-    private static IndexSearcher indexSearcher;
+    private IndexWriter indexWriter;
     /**
-     * Lucene index writer (thread-safe)
+     * Manager of the near-real-time searchers opened from the index writer (thread-safe)
+     */
+    private SearcherManager searcherManager;
+    private ScheduledExecutorService maintenanceExecutor;
+    /**
+     * Guards durable commits
+     */
+    private final Object commitLock = new Object();
+    private final int refreshInterval;
+    private final int commitInterval;
+    private final int commitBlocks;
+    /**
+     * Height of the last pushed block, which changes were passed to the index writer
+     */
+    private volatile int height = -1;
+    /**
+     * Blockchain height stored with the last durable commit
      */
-    private static IndexWriter indexWriter;
+    private volatile int indexedHeight = -1;
+    private volatile boolean uncommittedChanges;
+    private volatile boolean poppedBelowIndexedHeight;
+    private volatile int blocksSinceCommit;
+    private volatile long lastCommitTime;
+    /**
+     * Height of the last pushed block at the moment of the current searcher refresh start
+     */
+    private volatile int searcherHeight = -1;
+    private final boolean storeFields;
+    /**
+     * Last hits of the recently returned search pages, which allow to continue search for the next page without
+     * collecting all the previous hits. Cursor is valid only for the index reader version it was obtained from
+     */
+    private final Map<SearchCursor, ScoreDoc> cursors = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SearchCursor, ScoreDoc> eldest) {
+            return size() > MAX_CURSORS;
+        }
+    });
     /**
      * Index lock
      */
@@ -72,10 +154,22 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
     private Path indexDirPath;
 
 
+    public LuceneFullTextSearchEngine(NtpTime ntpTime, Path indexPath) {
+        this(ntpTime, indexPath, 0, DEFAULT_COMMIT_INTERVAL, DEFAULT_COMMIT_BLOCKS, false);
+    }
+
     @Inject
-    public LuceneFullTextSearchEngine(NtpTime ntpTime, @Named("indexDirPath") Path indexPath) {
+    public LuceneFullTextSearchEngine(NtpTime ntpTime, @Named("indexDirPath") Path indexPath,
+                                      @Property(name = "apl.fulltext.refreshInterval", defaultValue = "" + DEFAULT_REFRESH_INTERVAL) int refreshInterval,
+                                      @Property(name = "apl.fulltext.commitInterval", defaultValue = "" + DEFAULT_COMMIT_INTERVAL) int commitInterval,
+                                      @Property(name = "apl.fulltext.commitBlocks", defaultValue = "" + DEFAULT_COMMIT_BLOCKS) int commitBlocks,
+                                      @Property(name = "apl.fulltext.storeFields", defaultValue = "false") boolean storeFields) {
         this.ntpTime = ntpTime;
         this.indexDirPath = indexPath;
+        this.refreshInterval = Math.max(0, refreshInterval);
+        this.commitInterval = Math.max(1, commitInterval);
+        this.commitBlocks = Math.max(1, commitBlocks);
+        this.storeFields = storeFields;
         if (!Files.exists(indexPath)) {
             try {
                 Files.createDirectories(indexPath);
@@ -90,13 +184,18 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
      */
     @Override
     public void indexRow(Object[] row, TableData tableData) throws SQLException {
+        int latestColumn = tableData.getColumnNames().indexOf("LATEST");
+        if (latestColumn != -1 && Boolean.FALSE.equals(row[latestColumn])) {
+            // outdated versions of the multiversion table rows are never returned by search
+            deleteRow(row, tableData);
+            return;
+        }
         indexLock.readLock().lock();
         try {
             List<String> columnNames = tableData.getColumnNames();
             List<Integer> indexColumns = tableData.getIndexColumns();
-            int dbColumn = tableData.getDbIdColumnPosition();
-            String tableName = tableData.getSchema().toUpperCase() + "." + tableData.getTable().toUpperCase();
-            String query = tableName + ";" + columnNames.get(dbColumn) + ";" + (long) row[dbColumn];
+            String tableName = tableName(tableData);
+            String query = queryKey(row, tableData);
             Document document = new Document();
             document.add(new StringField("_QUERY", query, Field.Store.YES));
             long now = ntpTime.getTime();
@@ -109,7 +208,11 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
                 sj.add(data);
             }
             document.add(new TextField("_DATA", sj.toString(), Field.Store.NO));
+            if (storeFields) {
+                addStoredRow(document, row, tableData);
+            }
             indexWriter.updateDocument(new Term("_QUERY", query), document);
+            uncommittedChanges = true;
         } catch (IOException exc) {
             LOG.error("Unable to index row", exc);
             throw new SQLException("Unable to index row", exc);
@@ -135,11 +238,11 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
     }
 
     private void deleteRow(Object[] row, TableData tableData) throws SQLException {
-        String query =
-            tableData.getTable() + ";" + tableData.getColumnNames().get(tableData.getDbIdColumnPosition()) + ";" + (long) row[tableData.getDbIdColumnPosition()];
+        String query = queryKey(row, tableData);
         indexLock.readLock().lock();
         try {
             indexWriter.deleteDocuments(new Term("_QUERY", query));
+            uncommittedChanges = true;
         } catch (IOException exc) {
             LOG.error("Unable to delete indexed row", exc);
             throw new SQLException("Unable to delete indexed row", exc);
@@ -148,6 +251,95 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
         }
     }
 
+    /**
+     * Store all the row values in the document, row is stored only when all non-null values have supported types
+     */
+    private void addStoredRow(Document document, Object[] row, TableData tableData) {
+        List<String> columnNames = tableData.getColumnNames();
+        List<IndexableField> fields = new ArrayList<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            String column = columnNames.get(i);
+            Object value = row[i];
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof String) {
+                fields.add(new StoredField(STRING_PREFIX + column, (String) value));
+            } else if (value instanceof Long) {
+                fields.add(new StoredField(LONG_PREFIX + column, (Long) value));
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                fields.add(new StoredField(INT_PREFIX + column, ((Number) value).intValue()));
+            } else if (value instanceof Boolean) {
+                fields.add(new StoredField(BOOLEAN_PREFIX + column, (Boolean) value ? 1 : 0));
+            } else if (value instanceof BigDecimal) {
+                fields.add(new StoredField(DECIMAL_PREFIX + column, value.toString()));
+            } else if (value instanceof byte[]) {
+                fields.add(new StoredField(BYTES_PREFIX + column, (byte[]) value));
+            } else if (value instanceof Object[] && Arrays.stream((Object[]) value).allMatch(e -> e instanceof String)) {
+                Object[] array = (Object[]) value;
+                fields.add(new StoredField(ARRAY_LENGTH_PREFIX + column, array.length));
+                for (Object element : array) {
+                    fields.add(new StoredField(ARRAY_PREFIX + column, (String) element));
+                }
+            } else {
+                LOG.trace("Row of {} is not stored, unsupported value type of {}: {}", tableData.getTable(), column, value.getClass());
+                return;
+            }
+        }
+        fields.forEach(document::add);
+        document.add(new StoredField("_COLUMNS", String.join(",", columnNames)));
+    }
+
+    /**
+     * @return row values stored by {@link #addStoredRow(Document, Object[], TableData)} or null, when row is not stored
+     */
+    private Map<String, Object> getStoredRow(Document document) {
+        String columns = document.get("_COLUMNS");
+        if (columns == null) {
+            return null;
+        }
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String column : columns.split(",")) {
+            row.put(column, null);
+        }
+        Map<String, List<String>> arrays = new LinkedHashMap<>();
+        for (IndexableField field : document.getFields()) {
+            String name = field.name();
+            if (name.startsWith(STRING_PREFIX)) {
+                row.put(name.substring(STRING_PREFIX.length()), field.stringValue());
+            } else if (name.startsWith(LONG_PREFIX)) {
+                row.put(name.substring(LONG_PREFIX.length()), field.numericValue().longValue());
+            } else if (name.startsWith(INT_PREFIX)) {
+                row.put(name.substring(INT_PREFIX.length()), field.numericValue().intValue());
+            } else if (name.startsWith(BOOLEAN_PREFIX)) {
+                row.put(name.substring(BOOLEAN_PREFIX.length()), field.numericValue().intValue() == 1);
+            } else if (name.startsWith(DECIMAL_PREFIX)) {
+                row.put(name.substring(DECIMAL_PREFIX.length()), new BigDecimal(field.stringValue()));
+            } else if (name.startsWith(BYTES_PREFIX)) {
+                BytesRef bytes = field.binaryValue();
+                row.put(name.substring(BYTES_PREFIX.length()), Arrays.copyOfRange(bytes.bytes, bytes.offset, bytes.offset + bytes.length));
+            } else if (name.startsWith(ARRAY_LENGTH_PREFIX)) {
+                arrays.putIfAbsent(name.substring(ARRAY_LENGTH_PREFIX.length()), new ArrayList<>());
+            } else if (name.startsWith(ARRAY_PREFIX)) {
+                arrays.computeIfAbsent(name.substring(ARRAY_PREFIX.length()), k -> new ArrayList<>()).add(field.stringValue());
+            }
+        }
+        arrays.forEach((column, elements) -> row.put(column, elements.toArray(new Object[0])));
+        return row;
+    }
+
+    /**
+     * @return identification of the row document: schema.table;keyName;keyValue
+     */
+    private String queryKey(Object[] row, TableData tableData) {
+        int dbColumn = tableData.getDbIdColumnPosition();
+        return tableName(tableData) + ";" + tableData.getColumnNames().get(dbColumn) + ";" + (long) row[dbColumn];
+    }
+
+    private String tableName(TableData tableData) {
+        return tableData.getSchema().toUpperCase() + "." + tableData.getTable().toUpperCase();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -164,14 +356,40 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
             try {
                 IndexWriterConfig config = new IndexWriterConfig(analyzer);
                 config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+                config.setRAMBufferSizeMB(RAM_BUFFER_SIZE_MB);
                 Directory indexDir = FSDirectory.open(indexDirPath);
                 indexWriter = new IndexWriter(indexDir, config);
+                indexedHeight = readIndexedHeight();
+                height = indexedHeight;
                 Document document = new Document();
                 document.add(new StringField("_QUERY", "_CONTROL_DOCUMENT_", Field.Store.YES));
                 indexWriter.updateDocument(new Term("_QUERY", "_CONTROL_DOCUMENT_"), document);
+                indexWriter.setLiveCommitData(Map.of(HEIGHT_COMMIT_DATA, String.valueOf(indexedHeight)).entrySet());
                 indexWriter.commit();
-                indexReader = DirectoryReader.open(indexDir);
-                indexSearcher = new IndexSearcher(indexReader);
+                lastCommitTime = System.currentTimeMillis();
+                blocksSinceCommit = 0;
+                uncommittedChanges = false;
+                poppedBelowIndexedHeight = false;
+                searcherManager = new SearcherManager(indexWriter, null);
+                searcherHeight = indexedHeight;
+                searcherManager.addListener(new ReferenceManager.RefreshListener() {
+                    private volatile int refreshHeight;
+
+                    @Override
+                    public void beforeRefresh() {
+                        // changes of the pushed block are passed to the writer before the block event
+                        refreshHeight = height;
+                    }
+
+                    @Override
+                    public void afterRefresh(boolean didRefresh) {
+                        searcherHeight = refreshHeight;
+                    }
+                });
+                maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("LuceneIndexMaintenance", true));
+                int interval = refreshInterval > 0 ? refreshInterval : MAINTENANCE_INTERVAL;
+                maintenanceExecutor.scheduleWithFixedDelay(this::maintainIndex, interval, interval, TimeUnit.MILLISECONDS);
+                LOG.debug("Lucene index opened at height {}", indexedHeight);
             } finally {
                 indexLock.writeLock().unlock();
             }
@@ -188,26 +406,107 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
 
     /**
      * {@inheritDoc}
+     * <p>Changes are not flushed to disk, see {@link #flushIndex(int)}</p>
      */
     @Override
     public void commitIndex() throws SQLException {
-        indexLock.writeLock().lock();
+        indexLock.readLock().lock();
+        try {
+            if (poppedBelowIndexedHeight) {
+                // rows deleted by the rollback should not reappear from the index commit after crash
+                flushIndex(height);
+            }
+            if (refreshInterval == 0) {
+                searcherManager.maybeRefreshBlocking();
+            }
+        } catch (IOException exc) {
+            LOG.error("Unable to refresh Lucene index searcher", exc);
+            throw new SQLException("Unable to refresh Lucene index searcher", exc);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flushIndex(int height) throws SQLException {
+        indexLock.readLock().lock();
         try {
-            indexWriter.commit();
-            DirectoryReader newReader = DirectoryReader.openIfChanged(indexReader);
-            if (newReader != null) {
-                indexReader.close();
-                indexReader = newReader;
-                indexSearcher = new IndexSearcher(indexReader);
+            synchronized (commitLock) {
+                this.height = Math.max(this.height, height);
+                poppedBelowIndexedHeight = false;
+                indexWriter.setLiveCommitData(Map.of(HEIGHT_COMMIT_DATA, String.valueOf(height)).entrySet());
+                indexWriter.commit();
+                indexedHeight = height;
+                blocksSinceCommit = 0;
+                uncommittedChanges = false;
+                lastCommitTime = System.currentTimeMillis();
             }
+            searcherManager.maybeRefresh();
+            LOG.trace("Lucene index committed at height {}", height);
         } catch (IOException exc) {
             LOG.error("Unable to commit Lucene index updates", exc);
             throw new SQLException("Unable to commit Lucene index updates", exc);
         } finally {
-            indexLock.writeLock().unlock();
+            indexLock.readLock().unlock();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIndexedHeight() {
+        return indexedHeight;
+    }
+
+    public void onBlockPushed(@Observes @BlockEvent(BlockEventType.BLOCK_PUSHED) Block block) {
+        height = block.getHeight();
+        blocksSinceCommit++;
+    }
+
+    public void onBlockPopped(@Observes @BlockEvent(BlockEventType.BLOCK_POPPED) Block block) {
+        height = block.getHeight() - 1;
+        if (height < indexedHeight) {
+            poppedBelowIndexedHeight = true;
+        }
+    }
+
+    /**
+     * Refresh searcher and perform durable commit, when commit interval is elapsed or enough blocks were pushed
+     */
+    private void maintainIndex() {
+        indexLock.readLock().lock();
+        try {
+            if (searcherManager == null) {
+                return; // index is closed
+            }
+            if (refreshInterval > 0) {
+                searcherManager.maybeRefresh();
+            }
+            boolean commitDue = blocksSinceCommit >= commitBlocks
+                || System.currentTimeMillis() - lastCommitTime >= TimeUnit.SECONDS.toMillis(commitInterval);
+            if (uncommittedChanges && commitDue) {
+                flushIndex(height);
+            }
+        } catch (Exception e) {
+            LOG.error("Unable to maintain Lucene index", e);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private int readIndexedHeight() {
+        for (Map.Entry<String, String> entry : indexWriter.getLiveCommitData()) {
+            if (HEIGHT_COMMIT_DATA.equals(entry.getKey())) {
+                return Integer.parseInt(entry.getValue());
+            }
+        }
+        return -1;
+    }
+
     /**
      * Remove the Lucene index files
      *
@@ -264,23 +563,25 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
         //
         indexLock.readLock().lock();
         try {
-            QueryParser parser = new QueryParser("_DATA", analyzer);
-            parser.setDateResolution("_MODIFIED", DateTools.Resolution.SECOND);
-            parser.setDefaultOperator(QueryParser.Operator.AND);
-            Query query = parser.parse("_TABLE:" + schema.toUpperCase() + "." + table.toUpperCase() + " AND (" + queryText + ")");
-            TopDocs documents = indexSearcher.search(query, limit);
-            ScoreDoc[] hits = documents.scoreDocs;
-            int resultCount = Math.min(hits.length, (limit == 0 ? hits.length : limit));
-            int resultOffset = Math.min(offset, resultCount);
-            for (int i = resultOffset; i < resultCount; i++) {
-                Document document = indexSearcher.doc(hits[i].doc);
-                String[] indexParts = document.get("_QUERY").split(";");
-                String[] nameParts = indexParts[0].split("\\.");
-                result.addRow(nameParts[0],
-                    nameParts[1],
-                    new String[]{indexParts[1]},
-                    new Long[]{Long.parseLong(indexParts[2])},
-                    hits[i].score);
+            Query query = parseQuery(schema, table, queryText);
+            IndexSearcher indexSearcher = searcherManager.acquire();
+            try {
+                TopDocs documents = indexSearcher.search(query, limit);
+                ScoreDoc[] hits = documents.scoreDocs;
+                int resultCount = Math.min(hits.length, (limit == 0 ? hits.length : limit));
+                int resultOffset = Math.min(offset, resultCount);
+                for (int i = resultOffset; i < resultCount; i++) {
+                    Document document = indexSearcher.doc(hits[i].doc);
+                    String[] indexParts = document.get("_QUERY").split(";");
+                    String[] nameParts = indexParts[0].split("\\.");
+                    result.addRow(nameParts[0],
+                        nameParts[1],
+                        new String[]{indexParts[1]},
+                        new Long[]{Long.parseLong(indexParts[2])},
+                        hits[i].score);
+                }
+            } finally {
+                searcherManager.release(indexSearcher);
             }
         } catch (ParseException exc) {
             LOG.debug("Lucene parse exception for query: " + queryText + "\n" + exc.getMessage());
@@ -294,6 +595,75 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FullTextSearchResult searchHits(String schema, String table, String queryText, int limit, int offset, boolean countHits)
+        throws SQLException {
+        if (limit <= 0 || offset < 0) {
+            throw new IllegalArgumentException("Limit should be positive and offset should not be negative, got limit "
+                + limit + ", offset " + offset);
+        }
+        indexLock.readLock().lock();
+        try {
+            Query query = parseQuery(schema, table, queryText);
+            // height is read before searcher acquisition to never report height, which is not visible yet
+            int height = searcherHeight;
+            IndexSearcher indexSearcher = searcherManager.acquire();
+            try {
+                long readerVersion = ((DirectoryReader) indexSearcher.getIndexReader()).getVersion();
+                String tableName = schema.toUpperCase() + "." + table.toUpperCase();
+                ScoreDoc after = offset == 0 ? null : cursors.get(new SearchCursor(tableName, queryText, readerVersion, offset));
+                TopDocs documents;
+                int skip;
+                if (after != null) {
+                    documents = indexSearcher.searchAfter(after, query, limit);
+                    skip = 0;
+                } else {
+                    documents = indexSearcher.search(query, (int) Math.min((long) offset + limit, Integer.MAX_VALUE));
+                    skip = offset;
+                }
+                ScoreDoc[] scoreDocs = documents.scoreDocs;
+                List<FullTextSearchHit> hits = new ArrayList<>();
+                for (int i = skip; i < scoreDocs.length; i++) {
+                    Document document = indexSearcher.doc(scoreDocs[i].doc);
+                    String[] indexParts = document.get("_QUERY").split(";");
+                    hits.add(new FullTextSearchHit(Long.parseLong(indexParts[2]), scoreDocs[i].score, getStoredRow(document)));
+                }
+                if (!hits.isEmpty()) {
+                    cursors.put(new SearchCursor(tableName, queryText, readerVersion, offset + hits.size()), scoreDocs[scoreDocs.length - 1]);
+                }
+                return new FullTextSearchResult(hits, countHits ? indexSearcher.count(query) : -1, height);
+            } finally {
+                searcherManager.release(indexSearcher);
+            }
+        } catch (ParseException exc) {
+            LOG.debug("Lucene parse exception for query: " + queryText + "\n" + exc.getMessage());
+            throw new SQLException("Lucene parse exception for query: " + queryText + "\n" + exc.getMessage());
+        } catch (IOException exc) {
+            LOG.error("Unable to search Lucene index", exc);
+            throw new SQLException("Unable to search Lucene index", exc);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStoreFields() {
+        return storeFields;
+    }
+
+    private Query parseQuery(String schema, String table, String queryText) throws ParseException {
+        QueryParser parser = new QueryParser("_DATA", analyzer);
+        parser.setDateResolution("_MODIFIED", DateTools.Resolution.SECOND);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        return parser.parse("_TABLE:" + schema.toUpperCase() + "." + table.toUpperCase() + " AND (" + queryText + ")");
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -301,9 +671,17 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
     public void shutdown() {
         indexLock.writeLock().lock();
         try {
-            commitIndex();
-            if (indexReader != null) {
-                indexReader.close();
+            cursors.clear();
+            if (maintenanceExecutor != null) {
+                maintenanceExecutor.shutdownNow();
+                maintenanceExecutor = null;
+            }
+            if (indexWriter != null && indexWriter.isOpen()) {
+                flushIndex(height);
+            }
+            if (searcherManager != null) {
+                searcherManager.close();
+                searcherManager = null;
             }
             if (indexWriter != null) {
                 indexWriter.close();
@@ -314,4 +692,34 @@ public class LuceneFullTextSearchEngine implements FullTextSearchEngine {
             indexLock.writeLock().unlock();
         }
     }
+
+    private static class SearchCursor {
+        private final String table;
+        private final String queryText;
+        private final long readerVersion;
+        private final int position;
+
+        SearchCursor(String table, String queryText, long readerVersion, int position) {
+            this.table = table;
+            this.queryText = queryText;
+            this.readerVersion = readerVersion;
+            this.position = position;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SearchCursor)) return false;
+            SearchCursor that = (SearchCursor) o;
+            return readerVersion == that.readerVersion &&
+                position == that.position &&
+                Objects.equals(table, that.table) &&
+                Objects.equals(queryText, that.queryText);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(table, queryText, readerVersion, position);
+        }
+    }
 }
@@ -13,7 +13,7 @@ import java.sql.SQLException;
 import java.util.Objects;
 
 @ToString
-public abstract class DerivedEntity implements Comparable {
+public abstract class DerivedEntity implements Comparable, Cloneable {
     protected static final int DEFAULT_HEIGHT = -1;
     private static final long DEFAULT_DB_ID = 0L;
     private DbKey dbKey;
@@ -68,6 +68,20 @@ public abstract class DerivedEntity implements Comparable {
         this.height = height;
     }
 
+    /**
+     * Create a shallow copy of this entity. Suitable for entities, which hold only primitives and immutable objects,
+     * subclasses with mutable state should override this method.
+     *
+     * @return copy of this entity
+     */
+    public DerivedEntity copy() {
+        try {
+            return (DerivedEntity) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Unable to copy entity " + this, e);
+        }
+    }
+
     @Override
     public int compareTo(Object o) {
         DerivedEntity entity = (DerivedEntity) o;
@@ -18,10 +18,13 @@ import com.apollocurrency.aplwallet.apl.util.env.dirprovider.DirProvider;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.event.ObservesAsync;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,6 +34,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -47,6 +52,10 @@ public class DownloadableFilesManager {
     public final static long FDI_TTL = 7 * 24 * 3600 * 1000; //7 days in ms
     public final static String FILES_SUBDIR = "downloadables";
     private final Map<String, FileDownloadInfo> fdiCache = new ConcurrentHashMap<>();
+    /**
+     * Files opened for serving chunks to the peers, future is completed when file is opened
+     */
+    private final Map<String, CompletableFuture<ServedFile>> servedFiles = new ConcurrentHashMap<>();
     public static final Map<String, Integer> LOCATION_KEYS = Map.of("shard", 0, "shardprun", 1, "attachment", 2, "file", 3, "debug", 4);
     public static final String MOD_CHAINID="chainid";
     public static final Map<String, Integer> LOCATION_MODIFIERS = Map.of(MOD_CHAINID, 0);
@@ -80,6 +89,7 @@ public class DownloadableFilesManager {
         }
         //remove from cache anyway
         fdiCache.remove(fileData.getFileId());
+        closeServedFile(fileData.getFileId());
         //put only if file is already hased
         if (fileData.isHashedOK()) {
             fdiCache.putIfAbsent(fileData.getFileId(), downloadInfo);
@@ -103,6 +113,7 @@ public class DownloadableFilesManager {
 
     public FileDownloadInfo updateFileDownloadInfo(String fileId){
         fdiCache.remove(fileId);
+        closeServedFile(fileId);
         return  getFileDownloadInfo(fileId);
     }
 
@@ -116,6 +127,77 @@ public class DownloadableFilesManager {
         return fdi;
     }
 
+    /**
+     * Get the file opened for serving its chunks, file stays open until it is changed.
+     * File is opened once per file id by the first requesting thread outside of the map lock, other threads wait
+     * for the opening future. File changed while it was opening is closed, when its opening is completed,
+     * so it is not left open with the outdated download info.
+     *
+     * @param fileId file id
+     * @return opened file
+     * @throws IOException when file is not present or can not be opened
+     */
+    public ServedFile getServedFile(String fileId) throws IOException {
+        Objects.requireNonNull(fileId, "fileId is NULL");
+        CompletableFuture<ServedFile> servedFile = servedFiles.get(fileId);
+        if (servedFile == null) {
+            CompletableFuture<ServedFile> opening = new CompletableFuture<>();
+            servedFile = servedFiles.putIfAbsent(fileId, opening);
+            if (servedFile == null) {
+                servedFile = opening;
+                try {
+                    opening.complete(openServedFile(fileId));
+                } catch (IOException | RuntimeException e) {
+                    servedFiles.remove(fileId, opening);
+                    opening.completeExceptionally(e);
+                }
+            }
+        }
+        try {
+            return servedFile.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private ServedFile openServedFile(String fileId) throws IOException {
+        FileDownloadInfo fdi = getFileDownloadInfo(fileId);
+        Path fpath = mapFileIdToLocalPath(fileId);
+        if (fpath == null || !fdi.fileInfo.isPresent) {
+            throw new FileNotFoundException("File is not present, id: " + fileId);
+        }
+        return new ServedFile(fileId, fpath, fdi.chunks);
+    }
+
+    private void closeServedFile(String fileId) {
+        if (fileId == null) {
+            return;
+        }
+        CompletableFuture<ServedFile> future = servedFiles.remove(fileId);
+        if (future != null) {
+            // file is closed right now or when its opening is completed
+            future.thenAccept(servedFile -> {
+                log.debug("Closing {}", servedFile);
+                try {
+                    servedFile.close();
+                } catch (IOException e) {
+                    log.debug("Can not close served file {}", servedFile.getPath(), e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        servedFiles.keySet().forEach(this::closeServedFile);
+    }
+
     private FileDownloadInfo fillFileDownloadInfo(ChunkedFileOps fops){
         FileDownloadInfo downloadInfo = new FileDownloadInfo();
         Path fpath = fops.getAbsPath();
@@ -0,0 +1,297 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+package com.apollocurrency.aplwallet.apl.core.files;
+
+import com.apollocurrency.aplwallet.api.p2p.FileChunkInfo;
+import com.apollocurrency.aplwallet.api.p2p.FileChunkState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Assigns file chunks to the peers for the parallel download.
+ * <p>Every peer is scored by the measured download throughput. Peer without measurements gets one chunk to be measured,
+ * measured peers get up to {@link #MAX_IN_FLIGHT_PER_PEER} chunks in flight proportionally to their throughput
+ * relative to the fastest peer. Peer is not used anymore after {@link #MAX_PEER_ERRORS} consecutive failures.</p>
+ * <p>When there are no chunks left to assign, chunks still downloaded by a single peer are requested again from
+ * another peer (endgame), so the download is not held by the slowest peer. The first saved copy of the chunk wins.</p>
+ *
+ * @param <P> peer type
+ */
+@Slf4j
+class FileChunkScheduler<P> {
+    static final int MAX_IN_FLIGHT_PER_PEER = 4;
+    static final int MAX_PEER_ERRORS = 3;
+    /**
+     * Weight of the last measured throughput in the peer throughput average
+     */
+    private static final double THROUGHPUT_WEIGHT = 0.3;
+    private static final long WAIT_MS = 1000;
+
+    private final List<FileChunkInfo> chunks;
+    private final Map<P, PeerStats> peers = new LinkedHashMap<>();
+    private final Map<FileChunkInfo, List<Assignment<P>>> inFlight = new IdentityHashMap<>();
+    private final int maxChunkAttempts;
+    private final Lock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private int savedCount;
+    private boolean failed;
+
+    /**
+     * @param chunks           chunks of the file, chunks in the {@link FileChunkState#SAVED} state are not downloaded
+     * @param peers            peers to download chunks from
+     * @param maxChunkAttempts number of failed downloads of the same chunk which fails the whole download
+     */
+    FileChunkScheduler(List<FileChunkInfo> chunks, Collection<P> peers, int maxChunkAttempts) {
+        this.chunks = chunks;
+        this.maxChunkAttempts = maxChunkAttempts;
+        peers.forEach(peer -> this.peers.put(peer, new PeerStats()));
+        for (FileChunkInfo chunk : chunks) {
+            if (chunk.present == FileChunkState.SAVED) {
+                savedCount++;
+            } else {
+                chunk.present = FileChunkState.PRESENT_IN_PEER;
+            }
+        }
+    }
+
+    /**
+     * Wait for the next chunk download which should be performed
+     *
+     * @return chunk assigned to the peer or null, when all chunks are saved or download failed
+     * @throws InterruptedException when thread was interrupted while waiting
+     */
+    Assignment<P> next() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (isFinished()) {
+                    return null;
+                }
+                Assignment<P> assignment = assign();
+                if (assignment != null) {
+                    return assignment;
+                }
+                if (inFlight.isEmpty() && peers.values().stream().noneMatch(PeerStats::isUsable)) {
+                    log.debug("No peers left to download {} chunks from", chunks.size() - savedCount);
+                    failed = true;
+                    changed.signalAll();
+                    return null;
+                }
+                changed.await(WAIT_MS, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Account successfully downloaded and saved chunk
+     *
+     * @param assignment finished assignment
+     * @param bytes      size of the chunk data
+     * @param nanos      time spent to download the chunk
+     * @return true when chunk was saved first time, false when it was already saved by the other peer
+     */
+    boolean saved(Assignment<P> assignment, long bytes, long nanos) {
+        lock.lock();
+        try {
+            PeerStats stats = finish(assignment);
+            stats.consecutiveErrors = 0;
+            stats.chunks++;
+            double throughput = (double) bytes * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1);
+            stats.throughput = stats.chunks == 1 ? throughput
+                : stats.throughput * (1 - THROUGHPUT_WEIGHT) + throughput * THROUGHPUT_WEIGHT;
+            FileChunkInfo chunk = assignment.chunk;
+            if (chunk.present == FileChunkState.SAVED) {
+                return false;
+            }
+            chunk.present = FileChunkState.SAVED;
+            savedCount++;
+            return true;
+        } finally {
+            changed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Account failed chunk download, chunk will be assigned again unless it is downloaded by another peer
+     *
+     * @param assignment failed assignment
+     */
+    void failed(Assignment<P> assignment) {
+        lock.lock();
+        try {
+            PeerStats stats = finish(assignment);
+            stats.consecutiveErrors++;
+            stats.errors++;
+            FileChunkInfo chunk = assignment.chunk;
+            if (chunk.present == FileChunkState.SAVED) {
+                return;
+            }
+            chunk.failedAttempts++;
+            if (chunk.failedAttempts >= maxChunkAttempts) {
+                //Seems that no peer has this chunk, we should finish
+                log.debug("Chunk {} download failed {} times", chunk.chunkId, chunk.failedAttempts);
+                failed = true;
+            } else if (!inFlight.containsKey(chunk)) {
+                chunk.present = FileChunkState.PRESENT_IN_PEER;
+            }
+        } finally {
+            changed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    boolean isComplete() {
+        lock.lock();
+        try {
+            return savedCount == chunks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "FileChunkScheduler{saved=" + savedCount + "/" + chunks.size() + ", failed=" + failed + ", peers=" + peers + "}";
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isFinished() {
+        return failed || savedCount == chunks.size();
+    }
+
+    private Assignment<P> assign() {
+        for (FileChunkInfo chunk : chunks) {
+            if (chunk.present.ordinal() < FileChunkState.DOWNLOAD_IN_PROGRESS.ordinal()) {
+                P peer = selectPeer(List.of());
+                return peer == null ? null : start(chunk, peer);
+            }
+        }
+        // endgame: duplicate the oldest single downloads to the other peers
+        Assignment<P> oldest = null;
+        for (List<Assignment<P>> assignments : inFlight.values()) {
+            if (assignments.size() == 1) {
+                Assignment<P> assignment = assignments.get(0);
+                if (oldest == null || assignment.startTime < oldest.startTime) {
+                    oldest = assignment;
+                }
+            }
+        }
+        if (oldest != null) {
+            P peer = selectPeer(List.of(oldest.peer));
+            if (peer != null) {
+                log.trace("Request chunk {} again from another peer", oldest.chunk.chunkId);
+                return start(oldest.chunk, peer);
+            }
+        }
+        return null;
+    }
+
+    private P selectPeer(List<P> excluded) {
+        double maxThroughput = peers.values().stream().mapToDouble(stats -> stats.throughput).max().orElse(0);
+        P selected = null;
+        double selectedScore = -1;
+        for (Map.Entry<P, PeerStats> entry : peers.entrySet()) {
+            PeerStats stats = entry.getValue();
+            if (excluded.contains(entry.getKey()) || stats.inFlight >= stats.maxInFlight(maxThroughput)) {
+                continue;
+            }
+            // not measured peers go first to be measured, then the fastest peer with the least chunks in flight
+            double score = stats.chunks == 0 ? Double.MAX_VALUE : stats.throughput / (stats.inFlight + 1);
+            if (score > selectedScore) {
+                selected = entry.getKey();
+                selectedScore = score;
+            }
+        }
+        return selected;
+    }
+
+    private Assignment<P> start(FileChunkInfo chunk, P peer) {
+        Assignment<P> assignment = new Assignment<>(chunk, peer, System.nanoTime());
+        chunk.present = FileChunkState.DOWNLOAD_IN_PROGRESS;
+        inFlight.computeIfAbsent(chunk, c -> new ArrayList<>(2)).add(assignment);
+        peers.get(peer).inFlight++;
+        return assignment;
+    }
+
+    private PeerStats finish(Assignment<P> assignment) {
+        List<Assignment<P>> assignments = inFlight.get(assignment.chunk);
+        if (assignments != null) {
+            assignments.remove(assignment);
+            if (assignments.isEmpty()) {
+                inFlight.remove(assignment.chunk);
+            }
+        }
+        PeerStats stats = peers.get(assignment.peer);
+        stats.inFlight--;
+        return stats;
+    }
+
+    static final class Assignment<P> {
+        private final FileChunkInfo chunk;
+        private final P peer;
+        private final long startTime;
+
+        private Assignment(FileChunkInfo chunk, P peer, long startTime) {
+            this.chunk = chunk;
+            this.peer = peer;
+            this.startTime = startTime;
+        }
+
+        FileChunkInfo getChunk() {
+            return chunk;
+        }
+
+        P getPeer() {
+            return peer;
+        }
+    }
+
+    private static final class PeerStats {
+        private int inFlight;
+        private int chunks;
+        private int errors;
+        private int consecutiveErrors;
+        /**
+         * Average download throughput in bytes per second
+         */
+        private double throughput;
+
+        private boolean isUsable() {
+            return consecutiveErrors < MAX_PEER_ERRORS;
+        }
+
+        private int maxInFlight(double maxThroughput) {
+            if (!isUsable()) {
+                return 0;
+            }
+            if (chunks == 0 || maxThroughput <= 0) {
+                return 1;
+            }
+            long slots = Math.round(MAX_IN_FLIGHT_PER_PEER * throughput / maxThroughput);
+            return (int) Math.max(1, Math.min(MAX_IN_FLIGHT_PER_PEER, slots));
+        }
+
+        @Override
+        public String toString() {
+            return "{chunks=" + chunks + ", errors=" + errors + ", throughput=" + (long) throughput + " B/s}";
+        }
+    }
+}
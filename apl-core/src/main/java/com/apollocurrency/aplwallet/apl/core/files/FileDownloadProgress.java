@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+package com.apollocurrency.aplwallet.apl.core.files;
+
+import com.apollocurrency.aplwallet.api.p2p.FileDownloadInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Saved chunks of the file being downloaded, kept in the file next to the downloaded one,
+ * so the interrupted download continues from the saved chunks instead of the beginning.
+ * <p>Progress file contains the expected file hash, number of chunks and base64 encoded bit set of the saved chunk ids,
+ * progress of the other file version is ignored.</p>
+ */
+@Slf4j
+class FileDownloadProgress {
+    static final String SUFFIX = ".chunks";
+    /**
+     * Number of the saved chunks after which progress is written to the disk
+     */
+    private static final int FLUSH_INTERVAL = 32;
+
+    private final Path path;
+    private final String hash;
+    private final int chunksCount;
+    private final BitSet saved;
+    private int notFlushed;
+
+    private FileDownloadProgress(Path path, String hash, int chunksCount, BitSet saved) {
+        this.path = path;
+        this.hash = hash;
+        this.chunksCount = chunksCount;
+        this.saved = saved;
+    }
+
+    static Path progressPath(Path file) {
+        return file.resolveSibling(file.getFileName() + SUFFIX);
+    }
+
+    static boolean exists(Path file) {
+        return Files.exists(progressPath(file));
+    }
+
+    /**
+     * Read progress of the file download
+     *
+     * @param file downloaded file
+     * @param fdi  download info of the file
+     * @return saved progress or empty progress when there is no progress of this file download
+     */
+    static FileDownloadProgress load(Path file, FileDownloadInfo fdi) {
+        Path path = progressPath(file);
+        String hash = fdi.fileInfo.hash;
+        int chunksCount = fdi.chunks.size();
+        BitSet saved = new BitSet(chunksCount);
+        if (Files.exists(path) && Files.exists(file)) {
+            try {
+                List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+                if (lines.size() == 3 && lines.get(0).equalsIgnoreCase(hash) && Integer.parseInt(lines.get(1)) == chunksCount) {
+                    saved = BitSet.valueOf(Base64.getDecoder().decode(lines.get(2)));
+                } else {
+                    log.debug("Progress file {} does not match download of {}", path, hash);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                log.debug("Can not read progress file {}: {}", path, e.toString());
+            }
+        }
+        return new FileDownloadProgress(path, hash, chunksCount, saved);
+    }
+
+    synchronized boolean isSaved(int chunkId) {
+        return saved.get(chunkId);
+    }
+
+    /**
+     * Mark chunk as not saved, when its data on the disk is not valid
+     */
+    synchronized void unsaved(int chunkId) {
+        saved.clear(chunkId);
+    }
+
+    synchronized void saved(int chunkId) {
+        saved.set(chunkId);
+        if (++notFlushed >= FLUSH_INTERVAL) {
+            flush();
+        }
+    }
+
+    synchronized void flush() {
+        notFlushed = 0;
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.write(tmp, List.of(hash, String.valueOf(chunksCount), Base64.getEncoder().encodeToString(saved.toByteArray())),
+                StandardCharsets.UTF_8);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.debug("Can not write progress file {}: {}", path, e.toString());
+        }
+    }
+
+    synchronized void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Can not delete progress file {}: {}", path, e.toString());
+        }
+    }
+}
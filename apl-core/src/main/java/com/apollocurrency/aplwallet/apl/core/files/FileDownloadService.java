@@ -92,6 +92,8 @@ public class FileDownloadService {
             if (fileHashActual.equalsIgnoreCase(hexHashString)) {
                 res = true;
                 log.debug("Good zip hash was computed return '{}'...", res);
+            } else if (FileDownloadProgress.exists(zipInExportedFolder.toPath())) {
+                log.debug("Partially downloaded file '{}' will be resumed", zipInExportedFolder.getAbsolutePath());
             } else {
                 boolean deleteResult = zipInExportedFolder.delete();
                 res = false;
@@ -13,6 +13,7 @@ import com.apollocurrency.aplwallet.apl.core.peer.Peer;
 import com.apollocurrency.aplwallet.apl.core.peer.PeerAddress;
 import com.apollocurrency.aplwallet.apl.core.peer.PeerClient;
 import com.apollocurrency.aplwallet.apl.core.peer.PeersService;
+import com.apollocurrency.aplwallet.apl.util.CheckSum;
 import com.apollocurrency.aplwallet.apl.util.ChunkedFileOps;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -22,24 +23,29 @@ import javax.enterprise.event.Event;
 import javax.enterprise.util.AnnotationLiteral;
 import javax.inject.Inject;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 
 /**
- * This class performs complete file downloading from peers
+ * This class performs complete file downloading from peers.
+ * Chunks are downloaded from all good peers in parallel as scheduled by the {@link FileChunkScheduler},
+ * saved chunks are tracked by the {@link FileDownloadProgress}, so the interrupted download is resumed.
  *
  * @author alukin@gmail.com
  */
@@ -50,7 +56,6 @@ public class FileDownloader {
     public static final int DOWNLOAD_THREADS = 12; //should be enough for good speed
     private final DownloadableFilesManager manager;
     private final AplAppStatus aplAppStatus;
-    private final ReadWriteLock fileChunksLock = new ReentrantReadWriteLock();
     private final AtomicLong lastPercent = new AtomicLong(0L);
     private final Event<FileEventData> fileEvent;
     private final Set<Peer> peers = new HashSet<>();
@@ -97,24 +102,6 @@ public class FileDownloader {
         });
     }
 
-    private FileChunkInfo getNextEmptyChunk() {
-        FileChunkInfo res = null;
-        fileChunksLock.writeLock().lock();
-        try {
-            for (FileChunkInfo fci : status.fileDownloadInfo.chunks) {
-                if (fci.present.ordinal() < FileChunkState.DOWNLOAD_IN_PROGRESS.ordinal()) {
-                    res = fci;
-                    fci.present = FileChunkState.DOWNLOAD_IN_PROGRESS;
-                    log.trace("getNextEmptyChunk(): state: {}", fci.present);
-                    break;
-                }
-            }
-        } finally {
-            fileChunksLock.writeLock().unlock();
-        }
-        return res;
-    }
-
     //TODO: change to more general signal, not shard
     private void signalFinishedOK() {
         log.debug("signaling finished fileID = {}", fileID);
@@ -142,82 +129,93 @@ public class FileDownloader {
         this.aplAppStatus.durableTaskFinished(this.taskId, true, "File downloading failed: " + fileID);
     }
 
-    private void setFileChunkState(FileChunkState state, FileChunkInfo fci) {
-        fileChunksLock.writeLock().lock();
-        try {
-            fci.present = state;
-            //setting this state means download of chunk failed
-            if (state == FileChunkState.PRESENT_IN_PEER) {
-                fci.failedAttempts++;
+    /**
+     * Mark chunks saved by the interrupted download, which data on the disk is still valid
+     *
+     * @return number of the chunks which should not be downloaded again
+     */
+    private int resumeChunks(FileDownloadProgress progress, Path filePath) {
+        if (!Files.exists(filePath)) {
+            return 0;
+        }
+        int resumed = 0;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            for (FileChunkInfo fci : status.fileDownloadInfo.chunks) {
+                if (progress.isSaved(fci.chunkId)) {
+                    ByteBuffer data = ByteBuffer.allocate(fci.size.intValue());
+                    int count = 0;
+                    while (data.hasRemaining() && count >= 0) {
+                        count = channel.read(data, fci.offset + data.position());
+                    }
+                    CheckSum checkSum = new CheckSum();
+                    checkSum.update(data.array());
+                    if (!data.hasRemaining() && checkSum.finish() == fci.crc) {
+                        fci.present = FileChunkState.SAVED;
+                        resumed++;
+                    } else {
+                        progress.unsaved(fci.chunkId);
+                    }
+                }
             }
-        } finally {
-            fileChunksLock.writeLock().unlock();
+        } catch (IOException ex) {
+            log.debug("Can not resume download of {}: {}", fileID, ex.toString());
         }
+        return resumed;
     }
 
-    private boolean downloadAndSaveChunk(FileChunkInfo fci, PeerClient p, ChunkedFileOps fops) {
-        boolean isLast = false;
-        FileChunk fc = p.downloadChunk(fci);
-        if (fc != null) {
-            byte[] data = Base64.getDecoder().decode(fc.mime64data);
+    private void doDownload(FileChunkScheduler<PeerClient> scheduler, ChunkedFileOps fops, FileDownloadProgress progress)
+        throws InterruptedException {
+        FileChunkScheduler.Assignment<PeerClient> assignment;
+        while ((assignment = scheduler.next()) != null) {
+            FileChunkInfo fci = assignment.getChunk();
+            long startTime = System.nanoTime();
+            FileChunk fc = assignment.getPeer().downloadChunk(fci);
+            if (fc == null) {
+                log.debug("Failed to download chunk: {} from peer {}", fci.chunkId, assignment.getPeer().gePeer().getHost());
+                scheduler.failed(assignment); //well, it exists anyway on some peer
+                continue;
+            }
             try {
-                fops.writeChunk(fc.info.offset, data, fc.info.crc);
-                setFileChunkState(FileChunkState.SAVED, fci);
-                status.chunksReady.incrementAndGet();
-                //is the very last chunk succeed?
-                if (status.chunksReady.get() >= status.fileDownloadInfo.chunks.size() - 1) {
-                    isLast = true;
+                byte[] data = Base64.getDecoder().decode(fc.mime64data);
+                // check against crc of the download info, not the one sent by peer
+                fops.writeChunk(fci.offset, data, fci.crc);
+                if (scheduler.saved(assignment, data.length, System.nanoTime() - startTime)) {
+                    status.chunksReady.incrementAndGet();
+                    progress.saved(fci.chunkId);
+                    updateProgress();
                 }
-            } catch (IOException ex) {
-                log.debug("Failed to download or save chunk: {} \n exception: {}", fci.chunkId, ex);
-                setFileChunkState(FileChunkState.PRESENT_IN_PEER, fci); // may be next time we'll get it right
+            } catch (IOException | IllegalArgumentException ex) {
+                log.debug("Failed to save chunk: {} \n exception: {}", fci.chunkId, ex);
+                scheduler.failed(assignment); // may be next time we'll get it right
             }
-        } else {
-            log.debug("Failed to download or save chunk: {}", fci.chunkId);
-            setFileChunkState(FileChunkState.PRESENT_IN_PEER, fci);  //well, it exists anyway on some peer
-        }
-        if (fci.failedAttempts >= DOWNLOAD_THREADS * 2) {
-            //Seems that no peer has this chunk, we should finish
-            isLast = true;
         }
-        return isLast;
     }
 
-    private boolean doPeerDownload(PeerClient p) throws IOException {
-        boolean res = true;
-        FileChunkInfo fci;
-        ChunkedFileOps fops = new ChunkedFileOps(manager.mapFileIdToLocalPath(fileID));
-        while ((fci = getNextEmptyChunk()) != null) {
-            boolean isLast = downloadAndSaveChunk(fci, p, fops);
-            if (fci.present == FileChunkState.SAVED) {
-                long percent = Math.round(status.getPercentCompleted());
-                if (lastPercent.get() + 5 < percent) {
-                    lastPercent.set(percent);
-                    aplAppStatus.durableTaskUpdate(this.taskId, status.getPercentCompleted(), "File downloading: " + this.fileID + "...");
-                }
-            }
-            if (isLast) {
-                break;
-            }
+    private void updateProgress() {
+        long percent = Math.round(status.getPercentCompleted());
+        if (lastPercent.get() + 5 < percent) {
+            lastPercent.set(percent);
+            aplAppStatus.durableTaskUpdate(this.taskId, status.getPercentCompleted(), "File downloading: " + this.fileID + "...");
         }
-        log.debug("doPeerDownload() for peer {} finished", p.gePeer().getAnnouncedAddress());
-        return res;
     }
 
     public FileDownloadStatus download() {
-        int peerCount = 0;
-        for (Peer p : peers) {
-            Future<Boolean> dn_res = executor.submit(new Callable<Boolean>() {
-                @Override
-                public Boolean call() throws Exception {
-                    return doPeerDownload(new PeerClient(p));
-                }
-            });
-            runningDownloaders.add(dn_res);
-            peerCount++;
-            if (peerCount > DOWNLOAD_THREADS) {
-                break;
-            }
+        Path filePath = manager.mapFileIdToLocalPath(fileID);
+        FileDownloadProgress progress = FileDownloadProgress.load(filePath, status.fileDownloadInfo);
+        int resumed = resumeChunks(progress, filePath);
+        if (resumed > 0) {
+            log.info("Resuming download of {}, {} of {} chunks are already saved", fileID, resumed, status.fileDownloadInfo.chunks.size());
+        }
+        status.chunksReady.set(resumed);
+        ChunkedFileOps fops = new ChunkedFileOps(filePath);
+        List<PeerClient> clients = peers.stream().filter(Objects::nonNull).map(PeerClient::new).collect(Collectors.toList());
+        FileChunkScheduler<PeerClient> scheduler = new FileChunkScheduler<>(status.fileDownloadInfo.chunks, clients, DOWNLOAD_THREADS * 2);
+        int threads = Math.min(DOWNLOAD_THREADS, clients.size() * FileChunkScheduler.MAX_IN_FLIGHT_PER_PEER);
+        for (int i = 0; i < threads; i++) {
+            runningDownloaders.add(executor.submit(() -> {
+                doDownload(scheduler, fops, progress);
+                return true;
+            }));
         }
         //it is not important that some task fails, other trasks should do the job
         for (Future<Boolean> dn_task : runningDownloaders) {
@@ -231,10 +229,13 @@ public class FileDownloader {
                 log.debug("Some subtask of file downloader has failed", ex);
             }
         }
+        runningDownloaders.clear();
+        log.debug("File {} download finished: {}", fileID, scheduler);
         int chunksTotal = status.getChunksTotal().get();
         int chunksReady = status.getChunksReady().get();
         boolean allOk = chunksReady >= chunksTotal;
         if (allOk) {
+            progress.delete();
             FileDownloadInfo fdi = manager.updateFileDownloadInfo(fileID);
             if (fdi.fileInfo.hash.equalsIgnoreCase(status.fileDownloadInfo.fileInfo.hash)) {
                 signalFinishedOK();
@@ -242,6 +243,7 @@ public class FileDownloader {
                 signalFailed("File downloading final hash check failed: " + fileID);
             }
         } else {
+            progress.flush();
             signalFailed("File downloading failed, not all chunks: " + fileID);
         }
         return status;
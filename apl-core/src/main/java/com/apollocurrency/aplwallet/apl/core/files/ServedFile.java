@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+package com.apollocurrency.aplwallet.apl.core.files;
+
+import com.apollocurrency.aplwallet.api.p2p.FileChunkInfo;
+import com.apollocurrency.aplwallet.apl.util.CheckSum;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Downloadable file opened for serving its chunks to the peers.
+ * <p>File channel is kept open between the requests and is read by the positional reads, so concurrent
+ * requests do not interfere. CRCs of the chunks are taken from the file download info, so chunks requested
+ * at the regular offsets are not checksummed again.</p>
+ *
+ * @see DownloadableFilesManager#getServedFile(String)
+ */
+public class ServedFile implements Closeable {
+    @Getter
+    private final String fileId;
+    @Getter
+    private final Path path;
+    private final FileChannel channel;
+    /**
+     * Chunks of the file download info by offset
+     */
+    private final Map<Long, FileChunkInfo> chunks = new HashMap<>();
+    private final LongAdder servedChunks = new LongAdder();
+    private final LongAdder servedBytes = new LongAdder();
+    private final LongAdder servingNanos = new LongAdder();
+
+    ServedFile(String fileId, Path path, List<FileChunkInfo> chunks) throws IOException {
+        this.fileId = fileId;
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        chunks.forEach(chunk -> this.chunks.put(chunk.offset, chunk));
+    }
+
+    /**
+     * Read file data starting at the offset
+     *
+     * @param offset file position
+     * @param data   buffer to fill
+     * @return number of bytes read, less than the buffer size when the end of file is reached
+     * @throws IOException when file can not be read or was closed
+     */
+    public int read(long offset, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position);
+            if (count < 0) {
+                break;
+            }
+            position += count;
+        }
+        return buffer.position();
+    }
+
+    /**
+     * @return current size of the file
+     * @throws IOException when file size can not be read or file was closed
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * @param offset file position of the data
+     * @param data   chunk data
+     * @return precomputed CRC when data is the whole chunk of the file download info, otherwise calculated CRC
+     */
+    public long getCrc(long offset, byte[] data) {
+        FileChunkInfo chunk = chunks.get(offset);
+        if (chunk != null && chunk.size != null && chunk.size == data.length) {
+            return chunk.crc;
+        }
+        CheckSum checkSum = new CheckSum();
+        checkSum.update(data);
+        return checkSum.finish();
+    }
+
+    /**
+     * Account the served chunk
+     *
+     * @param bytes size of the chunk data
+     * @param nanos time spent to read and encode the chunk
+     */
+    public void served(long bytes, long nanos) {
+        servedChunks.increment();
+        servedBytes.add(bytes);
+        servingNanos.add(nanos);
+    }
+
+    public long getServedChunks() {
+        return servedChunks.sum();
+    }
+
+    public long getServedBytes() {
+        return servedBytes.sum();
+    }
+
+    /**
+     * @return bytes per second of the time spent on serving the chunks
+     */
+    public long getThroughput() {
+        long nanos = servingNanos.sum();
+        return nanos == 0 ? 0 : (long) ((double) servedBytes.sum() * TimeUnit.SECONDS.toNanos(1) / nanos);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ServedFile{fileId='" + fileId + "', chunks=" + getServedChunks() + ", bytes=" + getServedBytes()
+            + ", throughput=" + getThroughput() + " B/s}";
+    }
+}
@@ -391,6 +391,7 @@ public enum APIEnum {
     @Deprecated CONFIRM_2FA("confirm2FA", new Confirm2FA()),
     GET_GENESIS_BALANCES("getGenesisBalances", new GetGenesisBalances()),
     @Deprecated DELETE_KEY("deleteKey", new DeleteKey()),
+    GET_LOCK_METRICS("getLockMetrics", new GetLockMetrics()),
     ;
     private static final Map<String, APIEnum> apiByName = new HashMap<>();
 
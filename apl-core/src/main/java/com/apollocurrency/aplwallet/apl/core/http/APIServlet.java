@@ -186,38 +186,39 @@ public final class APIServlet extends HttpServlet {
                 HttpParameterParserUtil.getUnsignedLong(req, "requireBlock", false) : 0;
             final long requireLastBlockId = apiRequestHandler.allowRequiredBlockParameters() ?
                 HttpParameterParserUtil.getUnsignedLong(req, "requireLastBlock", false) : 0;
-            if (requireBlockId != 0 || requireLastBlockId != 0) {
-                globalSync.readLock();
-            }
-            try {
-//                TransactionalDataSource dataSource = databaseManager.getDataSource();
-                try {
-//                    if (apiRequestHandler.startDbTransaction()) {
-//                        dataSource.begin();
-//                    }
-                    if (requireBlockId != 0 && !blockchain.hasBlock(requireBlockId)) {
-                        response = REQUIRED_BLOCK_NOT_FOUND;
-                        return;
-                    }
-                    if (requireLastBlockId != 0 && requireLastBlockId != blockchain.getLastBlock().getId()) {
-                        response = REQUIRED_LAST_BLOCK_NOT_FOUND;
-                        return;
+            if (requireBlockId == 0 && requireLastBlockId == 0) {
+                response = apiRequestHandler.processRequest(req, resp);
+            } else if (apiRequestHandler.allowOptimisticRead()) {
+                // do not block request processing by the block push, repeat request under the read lock,
+                // when blockchain was changed during the request processing
+                long stamp = globalSync.tryOptimisticRead();
+                response = null;
+                if (stamp != 0) {
+                    try {
+                        response = processRequiredBlockRequest(apiRequestHandler, req, resp, requireBlockId, requireLastBlockId);
+                    } catch (AplException | RuntimeException e) {
+                        if (globalSync.validate(stamp)) {
+                            throw e;
+                        }
                     }
-                    response = apiRequestHandler.processRequest(req, resp);
-                    logRequestTime = apiRequestHandler.logRequestTime();
-                    if (requireLastBlockId == 0 && requireBlockId != 0 && response instanceof JSONObject) {
-                        ((JSONObject) response).put("lastBlock", blockchain.getLastBlock().getStringId());
+                }
+                if (!globalSync.validate(stamp)) {
+                    globalSync.readLock();
+                    try {
+                        response = processRequiredBlockRequest(apiRequestHandler, req, resp, requireBlockId, requireLastBlockId);
+                    } finally {
+                        globalSync.readUnlock();
                     }
-                } finally {
-//                    if (apiRequestHandler.startDbTransaction()) {
-//                        dataSource.commit(true);
-//                    }
                 }
-            } finally {
-                if (requireBlockId != 0 || requireLastBlockId != 0) {
+            } else {
+                globalSync.readLock();
+                try {
+                    response = processRequiredBlockRequest(apiRequestHandler, req, resp, requireBlockId, requireLastBlockId);
+                } finally {
                     globalSync.readUnlock();
                 }
             }
+            logRequestTime = apiRequestHandler.logRequestTime();
         } catch (ParameterException e) {
             response = e.getErrorResponse();
         } catch (BlockNotFoundException e) {
@@ -255,4 +256,19 @@ public final class APIServlet extends HttpServlet {
 
     }
 
-}
+    private JSONStreamAware processRequiredBlockRequest(AbstractAPIRequestHandler apiRequestHandler, HttpServletRequest req,
+                                                        HttpServletResponse resp, long requireBlockId, long requireLastBlockId) throws AplException {
+        if (requireBlockId != 0 && !blockchain.hasBlock(requireBlockId)) {
+            return REQUIRED_BLOCK_NOT_FOUND;
+        }
+        if (requireLastBlockId != 0 && requireLastBlockId != blockchain.getLastBlock().getId()) {
+            return REQUIRED_LAST_BLOCK_NOT_FOUND;
+        }
+        JSONStreamAware response = apiRequestHandler.processRequest(req, resp);
+        if (requireLastBlockId == 0 && response instanceof JSONObject) {
+            ((JSONObject) response).put("lastBlock", blockchain.getLastBlock().getStringId());
+        }
+        return response;
+    }
+
+}
\ No newline at end of file
@@ -228,6 +228,15 @@ public abstract class AbstractAPIRequestHandler {
         return true;
     }
 
+    /**
+     * Request with the required block parameters is processed without the global read lock and repeated under the lock,
+     * when blockchain was changed during the processing. Disabled by default, should be enabled only for requests, which
+     * only read the blockchain state: no db writes, no peer requests and no direct writes to the servlet response.
+     */
+    protected boolean allowOptimisticRead() {
+        return false;
+    }
+
     protected boolean requireBlockchain() {
         return true;
     }
@@ -669,6 +669,8 @@ public final class JSONData {
         json.put("weight", peer.getWeight());
         json.put("downloadedVolume", peer.getDownloadedVolume());
         json.put("uploadedVolume", peer.getUploadedVolume());
+        json.put("encodingTime", peer.getEncodingTime());
+        json.put("decodingTime", peer.getDecodingTime());
         json.put("application", peer.getApplication());
         json.put("version", peer.getVersion());
         json.put("platform", peer.getPlatform());
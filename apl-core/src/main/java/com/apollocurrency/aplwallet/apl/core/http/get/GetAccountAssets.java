@@ -67,4 +67,8 @@ public final class GetAccountAssets extends AbstractAPIRequestHandler {
         }
     }
 
+    @Override
+    protected boolean allowOptimisticRead() {
+        return true;
+    }
 }
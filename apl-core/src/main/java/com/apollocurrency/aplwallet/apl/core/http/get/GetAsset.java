@@ -41,4 +41,8 @@ public final class GetAsset extends AbstractAPIRequestHandler {
         return JSONData.asset(HttpParameterParserUtil.getAsset(req), includeCounts);
     }
 
+    @Override
+    protected boolean allowOptimisticRead() {
+        return true;
+    }
 }
@@ -50,4 +50,8 @@ public final class GetBalance extends AbstractAPIRequestHandler {
         return JSONData.accountBalance(account, includeEffectiveBalance, height);
     }
 
+    @Override
+    protected boolean allowOptimisticRead() {
+        return true;
+    }
 }
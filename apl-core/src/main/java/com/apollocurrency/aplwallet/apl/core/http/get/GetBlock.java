@@ -93,4 +93,8 @@ public final class GetBlock extends AbstractAPIRequestHandler {
 
     }
 
+    @Override
+    protected boolean allowOptimisticRead() {
+        return true;
+    }
 }
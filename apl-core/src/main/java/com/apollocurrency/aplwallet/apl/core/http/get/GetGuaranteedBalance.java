@@ -56,4 +56,8 @@ public final class GetGuaranteedBalance extends AbstractAPIRequestHandler {
         return response;
     }
 
+    @Override
+    protected boolean allowOptimisticRead() {
+        return true;
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.http.get;
+
+import com.apollocurrency.aplwallet.apl.core.app.GlobalSyncImpl;
+import com.apollocurrency.aplwallet.apl.core.app.LockMetrics;
+import com.apollocurrency.aplwallet.apl.core.http.APITag;
+import com.apollocurrency.aplwallet.apl.core.http.AbstractAPIRequestHandler;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
+
+import javax.enterprise.inject.Vetoed;
+import javax.enterprise.inject.spi.CDI;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * <p>The GetLockMetrics API will return wait and hold time of the global blockchain lock
+ * per lock mode and call site, collected when lock metrics are enabled.</p>
+ *
+ * <p>Request parameters:</p>
+ * <ul>
+ * <li>enable - Enable (true) or disable (false) lock metrics collection, optional</li>
+ * <li>reset  - Reset collected metrics after returning them, optional</li>
+ * </ul>
+ *
+ * <p>Response parameters:</p>
+ * <ul>
+ * <li>enabled               - TRUE if lock metrics are collected</li>
+ * <li>optimisticReads       - Number of optimistic reads</li>
+ * <li>failedOptimisticReads - Number of optimistic reads repeated under the read lock</li>
+ * <li>sites                 - An array of call site metrics sorted by the total hold time</li>
+ * </ul>
+ */
+@Vetoed
+public final class GetLockMetrics extends AbstractAPIRequestHandler {
+
+    public GetLockMetrics() {
+        super(new APITag[]{APITag.DEBUG}, "enable", "reset");
+    }
+
+    @Override
+    public JSONStreamAware processRequest(HttpServletRequest req) {
+        GlobalSyncImpl globalSync = CDI.current().select(GlobalSyncImpl.class).get();
+        String enable = req.getParameter("enable");
+        if (enable != null) {
+            globalSync.setMetricsEnabled(Boolean.parseBoolean(enable));
+        }
+        JSONArray sitesJSON = new JSONArray();
+        for (LockMetrics.SiteMetrics metrics : globalSync.getLockMetrics()) {
+            JSONObject siteJSON = new JSONObject();
+            siteJSON.put("site", metrics.getSite());
+            siteJSON.put("count", metrics.getCount());
+            siteJSON.put("totalWaitMicros", metrics.getTotalWaitNanos() / 1000);
+            siteJSON.put("maxWaitMicros", metrics.getMaxWaitNanos() / 1000);
+            siteJSON.put("totalHoldMicros", metrics.getTotalHoldNanos() / 1000);
+            siteJSON.put("maxHoldMicros", metrics.getMaxHoldNanos() / 1000);
+            sitesJSON.add(siteJSON);
+        }
+        JSONObject response = new JSONObject();
+        response.put("enabled", globalSync.isMetricsEnabled());
+        response.put("optimisticReads", globalSync.getOptimisticReads());
+        response.put("failedOptimisticReads", globalSync.getFailedOptimisticReads());
+        response.put("sites", sitesJSON);
+        if ("true".equalsIgnoreCase(req.getParameter("reset"))) {
+            globalSync.resetMetrics();
+        }
+        return response;
+    }
+
+    @Override
+    protected boolean requirePassword() {
+        return true;
+    }
+
+    @Override
+    protected boolean allowRequiredBlockParameters() {
+        return false;
+    }
+
+    @Override
+    protected boolean requireBlockchain() {
+        return false;
+    }
+}
@@ -84,4 +84,8 @@ public final class GetTransaction extends AbstractAPIRequestHandler {
 
     }
 
+    @Override
+    protected boolean allowOptimisticRead() {
+        return true;
+    }
 }
@@ -21,7 +21,6 @@
 package com.apollocurrency.aplwallet.apl.core.http.get;
 
 import com.apollocurrency.aplwallet.apl.core.app.Transaction;
-import com.apollocurrency.aplwallet.apl.core.db.DbIterator;
 import com.apollocurrency.aplwallet.apl.core.db.FilteringIterator;
 import com.apollocurrency.aplwallet.apl.core.http.APITag;
 import com.apollocurrency.aplwallet.apl.core.http.AbstractAPIRequestHandler;
@@ -52,15 +51,12 @@ public final class GetUnconfirmedTransactionIds extends AbstractAPIRequestHandle
 
         JSONArray transactionIds = new JSONArray();
         if (accountIds.isEmpty()) {
-            try (DbIterator<? extends Transaction> transactionsIterator = lookupTransactionProcessor().getAllUnconfirmedTransactions(firstIndex, lastIndex)) {
-                while (transactionsIterator.hasNext()) {
-                    Transaction transaction = transactionsIterator.next();
-                    transactionIds.add(transaction.getStringId());
-                }
+            for (Transaction transaction : lookupTransactionProcessor().getAllUnconfirmedTransactions(firstIndex, lastIndex)) {
+                transactionIds.add(transaction.getStringId());
             }
         } else {
             try (FilteringIterator<? extends Transaction> transactionsIterator = new FilteringIterator<>(
-                lookupTransactionProcessor().getAllUnconfirmedTransactions(0, -1),
+                lookupTransactionProcessor().getAllUnconfirmedTransactions().iterator(),
                 transaction -> accountIds.contains(transaction.getSenderId()) || accountIds.contains(transaction.getRecipientId()),
                 firstIndex, lastIndex)) {
                 while (transactionsIterator.hasNext()) {
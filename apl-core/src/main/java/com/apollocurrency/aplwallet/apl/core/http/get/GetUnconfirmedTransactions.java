@@ -54,7 +54,7 @@ public final class GetUnconfirmedTransactions extends AbstractAPIRequestHandler
         JSONArray transactions = new JSONArray();
         if (accountIds.isEmpty()) {
             try (FilteringIterator<? extends Transaction> transactionsIterator = new FilteringIterator<>(
-                lookupTransactionProcessor().getAllUnconfirmedTransactions(0, -1),
+                lookupTransactionProcessor().getAllUnconfirmedTransactions().iterator(),
                 transaction -> transaction.getType() != Payment.PRIVATE,
                 firstIndex, lastIndex)) {
                 while (transactionsIterator.hasNext()) {
@@ -64,7 +64,7 @@ public final class GetUnconfirmedTransactions extends AbstractAPIRequestHandler
             }
         } else {
             try (FilteringIterator<? extends Transaction> transactionsIterator = new FilteringIterator<>(
-                lookupTransactionProcessor().getAllUnconfirmedTransactions(0, -1),
+                lookupTransactionProcessor().getAllUnconfirmedTransactions().iterator(),
                 transaction -> transaction.getType() != Payment.PRIVATE && (accountIds.contains(transaction.getSenderId()) ||
                     accountIds.contains(transaction.getRecipientId())),
                 firstIndex, lastIndex)) {
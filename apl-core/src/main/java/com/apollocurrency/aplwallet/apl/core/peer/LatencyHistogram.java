@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of the request processing time with the fixed millisecond buckets.
+ * Percentiles are reported as the upper bound of the bucket, which contains them.
+ */
+public class LatencyHistogram {
+    /**
+     * Upper bounds (inclusive) of the buckets in milliseconds, the last bucket holds all longer durations
+     */
+    public static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && ms > BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMs() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / n;
+    }
+
+    public long getMaxMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+    }
+
+    /**
+     * @return number of durations in each bucket of {@link #BUCKET_BOUNDS_MS} and in the last unbounded bucket
+     */
+    public long[] getBuckets() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @param percentile percentile from 0 to 100
+     * @return upper bound of the bucket containing percentile or max duration for the last bucket, 0 when empty
+     */
+    public long getPercentileMs(double percentile) {
+        long[] counts = getBuckets();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return BUCKET_BOUNDS_MS[i];
+            }
+        }
+        return getMaxMs();
+    }
+}
@@ -84,6 +84,30 @@ public interface Peer extends Comparable<Peer> {
 
     long getUploadedVolume();
 
+    /**
+     * @return milliseconds spent on writing messages sent to the peer
+     */
+    long getEncodingTime();
+
+    /**
+     * @return milliseconds spent on parsing messages received from the peer
+     */
+    long getDecodingTime();
+
+    /**
+     * Count time spent on encoding of the message data outside of the transport, e.g. binary blocks
+     *
+     * @param nanos encoding time in nanoseconds
+     */
+    void updateEncodingTime(long nanos);
+
+    /**
+     * Count time spent on decoding of the message data outside of the transport, e.g. binary blocks
+     *
+     * @param nanos decoding time in nanoseconds
+     */
+    void updateDecodingTime(long nanos);
+
     int getLastUpdated();
 
     int getLastConnectAttempt();
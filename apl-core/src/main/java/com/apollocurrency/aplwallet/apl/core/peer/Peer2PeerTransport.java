@@ -30,6 +30,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -51,6 +53,11 @@ public class Peer2PeerTransport {
     private final TimeLimiter limiter;
     private volatile long downloadedVolume;
     private volatile long uploadedVolume;
+    /**
+     * Time spent on writing messages sent to the peer and on parsing messages received from the peer
+     */
+    private final LongAdder encodingNanos = new LongAdder();
+    private final LongAdder decodingNanos = new LongAdder();
     private PeerWebSocket inboundWebSocket;
     //this should be final because it is problematic to stop websocket client properly
     private PeerWebSocketClient outboundWebSocket;
@@ -114,6 +121,22 @@ public class Peer2PeerTransport {
         // PeersService.notifyListeners(getPeer(), PeersService.Event.UPLOADED_VOLUME);
     }
 
+    public long getEncodingTime() {
+        return TimeUnit.NANOSECONDS.toMillis(encodingNanos.sum());
+    }
+
+    void updateEncodingTime(long nanos) {
+        encodingNanos.add(nanos);
+    }
+
+    public long getDecodingTime() {
+        return TimeUnit.NANOSECONDS.toMillis(decodingNanos.sum());
+    }
+
+    void updateDecodingTime(long nanos) {
+        decodingNanos.add(nanos);
+    }
+
     public void onIncomingMessage(String message, PeerWebSocket ws, Long rqId) {
         if (rqId == null) {
             log.debug("Protocol error, requestId=null from {}, message:\n{}\n", which(), message);
@@ -195,6 +195,26 @@ public final class PeerImpl implements Peer {
         return p2pTransport.getUploadedVolume();
     }
 
+    @Override
+    public long getEncodingTime() {
+        return p2pTransport.getEncodingTime();
+    }
+
+    @Override
+    public long getDecodingTime() {
+        return p2pTransport.getDecodingTime();
+    }
+
+    @Override
+    public void updateEncodingTime(long nanos) {
+        p2pTransport.updateEncodingTime(nanos);
+    }
+
+    @Override
+    public void updateDecodingTime(long nanos) {
+        p2pTransport.updateDecodingTime(nanos);
+    }
+
     @Override
     public Version getVersion() {
         return version;
@@ -507,12 +527,14 @@ public final class PeerImpl implements Peer {
 
         JSONObject response = null;
         StringWriter wsWriter = new StringWriter(PeersService.MAX_REQUEST_SIZE);
+        long startTime = System.nanoTime();
         try {
             request.writeJSONString(wsWriter);
         } catch (IOException ex) {
             LOG.debug("Can not deserialize request");
             return response;
         }
+        p2pTransport.updateEncodingTime(System.nanoTime() - startTime);
 
         try {
             String rq = wsWriter.toString();
@@ -521,7 +543,9 @@ public final class PeerImpl implements Peer {
                 LOG.trace("Null response from: {}", getHostWithPort());
                 return response;
             }
+            startTime = System.nanoTime();
             response = (JSONObject) JSONValue.parseWithException(resp);
+            p2pTransport.updateDecodingTime(System.nanoTime() - startTime);
             //
             // Check for an error response
             //
@@ -0,0 +1,271 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import com.apollocurrency.aplwallet.apl.util.task.NamedThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes incoming peer requests on the separate thread pools (bulkheads) by the request type,
+ * so the blockchain and file download requests of the syncing peers do not delay propagation of the
+ * new blocks and transactions.
+ * <p>Each pool has the bounded queue and limits the number of queued and running requests of the single peer.
+ * Request is rejected, when its pool is saturated, and the peer should retry it later.</p>
+ * <p>Processing time of the each request type is collected to the {@link LatencyHistogram}.</p>
+ */
+@Slf4j
+@Singleton
+public class PeerRequestExecutor {
+    public static final String QUEUE_SIZE_PROPERTY = "apl.peerRequestQueueSize";
+    public static final String MAX_PER_PEER_PROPERTY = "apl.peerRequestMaxPerPeer";
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_MAX_PER_PEER = 16;
+    private static final long MIN_RETRY_AFTER_MS = 100;
+    private static final long MAX_RETRY_AFTER_MS = 10_000;
+    private static final String REQUEST_TYPE_KEY = "\"requestType\"";
+
+    private final Map<RequestPool, Bulkhead> bulkheads = new EnumMap<>(RequestPool.class);
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final int maxPerPeer;
+
+    @Inject
+    public PeerRequestExecutor(PropertiesHolder propertiesHolder) {
+        this(propertiesHolder.getIntProperty(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE),
+            propertiesHolder.getIntProperty(MAX_PER_PEER_PROPERTY, DEFAULT_MAX_PER_PEER));
+    }
+
+    public PeerRequestExecutor(int queueSize, int maxPerPeer) {
+        if (queueSize <= 0 || maxPerPeer <= 0) {
+            throw new IllegalArgumentException("Queue size and max requests per peer should be positive, got "
+                + queueSize + " and " + maxPerPeer);
+        }
+        this.maxPerPeer = maxPerPeer;
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (RequestPool pool : RequestPool.values()) {
+            bulkheads.put(pool, new Bulkhead(pool, Math.max(2, processors * pool.threadsPerProcessor), queueSize));
+        }
+    }
+
+    /**
+     * Find request type in the raw json request without parsing of the whole request
+     *
+     * @param request peer request json
+     * @return value of the 'requestType' or null, when it is not found
+     */
+    static String extractRequestType(String request) {
+        int key = request.indexOf(REQUEST_TYPE_KEY);
+        if (key < 0) {
+            return null;
+        }
+        int position = skipWhitespaces(request, key + REQUEST_TYPE_KEY.length());
+        if (position >= request.length() || request.charAt(position) != ':') {
+            return null;
+        }
+        position = skipWhitespaces(request, position + 1);
+        if (position >= request.length() || request.charAt(position) != '"') {
+            return null;
+        }
+        int end = request.indexOf('"', position + 1);
+        return end < 0 ? null : request.substring(position + 1, end);
+    }
+
+    private static int skipWhitespaces(String s, int from) {
+        int position = from;
+        while (position < s.length() && Character.isWhitespace(s.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Queue request processing to the pool of the request type
+     *
+     * @param requestType type of the request or null for the unknown type
+     * @param peerKey     identifier of the requesting peer
+     * @param task        request processing
+     * @return true when request is queued, false when it is rejected
+     */
+    public boolean execute(String requestType, String peerKey, Runnable task) {
+        Bulkhead bulkhead = bulkheads.get(RequestPool.of(requestType));
+        if (!bulkhead.acquire(peerKey)) {
+            bulkhead.rejectedPerPeer.increment();
+            log.trace("Reject {} from {}, too many requests of the peer", requestType, peerKey);
+            return false;
+        }
+        long queuedTime = System.nanoTime();
+        try {
+            bulkhead.executor.execute(() -> {
+                bulkhead.waitNanos.add(System.nanoTime() - queuedTime);
+                bulkhead.started.increment();
+                try {
+                    task.run();
+                } finally {
+                    bulkhead.release(peerKey);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            bulkhead.release(peerKey);
+            bulkhead.rejected.increment();
+            log.trace("Reject {} from {}, {} pool is saturated", requestType, peerKey, bulkhead.pool);
+            return false;
+        }
+    }
+
+    /**
+     * @param requestType type of the rejected request
+     * @return estimated time in milliseconds to retry the rejected request
+     */
+    public long getRetryAfterMs(String requestType) {
+        Bulkhead bulkhead = bulkheads.get(RequestPool.of(requestType));
+        LatencyHistogram histogram = latencies.get(String.valueOf(requestType));
+        double meanMs = histogram == null ? 0 : histogram.getMeanMs();
+        long estimate = (long) (bulkhead.executor.getQueue().size() * meanMs / bulkhead.executor.getMaximumPoolSize());
+        return Math.max(MIN_RETRY_AFTER_MS, Math.min(MAX_RETRY_AFTER_MS, estimate));
+    }
+
+    /**
+     * Account processing time of the request
+     *
+     * @param requestType type of the request
+     * @param nanos       processing time
+     */
+    public void recordLatency(String requestType, long nanos) {
+        latencies.computeIfAbsent(requestType, type -> new LatencyHistogram()).record(nanos);
+    }
+
+    public Map<String, LatencyHistogram> getLatencies() {
+        return latencies;
+    }
+
+    public Map<RequestPool, Bulkhead> getBulkheads() {
+        return bulkheads;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(bulkhead -> bulkhead.executor.shutdown());
+    }
+
+    /**
+     * Pools of the peer requests with the similar cost and latency requirements
+     */
+    public enum RequestPool {
+        /**
+         * Propagation of blocks and transactions and cheap peer information requests, also used for the unknown types
+         */
+        PRIORITY(1, Set.of()),
+        /**
+         * Blockchain download requests
+         */
+        SYNC(2, Set.of("getNextBlocks", "getNextBlockIds", "getMilestoneBlockIds", "getTransactions", "getUnconfirmedTransactions")),
+        /**
+         * Shard file download requests
+         */
+        FILES(1, Set.of("getFileChunk", "getFileDownloadInfo", "getShardingInfo"));
+
+        private final int threadsPerProcessor;
+        private final Set<String> requestTypes;
+
+        RequestPool(int threadsPerProcessor, Set<String> requestTypes) {
+            this.threadsPerProcessor = threadsPerProcessor;
+            this.requestTypes = requestTypes;
+        }
+
+        public static RequestPool of(String requestType) {
+            if (requestType != null) {
+                for (RequestPool pool : values()) {
+                    if (pool.requestTypes.contains(requestType)) {
+                        return pool;
+                    }
+                }
+            }
+            return PRIORITY;
+        }
+    }
+
+    /**
+     * Thread pool of the requests with the number of queued and running requests by peer
+     */
+    public final class Bulkhead {
+        private final RequestPool pool;
+        private final ThreadPoolExecutor executor;
+        private final Map<String, Integer> peerRequests = new ConcurrentHashMap<>();
+        private final LongAdder started = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder rejectedPerPeer = new LongAdder();
+
+        private Bulkhead(RequestPool pool, int threads, int queueSize) {
+            this.pool = pool;
+            this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize), new NamedThreadFactory("PeerRequests-" + pool.name()));
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        private boolean acquire(String peerKey) {
+            boolean[] acquired = {false};
+            peerRequests.compute(peerKey, (key, count) -> {
+                int current = count == null ? 0 : count;
+                if (current >= maxPerPeer) {
+                    return count;
+                }
+                acquired[0] = true;
+                return current + 1;
+            });
+            return acquired[0];
+        }
+
+        private void release(String peerKey) {
+            peerRequests.computeIfPresent(peerKey, (key, count) -> count > 1 ? count - 1 : null);
+        }
+
+        public RequestPool getPool() {
+            return pool;
+        }
+
+        public int getThreads() {
+            return executor.getMaximumPoolSize();
+        }
+
+        public int getActive() {
+            return executor.getActiveCount();
+        }
+
+        public int getQueued() {
+            return executor.getQueue().size();
+        }
+
+        public long getCompleted() {
+            return executor.getCompletedTaskCount();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getRejectedPerPeer() {
+            return rejectedPerPeer.sum();
+        }
+
+        public double getMeanWaitMs() {
+            long count = started.sum();
+            return count == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / count;
+        }
+    }
+}
@@ -45,7 +45,6 @@ import com.apollocurrency.aplwallet.apl.core.peer.endpoint.ProcessTransactions;
 import com.apollocurrency.aplwallet.apl.util.CountingInputReader;
 import com.apollocurrency.aplwallet.apl.util.CountingOutputWriter;
 import com.apollocurrency.aplwallet.apl.util.JSON;
-import com.apollocurrency.aplwallet.apl.util.QueuedThreadPool;
 import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
@@ -59,7 +58,6 @@ import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.annotation.PreDestroy;
 import javax.enterprise.inject.spi.CDI;
 import javax.inject.Inject;
 import javax.servlet.ServletException;
@@ -70,7 +68,6 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.channels.ClosedChannelException;
-import java.util.concurrent.ExecutorService;
 
 public final class PeerServlet extends WebSocketServlet {
     private static final Logger LOG = LoggerFactory.getLogger(PeerServlet.class);
@@ -88,16 +85,13 @@ public final class PeerServlet extends WebSocketServlet {
     private DownloadableFilesManager downloadableFilesManager;
     @Inject
     private PeersService peersService;
-
-    private ExecutorService threadPool;
+    @Inject
+    private PeerRequestExecutor requestExecutor;
 
     @Override
     public void init() throws ServletException {
         super.init();
         lookupComponents();
-        threadPool = new QueuedThreadPool(
-            Runtime.getRuntime().availableProcessors(),
-            Runtime.getRuntime().availableProcessors() * 4, "PeersWebsocketThreadPool");
     }
 
     protected void lookupComponents() {
@@ -110,6 +104,7 @@ public final class PeerServlet extends WebSocketServlet {
         if (timeService == null) timeService = CDI.current().select(TimeService.class).get();
         if (propertiesHolder == null) propertiesHolder = CDI.current().select(PropertiesHolder.class).get();
         if (peersService == null) peersService = CDI.current().select(PeersService.class).get();
+        if (requestExecutor == null) requestExecutor = CDI.current().select(PeerRequestExecutor.class).get();
     }
 
     public PeerRequestHandler getHandler(String rtype) {
@@ -235,9 +230,17 @@ public final class PeerServlet extends WebSocketServlet {
     }
 
     void doPostWebSocket(Peer2PeerTransport transport, Long requestId, String request) {
-        threadPool.execute(() -> {
-            doPostTask(transport, requestId, request);
-        });
+        lookupComponents();
+        String requestType = PeerRequestExecutor.extractRequestType(request);
+        Peer peer = transport.getPeer();
+        String peerKey = peer == null ? transport.which() : peer.getHostWithPort();
+        if (!requestExecutor.execute(requestType, peerKey, () -> doPostTask(transport, requestId, request))) {
+            try {
+                transport.send(JSON.toString(PeerResponses.getBusy(requestExecutor.getRetryAfterMs(requestType))), requestId);
+            } catch (RuntimeException e) {
+                LOG.debug("Exception while responding to {}", transport.which(), e);
+            }
+        }
     }
 
     /**
@@ -269,12 +272,14 @@ public final class PeerServlet extends WebSocketServlet {
         // Return the response
         try {
             StringWriter writer = new StringWriter(1000);
+            long startTime = System.nanoTime();
             try {
                 JSON.writeJSONString(jsonResponse, writer);
             } catch (IOException ex) {
                 LOG.debug("Almost impossible error: Can not write to StringWriter", ex);
             }
             String response = writer.toString();
+            transport.updateEncodingTime(System.nanoTime() - startTime);
             transport.send(response, requestId);
             //check if we returned error and should close inbound socket
             if (peer != null) {
@@ -300,7 +305,9 @@ public final class PeerServlet extends WebSocketServlet {
         // Process the request
         //
         try (CountingInputReader cr = new CountingInputReader(inputReader, PeersService.MAX_REQUEST_SIZE)) {
+            long startTime = System.nanoTime();
             JSONObject request = (JSONObject) JSONValue.parseWithException(cr);
+            peer.getP2pTransport().updateDecodingTime(System.nanoTime() - startTime);
             //we have to process errors here because of http requests
             if (peer.processError(request)) {
                 return null;
@@ -349,7 +356,12 @@ public final class PeerServlet extends WebSocketServlet {
                     return PeerResponses.LIGHT_CLIENT;
                 }
             }
-            return peerRequestHandler.processRequest(request, peer);
+            long handlerStartTime = System.nanoTime();
+            try {
+                return peerRequestHandler.processRequest(request, peer);
+            } finally {
+                requestExecutor.recordLatency((String) request.get("requestType"), System.nanoTime() - handlerStartTime);
+            }
         } catch (RuntimeException | ParseException | IOException e) {
             LOG.debug("Error processing POST request, host = '{}', error = {}", peer.getHostWithPort(), e.toString());
             if (!(e instanceof ClosedChannelException)) {
@@ -359,11 +371,6 @@ public final class PeerServlet extends WebSocketServlet {
         }
     }
 
-    @PreDestroy
-    public void shutdown() {
-        threadPool.shutdown();
-    }
-
     /**
      * WebSocket creator for peer connections
      */
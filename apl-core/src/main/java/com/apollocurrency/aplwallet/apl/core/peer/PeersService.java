@@ -98,6 +98,7 @@ public class PeersService {
     public static int maxNumberOfConnectedPublicPeers;
     public static boolean ignorePeerAnnouncedAddress;
     public static boolean hideErrorDetails;
+    public static boolean isBinaryProtocolEnabled;
     public static PeerInfo myPI;
     public static int myPort;
     static int readTimeout;
@@ -231,6 +232,7 @@ public class PeersService {
         useWebSockets = propertiesHolder.getBooleanProperty("apl.useWebSockets");
         webSocketIdleTimeout = propertiesHolder.getIntProperty("apl.webSocketIdleTimeout");
         isGzipEnabled = propertiesHolder.getBooleanProperty("apl.enablePeerServerGZIPFilter");
+        isBinaryProtocolEnabled = propertiesHolder.getBooleanProperty("apl.enablePeerBinaryProtocol", true);
         blacklistingPeriod = propertiesHolder.getIntProperty("apl.blacklistingPeriod") / 1000;
         sendToPeersLimit = propertiesHolder.getIntProperty("apl.sendToPeersLimit");
         usePeersDb = propertiesHolder.getBooleanProperty("apl.usePeersDb") && !propertiesHolder.isOffline();
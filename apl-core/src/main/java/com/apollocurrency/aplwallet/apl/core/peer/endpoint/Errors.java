@@ -40,6 +40,7 @@ public final class Errors {
     public final static String CHAIN_ID_ERROR = "Your peer connected to different chain!";
     public final static String UPDATING = "Peer is updating now.";
     public final static String NO_FILE = "File not found";
+    public final static String BUSY = "Peer is busy, retry later";
 
     private Errors() {
     } // never
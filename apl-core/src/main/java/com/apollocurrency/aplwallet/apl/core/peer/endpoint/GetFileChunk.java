@@ -7,6 +7,7 @@ import com.apollocurrency.aplwallet.api.p2p.FileChunk;
 import com.apollocurrency.aplwallet.api.p2p.FileChunkRequest;
 import com.apollocurrency.aplwallet.api.p2p.FileChunkResponse;
 import com.apollocurrency.aplwallet.apl.core.files.DownloadableFilesManager;
+import com.apollocurrency.aplwallet.apl.core.files.ServedFile;
 import com.apollocurrency.aplwallet.apl.core.peer.Peer;
 import com.apollocurrency.aplwallet.apl.util.ChunkedFileOps;
 import lombok.extern.slf4j.Slf4j;
@@ -15,7 +16,6 @@ import org.json.simple.JSONStreamAware;
 
 import javax.inject.Inject;
 import java.io.IOException;
-import java.nio.file.Path;
 import java.util.Base64;
 
 /**
@@ -23,6 +23,10 @@ import java.util.Base64;
  */
 @Slf4j
 public class GetFileChunk extends PeerRequestHandler {
+    /**
+     * Max size of the requested chunk, peers request chunks of {@link ChunkedFileOps#FILE_CHUNK_SIZE}
+     */
+    private static final long MAX_CHUNK_SIZE = 32L * ChunkedFileOps.FILE_CHUNK_SIZE;
     private DownloadableFilesManager downloadableFilesManager;
 
     @Inject
@@ -36,26 +40,42 @@ public class GetFileChunk extends PeerRequestHandler {
 
         FileChunkRequest fcr = mapper.convertValue(request, FileChunkRequest.class);
         log.debug("FileChunkReq = {}", fcr);
-        Path filePath = downloadableFilesManager.mapFileIdToLocalPath(fcr.fileId);
+        if (fcr.size == null || fcr.size <= 0 || fcr.size > MAX_CHUNK_SIZE) {
+            res.errorCode = -1;
+            res.error = "Invalid chunk size: " + fcr.size;
+            return mapper.convertValue(res, JSONObject.class);
+        }
+        if (fcr.offset == null || fcr.offset < 0) {
+            res.errorCode = -1;
+            res.error = "Invalid chunk offset: " + fcr.offset;
+            return mapper.convertValue(res, JSONObject.class);
+        }
         try {
-            ChunkedFileOps ops = new ChunkedFileOps(filePath.toAbsolutePath());
+            long startTime = System.nanoTime();
+            ServedFile servedFile = downloadableFilesManager.getServedFile(fcr.fileId);
+            if (fcr.offset >= servedFile.size()) {
+                res.errorCode = -1;
+                res.error = "Chunk offset " + fcr.offset + " is out of the file size " + servedFile.size();
+                return mapper.convertValue(res, JSONObject.class);
+            }
             byte[] dataBuf = new byte[fcr.size.intValue()];
-            Integer rres = ops.readChunk(fcr.offset, fcr.size, dataBuf);
+            int rres = servedFile.read(fcr.offset, dataBuf);
             if (rres != fcr.size.intValue()) {
                 res.errorCode = -1;
             }
             FileChunk fc = new FileChunk();
-            fc.info.crc = ops.getLastRDChunkCrc();
+            fc.info.crc = servedFile.getCrc(fcr.offset, dataBuf);
             fc.info.fileId = fcr.fileId;
-            fc.info.size = rres.longValue();
+            fc.info.size = (long) rres;
             fc.info.offset = fcr.offset;
             fc.mime64data = Base64.getEncoder().encodeToString(dataBuf);
             res.chunk = fc;
+            servedFile.served(rres, System.nanoTime() - startTime);
+            log.trace("FileChunkResponse = {}, {}", fc.info, servedFile);
         } catch (IOException ex) {
             log.error("Error reading file with id: " + fcr.fileId, ex);
             res.errorCode = -2;
         }
-        log.trace("FileChunkResponse = {}", res.chunk.info);
         JSONObject response = mapper.convertValue(res, JSONObject.class);
         return response;
 
@@ -20,6 +20,7 @@
 
 package com.apollocurrency.aplwallet.apl.core.peer.endpoint;
 
+import com.apollocurrency.aplwallet.apl.core.app.BinaryWireFormat;
 import com.apollocurrency.aplwallet.apl.core.app.Block;
 import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
 import com.apollocurrency.aplwallet.apl.core.peer.Peer;
@@ -69,8 +70,14 @@ public final class GetNextBlocks extends PeerRequestHandler {
         List<Long> idList = new ArrayList<>();
         stringList.forEach(stringId -> idList.add(Convert.parseUnsignedLong(stringId)));
         blocks = blockchain.getBlocksAfter(blockId, idList);
-        blocks.forEach(block -> nextBlocksArray.add(block.getJSONObject()));
-        response.put("nextBlocks", nextBlocksArray);
+        if (BinaryWireFormat.isAccepted(request)) {
+            long startTime = System.nanoTime();
+            response.put(BinaryWireFormat.NEXT_BLOCKS_KEY, BinaryWireFormat.writeBlocks(blocks));
+            peer.updateEncodingTime(System.nanoTime() - startTime);
+        } else {
+            blocks.forEach(block -> nextBlocksArray.add(block.getJSONObject()));
+            response.put("nextBlocks", nextBlocksArray);
+        }
 
         return response;
     }
@@ -20,6 +20,7 @@
 
 package com.apollocurrency.aplwallet.apl.core.peer.endpoint;
 
+import com.apollocurrency.aplwallet.apl.core.app.BinaryWireFormat;
 import com.apollocurrency.aplwallet.apl.core.app.Transaction;
 import com.apollocurrency.aplwallet.apl.core.peer.Peer;
 import com.apollocurrency.aplwallet.apl.util.JSON;
@@ -29,6 +30,7 @@ import org.json.simple.JSONStreamAware;
 
 import java.util.List;
 import java.util.SortedSet;
+import java.util.stream.Collectors;
 
 public final class GetUnconfirmedTransactions extends PeerRequestHandler {
 
@@ -45,15 +47,22 @@ public final class GetUnconfirmedTransactions extends PeerRequestHandler {
         }
 
         SortedSet<? extends Transaction> transactionSet = lookupTransactionProcessor().getCachedUnconfirmedTransactions(exclude);
-        JSONArray transactionsData = new JSONArray();
-        for (Transaction transaction : transactionSet) {
-            if (transactionsData.size() >= 100) {
-                break;
+        JSONObject response = new JSONObject();
+        if (BinaryWireFormat.isAccepted(request)) {
+            List<? extends Transaction> transactions = transactionSet.stream().limit(100).collect(Collectors.toList());
+            long startTime = System.nanoTime();
+            response.put(BinaryWireFormat.UNCONFIRMED_TRANSACTIONS_KEY, BinaryWireFormat.writeTransactions(transactions));
+            peer.updateEncodingTime(System.nanoTime() - startTime);
+        } else {
+            JSONArray transactionsData = new JSONArray();
+            for (Transaction transaction : transactionSet) {
+                if (transactionsData.size() >= 100) {
+                    break;
+                }
+                transactionsData.add(transaction.getJSONObject());
             }
-            transactionsData.add(transaction.getJSONObject());
+            response.put("unconfirmedTransactions", transactionsData);
         }
-        JSONObject response = new JSONObject();
-        response.put("unconfirmedTransactions", transactionsData);
 
         return response;
     }
@@ -85,6 +85,16 @@ public class PeerResponses {
         return response;
     }
 
+    /**
+     * @param retryAfterMs time in milliseconds after which rejected request can be sent again
+     */
+    public static JSONStreamAware getBusy(long retryAfterMs) {
+        JSONObject response = new JSONObject();
+        response.put("error", Errors.BUSY);
+        response.put("retryAfter", retryAfterMs);
+        return JSON.prepare(response);
+    }
+
     public static JSONStreamAware getBlackisted(String blacklistingCause) {
         JSONObject response = new JSONObject();
         response.put("error", Errors.BLACKLISTED);
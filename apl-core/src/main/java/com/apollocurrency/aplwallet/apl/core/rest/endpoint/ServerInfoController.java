@@ -6,6 +6,7 @@ package com.apollocurrency.aplwallet.apl.core.rest.endpoint;
 import com.apollocurrency.aplwallet.api.dto.info.BlockchainConstantsDto;
 import com.apollocurrency.aplwallet.api.dto.info.BlockchainStateDto;
 import com.apollocurrency.aplwallet.api.dto.info.BlockchainStatusDto;
+import com.apollocurrency.aplwallet.api.dto.info.PeerRequestsDto;
 import com.apollocurrency.aplwallet.api.dto.info.TimeDto;
 import com.apollocurrency.aplwallet.api.dto.info.TotalSupplyDto;
 import com.apollocurrency.aplwallet.apl.core.rest.service.ServerInfoService;
@@ -184,6 +185,28 @@ public class ServerInfoController {
         return response.bind(dto).build();
     }
 
+    @Path("/peer/requests")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(
+        summary = "Returns incoming peer requests statistics",
+        description = "Returns load of the peer request pools and processing time histograms of the peer request handlers",
+        tags = {"info"},
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successful execution",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = PeerRequestsDto.class)))
+        }
+    )
+    @PermitAll
+    public Response peerRequests() {
+        log.trace("Started peer requests");
+        ResponseBuilder response = ResponseBuilder.startTiming();
+        PeerRequestsDto dto = serverInfoService.getPeerRequests();
+        log.trace("peer requests result : {}", dto);
+        return response.bind(dto).build();
+    }
+
     @Path("/blockchain/properties")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
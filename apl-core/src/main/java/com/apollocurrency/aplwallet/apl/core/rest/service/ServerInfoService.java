@@ -10,6 +10,9 @@ import com.apollocurrency.aplwallet.api.dto.info.BlockchainConstantsDto;
 import com.apollocurrency.aplwallet.api.dto.info.BlockchainStateDto;
 import com.apollocurrency.aplwallet.api.dto.info.BlockchainStatusDto;
 import com.apollocurrency.aplwallet.api.dto.info.NameCodeTypeDto;
+import com.apollocurrency.aplwallet.api.dto.info.PeerRequestLatencyDto;
+import com.apollocurrency.aplwallet.api.dto.info.PeerRequestPoolDto;
+import com.apollocurrency.aplwallet.api.dto.info.PeerRequestsDto;
 import com.apollocurrency.aplwallet.api.dto.info.SubTypeDto;
 import com.apollocurrency.aplwallet.api.dto.info.TimeDto;
 import com.apollocurrency.aplwallet.api.dto.info.TotalSupplyDto;
@@ -52,7 +55,9 @@ import com.apollocurrency.aplwallet.apl.core.order.entity.BidOrder;
 import com.apollocurrency.aplwallet.apl.core.order.service.OrderService;
 import com.apollocurrency.aplwallet.apl.core.order.service.qualifier.AskOrderService;
 import com.apollocurrency.aplwallet.apl.core.order.service.qualifier.BidOrderService;
+import com.apollocurrency.aplwallet.apl.core.peer.LatencyHistogram;
 import com.apollocurrency.aplwallet.apl.core.peer.Peer;
+import com.apollocurrency.aplwallet.apl.core.peer.PeerRequestExecutor;
 import com.apollocurrency.aplwallet.apl.core.peer.PeerState;
 import com.apollocurrency.aplwallet.apl.core.peer.PeersService;
 import com.apollocurrency.aplwallet.apl.core.phasing.PhasingPollService;
@@ -71,7 +76,9 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -101,6 +108,7 @@ public class ServerInfoService {
     private final OrderService<AskOrder, ColoredCoinsAskOrderPlacement> askOrderService;
     private final OrderService<BidOrder, ColoredCoinsBidOrderPlacement> bidOrderService;
     private final TradeService tradeService;
+    private final PeerRequestExecutor peerRequestExecutor;
 
     @Inject
     public ServerInfoService(BlockchainConfig blockchainConfig, Blockchain blockchain,
@@ -118,7 +126,8 @@ public class ServerInfoService {
                              AliasService aliasService,
                              @AskOrderService OrderService<AskOrder, ColoredCoinsAskOrderPlacement> askOrderService,
                              @BidOrderService OrderService<BidOrder, ColoredCoinsBidOrderPlacement> bidOrderService,
-                             TradeService tradeService
+                             TradeService tradeService,
+                             PeerRequestExecutor peerRequestExecutor
     ) {
         this.blockchainConfig = Objects.requireNonNull(blockchainConfig, "blockchainConfig is NULL");
         this.blockchain = Objects.requireNonNull(blockchain, "blockchain is NULL");
@@ -139,6 +148,7 @@ public class ServerInfoService {
         this.askOrderService = Objects.requireNonNull(askOrderService, "askOrderService is NULL");
         this.bidOrderService = Objects.requireNonNull(bidOrderService, "bidOrderService is NULL");
         this.tradeService = Objects.requireNonNull(tradeService, "tradeService is NULL");
+        this.peerRequestExecutor = Objects.requireNonNull(peerRequestExecutor, "peerRequestExecutor is NULL");
     }
 
     public ApolloX509Info getX509Info() {
@@ -391,4 +401,25 @@ public class ServerInfoService {
         return map;
     }
 
+    public PeerRequestsDto getPeerRequests() {
+        List<PeerRequestPoolDto> pools = new ArrayList<>();
+        peerRequestExecutor.getBulkheads().values().forEach(bulkhead -> pools.add(new PeerRequestPoolDto(
+            bulkhead.getPool().name(), bulkhead.getThreads(), bulkhead.getActive(), bulkhead.getQueued(),
+            bulkhead.getCompleted(), bulkhead.getRejected(), bulkhead.getRejectedPerPeer(), bulkhead.getMeanWaitMs())));
+        List<PeerRequestLatencyDto> handlers = new ArrayList<>();
+        peerRequestExecutor.getLatencies().forEach((requestType, latency) -> {
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            long[] buckets = latency.getBuckets();
+            for (int i = 0; i < buckets.length; i++) {
+                histogram.put(i < LatencyHistogram.BUCKET_BOUNDS_MS.length
+                    ? String.valueOf(LatencyHistogram.BUCKET_BOUNDS_MS[i]) : "inf", buckets[i]);
+            }
+            handlers.add(new PeerRequestLatencyDto(requestType, PeerRequestExecutor.RequestPool.of(requestType).name(),
+                latency.getCount(), latency.getMeanMs(), latency.getPercentileMs(50), latency.getPercentileMs(90),
+                latency.getPercentileMs(99), latency.getMaxMs(), histogram));
+        });
+        handlers.sort(Comparator.comparing(PeerRequestLatencyDto::getRequestType));
+        return new PeerRequestsDto(pools, handlers);
+    }
+
 }
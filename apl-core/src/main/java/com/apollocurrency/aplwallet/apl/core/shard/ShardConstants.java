@@ -26,6 +26,7 @@ public class ShardConstants {
     public static final String DEX_ORDER_TABLE_NAME = "dex_offer";
     public static final String ACCOUNT_CURRENCY_TABLE_NAME = "account_currency";
     public static final String ACCOUNT_ASSET_TABLE_NAME = "account_asset";
+    public static final String ACCOUNT_GUARANTEED_BALANCE_TABLE_NAME = "account_guaranteed_balance";
 
 
     private ShardConstants() {
@@ -39,6 +39,7 @@ import com.apollocurrency.aplwallet.apl.util.ChunkedFileOps;
 import com.apollocurrency.aplwallet.apl.util.FileUtils;
 import com.apollocurrency.aplwallet.apl.util.StringUtils;
 import com.apollocurrency.aplwallet.apl.util.Zip;
+import com.apollocurrency.aplwallet.apl.util.task.NamedThreadFactory;
 import com.apollocurrency.aplwallet.apl.util.env.dirprovider.DirProvider;
 import org.slf4j.Logger;
 
@@ -50,11 +51,17 @@ import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -83,6 +90,12 @@ import static org.slf4j.LoggerFactory.getLogger;
 @Singleton
 public class ShardEngineImpl implements ShardEngine {
     private static final Logger log = getLogger(ShardEngineImpl.class);
+    /**
+     * Tables of the blocks and transactions data, exported before the derived tables
+     */
+    private static final Set<String> CORE_TABLES = Set.of(ShardConstants.SHARD_TABLE_NAME, ShardConstants.BLOCK_INDEX_TABLE_NAME,
+        ShardConstants.TRANSACTION_INDEX_TABLE_NAME, ShardConstants.BLOCK_TABLE_NAME, ShardConstants.TRANSACTION_TABLE_NAME);
+    private static final int EXPORT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
 
     private MigrateState state;
     private DatabaseManager databaseManager;
@@ -457,35 +470,17 @@ public class ShardEngineImpl implements ShardEngine {
                         .forEach(FileUtils::deleteFileIfExistsQuietly);
                 }
             }
+            // core tables are exported first and one by one, derived tables do not depend on each other and are exported concurrently
+            List<TableInfo> derivedTables = new ArrayList<>();
             for (TableInfo tableInfo : allTables) {
-                exportTableWithRecovery(recovery, tableInfo.getName(), () -> {
-                    switch (tableInfo.getName()) {
-                        case ShardConstants.SHARD_TABLE_NAME:
-                            return csvExporter.exportShardTable(paramInfo.getSnapshotBlockHeight(), paramInfo.getCommitBatchSize());
-                        case ShardConstants.BLOCK_INDEX_TABLE_NAME:
-                            return csvExporter.exportBlockIndex(paramInfo.getSnapshotBlockHeight(), paramInfo.getCommitBatchSize());
-                        case ShardConstants.TRANSACTION_INDEX_TABLE_NAME:
-                            return csvExporter.exportTransactionIndex(paramInfo.getSnapshotBlockHeight(), paramInfo.getCommitBatchSize());
-                        case ShardConstants.BLOCK_TABLE_NAME:
-                            return csvExporter.exportBlock(paramInfo.getSnapshotBlockHeight());
-                        case ShardConstants.TRANSACTION_TABLE_NAME:
-                            return csvExporter.exportTransactions(paramInfo.getExcludeInfo().getExportDbIds(), paramInfo.getSnapshotBlockHeight());
-                        case ShardConstants.ACCOUNT_TABLE_NAME:
-                            return exportDerivedTable(tableInfo, paramInfo, Set.of("DB_ID", "LATEST", "HEIGHT", "DELETED"), pruningTime, null);
-//                        case ShardConstants.DEX_ORDER_TABLE_NAME: // now it's returned back to usual export for derived tables
-                        // this is en example how to export using specified columns + index on it
-//                            return exportDerivedTable(tableInfo, paramInfo, Set.of("DB_ID", "LATEST"), -1, "HEIGHT");
-                        case ShardConstants.ACCOUNT_CURRENCY_TABLE_NAME:
-                            return exportDerivedTable(tableInfo, paramInfo, Set.of("DB_ID", "LATEST", "HEIGHT", "DELETED"), pruningTime, " account_id, currency_id");
-                        case ShardConstants.ACCOUNT_ASSET_TABLE_NAME:
-                            return exportDerivedTable(tableInfo, paramInfo, Set.of("DB_ID", "LATEST", "HEIGHT", "DELETED"), pruningTime, " account_id, asset_id");
-
-                        default:
-                            return exportDerivedTable(tableInfo, paramInfo, pruningTime);
-                    }
-                });
-                incrementDurableTaskUpdateByPercent(0.7);
+                if (CORE_TABLES.contains(tableInfo.getName())) {
+                    exportTableWithRecovery(recovery, tableInfo.getName(), () -> exportTable(tableInfo, paramInfo, pruningTime));
+                    incrementDurableTaskUpdateByPercent(0.7);
+                } else {
+                    derivedTables.add(tableInfo);
+                }
             }
+            exportDerivedTablesConcurrently(recovery, derivedTables, paramInfo, pruningTime);
             state = CSV_EXPORT_FINISHED;
             updateToFinalStepState(recovery, state);
             log.debug("Export finished in {} secs", (System.currentTimeMillis() - startTime) / 1000);
@@ -498,6 +493,69 @@ public class ShardEngineImpl implements ShardEngine {
         return state;
     }
 
+    private Long exportTable(TableInfo tableInfo, CommandParamInfo paramInfo, int pruningTime) {
+        switch (tableInfo.getName()) {
+            case ShardConstants.SHARD_TABLE_NAME:
+                return csvExporter.exportShardTable(paramInfo.getSnapshotBlockHeight(), paramInfo.getCommitBatchSize());
+            case ShardConstants.BLOCK_INDEX_TABLE_NAME:
+                return csvExporter.exportBlockIndex(paramInfo.getSnapshotBlockHeight(), paramInfo.getCommitBatchSize());
+            case ShardConstants.TRANSACTION_INDEX_TABLE_NAME:
+                return csvExporter.exportTransactionIndex(paramInfo.getSnapshotBlockHeight(), paramInfo.getCommitBatchSize());
+            case ShardConstants.BLOCK_TABLE_NAME:
+                return csvExporter.exportBlock(paramInfo.getSnapshotBlockHeight());
+            case ShardConstants.TRANSACTION_TABLE_NAME:
+                return csvExporter.exportTransactions(paramInfo.getExcludeInfo().getExportDbIds(), paramInfo.getSnapshotBlockHeight());
+            case ShardConstants.ACCOUNT_TABLE_NAME:
+                return exportDerivedTable(tableInfo, paramInfo, Set.of("DB_ID", "LATEST", "HEIGHT", "DELETED"), pruningTime, null);
+//            case ShardConstants.DEX_ORDER_TABLE_NAME: // now it's returned back to usual export for derived tables
+            // this is en example how to export using specified columns + index on it
+//                return exportDerivedTable(tableInfo, paramInfo, Set.of("DB_ID", "LATEST"), -1, "HEIGHT");
+            case ShardConstants.ACCOUNT_CURRENCY_TABLE_NAME:
+                return exportDerivedTable(tableInfo, paramInfo, Set.of("DB_ID", "LATEST", "HEIGHT", "DELETED"), pruningTime, " account_id, currency_id");
+            case ShardConstants.ACCOUNT_ASSET_TABLE_NAME:
+                return exportDerivedTable(tableInfo, paramInfo, Set.of("DB_ID", "LATEST", "HEIGHT", "DELETED"), pruningTime, " account_id, asset_id");
+
+            default:
+                return exportDerivedTable(tableInfo, paramInfo, pruningTime);
+        }
+    }
+
+    /**
+     * Export tables on the separate threads, every export reads by its own db connection rows not higher than snapshot height.
+     * When some export fails, not started exports are cancelled and exception is thrown after running exports finished,
+     * so the recovery contains all exported tables.
+     */
+    private void exportDerivedTablesConcurrently(ShardRecovery recovery, List<TableInfo> tables, CommandParamInfo paramInfo, int pruningTime) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(EXPORT_THREADS, new NamedThreadFactory("ShardEngineCsvExport"));
+        try {
+            List<Future<?>> exports = new ArrayList<>();
+            for (TableInfo tableInfo : tables) {
+                exports.add(executor.submit(() -> {
+                    exportTableWithRecovery(recovery, tableInfo.getName(), () -> exportTable(tableInfo, paramInfo, pruningTime));
+                    incrementDurableTaskUpdateByPercent(0.7);
+                }));
+            }
+            Exception error = null;
+            for (Future<?> export : exports) {
+                try {
+                    export.get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                        exports.forEach(future -> future.cancel(false));
+                    }
+                } catch (CancellationException ignored) {
+                    // export was not started after failure
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private int trimDerivedTables(int height) {
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         boolean inTransaction = dataSource.isInTransaction();
@@ -531,6 +589,12 @@ public class ShardEngineImpl implements ShardEngine {
     }
 
     private void updateRecovery(ShardRecovery recovery, String processedObject) {
+        synchronized (recovery) {
+            updateRecoveryProcessedObject(recovery, processedObject);
+        }
+    }
+
+    private void updateRecoveryProcessedObject(ShardRecovery recovery, String processedObject) {
         if (StringUtils.isBlank(recovery.getProcessedObject())) {
             recovery.setProcessedObject(processedObject);
         } else {
@@ -590,8 +654,8 @@ public class ShardEngineImpl implements ShardEngine {
             });
             long startTableExportTime = System.currentTimeMillis();
             Long exported = exportPerformer.get();
-            log.debug("Exported '{}', count {} to {} in {} secs", tableName, exported, tableCsvPath,
-                (System.currentTimeMillis() - startTableExportTime) / 1000);
+            log.debug("Exported '{}', count {} to {} in {} ms", tableName, exported, tableCsvPath,
+                System.currentTimeMillis() - startTableExportTime);
             updateRecovery(recovery, tableName);
         }
     }
@@ -4,6 +4,7 @@
 
 package com.apollocurrency.aplwallet.apl.core.shard;
 
+import com.apollocurrency.aplwallet.apl.core.account.dao.AccountGuaranteedBalanceTable;
 import com.apollocurrency.aplwallet.apl.core.app.AplAppStatus;
 import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
 import com.apollocurrency.aplwallet.apl.core.app.BlockchainProcessor;
@@ -13,14 +14,17 @@ import com.apollocurrency.aplwallet.apl.core.db.DerivedTablesRegistry;
 import com.apollocurrency.aplwallet.apl.core.db.dao.ShardDao;
 import com.apollocurrency.aplwallet.apl.core.db.dao.model.Shard;
 import com.apollocurrency.aplwallet.apl.core.db.dao.model.ShardState;
+import com.apollocurrency.aplwallet.apl.core.db.derived.DerivedTableInterface;
 import com.apollocurrency.aplwallet.apl.core.files.DownloadableFilesManager;
 import com.apollocurrency.aplwallet.apl.core.files.shards.ShardPresentData;
 import com.apollocurrency.aplwallet.apl.core.shard.helper.CsvImporter;
 import com.apollocurrency.aplwallet.apl.core.tagged.dao.DataTagDao;
 import com.apollocurrency.aplwallet.apl.crypto.Convert;
+import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderTable;
 import com.apollocurrency.aplwallet.apl.util.ChunkedFileOps;
 import com.apollocurrency.aplwallet.apl.util.FileUtils;
 import com.apollocurrency.aplwallet.apl.util.Zip;
+import com.apollocurrency.aplwallet.apl.util.task.NamedThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.enterprise.inject.spi.CDI;
@@ -29,13 +33,24 @@ import javax.inject.Singleton;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 @Singleton
 @Slf4j
 public class ShardImporter {
+    /**
+     * Number of tables imported concurrently
+     */
+    private static final int IMPORT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
     private ShardDao shardDao;
 
     private GenesisImporter genesisImporter;
@@ -123,22 +138,14 @@ public class ShardImporter {
             ShardConstants.BLOCK_TABLE_NAME, ShardConstants.TRANSACTION_TABLE_NAME,
             ShardConstants.TRANSACTION_INDEX_TABLE_NAME, ShardConstants.BLOCK_INDEX_TABLE_NAME);
         log.debug("1. Will be imported [{}] tables...", tables.size());
-        for (String table : tables) {
+        List<String> importedTables = tables.stream().filter(table -> {
             if (excludedTables.contains(table)) {
                 log.warn("Skip import {}", table);
-                continue;
+                return false;
             }
-            try {
-                log.debug("start importing '{}'...", table);
-                aplAppStatus.durableTaskUpdate(genesisTaskId, "Loading '" + table + "'", 0.6);
-                long rowsImported = csvImporter.importCsv(table, ShardConstants.DEFAULT_COMMIT_BATCH_SIZE, true);
-                log.debug("Imported '{}' rows = {}", table, rowsImported);
-            } catch (Exception e) {
-                log.error("CSV import error for '{}', RETURN.......", table, e);
-                aplAppStatus.durableTaskFinished(genesisTaskId, true, "Shard data import");
-                throw new RuntimeException(e);
-            }
-        }
+            return true;
+        }).collect(Collectors.toList());
+        importTables(importedTables, genesisTaskId, table -> csvImporter.importCsv(table, ShardConstants.DEFAULT_COMMIT_BATCH_SIZE, true));
         Shard lastShard = shardDao.getLastShard();
         if (lastShard == null) {
             if (!excludedTables.contains(ShardConstants.SHARD_TABLE_NAME)) {
@@ -157,40 +164,89 @@ public class ShardImporter {
 
         // import derived tables
         Collection<String> tableNames = derivedTablesRegistry.getDerivedTableNames();
-        log.debug("2. Will be imported [{}] tables...", tables.size());
-        for (String table : tableNames) {
-            try {
-                log.debug("start importing '{}'...", table);
-                aplAppStatus.durableTaskUpdate(genesisTaskId, "Loading '" + table + "'", 0.6);
-                long rowsImported;
-                if (ShardConstants.ACCOUNT_TABLE_NAME.equalsIgnoreCase(table) || ShardConstants.ACCOUNT_ASSET_TABLE_NAME.equalsIgnoreCase(table) || ShardConstants.ACCOUNT_CURRENCY_TABLE_NAME.equalsIgnoreCase(table)) {
-                    rowsImported = csvImporter.importCsvWithDefaultParams(table, 100, true,
-                        Map.of("height", blockchain.findFirstBlock().getHeight()));
-                } else if (ShardConstants.TAGGED_DATA_TABLE_NAME.equalsIgnoreCase(table)) {
-                    rowsImported = csvImporter.importCsvWithRowHook(table, 100, true, (row) -> {
-                        Object parsedTags = row.get("parsed_tags");
-                        Object height = row.get("height");
-                        if (parsedTags != null) {
-                            Object[] tagArray = (Object[]) parsedTags;
-                            dataTagDao.add(Arrays.copyOf(tagArray, tagArray.length, String[].class), Integer.parseInt((String) height));
-                        }
-                    });
-                } else {
-                    rowsImported = csvImporter.importCsv(table, 100, true);
-                }
-                log.debug("Imported '{}' rows = {}", table, rowsImported);
-            } catch (Exception e) {
-                log.error("CSV import error for '{}', RETURN.......", table, e);
-                aplAppStatus.durableTaskFinished(genesisTaskId, true, "Shard data import");
-                throw new RuntimeException(e);
+        log.debug("2. Will be imported [{}] tables...", tableNames.size());
+        importTables(tableNames, genesisTaskId, table -> {
+            if (ShardConstants.ACCOUNT_TABLE_NAME.equalsIgnoreCase(table) || ShardConstants.ACCOUNT_ASSET_TABLE_NAME.equalsIgnoreCase(table) || ShardConstants.ACCOUNT_CURRENCY_TABLE_NAME.equalsIgnoreCase(table)) {
+                return csvImporter.importCsvWithDefaultParams(table, 100, true,
+                    Map.of("height", blockchain.findFirstBlock().getHeight()));
+            } else if (ShardConstants.TAGGED_DATA_TABLE_NAME.equalsIgnoreCase(table)) {
+                return csvImporter.importCsvWithRowHook(table, 100, true, (row) -> {
+                    Object parsedTags = row.get("parsed_tags");
+                    Object height = row.get("height");
+                    if (parsedTags != null) {
+                        Object[] tagArray = (Object[]) parsedTags;
+                        dataTagDao.add(Arrays.copyOf(tagArray, tagArray.length, String[].class), Integer.parseInt((String) height));
+                    }
+                });
+            } else {
+                return csvImporter.importCsv(table, 100, true);
             }
-        }
+        });
+        resetTableIndexes();
         // remove all extracted *.csv files after successful importing from zip shard archive(s)
         log.debug("Start deleting imported CSV files from folder: {}", csvImporter.getDataExportPath());
         FileUtils.deleteFilesByPattern(csvImporter.getDataExportPath(), new String[]{"csv"}, null);
         aplAppStatus.durableTaskFinished(genesisTaskId, false, "Shard data import");
     }
 
+    /**
+     * Csv import replaces rows of the derived tables without their truncate/rollback, so in-memory indexes
+     * of such tables are cleared to be loaded again from the imported rows
+     */
+    private void resetTableIndexes() {
+        DerivedTableInterface balanceTable = derivedTablesRegistry.getDerivedTable(ShardConstants.ACCOUNT_GUARANTEED_BALANCE_TABLE_NAME);
+        if (balanceTable instanceof AccountGuaranteedBalanceTable) {
+            ((AccountGuaranteedBalanceTable) balanceTable).getBalanceIndex().reset();
+        }
+        DerivedTableInterface orderTable = derivedTablesRegistry.getDerivedTable(ShardConstants.DEX_ORDER_TABLE_NAME);
+        if (orderTable instanceof DexOrderTable) {
+            ((DexOrderTable) orderTable).getOrderBook().reset();
+        }
+    }
+
+    /**
+     * Import tables concurrently, every table is imported on its own thread and db connection.
+     * Tables should not depend on each other. Import of all tables is awaited before failing on the first error.
+     */
+    private void importTables(Collection<String> tables, String taskId, TableImport tableImport) {
+        ExecutorService executor = Executors.newFixedThreadPool(IMPORT_THREADS, new NamedThreadFactory("ShardImporter"));
+        try {
+            Map<String, Future<Long>> results = new LinkedHashMap<>();
+            for (String table : tables) {
+                results.put(table, executor.submit(() -> {
+                    log.debug("start importing '{}'...", table);
+                    aplAppStatus.durableTaskUpdate(taskId, "Loading '" + table + "'", 0.6);
+                    return tableImport.importTable(table);
+                }));
+            }
+            Throwable error = null;
+            for (Map.Entry<String, Future<Long>> result : results.entrySet()) {
+                try {
+                    log.debug("Imported '{}' rows = {}", result.getKey(), result.getValue().get());
+                } catch (ExecutionException e) {
+                    log.error("CSV import error for '{}', RETURN.......", result.getKey(), e.getCause());
+                    if (error == null) {
+                        error = e.getCause();
+                        // do not start import of the remaining tables
+                        results.values().forEach(future -> future.cancel(false));
+                    }
+                } catch (CancellationException e) {
+                    log.debug("Import of '{}' was cancelled", result.getKey());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    error = e;
+                    break;
+                }
+            }
+            if (error != null) {
+                aplAppStatus.durableTaskFinished(taskId, true, "Shard data import");
+                throw new RuntimeException(error);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private Path unzipMainOptionalArchives(ShardPresentData shardPresentData, String genesisTaskId) {
         Path zipInFolder = downloadableFilesManager.mapFileIdToLocalPath(shardPresentData.getShardFileId()).toAbsolutePath();
         log.debug("Try unpack main shard file name '{}'", zipInFolder);
@@ -225,4 +281,8 @@ public class ShardImporter {
         aplAppStatus.durableTaskFinished(genesisTaskId, true, "Shard data import");
         throw new ShardArchiveProcessingException("Zip file can't be extracted, result = '" + unpackResult + "' : " + zipInFolder.toString());
     }
+
+    private interface TableImport {
+        long importTable(String table) throws Exception;
+    }
 }
@@ -9,6 +9,7 @@ import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
 import com.apollocurrency.aplwallet.apl.core.db.dao.ShardDao;
 import com.apollocurrency.aplwallet.apl.core.db.dao.model.Shard;
+import com.apollocurrency.aplwallet.apl.util.task.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,18 +17,21 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * <p>This implementation uses merkle tree and block signatures for hash calculations</p>
+ * <p>Block signatures are hashed as they are read, so only signature hashes are kept in memory</p>
  */
 @Singleton
 public class ShardHashCalculatorImpl implements ShardHashCalculator {
     private static final Logger log = LoggerFactory.getLogger(ShardHashCalculatorImpl.class);
 
     private static final int DEFAULT_BLOCK_LIMIT = 100;
+    private static final int HASH_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
     private Blockchain blockchain;
     private BlockchainConfig blockchainConfig;
     private ShardDao shardDao;
@@ -49,20 +53,27 @@ public class ShardHashCalculatorImpl implements ShardHashCalculator {
         this.blockSelectLimit = blockSelectLimit;
     }
 
-    private List<byte[]> retrieveBlockSignatures(int shardStartHeight, int shardEndHeight) {
-        List<byte[]> allBlockSignatures = new ArrayList<>();
+    private int appendBlockSignatures(StreamingMerkleTree tree, int shardStartHeight, int shardEndHeight) {
+        int blocks = 0;
         int fromHeight = shardStartHeight;
         while (fromHeight < shardEndHeight) {
             List<byte[]> blockSignatures = blockchain.getBlockSignaturesFrom(fromHeight, Math.min(fromHeight + blockSelectLimit, shardEndHeight));
-            allBlockSignatures.addAll(blockSignatures);
+            for (byte[] blockSignature : blockSignatures) {
+                tree.appendLeaf(blockSignature);
+            }
+            blocks += blockSignatures.size();
             fromHeight += blockSelectLimit;
         }
-        return allBlockSignatures;
+        return blocks;
     }
 
-    private byte[] calculateMerkleRoot(List<byte[]> dataList) {
-        MerkleTree tree = new MerkleTree(createMessageDigest(), dataList);
-        return tree.getRoot() == null ? null : tree.getRoot().getValue();
+    private byte[] calculateMerkleRoot(StreamingMerkleTree tree) {
+        ExecutorService executor = Executors.newFixedThreadPool(HASH_THREADS, new NamedThreadFactory("ShardHashCalculator"));
+        try {
+            return tree.getRoot(executor);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     private MessageDigest createMessageDigest() {
@@ -86,16 +97,16 @@ public class ShardHashCalculatorImpl implements ShardHashCalculator {
             throw new IllegalArgumentException("shard start height should be less than shard end height " + String.format("start - %d, finish - %d", shardStartHeight, shardEndHeight));
         }
         long startTime = System.currentTimeMillis();
-        List<byte[]> blockSignatures = retrieveBlockSignatures(shardStartHeight, shardEndHeight);
-        int blocks = blockSignatures.size();
-        log.trace("Retrieved {} block signatures in {} ms", blocks, System.currentTimeMillis() - startTime);
+        StreamingMerkleTree tree = new StreamingMerkleTree(createMessageDigest());
+        int blocks = appendBlockSignatures(tree, shardStartHeight, shardEndHeight);
+        log.trace("Retrieved and hashed {} block signatures in {} ms", blocks, System.currentTimeMillis() - startTime);
         if (blocks == 0) {
             return null;
         }
         long merkleTreeStartTime = System.currentTimeMillis();
         byte[] prevHash = getPrevShardHash(shardStartHeight);
-        blockSignatures.add(prevHash);
-        byte[] hash = calculateMerkleRoot(blockSignatures);
+        tree.appendLeaf(prevHash);
+        byte[] hash = calculateMerkleRoot(tree);
         log.debug("Built merkle tree in {} ms", System.currentTimeMillis() - merkleTreeStartTime);
         long time = System.currentTimeMillis() - startTime;
         log.debug("Hash calculated in {} s for [{}] blocks, speed {} bpms", time / 1000, blocks, (shardEndHeight - shardStartHeight) / Math.max(time, 1));
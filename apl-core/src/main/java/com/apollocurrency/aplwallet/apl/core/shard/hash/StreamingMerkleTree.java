@@ -0,0 +1,228 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.shard.hash;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Merkle root calculation over the appended leaves, which gives the same root as the {@link MerkleTree}
+ * with the same leaves, but does not keep tree nodes.</p>
+ * <p>Only the leaf hashes are kept in the single array. {@link MerkleTree} places leaves of the first half of the tree
+ * next to the leaves of the second half, so leaf hashes can not be replaced by the partial roots of the already
+ * appended leaves and the root is calculated when it is requested. Subtrees are hashed in parallel, when executor
+ * is provided.</p>
+ * <p>Appended leaves can be saved by {@link #toBytes()} and restored by {@link #fromBytes(MessageDigest, byte[])}
+ * to continue appending, or truncated to the previous size.</p>
+ * <p>Use {@link MerkleTree} when the tree nodes are required</p>
+ */
+public class StreamingMerkleTree {
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * Minimal number of leaves to hash subtrees in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+    /**
+     * Level of the tree, which subtrees are hashed in parallel
+     */
+    private static final int PARALLEL_LEVEL = 4;
+
+    private final MessageDigest digest;
+    private byte[] leaves = new byte[0];
+    private int hashSize;
+    private int size;
+
+    /**
+     * Create empty tree
+     *
+     * @param digest message digest for data hashing
+     */
+    public StreamingMerkleTree(MessageDigest digest) {
+        this.digest = Objects.requireNonNull(digest, "digest cannot be null");
+    }
+
+    /**
+     * Restore tree from the bytes of the {@link #toBytes()}
+     *
+     * @param digest message digest for data hashing, should be the same as the digest of the saved tree
+     * @param bytes  saved tree
+     * @return tree with the saved leaves
+     */
+    public static StreamingMerkleTree fromBytes(MessageDigest digest, byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int size = buffer.getInt();
+        int hashSize = buffer.getInt();
+        if (size < 0 || hashSize < 0 || buffer.remaining() != (long) size * hashSize) {
+            throw new IllegalArgumentException("Invalid merkle tree bytes, size " + size + ", hash size " + hashSize
+                + ", remaining " + buffer.remaining());
+        }
+        StreamingMerkleTree tree = new StreamingMerkleTree(digest);
+        tree.size = size;
+        tree.hashSize = hashSize;
+        tree.leaves = new byte[buffer.remaining()];
+        buffer.get(tree.leaves);
+        return tree;
+    }
+
+    /**
+     * @return number of leaves, hash size and leaf hashes of the tree
+     */
+    public byte[] toBytes() {
+        int length = size * hashSize;
+        return ByteBuffer.allocate(8 + length)
+            .putInt(size)
+            .putInt(hashSize)
+            .put(leaves, 0, length)
+            .array();
+    }
+
+    /**
+     * Add new non-hashed data to the end of tree
+     *
+     * @param value non-hashed data to append
+     */
+    public void appendLeaf(byte[] value) {
+        appendHashedLeaf(digest.digest(value));
+    }
+
+    /**
+     * Add new leaf hash to the end of tree
+     *
+     * @param hash hashed data to append, all hashes should have the same size
+     */
+    public void appendHashedLeaf(byte[] hash) {
+        if (size == 0) {
+            hashSize = hash.length;
+        } else if (hash.length != hashSize) {
+            throw new IllegalArgumentException("Expected hash of " + hashSize + " bytes, got " + hash.length);
+        }
+        int offset = size * hashSize;
+        if (offset + hashSize > leaves.length) {
+            leaves = Arrays.copyOf(leaves, Math.max(offset + hashSize, Math.max(INITIAL_CAPACITY * hashSize, leaves.length * 2)));
+        }
+        System.arraycopy(hash, 0, leaves, offset, hashSize);
+        size++;
+    }
+
+    /**
+     * Remove the last leaves
+     *
+     * @param newSize number of leaves to keep
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IllegalArgumentException("Unable to truncate tree of " + size + " leaves to " + newSize);
+        }
+        size = newSize;
+    }
+
+    /**
+     * @return number of leaves
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return merkle root or null when tree is empty
+     */
+    public byte[] getRoot() {
+        return getRoot(null);
+    }
+
+    /**
+     * @param executor executor to hash subtrees in parallel or null to hash in the current thread
+     * @return merkle root or null when tree is empty
+     */
+    public byte[] getRoot(ExecutorService executor) {
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return Arrays.copyOf(leaves, hashSize);
+        }
+        if (executor == null || size < PARALLEL_THRESHOLD) {
+            return hash(digest, 0, null);
+        }
+        int first = (1 << PARALLEL_LEVEL) - 1;
+        byte[][] subtrees = new byte[2 * first + 1][];
+        List<Future<byte[]>> futures = new ArrayList<>(first + 1);
+        try {
+            for (int i = first; i <= 2 * first; i++) {
+                MessageDigest taskDigest = (MessageDigest) digest.clone();
+                int index = i;
+                futures.add(executor.submit(() -> hash(taskDigest, index, null)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                subtrees[first + i] = futures.get(i).get();
+            }
+        } catch (CloneNotSupportedException e) {
+            futures.forEach(f -> f.cancel(true));
+            return hash(digest, 0, null);
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.toString(), e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException(e.toString(), e);
+        }
+        return hash(digest, 0, subtrees);
+    }
+
+    /**
+     * Hash node of the tree, where nodes are stored as in the {@link MerkleTree}: children of the node i are
+     * 2i + 1 and 2i + 2 and the last 'size' nodes are leaves
+     *
+     * @param index    internal node index
+     * @param subtrees already calculated node hashes or null
+     */
+    private byte[] hash(MessageDigest md, int index, byte[][] subtrees) {
+        if (subtrees != null && index < subtrees.length && subtrees[index] != null) {
+            return subtrees[index];
+        }
+        int left = 2 * index + 1;
+        int right = left + 1;
+        byte[] leftHash = isLeaf(left) ? null : hash(md, left, subtrees);
+        byte[] rightHash = isLeaf(right) ? null : hash(md, right, subtrees);
+        update(md, left, leftHash);
+        update(md, right, rightHash);
+        return md.digest();
+    }
+
+    private void update(MessageDigest md, int index, byte[] hash) {
+        if (hash != null) {
+            md.update(hash);
+        } else {
+            md.update(leaves, leafNumber(index) * hashSize, hashSize);
+        }
+    }
+
+    private boolean isLeaf(int index) {
+        return index >= size - 1;
+    }
+
+    /**
+     * {@link MerkleTree} puts the new leaf k to the node 2k, and the leaf from the node k - 1 moves to its left child,
+     * so leaf in the left child node is the leaf of its parent, and leaf in the right child node 2k is leaf k
+     *
+     * @param index leaf node index
+     * @return number of the leaf in the order of appending
+     */
+    static int leafNumber(int index) {
+        int node = index;
+        while ((node & 1) == 1) {
+            node = (node - 1) / 2;
+        }
+        return node / 2;
+    }
+}
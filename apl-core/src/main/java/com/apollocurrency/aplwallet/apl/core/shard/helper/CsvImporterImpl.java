@@ -32,7 +32,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -133,8 +135,20 @@ public class CsvImporterImpl implements CsvImporter {
         return (meta.getColumnType(columnIdx + 1) == Types.VARCHAR || meta.getColumnType(columnIdx + 1) == Types.NVARCHAR);
     }
 
+    private ColumnType getColumnType(final ResultSetMetaData meta, final int columnIdx) throws SQLException {
+        if (isBinaryColumn(meta, columnIdx)) {
+            return ColumnType.BINARY;
+        } else if (isArrayColumn(meta, columnIdx)) {
+            return ColumnType.ARRAY;
+        } else if (isVarcharColumn(meta, columnIdx)) {
+            return ColumnType.VARCHAR;
+        }
+        return ColumnType.OTHER;
+    }
+
     /**
-     * {@inheritDoc}
+     * Import rows of the csv file using jdbc batches of the batchLimit size, every batch is committed.
+     * Row hook is called for the row added to the batch, before the batch is executed.
      */
     private long importCsv(String tableName, int batchLimit, boolean cleanTarget,
                            Double stateIncrease, Map<String, Object> defaultParams,
@@ -147,7 +161,7 @@ public class CsvImporterImpl implements CsvImporter {
             log.debug("Skipped excluded Table/File = {}", tableName);
             return -1;
         }
-        int importedCount = 0;
+        long importedCount = 0;
         int columnsCount;
         PreparedStatement preparedInsertStatement = null;
 
@@ -168,35 +182,51 @@ public class CsvImporterImpl implements CsvImporter {
 
         Map<String, Object> row = null;
         int rsCounter = 1; //start from 1 for "a%b==0" operations
+        // transaction started here is finished here, so the pooled connection is released by the import thread
+        boolean startedTransaction = !dataSource.isInTransaction();
         // open CSV Reader and db connection
         try (CsvReader csvReader = new CsvReaderImpl(this.dataExportPath, translator);
              ResultSet rs = csvReader.read(
                  inputFileName, null, null);
-             Connection con = dataSource.isInTransaction() ? dataSource.getConnection() : dataSource.begin()) {
+             Connection con = startedTransaction ? dataSource.begin() : dataSource.getConnection()) {
             csvReader.setOptions("fieldDelimiter="); // do not remove, setting = do not put "" around column/values
 
             // get CSV meta data info
             ResultSetMetaData meta = rs.getMetaData();
             columnsCount = meta.getColumnCount(); // columns count is main
+            // resolve column names and types once instead of every row
+            String[] columnNames = new String[columnsCount];
+            ColumnType[] columnTypes = new ColumnType[columnsCount];
+            for (int i = 0; i < columnsCount; i++) {
+                columnNames[i] = meta.getColumnName(i + 1).toLowerCase();
+                columnTypes[i] = getColumnType(meta, i);
+            }
             // precompile insert SQL
             preparedInsertStatement = con.prepareStatement(generateInsertStatement(tableName, meta, defaultParams));
 
             // loop over CSV data reading line by line, column by column
             while (rs.next()) {
-                row = new HashMap<>();
+                // row map is needed by the row hook only
+                row = rowDataConsumer != null ? new HashMap<>() : null;
                 for (int i = 0; i < columnsCount; i++) {
                     Object object = rs.getObject(i + 1);
-                    String columnName = meta.getColumnName(i + 1);
-                    log.trace("{}[{} : {}] = {}", columnName, i + 1, meta.getColumnTypeName(i + 1), object);
-
-                    if (object != null && isBinaryColumn(meta, i)) {
-                        row.put(columnName.toLowerCase(), prepareBinaryObject(object, preparedInsertStatement, i + 1, meta.getPrecision(i + 1)));
-                    } else if (object != null && isArrayColumn(meta, i)) {
-                        row.put(columnName.toLowerCase(), prepareArrayObject(object, preparedInsertStatement, i + 1));
-                    } else if (object != null && isVarcharColumn(meta, i)) {
-                        row.put(columnName.toLowerCase(), prepareVarcharObject(object, preparedInsertStatement, i + 1));
+                    if (log.isTraceEnabled()) {
+                        log.trace("{}[{} : {}] = {}", columnNames[i], i + 1, meta.getColumnTypeName(i + 1), object);
+                    }
+                    Object value;
+                    if (object == null) {
+                        value = prepareObject(null, preparedInsertStatement, i + 1);
+                    } else if (columnTypes[i] == ColumnType.BINARY) {
+                        value = prepareBinaryObject(object, preparedInsertStatement, i + 1, meta.getPrecision(i + 1));
+                    } else if (columnTypes[i] == ColumnType.ARRAY) {
+                        value = prepareArrayObject(object, preparedInsertStatement, i + 1);
+                    } else if (columnTypes[i] == ColumnType.VARCHAR) {
+                        value = prepareVarcharObject(object, preparedInsertStatement, i + 1);
                     } else {
-                        row.put(columnName.toLowerCase(), prepareObject(object, preparedInsertStatement, i + 1));
+                        value = prepareObject(object, preparedInsertStatement, i + 1);
+                    }
+                    if (row != null) {
+                        row.put(columnNames[i], value);
                     }
                 }
                 int i = columnsCount + 1;
@@ -204,11 +234,12 @@ public class CsvImporterImpl implements CsvImporter {
                     preparedInsertStatement.setObject(i++, value);
                 }
 
-                importedCount += preparedInsertStatement.executeUpdate();
+                preparedInsertStatement.addBatch();
                 if (rowDataConsumer != null) {
                     rowDataConsumer.accept(row);
                 }
                 if (rsCounter % batchLimit == 0) {
+                    importedCount += executeBatch(preparedInsertStatement);
                     dataSource.commit(false);
                     // update state only for ACCOUNT table during LONG running import
                     if (aplAppStatus != null && stateIncrease != null && tableName.equalsIgnoreCase("account")) {
@@ -218,9 +249,12 @@ public class CsvImporterImpl implements CsvImporter {
                 }
                 rsCounter++;
             }
-            dataSource.commit(false); // final commit
+            importedCount += executeBatch(preparedInsertStatement);
+            dataSource.commit(startedTransaction); // final commit
         } catch (Exception e) {
-            dataSource.rollback(false);
+            if (dataSource.isInTransaction()) {
+                dataSource.rollback(startedTransaction);
+            }
             log.error("Imported so far={}, rsCounter={}, row={}", importedCount, rsCounter, row);
             throw new CsvImportException("Error during importing '" + tableName + "'", e);
         } finally {
@@ -250,13 +284,21 @@ public class CsvImporterImpl implements CsvImporter {
         }
         if (!defaultParams.isEmpty()) {
             columnNames.append(String.join(",", defaultParams.keySet()));
-            columnsValues.append(String.join(",", "?"));
+            columnsValues.append(String.join(",", Collections.nCopies(defaultParams.size(), "?")));
         }
         sqlInsert.append(columnNames).append(") VALUES").append(" (").append(columnsValues).append(")");
         log.debug("SQL = {}", sqlInsert); // composed insert
         return sqlInsert.toString();
     }
 
+    private int executeBatch(PreparedStatement preparedInsertStatement) throws SQLException {
+        int count = 0;
+        for (int updated : preparedInsertStatement.executeBatch()) {
+            count += updated == Statement.SUCCESS_NO_INFO ? 1 : updated;
+        }
+        return count;
+    }
+
     private void truncateTable(TransactionalDataSource dataSource, String tableName) {
         try (Connection con = dataSource.getConnection();
              PreparedStatement preparedDelete = con.prepareStatement("TRUNCATE TABLE " + tableName)) {
@@ -300,4 +342,7 @@ public class CsvImporterImpl implements CsvImporter {
         return value;
     }
 
+    private enum ColumnType {
+        BINARY, ARRAY, VARCHAR, OTHER
+    }
 }
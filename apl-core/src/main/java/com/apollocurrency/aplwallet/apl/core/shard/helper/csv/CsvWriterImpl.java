@@ -26,8 +26,12 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -41,9 +45,13 @@ import static org.slf4j.LoggerFactory.getLogger;
  * {@inheritDoc}
  */
 public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
-    public static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
+    /**
+     * Thread safe date format, writers of the different tables are used concurrently
+     */
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
     private static final Logger log = getLogger(CsvWriterImpl.class);
     private static final String EMPTY_ARRAY = "()";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
     /**
      * Extends H2 ARRAY SQL type by providing a proper precision and scale
      * as per Java type.
@@ -54,8 +62,21 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
         ARRAY_COLUMN_INDEX = getArrayColumnIndex();
     }
 
-    private final StringBuilder outputBuffer = new StringBuilder(400);
+    private final StringBuilder outputBuffer = new StringBuilder(IO_BUFFER_SIZE);
+    private final StringBuilder arrayBuffer = new StringBuilder(400);
     private final Set<String> excludeColumn = new HashSet<>();
+    /**
+     * Reused to copy the row from the output buffer to the writer without creating the string
+     */
+    private char[] rowChars = new char[IO_BUFFER_SIZE];
+    /**
+     * Reused to encode binary values to Base64 without creating the intermediate strings
+     */
+    private byte[] base64Bytes = new byte[400];
+    /**
+     * Excluded columns flags by column index of the current result set
+     */
+    private boolean[] excludedColumns;
     private Writer output;
 
     public CsvWriterImpl(Path dataExportPath, Set<String> excludeColumnNames, CsvEscaper translator) {
@@ -186,7 +207,7 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
                     }
                 }
                 OutputStream out = Files.newOutputStream(filePath, appendMode ? StandardOpenOption.APPEND : StandardOpenOption.CREATE_NEW);
-                out = new BufferedOutputStream(out, IO_BUFFER_SIZE);
+                out = new BufferedOutputStream(out, WRITE_BUFFER_SIZE);
                 output = new BufferedWriter(new OutputStreamWriter(out, characterSet));
             } catch (Exception e) {
                 close();
@@ -214,12 +235,21 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
                 // meta data array for current table
                 columnsMetaData = new ColumnMetaData[columnCount];
             }
-            Object[] rowColumnNames = new String[columnCount];
+            Object[] rowColumnNames = new Object[columnCount];
+            // resolved once per result set instead of every value
+            String[] columnNames = new String[columnCount];
+            String[] columnDefaultValues = new String[columnCount];
+            excludedColumns = new boolean[columnCount];
             for (int i = 0; i < columnCount; i++) {
                 rowColumnNames[i] = meta.getColumnLabel(i + 1);
+                columnNames[i] = meta.getColumnName(i + 1);
                 // fill in meta data
                 columnsMetaData[i] = getColumnMetaData(meta, i + 1);
+                columnDefaultValues[i] = defaultValues.get(columnsMetaData[i].getName().toLowerCase());
+                excludedColumns[i] = excludeColumn.contains(columnsMetaData[i].getName());
             }
+            // values of the last written row
+            Object[] lastValues = new Object[columnCount];
             if (log.isTraceEnabled()) {
                 log.trace("Table/File = '{}', MetaData = {}", this.fileName, Arrays.toString(columnsMetaData));
             }
@@ -234,12 +264,12 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
                 for (int i = 0; i < columnCount; i++) {
                     java.util.Date date = null;
                     Object o;
-                    String defaultValue = defaultValues.get(columnsMetaData[i].getName().toLowerCase());
+                    String defaultValue = columnDefaultValues[i];
                     if (defaultValue != null) {
                         o = defaultValue;
-                        lastRow.put(rs.getMetaData().getColumnName(i + 1), o);
+                        lastValues[i] = o;
                     } else {
-                        lastRow.put(rs.getMetaData().getColumnName(i + 1), rs.getObject(i + 1));
+                        lastValues[i] = rs.getObject(i + 1);
                         switch (columnsMetaData[i].getSqlTypeInt()) {
                             case Types.BLOB:
                                 o = rs.getBlob(i + 1);
@@ -270,31 +300,31 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
                                 if (date == null) {
                                     o = nullString;
                                 } else {
-                                    o = "TO_DATE('" + DATE_FORMAT.format(date) + "', 'YYYY/MM/DD HH24:MI:SS')";
+                                    o = "TO_DATE('" + DATE_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault()))
+                                        + "', 'YYYY/MM/DD HH24:MI:SS')";
                                 }
                                 break;
                             case Types.ARRAY:
                                 Array array = rs.getArray(i + 1);
                                 if (array != null && array.getArray() instanceof Object[] && ((Object[]) array.getArray()).length > 0) {
                                     Object[] objectArray = (Object[]) array.getArray();
-                                    StringBuilder outputValue = new StringBuilder();
+                                    StringBuilder outputValue = arrayBuffer;
+                                    outputValue.setLength(0);
                                     outputValue.append(arrayStartToken);
                                     for (int j = 0; j < objectArray.length; j++) {
                                         if (j > 0) {
                                             outputValue.append(fieldSeparatorWrite);
                                         }
                                         Object item = objectArray[j];
-                                        String objectValue;
                                         if (item instanceof byte[]) {
-                                            objectValue = translator.translate((byte[]) item);
+                                            appendBinary(outputValue, (byte[]) item);
                                         } else if (item instanceof String) {
-                                            objectValue = translator.quotedText((String) item);
+                                            outputValue.append(translator.quotedText((String) item));
                                         } else if (item instanceof Long || item instanceof Integer) {
-                                            objectValue = item.toString();
+                                            outputValue.append(item);
                                         } else {
                                             throw new RuntimeException("Unsupported array type: " + item.getClass());
                                         }
-                                        outputValue.append(objectValue);
                                     }
                                     outputValue.append(arrayEndToken);
                                     o = outputValue.toString();
@@ -305,10 +335,9 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
                                 break;
                             case Types.VARBINARY:
                             case Types.BINARY:
+                                // kept as bytes, encoded straight into the output buffer by writeRow
                                 o = rs.getBytes(i + 1);
-                                if (o != null) {
-                                    o = translator.translate((byte[]) o);
-                                } else {
+                                if (o == null) {
                                     o = nullString;
                                 }
                                 break;
@@ -324,7 +353,7 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
                                 break;
                         }
                     }
-                    rowColumnNames[i] = o == null ? null : o.toString();
+                    rowColumnNames[i] = o == null || o instanceof byte[] ? o : o.toString();
                 }
                 if (log.isTraceEnabled()) {
                     log.trace("Row = {}", Arrays.toString(rowColumnNames));
@@ -333,6 +362,11 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
                 rows++;
             }
 
+            if (rows > 0) {
+                for (int i = 0; i < columnCount; i++) {
+                    lastRow.put(columnNames[i], lastValues[i]);
+                }
+            }
             if (closeWhenNotAppend) {
                 output.close(); // close file on 'write mode'
             } else {
@@ -450,8 +484,7 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
             outputBuffer.deleteCharAt(outputBuffer.lastIndexOf(","));
         }
         outputBuffer.append(lineSeparator);
-        output.write(outputBuffer.toString());
-        outputBuffer.setLength(0); // reset
+        writeOutputBuffer();
     }
 
     private void writeRow(Object[] rowColumnValues) throws IOException {
@@ -464,13 +497,17 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
                         outputBuffer.append(fieldSeparatorWrite);
                     }
                 }
-                if (excludeColumn.contains(columnsMetaData[i].getName())) {
+                if (excludedColumns[i]) {
                     // skip column value processing
                     isSkippedColumn = true; // do not put not needed comma
                     continue;
                 }
-                String s = rowColumnValues[i].toString(); // column value
-                outputEscapedValueWithDelimiter(s);
+                if (rowColumnValues[i] instanceof byte[]) {
+                    outputBinaryWithDelimiter((byte[]) rowColumnValues[i]);
+                } else {
+                    String s = rowColumnValues[i].toString(); // column value
+                    outputEscapedValueWithDelimiter(s);
+                }
             } else if (nullString != null && nullString.length() > 0 && !nullString.equalsIgnoreCase("null")) {
                 outputBuffer.append(nullString);
             }
@@ -481,7 +518,16 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
             outputBuffer.deleteCharAt(outputBuffer.lastIndexOf(","));
         }
         outputBuffer.append(lineSeparator);
-        output.write(outputBuffer.toString());
+        writeOutputBuffer();
+    }
+
+    private void writeOutputBuffer() throws IOException {
+        int length = outputBuffer.length();
+        if (rowChars.length < length) {
+            rowChars = new char[Math.max(length, rowChars.length * 2)];
+        }
+        outputBuffer.getChars(0, length, rowChars, 0);
+        output.write(rowChars, 0, length);
         outputBuffer.setLength(0); // reset
     }
 
@@ -513,6 +559,34 @@ public class CsvWriterImpl extends CsvAbstractBase implements CsvWriter {
         }
     }
 
+    /**
+     * Same output as {@link #outputEscapedValueWithDelimiter(String)} for the {@link CsvEscaper#translate(byte[])} value,
+     * the Base64 alphabet and the b'' wrapping have no characters to escape
+     */
+    private void outputBinaryWithDelimiter(byte[] data) {
+        boolean delimited = escapeCharacter != 0 && fieldDelimiter != 0;
+        if (delimited) {
+            outputBuffer.append(fieldDelimiter);
+        }
+        appendBinary(outputBuffer, data);
+        if (delimited) {
+            outputBuffer.append(fieldDelimiter);
+        }
+    }
+
+    private void appendBinary(StringBuilder buffer, byte[] data) {
+        int encodedLength = 4 * ((data.length + 2) / 3);
+        if (base64Bytes.length < encodedLength) {
+            base64Bytes = new byte[Math.max(encodedLength, base64Bytes.length * 2)];
+        }
+        int length = Base64.getEncoder().encode(data, base64Bytes);
+        buffer.append(CsvEscaper.BYTE_ARRAY_PREFIX);
+        for (int i = 0; i < length; i++) {
+            buffer.append((char) base64Bytes[i]);
+        }
+        buffer.append(CsvEscaper.QUOTE);
+    }
+
     private String escape(String data) {
         return translator.escape(data);
     }
@@ -82,4 +82,9 @@ public interface DexContractDao {
     @RegisterRowMapper(ExchangeContractMapper.class)
     List<ExchangeContract> getAllVersionedForAccountOrder(@Bind("account") long account, @Bind("orderId") long orderId, @Bind("fromStatus") int fromStatus, @Bind("toStatus") int toStatus);
 
+    @Transactional(readOnly = true)
+    @SqlQuery("SELECT sender FROM dex_contract WHERE height = :height " +
+        "UNION SELECT recipient FROM dex_contract WHERE height = :height")
+    List<Long> getAccountsAtHeight(@Bind("height") int height);
+
 }
@@ -0,0 +1,522 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.exchange.dao;
+
+import com.apollocurrency.aplwallet.apl.core.db.TransactionCallback;
+import com.apollocurrency.aplwallet.apl.eth.utils.EthUtil;
+import com.apollocurrency.aplwallet.apl.exchange.model.DBSortOrder;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexCurrency;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrder;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrderDBRequest;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrderSortBy;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderStatus;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * <p>In-memory book of the open DEX orders, which replaces the dex_offer queries for the order matching,
+ * open orders API reads and overdue orders expiry.</p>
+ * <p>Orders are kept per pair currency and order type in the price level trees (rate in gwei), each level holds
+ * orders in the order of their creation (db_id order), and are also indexed by id, by account and by finish time.
+ * Loaded orders are sequenced by their db_id and inserted order versions get the next sequence, the same as the new
+ * db row.</p>
+ * <p>Book is loaded from the {@link DexOrderTable} on the first access, is updated by the table on each order insert
+ * and is loaded again after the table rollback, so that restored order versions get back their db_id order.
+ * Changes made under the db transaction are visible only to the thread of this transaction and are applied to the shared
+ * book, when such transaction is committed. Caller is responsible to register this book as a {@link TransactionCallback}
+ * for the current transaction. Book stores and returns copies of the orders.</p>
+ */
+@Slf4j
+public class DexOrderBook implements TransactionCallback {
+    private static final NavigableMap<Long, PriceLevel> EMPTY_SIDE = Collections.emptyNavigableMap();
+    private final Supplier<List<DexOrder>> loader;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<TransactionChanges> transactionChanges = new ThreadLocal<>();
+    private Book book = new Book();
+    private volatile boolean loaded;
+
+    /**
+     * @param loader supplier of the latest versions of the open orders sorted by db_id
+     */
+    public DexOrderBook(Supplier<List<DexOrder>> loader) {
+        this.loader = Objects.requireNonNull(loader, "Order loader is NULL");
+    }
+
+    /**
+     * Request can be served by the order book, when it selects only open orders and does not use db_id pagination
+     *
+     * @param request orders request
+     * @return true, when {@link #getOrders(DexOrderDBRequest)} returns the same orders as the db query
+     */
+    public static boolean isSupported(DexOrderDBRequest request) {
+        return request.getStatus() == OrderStatus.OPEN && request.getDbId() == 0;
+    }
+
+    /**
+     * Open orders, which can be matched with the created order in the order of their creation
+     *
+     * @param type              type of the counter orders
+     * @param pairCurrency      pair currency of the created order
+     * @param pairRate          rate of the created order in gwei
+     * @param orderAmount       amount of the created order
+     * @param excludedAccountId account of the created order, which orders should be skipped
+     * @param currentTime       epoch time, orders finished before or at this time are skipped
+     * @return copies of the counter orders with the same rate and amount
+     */
+    public List<DexOrder> getOrdersForMatching(OrderType type, DexCurrency pairCurrency, long pairRate, long orderAmount,
+                                               long excludedAccountId, int currentTime) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            List<BookEntry> entries = new ArrayList<>();
+            PriceLevel level = currentBook().findSide(pairCurrency, type).get(pairRate);
+            if (level != null) {
+                entries.addAll(level.entries.values());
+            }
+            Map<Long, BookEntry> changes = pendingEntries();
+            if (!changes.isEmpty()) {
+                entries = withChanges(entries, changes, e -> e.order.getPairCurrency() == pairCurrency
+                    && e.order.getType() == type && e.rate == pairRate);
+                entries.sort(Comparator.comparingLong(e -> e.sequence));
+            }
+            List<DexOrder> result = new ArrayList<>();
+            for (BookEntry entry : entries) {
+                DexOrder order = entry.order;
+                if (order.getOrderAmount() == orderAmount
+                    && order.getAccountId() != excludedAccountId
+                    && order.getFinishTime() > currentTime
+                    && order.getOrderCurrency() == DexCurrency.APL) {
+                    result.add(copy(order));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param currentTime epoch time
+     * @return copies of the open orders with finish time less than the given time
+     */
+    public List<DexOrder> getOverdueOrders(int currentTime) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Book current = currentBook();
+            List<BookEntry> entries = new ArrayList<>();
+            for (Set<Long> ids : current.byFinishTime.headMap(currentTime, false).values()) {
+                for (Long id : ids) {
+                    entries.add(current.byId.get(id));
+                }
+            }
+            Map<Long, BookEntry> changes = pendingEntries();
+            if (!changes.isEmpty()) {
+                entries = withChanges(entries, changes, e -> e.order.getFinishTime() < currentTime);
+                entries.sort(Comparator.<BookEntry>comparingInt(e -> e.order.getFinishTime()).thenComparingLong(e -> e.sequence));
+            }
+            List<DexOrder> result = new ArrayList<>(entries.size());
+            for (BookEntry entry : entries) {
+                result.add(copy(entry.order));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Select open orders by the same criteria and in the same order as {@link DexOrderDao#getOrders}.
+     * Orders with equal rate are sorted in the order of their creation.
+     *
+     * @param request orders request, which should be {@link #isSupported(DexOrderDBRequest)}
+     * @return copies of the selected orders
+     */
+    public List<DexOrder> getOrders(DexOrderDBRequest request) {
+        if (!isSupported(request)) {
+            throw new IllegalArgumentException("Request is not supported by the order book: " + request);
+        }
+        ensureLoaded();
+        int offset = request.getOffset() == null ? 0 : request.getOffset();
+        int limit = request.getLimit() == null ? Integer.MAX_VALUE : request.getLimit();
+        boolean byRate = request.getSortBy() != DexOrderSortBy.DB_ID;
+        boolean ascending = request.getSortOrder() == DBSortOrder.ASC;
+        lock.readLock().lock();
+        try {
+            Book current = currentBook();
+            Map<Long, BookEntry> changes = pendingEntries();
+            List<DexOrder> result = new ArrayList<>();
+            if (request.getAccountId() == null && request.getPairCur() != null && request.getType() != null && byRate
+                && changes.isEmpty()) {
+                // single side of the book is already sorted by rate
+                NavigableMap<Long, PriceLevel> side = current.findSide(DexCurrency.getType(request.getPairCur()), OrderType.getType(request.getType()));
+                int skipped = 0;
+                for (PriceLevel level : (ascending ? side : side.descendingMap()).values()) {
+                    for (BookEntry entry : level.entries.values()) {
+                        if (result.size() >= limit) {
+                            return result;
+                        }
+                        if (matches(entry.order, request)) {
+                            if (skipped < offset) {
+                                skipped++;
+                            } else {
+                                result.add(copy(entry.order));
+                            }
+                        }
+                    }
+                }
+                return result;
+            }
+            Iterable<Long> ids = current.byId.keySet();
+            if (request.getAccountId() != null) {
+                ids = current.byAccount.getOrDefault(request.getAccountId(), Set.of());
+            }
+            List<BookEntry> selected = new ArrayList<>();
+            for (Long id : ids) {
+                BookEntry entry = current.byId.get(id);
+                if (matches(entry.order, request)) {
+                    selected.add(entry);
+                }
+            }
+            if (!changes.isEmpty()) {
+                selected = withChanges(selected, changes, e -> matches(e.order, request));
+            }
+            Comparator<BookEntry> comparator = Comparator.comparingLong(e -> e.sequence);
+            if (byRate) {
+                Comparator<BookEntry> rateComparator = Comparator.comparingLong(e -> e.rate);
+                comparator = (ascending ? rateComparator : rateComparator.reversed()).thenComparing(comparator);
+            } else if (!ascending) {
+                comparator = comparator.reversed();
+            }
+            selected.sort(comparator);
+            for (int i = offset; i < selected.size() && result.size() < limit; i++) {
+                result.add(copy(selected.get(i).order));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of the open orders including changes of the current thread db transaction
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            Book current = currentBook();
+            int size = current.byId.size();
+            for (Map.Entry<Long, BookEntry> change : pendingEntries().entrySet()) {
+                boolean present = current.byId.containsKey(change.getKey());
+                if (present && change.getValue() == null) {
+                    size--;
+                } else if (!present && change.getValue() != null) {
+                    size++;
+                }
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Load the book from the db, when it was not loaded yet. Should be called before the first modification
+     * of the dex_offer table under the db transaction, so that book is loaded without uncommitted changes.
+     */
+    public void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                book = load();
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply inserted order version. Should be called under the db transaction, order is visible to other threads
+     * after the transaction commit.
+     *
+     * @param order the latest version of the order
+     */
+    public void update(DexOrder order) {
+        TransactionChanges changes = changes();
+        if (changes.reloaded != null) {
+            changes.reloaded.update(order);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            BookEntry previous = changes.entries.containsKey(order.getId()) ? changes.entries.get(order.getId()) : book.byId.get(order.getId());
+            changes.entries.put(order.getId(), book.newEntry(order, previous));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Load the book from the db again. Should be called under the db transaction, after the rollback or truncate
+     * of the dex_offer table. Loaded book is used by the current thread and replaces the shared book on the transaction commit.
+     */
+    public void reload() {
+        TransactionChanges changes = changes();
+        changes.entries.clear();
+        changes.reloaded = load();
+    }
+
+    /**
+     * Clear the book. It will be loaded from the db again on the next access.
+     */
+    public void reset() {
+        lock.writeLock().lock();
+        try {
+            book = new Book();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void commit() {
+        TransactionChanges changes = transactionChanges.get();
+        if (changes == null) {
+            return;
+        }
+        transactionChanges.remove();
+        lock.writeLock().lock();
+        try {
+            if (changes.reloaded != null) {
+                book = changes.reloaded;
+                loaded = true;
+            } else if (loaded) {
+                changes.entries.forEach(book::replace);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.trace("Dex order book db transaction commit, reloaded: {}, applied {} orders", changes.reloaded != null, changes.entries.size());
+    }
+
+    @Override
+    public void rollback() {
+        TransactionChanges changes = transactionChanges.get();
+        if (changes != null) {
+            transactionChanges.remove();
+            log.trace("Dex order book db transaction rollback, discarded {} orders", changes.entries.size());
+        }
+    }
+
+    private Book load() {
+        long start = System.currentTimeMillis();
+        Book loadedBook = new Book();
+        for (DexOrder order : loader.get()) {
+            loadedBook.replace(order.getId(), loadedBook.newEntry(order, order.getDbId()));
+            loadedBook.sequence = Math.max(loadedBook.sequence, order.getDbId());
+        }
+        log.info("Dex order book loaded {} open orders in {} ms", loadedBook.byId.size(), System.currentTimeMillis() - start);
+        return loadedBook;
+    }
+
+    private TransactionChanges changes() {
+        TransactionChanges changes = transactionChanges.get();
+        if (changes == null) {
+            changes = new TransactionChanges();
+            transactionChanges.set(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * @return book reloaded by the current thread db transaction or the shared book
+     */
+    private Book currentBook() {
+        TransactionChanges changes = transactionChanges.get();
+        return changes == null || changes.reloaded == null ? book : changes.reloaded;
+    }
+
+    /**
+     * @return not committed order entries of the current thread by order id, null entry for the not open order
+     */
+    private Map<Long, BookEntry> pendingEntries() {
+        TransactionChanges changes = transactionChanges.get();
+        return changes == null || changes.reloaded != null ? Map.of() : changes.entries;
+    }
+
+    private static List<BookEntry> withChanges(List<BookEntry> entries, Map<Long, BookEntry> changes, Predicate<BookEntry> filter) {
+        List<BookEntry> result = new ArrayList<>(entries.size());
+        for (BookEntry entry : entries) {
+            if (!changes.containsKey(entry.order.getId())) {
+                result.add(entry);
+            }
+        }
+        for (BookEntry entry : changes.values()) {
+            if (entry != null && filter.test(entry)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(DexOrder order, DexOrderDBRequest request) {
+        return (request.getAccountId() == null || order.getAccountId().equals(request.getAccountId()))
+            && (request.getCurrentTime() == null || order.getFinishTime() > request.getCurrentTime())
+            && (request.getType() == null || order.getType().ordinal() == request.getType())
+            && (request.getOfferCur() == null || order.getOrderCurrency().ordinal() == request.getOfferCur())
+            && (request.getPairCur() == null || order.getPairCurrency().ordinal() == request.getPairCur());
+    }
+
+    private static DexOrder copy(DexOrder order) {
+        return (DexOrder) order.copy();
+    }
+
+    /**
+     * Open orders indexed by the pair, rate, id, account and finish time
+     */
+    private static class Book {
+        private final Map<DexCurrency, Map<OrderType, NavigableMap<Long, PriceLevel>>> books = new EnumMap<>(DexCurrency.class);
+        private final Map<Long, BookEntry> byId = new HashMap<>();
+        private final Map<Long, Set<Long>> byAccount = new HashMap<>();
+        private final NavigableMap<Integer, Set<Long>> byFinishTime = new TreeMap<>();
+        private long sequence;
+
+        /**
+         * New order version loses its time priority, the same as the new db row of the order,
+         * except the version at the same height, which is merged into the same db row
+         *
+         * @return entry of the open order or null
+         */
+        BookEntry newEntry(DexOrder order, BookEntry previous) {
+            long orderSequence;
+            if (previous != null && previous.order.getHeight() == order.getHeight()) {
+                orderSequence = previous.sequence;
+            } else {
+                orderSequence = ++sequence;
+            }
+            return newEntry(order, orderSequence);
+        }
+
+        BookEntry newEntry(DexOrder order, long orderSequence) {
+            if (order.getStatus() != OrderStatus.OPEN) {
+                return null;
+            }
+            return new BookEntry(copy(order), EthUtil.ethToGwei(order.getPairRate()), orderSequence);
+        }
+
+        void update(DexOrder order) {
+            replace(order.getId(), newEntry(order, byId.get(order.getId())));
+        }
+
+        /**
+         * Replace the book entry of the order by the given entry, which is indexed only when it is not null
+         */
+        void replace(long id, BookEntry entry) {
+            BookEntry previous = byId.remove(id);
+            if (previous != null) {
+                unindex(previous);
+            }
+            if (entry != null) {
+                index(entry);
+            }
+        }
+
+        private void index(BookEntry entry) {
+            DexOrder order = entry.order;
+            byId.put(order.getId(), entry);
+            side(order.getPairCurrency(), order.getType()).computeIfAbsent(entry.rate, r -> new PriceLevel()).entries.put(entry.sequence, entry);
+            byAccount.computeIfAbsent(order.getAccountId(), a -> new LinkedHashSet<>()).add(order.getId());
+            byFinishTime.computeIfAbsent(order.getFinishTime(), t -> new LinkedHashSet<>()).add(order.getId());
+        }
+
+        private void unindex(BookEntry entry) {
+            DexOrder order = entry.order;
+            NavigableMap<Long, PriceLevel> side = side(order.getPairCurrency(), order.getType());
+            PriceLevel level = side.get(entry.rate);
+            if (level != null) {
+                level.entries.remove(entry.sequence);
+                if (level.entries.isEmpty()) {
+                    side.remove(entry.rate);
+                }
+            }
+            removeFromIndex(byAccount, order.getAccountId(), order.getId());
+            removeFromIndex(byFinishTime, order.getFinishTime(), order.getId());
+        }
+
+        private NavigableMap<Long, PriceLevel> findSide(DexCurrency pairCurrency, OrderType type) {
+            Map<OrderType, NavigableMap<Long, PriceLevel>> book = books.get(pairCurrency);
+            NavigableMap<Long, PriceLevel> side = book == null ? null : book.get(type);
+            return side == null ? EMPTY_SIDE : side;
+        }
+
+        private NavigableMap<Long, PriceLevel> side(DexCurrency pairCurrency, OrderType type) {
+            return books.computeIfAbsent(pairCurrency, c -> new EnumMap<>(OrderType.class))
+                .computeIfAbsent(type, t -> new TreeMap<>());
+        }
+
+        private static <K> void removeFromIndex(Map<K, Set<Long>> index, K key, Long id) {
+            Set<Long> ids = index.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Order book changes of the db transaction: new entries of the orders or the whole book loaded after the table rollback
+     */
+    private static class TransactionChanges {
+        private final Map<Long, BookEntry> entries = new LinkedHashMap<>();
+        private Book reloaded;
+    }
+
+    /**
+     * Open orders with the same rate by the sequence of their insertion into the book
+     */
+    private static class PriceLevel {
+        private final NavigableMap<Long, BookEntry> entries = new TreeMap<>();
+    }
+
+    private static class BookEntry {
+        private final DexOrder order;
+        private final long rate;
+        private final long sequence;
+
+        BookEntry(DexOrder order, long rate, long sequence) {
+            this.order = order;
+            this.rate = rate;
+            this.sequence = sequence;
+        }
+    }
+}
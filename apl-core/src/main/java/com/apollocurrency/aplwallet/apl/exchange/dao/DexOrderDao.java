@@ -111,6 +111,20 @@ public interface DexOrderDao {
     @RegisterRowMapper(DexOrderMapper.class)
     List<DexOrder> getOrdersForTrading(@BindBean DexOrderDBRequestForTrading dexOrderDBRequestForTrading);
 
+    @Transactional(readOnly = true)
+    @SqlQuery("SELECT DISTINCT account_id FROM dex_offer WHERE height = :height")
+    List<Long> getAccountsAtHeight(@Bind("height") int height);
+
+    @Transactional(readOnly = true)
+    @SqlQuery("SELECT * FROM dex_offer AS offer " +
+        "WHERE latest = true " +
+        "AND offer.status = 5 " + // CLOSED
+        "AND offer.type = 0 " + // only autocloseable buy orders
+        "AND offer.height = :height " +
+        "ORDER BY offer.db_id ASC")
+    @RegisterRowMapper(DexOrderMapper.class)
+    List<DexOrder> getClosedOrdersAtHeight(@Bind("height") int height);
+
     @Transactional(readOnly = true)
     @SqlQuery("SELECT * FROM dex_offer AS offer " +
         "WHERE latest = true " +
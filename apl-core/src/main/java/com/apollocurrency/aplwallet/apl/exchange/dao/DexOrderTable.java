@@ -36,12 +36,46 @@ public class DexOrderTable extends EntityDbTable<DexOrder> {
     private static final String TABLE_NAME = "dex_offer";
     private static DexOrderKeyFactory keyFactory = new DexOrderKeyFactory();
     private DexOrderMapper dexOrderMapper = new DexOrderMapper();
+    private final DexOrderBook orderBook = new DexOrderBook(this::getOpenOrders);
 
     @Inject
     public DexOrderTable() {
         super(TABLE_NAME, keyFactory, true, null, false);
     }
 
+    /**
+     * @return in-memory book of the open orders, which is kept in sync with this table
+     */
+    public DexOrderBook getOrderBook() {
+        return orderBook;
+    }
+
+    @Override
+    public void insert(DexOrder order) {
+        orderBook.ensureLoaded();
+        super.insert(order);
+        orderBook.update(order);
+        getDatabaseManager().getDataSource().registerCallback(orderBook);
+    }
+
+    @Override
+    public int rollback(int height) {
+        orderBook.ensureLoaded();
+        int rc = super.rollback(height);
+        if (rc > 0) {
+            orderBook.reload();
+            getDatabaseManager().getDataSource().registerCallback(orderBook);
+        }
+        return rc;
+    }
+
+    @Override
+    public void truncate() {
+        super.truncate();
+        orderBook.reload();
+        getDatabaseManager().getDataSource().registerCallback(orderBook);
+    }
+
     @Override
     public DexOrder load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
         return dexOrderMapper.map(rs, null);
@@ -51,6 +85,10 @@ public class DexOrderTable extends EntityDbTable<DexOrder> {
         return get(keyFactory.newKey(transactionId));
     }
 
+    /**
+     * Use {@link DexOrderBook#getOverdueOrders(int)}
+     */
+    @Deprecated
     public List<DexOrder> getOverdueOrders(int currentTime) {
         List<DexOrder> dexOrders = new ArrayList<>();
         try (Connection con = getDatabaseManager().getDataSource().getConnection();
@@ -71,6 +109,20 @@ public class DexOrderTable extends EntityDbTable<DexOrder> {
         return dexOrders;
     }
 
+    /**
+     * @return the latest versions of the open orders sorted by db_id
+     */
+    public List<DexOrder> getOpenOrders() {
+        try (Connection con = getDatabaseManager().getDataSource().getConnection();
+             PreparedStatement pstmt = con
+                 .prepareStatement("SELECT * FROM dex_offer WHERE latest = true AND status = 0 ORDER BY db_id")
+        ) {
+            return CollectionUtil.toList(getManyBy(con, pstmt, false));
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
     public List<DexOrder> getWaitingPhasingResultOrders() {
         return CollectionUtil.toList(getManyBy(new DbClause.ByteClause("status", (byte) OrderStatus.PHASING_RESULT_PENDING.ordinal()), 0, -1));
     }
@@ -0,0 +1,112 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.exchange.service;
+
+import com.apollocurrency.aplwallet.apl.core.peer.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>Queue of the accounts, which exchange processes should be continued by the {@link DexOrderProcessor}.
+ * Accounts are processed concurrently by the given executor, but processing of the same account is never run in
+ * parallel: account submitted during its processing will be processed once again after the current run.</p>
+ * <p>Multiple submissions of the account waiting for processing are merged into a single run, which is a full scan,
+ * when at least one of the submissions requested it.</p>
+ */
+@Slf4j
+public class DexAccountProcessingQueue {
+    private final Executor executor;
+    private final AccountProcessor processor;
+    private final Map<Long, Pending> queued = new HashMap<>();
+    private final Set<Long> running = new HashSet<>();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    public DexAccountProcessingQueue(Executor executor, AccountProcessor processor) {
+        this.executor = executor;
+        this.processor = processor;
+    }
+
+    /**
+     * @param accountId account to process
+     * @param fullScan  true to perform all the account checks including time-based refunds, false to process only
+     *                  changes of the account orders and contracts
+     */
+    public synchronized void submit(long accountId, boolean fullScan) {
+        Pending pending = queued.get(accountId);
+        if (pending != null) {
+            pending.fullScan |= fullScan;
+            return;
+        }
+        queued.put(accountId, new Pending(fullScan, System.nanoTime()));
+        if (!running.contains(accountId)) {
+            execute(accountId);
+        }
+    }
+
+    /**
+     * @return number of accounts waiting for processing
+     */
+    public synchronized int size() {
+        return queued.size();
+    }
+
+    /**
+     * @return time between the first submission of the account and start of its processing
+     */
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    private void process(long accountId) {
+        Pending pending;
+        synchronized (this) {
+            pending = queued.remove(accountId);
+            running.add(accountId);
+        }
+        waitTime.record(System.nanoTime() - pending.queuedAt);
+        try {
+            processor.process(accountId, pending.fullScan);
+        } catch (Throwable e) {
+            log.error("DexOrderProcessor error, user:" + accountId, e);
+        } finally {
+            synchronized (this) {
+                running.remove(accountId);
+                if (queued.containsKey(accountId)) {
+                    execute(accountId);
+                }
+            }
+        }
+    }
+
+    private void execute(long accountId) {
+        try {
+            executor.execute(() -> process(accountId));
+        } catch (RejectedExecutionException e) {
+            queued.remove(accountId);
+            log.debug("Account {} processing rejected: {}", accountId, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    public interface AccountProcessor {
+        void process(long accountId, boolean fullScan);
+    }
+
+    private static class Pending {
+        private boolean fullScan;
+        private final long queuedAt;
+
+        Pending(boolean fullScan, long queuedAt) {
+            this.fullScan = fullScan;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -6,20 +6,16 @@ package com.apollocurrency.aplwallet.apl.exchange.service;
 
 
 import com.apollocurrency.aplwallet.apl.core.app.TimeService;
-import com.apollocurrency.aplwallet.apl.eth.utils.EthUtil;
 import com.apollocurrency.aplwallet.apl.exchange.model.DexCurrency;
 import com.apollocurrency.aplwallet.apl.exchange.model.DexOrder;
-import com.apollocurrency.aplwallet.apl.exchange.model.DexOrderDBMatchingRequest;
 import com.apollocurrency.aplwallet.apl.exchange.model.OrderType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import static com.apollocurrency.aplwallet.apl.util.Constants.OFFER_VALIDATE_OK;
 
@@ -169,31 +165,14 @@ public class DexMatcherServiceImpl implements IDexMatcherInterface {
     public DexOrder findCounterOffer(DexOrder createdOrder) {
         log.debug("DexMatcherServiceImpl:findCounterOffer()");
 
-        // it should be done the opposite way
-        OrderType counterOrderType = createdOrder.getType().isBuy() ? OrderType.SELL : OrderType.BUY;
-        // Be careful: for selling - it should be more expensive. Buying - for cheaper price.
-        String orderBy = createdOrder.getType().isSell() ? "DESC" : "ASC";
+        int currentTime = timeService.getEpochTime();
+        // orders of the same account are skipped by the order book
+        List<DexOrder> orders = dexMatchingService.getOffersForMatching(createdOrder, currentTime);
 
-        Integer currentTime = timeService.getEpochTime();
-        BigDecimal offerAmount = new BigDecimal(createdOrder.getOrderAmount());
-        Integer pairCurrency = DexCurrency.getValue(createdOrder.getPairCurrency());
+        log.debug("offers found: {}, type: {}, currentTime: {}, offerAmount: {}, pairCurrency: {}, pairRate: {}", orders.size(),
+            createdOrder.getType().reverse(), currentTime, createdOrder.getOrderAmount(), createdOrder.getPairCurrency(), createdOrder.getPairRate());
 
-        BigDecimal pairRate = new BigDecimal(EthUtil.ethToGwei(createdOrder.getPairRate()));
-
-        log.debug("Dumping arguments: type: {}, currentTime: {}, offerAmount: {}, offerCurrency: {}, pairRate: {}, order: {}",
-            counterOrderType, currentTime, offerAmount, pairCurrency, pairRate, orderBy);
-
-        DexOrderDBMatchingRequest dexOrderDBMatchingRequest = new DexOrderDBMatchingRequest(counterOrderType, currentTime, 0, offerAmount, pairCurrency.intValue(), pairRate, orderBy);
-        List<DexOrder> orders = dexMatchingService.getOffersForMatching(dexOrderDBMatchingRequest, orderBy);
-
-        log.debug("offers found: {}", orders.size());
-
-        //Skip your orders.
-        List<DexOrder> filteredOrders = orders.stream()
-            .filter(order -> !order.getAccountId().equals(createdOrder.getAccountId()))
-            .collect(Collectors.toList());
-
-        for (DexOrder counterOffer : filteredOrders) {
+        for (DexOrder counterOffer : orders) {
             try {
                 if (validateOffer(createdOrder, counterOffer) == OFFER_VALIDATE_OK) {
                     log.debug("match found, id: {}, amount: {}, pairCurrency: {}, pairRate: {}  ", counterOffer.getId(),
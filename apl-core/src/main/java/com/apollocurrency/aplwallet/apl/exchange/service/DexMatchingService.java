@@ -1,9 +1,8 @@
 package com.apollocurrency.aplwallet.apl.exchange.service;
 
-import com.apollocurrency.aplwallet.apl.core.db.cdi.Transactional;
-import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderDao;
+import com.apollocurrency.aplwallet.apl.eth.utils.EthUtil;
+import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderTable;
 import com.apollocurrency.aplwallet.apl.exchange.model.DexOrder;
-import com.apollocurrency.aplwallet.apl.exchange.model.DexOrderDBMatchingRequest;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -12,15 +11,23 @@ import java.util.List;
 @Singleton
 public class DexMatchingService {
 
-    private DexOrderDao dexOrderDao;
+    private DexOrderTable dexOrderTable;
 
     @Inject
-    public DexMatchingService(DexOrderDao dexOrderDao) {
-        this.dexOrderDao = dexOrderDao;
+    public DexMatchingService(DexOrderTable dexOrderTable) {
+        this.dexOrderTable = dexOrderTable;
     }
 
-    @Transactional
-    public List<DexOrder> getOffersForMatching(DexOrderDBMatchingRequest dexOrderDBMatchingRequest, String orderby) {
-        return dexOrderDao.getOffersForMatchingPure(dexOrderDBMatchingRequest, orderby);
+    /**
+     * Open orders of the other accounts with the opposite type, the same pair currency, amount and rate,
+     * which are not finished at the given time. Orders are returned from the order book in the order of their creation.
+     *
+     * @param createdOrder order to match
+     * @param currentTime  epoch time
+     * @return counter orders for the validation
+     */
+    public List<DexOrder> getOffersForMatching(DexOrder createdOrder, int currentTime) {
+        return dexOrderTable.getOrderBook().getOrdersForMatching(createdOrder.getType().reverse(), createdOrder.getPairCurrency(),
+            EthUtil.ethToGwei(createdOrder.getPairRate()), createdOrder.getOrderAmount(), createdOrder.getAccountId(), currentTime);
     }
 }
@@ -1,10 +1,13 @@
 package com.apollocurrency.aplwallet.apl.exchange.service;
 
 import com.apollocurrency.aplwallet.apl.core.account.service.AccountService;
+import com.apollocurrency.aplwallet.apl.core.app.Block;
 import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
 import com.apollocurrency.aplwallet.apl.core.app.Helper2FA;
 import com.apollocurrency.aplwallet.apl.core.app.TimeService;
 import com.apollocurrency.aplwallet.apl.core.app.Transaction;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEvent;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
 import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockchainEvent;
 import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockchainEventType;
 import com.apollocurrency.aplwallet.apl.core.app.service.SecureStorageService;
@@ -13,6 +16,7 @@ import com.apollocurrency.aplwallet.apl.core.config.Property;
 import com.apollocurrency.aplwallet.apl.core.db.cdi.Transactional;
 import com.apollocurrency.aplwallet.apl.core.http.ParameterException;
 import com.apollocurrency.aplwallet.apl.core.model.CreateTransactionRequest;
+import com.apollocurrency.aplwallet.apl.core.peer.LatencyHistogram;
 import com.apollocurrency.aplwallet.apl.core.phasing.PhasingPollService;
 import com.apollocurrency.aplwallet.apl.core.phasing.model.PhasingPoll;
 import com.apollocurrency.aplwallet.apl.core.task.TaskDispatchManager;
@@ -57,18 +61,25 @@ import javax.annotation.PreDestroy;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.math.BigInteger;
 import java.sql.Timestamp;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 
 import static com.apollocurrency.aplwallet.apl.exchange.model.ExchangeContractStatus.STEP_1;
 import static com.apollocurrency.aplwallet.apl.exchange.model.ExchangeContractStatus.STEP_2;
@@ -82,6 +93,8 @@ import static com.apollocurrency.aplwallet.apl.util.Constants.OFFER_VALIDATE_OK;
 public class DexOrderProcessor {
     public static final int DEFAULT_DEX_OFFER_PROCESSOR_DELAY = 3 * 60; // 3 min in seconds
     public static final int MIN_DEX_OFFER_PROCESSOR_DELAY = 15; // 15 sec
+    public static final int DEFAULT_ETH_BLOCK_POLL_DELAY = 15; // 15 sec
+    public static final int DEFAULT_IN_PROGRESS_RETRY_DELAY = 30; // 30 sec
     private static final String ETH_SWAP_DESCRIPTION_FORMAT = "Account %s initiate atomic swap '%s' with %s under contract %d";
     private static final String ETH_SWAP_S1_DETAILS_FORMAT = "secretHash:%s;encryptedSecret:%s";
     private static final String ETH_SWAP_S2_DETAILS_FORMAT = "secretHash:%s";
@@ -104,14 +117,24 @@ public class DexOrderProcessor {
     private final PhasingPollService phasingPollService;
     private final Map<Long, OrderHeightId> accountCancelOrderMap = new HashMap<>();
     private final Map<Long, OrderHeightId> accountExpiredOrderMap = new HashMap<>();
+    /**
+     * Accounts, which have exchanges in progress, waiting for the apl or eth confirmations or for the counterparty,
+     * mapped to the time (ms), when the account may be queued again by the new apl or eth block
+     */
+    private final Map<Long, Long> accountsInProgress = new ConcurrentHashMap<>();
+    private final Map<ProcessingStep, LatencyHistogram> stepLatency = new EnumMap<>(ProcessingStep.class);
     private TaskDispatcher taskDispatcher;
     private TimeService timeService;
     private ExecutorService backgroundExecutor;
+    private DexAccountProcessingQueue accountQueue;
+    private volatile BigInteger lastEthBlockNumber;
     private DexOperationService operationService;
     private AccountService accountService;
     private volatile boolean processorEnabled = true;
     private boolean startProcessor;
     private int processingDelay; // seconds
+    private int ethBlockPollDelay; // seconds
+    private int inProgressRetryDelay; // seconds
     private DexConfig dexConfig;
     private Blockchain blockchain;
 
@@ -125,6 +148,8 @@ public class DexOrderProcessor {
                              Blockchain blockchain, PhasingPollService phasingPollService, DexOperationService operationService,
                              @Property(name = "apl.dex.orderProcessor.enabled", defaultValue = "true") boolean startProcessor,
                              @Property(name = "apl.dex.orderProcessor.delay", defaultValue = "" + DEFAULT_DEX_OFFER_PROCESSOR_DELAY) int processingDelay,
+                             @Property(name = "apl.dex.orderProcessor.ethBlockPollDelay", defaultValue = "" + DEFAULT_ETH_BLOCK_POLL_DELAY) int ethBlockPollDelay,
+                             @Property(name = "apl.dex.orderProcessor.inProgressRetryDelay", defaultValue = "" + DEFAULT_IN_PROGRESS_RETRY_DELAY) int inProgressRetryDelay,
                              DexConfig dexConfig
     ) {
 
@@ -143,24 +168,30 @@ public class DexOrderProcessor {
         this.operationService = Objects.requireNonNull(operationService);
         this.startProcessor = startProcessor;
         this.processingDelay = Math.max(MIN_DEX_OFFER_PROCESSOR_DELAY, processingDelay);
+        this.ethBlockPollDelay = Math.max(1, ethBlockPollDelay);
+        this.inProgressRetryDelay = Math.max(0, inProgressRetryDelay);
         this.accountService = accountService;
         this.dexConfig = dexConfig;
+        for (ProcessingStep step : ProcessingStep.values()) {
+            stepLatency.put(step, new LatencyHistogram());
+        }
     }
 
     @PostConstruct
     public void init() {
         if (startProcessor) {
+            backgroundExecutor = Executors.newFixedThreadPool(BACKGROUND_THREADS_NUMBER, new NamedThreadFactory(BACKGROUND_SERVICE_NAME));
+            accountQueue = new DexAccountProcessingQueue(backgroundExecutor, this::processAccount);
             taskDispatcher = taskDispatchManager.newBackgroundDispatcher(BACKGROUND_SERVICE_NAME);
             Runnable task = () -> {
                 if (processorEnabled) {
-                    long start = System.currentTimeMillis();
-                    log.info("{}: start", BACKGROUND_SERVICE_NAME);
+                    log.info("{}: full scan, queued accounts {}", BACKGROUND_SERVICE_NAME, accountQueue.size());
                     try {
                         processContracts();
                     } catch (Throwable e) {
                         log.warn("DexOrderProcessor error", e);
                     }
-                    log.info("{}: finish in {} ms", BACKGROUND_SERVICE_NAME, System.currentTimeMillis() - start);
+                    logStepLatency();
                 } else {
                     log.debug("Contracts processor is suspended.");
                 }
@@ -175,16 +206,62 @@ public class DexOrderProcessor {
 
             taskDispatcher.schedule(dexOrderProcessorTask);
 
-            log.debug("{} initialized. Periodical task configuration: initDelay={} milliseconds, delay={} milliseconds",
+            Task ethBlockPollTask = Task.builder()
+                .name(SERVICE_NAME + "-eth-blocks")
+                .delay((int) TimeUnit.SECONDS.toMillis(ethBlockPollDelay))
+                .initialDelay((int) TimeUnit.SECONDS.toMillis(ethBlockPollDelay))
+                .task(this::checkNewEthBlock)
+                .build();
+
+            taskDispatcher.schedule(ethBlockPollTask);
+
+            log.debug("{} initialized. Periodical task configuration: initDelay={} milliseconds, delay={} milliseconds, eth blocks poll delay={} milliseconds",
                 dexOrderProcessorTask.getName(),
                 dexOrderProcessorTask.getInitialDelay(),
-                dexOrderProcessorTask.getDelay());
-            backgroundExecutor = Executors.newFixedThreadPool(BACKGROUND_THREADS_NUMBER, new NamedThreadFactory(BACKGROUND_SERVICE_NAME));
+                dexOrderProcessorTask.getDelay(),
+                ethBlockPollTask.getDelay());
         } else {
             log.warn("Dex Order Processor is disabled. Exchange orders processing is not automatic and require a lot of manual operations.");
         }
     }
 
+    /**
+     * Queue accounts, which orders or contracts were changed by the pushed block, and accounts with exchanges in progress,
+     * which may wait for the apl confirmations and were not processed during the retry delay
+     */
+    public void onBlockPushed(@Observes @BlockEvent(BlockEventType.BLOCK_PUSHED) Block block) {
+        if (!startProcessor || !processorEnabled || !secureStorageService.isEnabled()) {
+            return;
+        }
+        int height = block.getHeight();
+        try {
+            backgroundExecutor.execute(() -> {
+                Set<Long> changed = dexService.getAccountsChangedAtHeight(height);
+                if (!changed.isEmpty()) {
+                    Set<Long> accounts = new HashSet<>(secureStorageService.getAccounts());
+                    changed.retainAll(accounts);
+                    log.trace("Dex accounts changed at height {}: {}", height, changed);
+                    changed.forEach(account -> accountQueue.submit(account, false));
+                }
+                submitAccountsInProgress();
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Unable to queue dex accounts changed at height {}: {}", height, e.getMessage());
+        }
+    }
+
+    /**
+     * @return processing time of each step of the exchange process, and time, which accounts spent in the queue
+     */
+    public Map<String, LatencyHistogram> getStepLatency() {
+        Map<String, LatencyHistogram> result = new LinkedHashMap<>();
+        if (accountQueue != null) {
+            result.put("QUEUE_WAIT", accountQueue.getWaitTime());
+        }
+        stepLatency.forEach((step, histogram) -> result.put(step.name(), histogram));
+        return Collections.unmodifiableMap(result);
+    }
+
     public void onResumeBlockchainEvent(@Observes @BlockchainEvent(BlockchainEventType.RESUME_DOWNLOADING) BlockchainConfig cfg) {
         resumeContractProcessor();
     }
@@ -195,54 +272,125 @@ public class DexOrderProcessor {
 
     public void suspendContractProcessor() {
         if (startProcessor) {
+            processorEnabled = false;
             taskDispatcher.suspend();
         }
     }
 
     public void resumeContractProcessor() {
         if (startProcessor) {
+            processorEnabled = true;
             taskDispatcher.resume();
+            processContracts(); // catch up changes made while suspended
         }
     }
 
     @PreDestroy
     public void shutdown() {
-        backgroundExecutor.shutdown();
+        if (backgroundExecutor != null) {
+            backgroundExecutor.shutdown();
+        }
     }
 
-
+    /**
+     * Queue full scan of all accounts to perform time-based refunds and to recover processing of the missed changes
+     */
     private void processContracts() {
         if (secureStorageService.isEnabled()) {
+            for (Long account : secureStorageService.getAccounts()) {
+                accountQueue.submit(account, true);
+            }
+        }
+    }
 
-            List<Long> accounts = secureStorageService.getAccounts();
+    private void checkNewEthBlock() {
+        if (!processorEnabled || accountsInProgress.isEmpty()) {
+            return;
+        }
+        try {
+            BigInteger blockNumber = ethereumWalletService.getLastBlock().getNumber();
+            if (!blockNumber.equals(lastEthBlockNumber)) {
+                lastEthBlockNumber = blockNumber;
+                submitAccountsInProgress();
+            }
+        } catch (Exception e) {
+            log.debug("Unable to get last eth block: {}", e.getMessage());
+        }
+    }
 
-            for (Long account : accounts) {
-                try {
-                    //TODO run this 3 functions not every time. (improve performance)
-                    processCancelOrders(account);
-                    processExpiredOrders(account);
-                    refundDepositsForLostOrders(account);
-                    refundExpiredAtomicSwaps(account);
-
-                    processContractsForUserStep1(account);
-                    processContractsForUserStep2(account);
-
-                    processIncomeContractsForUserStep3(account);
-                    processOutcomeContractsForUserStep3(account);
-                } catch (Throwable e) {
-                    log.error("DexOrderProcessor error, user:" + account, e);
-                }
+    /**
+     * Queue accounts with exchanges in progress, which were not processed during the retry delay. Accounts changed by
+     * the block are queued regardless of the delay, so that only waiting for the confirmations or for the counterparty
+     * is rate-limited here.
+     */
+    private void submitAccountsInProgress() {
+        long now = System.currentTimeMillis();
+        long nextRetryTime = now + TimeUnit.SECONDS.toMillis(inProgressRetryDelay);
+        accountsInProgress.forEach((account, retryTime) -> {
+            if (retryTime <= now && accountsInProgress.replace(account, retryTime, nextRetryTime)) {
+                accountQueue.submit(account, false);
             }
+        });
+    }
+
+    /**
+     * Continue exchange processes of the account. Called by the {@link DexAccountProcessingQueue}, which guarantees,
+     * that the same account is not processed concurrently.
+     *
+     * @param accountId account to process
+     * @param fullScan  true to refund lost deposits and expired atomic swaps, which depend on the time and eth state
+     */
+    private void processAccount(long accountId, boolean fullScan) {
+        if (!processorEnabled) {
+            return;
+        }
+        measure(ProcessingStep.CANCELLED_ORDERS, () -> processCancelOrders(accountId));
+        measure(ProcessingStep.EXPIRED_ORDERS, () -> processExpiredOrders(accountId));
+        if (fullScan) {
+            measure(ProcessingStep.LOST_DEPOSITS, () -> refundDepositsForLostOrders(accountId));
+            measure(ProcessingStep.EXPIRED_SWAPS, () -> refundExpiredAtomicSwaps(accountId));
+        }
+        int inProgress = 0;
+        inProgress += measureCount(ProcessingStep.CONTRACT_STEP_1, () -> processContractsForUserStep1(accountId));
+        inProgress += measureCount(ProcessingStep.CONTRACT_STEP_2, () -> processContractsForUserStep2(accountId));
+        inProgress += measureCount(ProcessingStep.INCOME_CONTRACT_STEP_3, () -> processIncomeContractsForUserStep3(accountId));
+        inProgress += measureCount(ProcessingStep.OUTCOME_CONTRACT_STEP_3, () -> processOutcomeContractsForUserStep3(accountId));
+        if (inProgress > 0) {
+            accountsInProgress.put(accountId, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(inProgressRetryDelay));
+        } else {
+            accountsInProgress.remove(accountId);
         }
     }
 
+    private void measure(ProcessingStep step, Runnable action) {
+        measureCount(step, () -> {
+            action.run();
+            return 0;
+        });
+    }
+
+    private int measureCount(ProcessingStep step, IntSupplier action) {
+        long start = System.nanoTime();
+        try {
+            return action.getAsInt();
+        } finally {
+            stepLatency.get(step).record(System.nanoTime() - start);
+        }
+    }
+
+    private void logStepLatency() {
+        getStepLatency().forEach((step, histogram) -> log.info("{}: {} count={}, mean={} ms, p90={} ms, max={} ms", BACKGROUND_SERVICE_NAME,
+            step, histogram.getCount(), String.format("%.1f", histogram.getMeanMs()), histogram.getPercentileMs(90), histogram.getMaxMs()));
+    }
+
     /**
      * Processing contracts with status step_1.
      *
      * @param accountId
+     * @return number of the account contracts in progress
      */
     @Transactional
-    private void processContractsForUserStep1(Long accountId) {
+    private int processContractsForUserStep1(Long accountId) {
         Set<Long> processedOrders = new HashSet<>();
 
         List<ExchangeContract> contracts = dexService.getDexContracts(DexContractDBRequest.builder()
@@ -341,6 +489,7 @@ public class DexOrderProcessor {
             }
 
         }
+        return contracts.size();
     }
 
     private void finishEthSwapOperation(DexOrder order, DexOperation operation, String txHash) {
@@ -469,9 +618,10 @@ public class DexOrderProcessor {
      * Processing contracts with status step_2.
      *
      * @param accountId
+     * @return number of the account contracts in progress
      */
     @Transactional
-    private void processContractsForUserStep2(Long accountId) {
+    private int processContractsForUserStep2(Long accountId) {
         Set<Long> processedOrders = new HashSet<>();
         List<ExchangeContract> contracts = dexService.getDexContracts(DexContractDBRequest.builder()
             .sender(accountId)
@@ -590,6 +740,7 @@ public class DexOrderProcessor {
                 log.error(e.getMessage(), e);
             }
         }
+        return contracts.size();
     }
 
     private Transaction createContractTransactionStep3(ExchangeContract contract, String txHash, String passphrase, Long accountId, long transferWithApprovalDuration) throws ParameterException, AplException.ValidationException, AplException.ExecutiveProcessException {
@@ -610,9 +761,10 @@ public class DexOrderProcessor {
      * Processing contracts with status step_3.
      *
      * @param accountId
+     * @return number of the account contracts in progress
      */
     @Transactional
-    private void processIncomeContractsForUserStep3(Long accountId) {
+    private int processIncomeContractsForUserStep3(Long accountId) {
         String passphrase = secureStorageService.getUserPassPhrase(accountId);
         List<ExchangeContract> contracts = dexService.getDexContracts(DexContractDBRequest.builder()
             .recipient(accountId)
@@ -639,11 +791,12 @@ public class DexOrderProcessor {
                 log.error(ex.getMessage(), ex);
             }
         }
+        return contracts.size();
     }
 
 
     @Transactional
-    private void processOutcomeContractsForUserStep3(Long accountId) {
+    private int processOutcomeContractsForUserStep3(Long accountId) {
         String passphrase = secureStorageService.getUserPassPhrase(accountId);
 
         DexOrderDBRequest dexOrderDBRequest = new DexOrderDBRequest();
@@ -699,6 +852,7 @@ public class DexOrderProcessor {
             }
         }
 
+        return outComeOrders.size();
     }
 
     private boolean isContractStep3Valid(ExchangeContract exchangeContract, DexOrder dexOrder) {
@@ -856,4 +1010,9 @@ public class DexOrderProcessor {
         dexService.broadcast(tx);
     }
 
+    private enum ProcessingStep {
+        CANCELLED_ORDERS, EXPIRED_ORDERS, LOST_DEPOSITS, EXPIRED_SWAPS,
+        CONTRACT_STEP_1, CONTRACT_STEP_2, INCOME_CONTRACT_STEP_3, OUTCOME_CONTRACT_STEP_3
+    }
+
 }
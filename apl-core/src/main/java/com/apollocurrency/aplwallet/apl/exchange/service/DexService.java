@@ -45,6 +45,7 @@ import com.apollocurrency.aplwallet.apl.eth.utils.EthUtil;
 import com.apollocurrency.aplwallet.apl.exchange.DexConfig;
 import com.apollocurrency.aplwallet.apl.exchange.dao.DexContractDao;
 import com.apollocurrency.aplwallet.apl.exchange.dao.DexContractTable;
+import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderBook;
 import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderDao;
 import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderTable;
 import com.apollocurrency.aplwallet.apl.exchange.dao.MandatoryTransactionDao;
@@ -93,7 +94,9 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -190,6 +193,16 @@ public class DexService {
     }
 
 
+    /**
+     * @param height blockchain height
+     * @return accounts of the orders and contracts (senders and recipients), which were changed at the given height
+     */
+    public Set<Long> getAccountsChangedAtHeight(int height) {
+        Set<Long> accounts = new HashSet<>(dexOrderDao.getAccountsAtHeight(height));
+        accounts.addAll(dexContractDao.getAccountsAtHeight(height));
+        return accounts;
+    }
+
     public List<ExchangeContract> getDexContracts(DexContractDBRequest dexContractDBRequest) {
         return dexContractDao.getAll(dexContractDBRequest);
     }
@@ -258,7 +271,7 @@ public class DexService {
             List<DexOrder> fetchedOrders;
             orders = new ArrayList<>();
             do {
-                fetchedOrders = dexOrderDao.getOrders(dexOrderDBRequest, dexOrderDBRequest.getSortBy(), dexOrderDBRequest.getSortOrder());
+                fetchedOrders = fetchOrders(dexOrderDBRequest);
                 Integer offset = dexOrderDBRequest.getOffset();
                 if (offset != null) {
                     dexOrderDBRequest.setOffset(dexOrderDBRequest.getOffset() + dexOrderDBRequest.getLimit());
@@ -274,13 +287,22 @@ public class DexService {
             }
             while (orders.size() < dexOrderDBRequest.getLimit() && fetchedOrders.size() == dexOrderDBRequest.getLimit());
         } else {
-            List<DexOrder> fetchedOrders = dexOrderDao.getOrders(dexOrderDBRequest,
-                dexOrderDBRequest.getSortBy(), dexOrderDBRequest.getSortOrder());
+            List<DexOrder> fetchedOrders = fetchOrders(dexOrderDBRequest);
             orders = mapToOrdersWithFreezing(fetchedOrders);
         }
         return orders;
     }
 
+    /**
+     * Open orders are selected from the order book, other orders from the db
+     */
+    private List<DexOrder> fetchOrders(DexOrderDBRequest dexOrderDBRequest) {
+        if (DexOrderBook.isSupported(dexOrderDBRequest)) {
+            return dexOrderTable.getOrderBook().getOrders(dexOrderDBRequest);
+        }
+        return dexOrderDao.getOrders(dexOrderDBRequest, dexOrderDBRequest.getSortBy(), dexOrderDBRequest.getSortOrder());
+    }
+
     @Transactional(readOnly = true)
     public DexOrderWithFreezing getOrderWithFreezing(Long orderId) {
         DexOrder order = getOrder(orderId);
@@ -345,7 +367,7 @@ public class DexService {
      */
     public void closeOverdueOrders(Integer time) throws AplException.ExecutiveProcessException {
         long start = System.currentTimeMillis();
-        List<DexOrder> orders = dexOrderTable.getOverdueOrders(time)
+        List<DexOrder> orders = dexOrderTable.getOrderBook().getOverdueOrders(time)
             .stream()
             .filter(order -> order.getHeight() < blockchain.getHeight())
             .collect(Collectors.toList());
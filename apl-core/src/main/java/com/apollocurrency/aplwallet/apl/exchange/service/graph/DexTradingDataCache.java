@@ -0,0 +1,384 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.exchange.service.graph;
+
+import com.apollocurrency.aplwallet.api.trading.SimpleTradingEntry;
+import com.apollocurrency.aplwallet.apl.core.app.Block;
+import com.apollocurrency.aplwallet.apl.core.app.Convert2;
+import com.apollocurrency.aplwallet.apl.core.app.TimeService;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEvent;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
+import com.apollocurrency.aplwallet.apl.core.config.Property;
+import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderDao;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexCandlestick;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexCurrency;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrder;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderDbIdPaginationDbRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.apollocurrency.aplwallet.apl.exchange.service.graph.CandlestickUtil.BASE_TIME_INTERVAL;
+import static com.apollocurrency.aplwallet.apl.exchange.service.graph.CandlestickUtil.convertOrders;
+
+/**
+ * <p>In-memory candlesticks of the recent closed buy orders for each paired currency and for all {@link TimeFrame}s,
+ * aggregated incrementally, when block is pushed to the loaded cache, and recalculated from the orders of the affected candlesticks,
+ * when block is popped off.</p>
+ * <p>Each time frame keeps candlesticks for the last 'apl.dex.graph.cachedCandles' intervals, so that bars requested
+ * for that time window are served without db queries. Cache is loaded from the db on the first bars request.
+ * Blockchain rescan resets the cache.</p>
+ */
+@Singleton
+@Slf4j
+public class DexTradingDataCache {
+    private static final int DEFAULT_CACHED_CANDLES = 500;
+    private static final int LOAD_ORDER_SELECT_LIMIT = 1000;
+
+    private final DexOrderDao orderDao;
+    private final TimeService timeService;
+    private final boolean enabled;
+    private final int cachedCandles;
+    private final Map<DexCurrency, Map<TimeFrame, CandlestickRing>> rings = new EnumMap<>(DexCurrency.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+    private volatile boolean rescanInProgress;
+    private int loadedFrom; // unix seconds
+
+    @Inject
+    public DexTradingDataCache(DexOrderDao orderDao, TimeService timeService,
+                               @Property("apl.dex.graph.enableDataCache") boolean enabled,
+                               @Property(name = "apl.dex.graph.cachedCandles", defaultValue = "" + DEFAULT_CACHED_CANDLES) int cachedCandles) {
+        this.orderDao = Objects.requireNonNull(orderDao);
+        this.timeService = Objects.requireNonNull(timeService);
+        this.enabled = enabled;
+        if (cachedCandles < 1) {
+            throw new IllegalArgumentException("Number of cached candlesticks should be positive, got " + cachedCandles);
+        }
+        this.cachedCandles = cachedCandles;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param fromTimestamp lower time bound (unix seconds), which will be rounded up to the time frame interval
+     * @param toTimestamp   upper time bound (unix seconds)
+     * @param currency      paired currency
+     * @param timeFrame     candlestick time frame
+     * @return candlesticks sorted by time or null, when time range is not covered by the cache
+     */
+    public List<SimpleTradingEntry> getBars(int fromTimestamp, int toTimestamp, DexCurrency currency, TimeFrame timeFrame) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int startTime = ceilTo(timeFrame, fromTimestamp);
+            if (startTime < coveredFrom(timeFrame) || startTime > toTimestamp) {
+                return null;
+            }
+            List<SimpleTradingEntry> result = new ArrayList<>();
+            CandlestickRing ring = findRing(currency, timeFrame);
+            if (ring != null) {
+                for (DexCandlestick c : ring.getCandlesticks(startTime, toTimestamp)) {
+                    result.add(new SimpleTradingEntry(c.getTimestamp(), c.getOpen(), c.getClose(), c.getMin(), c.getMax(), c.getFromVolume(), c.getToVolume()));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param fromTimestamp time (unix seconds)
+     * @param currency      paired currency
+     * @param timeFrame     candlestick time frame
+     * @return open time of the candlestick, which holds the latest order finished before the given time, or null, when
+     * such candlestick is not cached
+     */
+    public Integer getPreviousCandlestickTime(int fromTimestamp, DexCurrency currency, TimeFrame timeFrame) {
+        if (!loaded) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            CandlestickRing ring = findRing(currency, timeFrame);
+            if (ring == null) {
+                return null;
+            }
+            for (Map.Entry<Integer, Map<Long, DexOrder>> entry : ring.orders.headMap(fromTimestamp, false).descendingMap().entrySet()) {
+                for (DexOrder order : entry.getValue().values()) {
+                    if (toUnixTime(order) < fromTimestamp) {
+                        return entry.getKey();
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void onBlockPushed(@Observes @BlockEvent(BlockEventType.BLOCK_PUSHED) Block block) {
+        if (!enabled) {
+            return;
+        }
+        if (!loaded) {
+            // nothing to update in the cold cache, but the load running concurrently may miss the block orders,
+            // so drop its result instead of selecting them, the next bars request will load the cache again
+            reset();
+            return;
+        }
+        // select the orders before taking the lock, the cache may be reloaded meanwhile and its query may miss them,
+        // orders seen by both are deduplicated
+        List<DexOrder> orders = orderDao.getClosedOrdersAtHeight(block.getHeight());
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            for (DexOrder order : orders) {
+                addOrder(order);
+            }
+            evictOld();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onBlockPopped(@Observes @BlockEvent(BlockEventType.BLOCK_POPPED) Block block) {
+        if (!enabled || !loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            int removed = 0;
+            for (Map<TimeFrame, CandlestickRing> currencyRings : rings.values()) {
+                for (CandlestickRing ring : currencyRings.values()) {
+                    removed += ring.removeFromHeight(block.getHeight());
+                }
+            }
+            log.trace("Trading data cache: removed {} candlestick orders from height {}", removed, block.getHeight());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onRescanBegin(@Observes @BlockEvent(BlockEventType.RESCAN_BEGIN) Block block) {
+        rescanInProgress = true;
+        reset();
+    }
+
+    public void onRescanEnd(@Observes @BlockEvent(BlockEventType.RESCAN_END) Block block) {
+        reset();
+        rescanInProgress = false;
+    }
+
+    private void reset() {
+        lock.writeLock().lock();
+        try {
+            rings.clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean ensureLoaded() {
+        if (!enabled || rescanInProgress) {
+            return false;
+        }
+        if (loaded) {
+            return true;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded && !rescanInProgress) {
+                load();
+            }
+            return loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        rings.clear();
+        loadedFrom = windowStart(TimeFrame.DAY);
+        int fromEpochTime = Convert2.toEpochTime((long) loadedFrom * 1000);
+        int count = 0;
+        for (DexCurrency currency : DexCurrency.values()) {
+            if (currency == DexCurrency.APL) {
+                continue;
+            }
+            long fromDbId = 0;
+            List<DexOrder> orders;
+            do {
+                orders = orderDao.getOrdersFromDbIdBetweenTimestamps(OrderDbIdPaginationDbRequest.builder()
+                    .limit(LOAD_ORDER_SELECT_LIMIT)
+                    .coin(currency)
+                    .fromTime(fromEpochTime)
+                    .toTime(Integer.MAX_VALUE)
+                    .fromDbId(fromDbId)
+                    .build());
+                for (DexOrder order : orders) {
+                    addOrder(order);
+                }
+                count += orders.size();
+                if (!orders.isEmpty()) {
+                    fromDbId = orders.get(orders.size() - 1).getDbId();
+                }
+            } while (orders.size() == LOAD_ORDER_SELECT_LIMIT);
+        }
+        loaded = true;
+        log.info("Trading data cache loaded {} orders since {} in {} ms", count, loadedFrom, System.currentTimeMillis() - start);
+    }
+
+    private void addOrder(DexOrder order) {
+        int unixTime = toUnixTime(order);
+        for (TimeFrame timeFrame : TimeFrame.values()) {
+            if (unixTime >= coveredFrom(timeFrame)) {
+                ring(order.getPairCurrency(), timeFrame).add(order);
+            }
+        }
+    }
+
+    private void evictOld() {
+        for (Map<TimeFrame, CandlestickRing> currencyRings : rings.values()) {
+            currencyRings.forEach((timeFrame, ring) -> ring.removeBefore(coveredFrom(timeFrame)));
+        }
+    }
+
+    /**
+     * Candlesticks of the time frame are complete starting from this time
+     */
+    private int coveredFrom(TimeFrame timeFrame) {
+        return Math.max(loadedFrom, windowStart(timeFrame));
+    }
+
+    private int windowStart(TimeFrame timeFrame) {
+        int interval = interval(timeFrame);
+        int now = (int) timeService.systemTime();
+        return now - now % interval - (cachedCandles - 1) * interval;
+    }
+
+    private CandlestickRing ring(DexCurrency currency, TimeFrame timeFrame) {
+        return rings.computeIfAbsent(currency, c -> new EnumMap<>(TimeFrame.class))
+            .computeIfAbsent(timeFrame, CandlestickRing::new);
+    }
+
+    private CandlestickRing findRing(DexCurrency currency, TimeFrame timeFrame) {
+        Map<TimeFrame, CandlestickRing> currencyRings = rings.get(currency);
+        return currencyRings == null ? null : currencyRings.get(timeFrame);
+    }
+
+    private static int interval(TimeFrame timeFrame) {
+        return timeFrame.muliplier * BASE_TIME_INTERVAL;
+    }
+
+    private static int ceilTo(TimeFrame timeFrame, int time) {
+        int interval = interval(timeFrame);
+        int remainder = time % interval;
+        return remainder == 0 ? time : time + (interval - remainder);
+    }
+
+    private static int toUnixTime(DexOrder order) {
+        return (int) (Convert2.fromEpochTime(order.getFinishTime()) / 1000);
+    }
+
+    /**
+     * Candlesticks of the single currency and time frame by open time together with their orders
+     */
+    private static class CandlestickRing {
+        private final TimeFrame timeFrame;
+        private final NavigableMap<Integer, DexCandlestick> candles = new TreeMap<>();
+        private final NavigableMap<Integer, Map<Long, DexOrder>> orders = new TreeMap<>();
+
+        CandlestickRing(TimeFrame timeFrame) {
+            this.timeFrame = timeFrame;
+        }
+
+        void add(DexOrder order) {
+            int unixTime = toUnixTime(order);
+            int openTime = unixTime - unixTime % interval(timeFrame);
+            Map<Long, DexOrder> candleOrders = orders.computeIfAbsent(openTime, t -> new LinkedHashMap<>());
+            if (candleOrders.putIfAbsent(order.getId(), order) == null) {
+                convertOrders(List.of(order), candles, timeFrame, t -> null);
+            }
+        }
+
+        /**
+         * @return candlesticks opened between the given time bounds inclusive, the last one is recalculated only
+         * from the orders finished not later than the upper bound
+         */
+        List<DexCandlestick> getCandlesticks(int fromTime, int toTime) {
+            List<DexCandlestick> result = new ArrayList<>(candles.subMap(fromTime, true, toTime, true).values());
+            if (!result.isEmpty()) {
+                DexCandlestick last = result.get(result.size() - 1);
+                List<DexOrder> lastOrders = new ArrayList<>(orders.get(last.getTimestamp()).values());
+                if (lastOrders.removeIf(o -> toUnixTime(o) > toTime)) {
+                    result.remove(result.size() - 1);
+                    Map<Integer, DexCandlestick> recalculated = new HashMap<>();
+                    convertOrders(lastOrders, recalculated, timeFrame, t -> null);
+                    result.addAll(recalculated.values());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Remove orders closed at the given height or above and recalculate their candlesticks
+         *
+         * @return number of removed orders
+         */
+        int removeFromHeight(int height) {
+            int removed = 0;
+            Iterator<Map.Entry<Integer, Map<Long, DexOrder>>> iterator = orders.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Integer, Map<Long, DexOrder>> entry = iterator.next();
+                Map<Long, DexOrder> candleOrders = entry.getValue();
+                int size = candleOrders.size();
+                if (candleOrders.values().removeIf(o -> o.getHeight() >= height)) {
+                    removed += size - candleOrders.size();
+                    candles.remove(entry.getKey());
+                    if (candleOrders.isEmpty()) {
+                        iterator.remove();
+                    } else {
+                        Map<Integer, DexCandlestick> recalculated = new HashMap<>();
+                        convertOrders(new ArrayList<>(candleOrders.values()), recalculated, timeFrame, t -> null);
+                        candles.putAll(recalculated);
+                    }
+                }
+            }
+            return removed;
+        }
+
+        void removeBefore(int time) {
+            candles.headMap(time, false).clear();
+            orders.headMap(time, false).clear();
+        }
+    }
+}
@@ -31,9 +31,10 @@ public class DexTradingDataService {
     private static final int DEFAULT_ORDER_SELECT_LIMIT = 100;
 
     private boolean enableTradingViewGraphDataFeeder; // not yet implemented
-    private boolean enableTradingDataCache; // not yet implemented
+    private boolean enableTradingDataCache;
     private DexCandlestickDao candlestickDao;
     private DexOrderDao orderDao;
+    private DexTradingDataCache dataCache;
     private int orderSelectLimit;
 
 
@@ -41,8 +42,9 @@ public class DexTradingDataService {
     public DexTradingDataService(@Property("apl.dex.graph.enableDataFeeder") boolean enableTradingViewGraphDataFeeder,
                                  @Property("apl.dex.graph.enableDataCache") boolean enableTradingDataCache,
                                  DexCandlestickDao candlestickDao,
-                                 DexOrderDao orderDao) {
-        this(enableTradingViewGraphDataFeeder, enableTradingDataCache, candlestickDao, orderDao, DEFAULT_ORDER_SELECT_LIMIT);
+                                 DexOrderDao orderDao,
+                                 DexTradingDataCache dataCache) {
+        this(enableTradingViewGraphDataFeeder, enableTradingDataCache, candlestickDao, orderDao, dataCache, DEFAULT_ORDER_SELECT_LIMIT);
     }
 
     public DexTradingDataService(boolean enableTradingViewGraphDataFeeder,
@@ -50,10 +52,20 @@ public class DexTradingDataService {
                                  DexCandlestickDao candlestickDao,
                                  DexOrderDao orderDao,
                                  int orderSelectLimit) {
+        this(enableTradingViewGraphDataFeeder, enableTradingDataCache, candlestickDao, orderDao, null, orderSelectLimit);
+    }
+
+    public DexTradingDataService(boolean enableTradingViewGraphDataFeeder,
+                                 boolean enableTradingDataCache,
+                                 DexCandlestickDao candlestickDao,
+                                 DexOrderDao orderDao,
+                                 DexTradingDataCache dataCache,
+                                 int orderSelectLimit) {
         this.enableTradingViewGraphDataFeeder = enableTradingViewGraphDataFeeder;
-        this.enableTradingDataCache = enableTradingDataCache;
+        this.enableTradingDataCache = enableTradingDataCache && dataCache != null;
         this.candlestickDao = Objects.requireNonNull(candlestickDao);
         this.orderDao = Objects.requireNonNull(orderDao);
+        this.dataCache = dataCache;
         this.orderSelectLimit = orderSelectLimit;
     }
 
@@ -81,6 +93,12 @@ public class DexTradingDataService {
     }
 
     public TradingDataOutput getBars(int fromTimestamp, int toTimestamp, DexCurrency currency, TimeFrame timeFrame) {
+        if (enableTradingDataCache) {
+            List<SimpleTradingEntry> cached = dataCache.getBars(fromTimestamp, toTimestamp, currency, timeFrame);
+            if (cached != null) { // requested time range is held by the cache
+                return buildTradingDataOutput(currency, timeFrame, fromTimestamp, cached);
+            }
+        }
         int lastCandlestickTimestamp = getLastCandlestickTimestamp(currency);
         List<SimpleTradingEntry> data = new ArrayList<>();
         if (lastCandlestickTimestamp == -1 ||
@@ -155,6 +173,13 @@ public class DexTradingDataService {
         TradingDataOutput tradingDataOutput = new TradingDataOutput();
         if (data.isEmpty()) {
             tradingDataOutput.setS("no_data");
+            if (enableTradingDataCache) {
+                Integer nextTime = dataCache.getPreviousCandlestickTime(fromTimestamp, currency, timeFrame);
+                if (nextTime != null) {
+                    tradingDataOutput.setNextTime(nextTime);
+                    return tradingDataOutput;
+                }
+            }
             DexOrder order = orderDao.getLastClosedOrderBeforeTimestamp(currency, Convert2.toEpochTime((long) fromTimestamp * 1000));
             if (order != null) {
                 int nextTime = (int) (Convert2.fromEpochTime(order.getFinishTime()) / 1000);
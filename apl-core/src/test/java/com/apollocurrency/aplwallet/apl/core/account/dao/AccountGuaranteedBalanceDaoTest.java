@@ -92,6 +92,21 @@ class AccountGuaranteedBalanceDaoTest {
         return expectedSum;
     }
 
+    @Test
+    void testGetSumOfAdditionsAfterRollback() {
+        long accountId = testData.ACC_BALANCE_1.getAccountId();
+        int height1 = testData.ACC_BALANCE_1.getHeight();
+        int rollbackHeight = height1 + 500;
+        table.getSumOfAdditions(accountId, height1, height1 + 1000);
+
+        DbUtils.inTransaction(dbExtension, con -> table.rollback(rollbackHeight));
+
+        long expectedSum = testData.ALL_BALANCES.stream().
+            filter(b -> (b.getAccountId() == accountId && b.getHeight() > height1 && b.getHeight() <= rollbackHeight)).
+            mapToLong(AccountGuaranteedBalance::getAdditions).sum();
+        assertEquals(expectedSum, table.getSumOfAdditions(accountId, height1, height1 + 1000));
+    }
+
     @Test
     void addToGuaranteedBalanceATM() {
         long amountATM = 10000L;
@@ -0,0 +1,128 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account.dao;
+
+import com.apollocurrency.aplwallet.apl.core.account.model.AccountGuaranteedBalance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AccountGuaranteedBalanceIndexTest {
+    private List<AccountGuaranteedBalance> dbAdditions;
+    private AccountGuaranteedBalanceIndex index;
+
+    @BeforeEach
+    void setUp() {
+        dbAdditions = new ArrayList<>(List.of(
+            new AccountGuaranteedBalance(1, 100, 10),
+            new AccountGuaranteedBalance(2, 50, 10),
+            new AccountGuaranteedBalance(1, 200, 12),
+            new AccountGuaranteedBalance(1, 300, 15),
+            new AccountGuaranteedBalance(3, 400, 15)
+        ));
+        index = new AccountGuaranteedBalanceIndex(() -> dbAdditions);
+    }
+
+    @Test
+    void testGetSumOfAdditions() {
+        assertEquals(600L, index.getSumOfAdditions(1, 9, 15));
+        assertEquals(500L, index.getSumOfAdditions(1, 10, 20));
+        assertEquals(200L, index.getSumOfAdditions(1, 11, 14));
+        assertEquals(0L, index.getSumOfAdditions(1, 15, 20));
+        assertEquals(0L, index.getSumOfAdditions(4, 9, 20));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testRangeBelowLoadedAdditionsIsNotAvailable() {
+        assertNull(index.getSumOfAdditions(1, 8, 15));
+        assertNull(index.getAdditions(List.of(1L), 8, 15));
+    }
+
+    @Test
+    void testGetAdditions() {
+        Map<Long, Long> additions = index.getAdditions(List.of(1L, 2L, 3L, 4L), 10, Integer.MAX_VALUE);
+
+        assertEquals(Map.of(1L, 500L, 3L, 400L), additions);
+    }
+
+    @Test
+    void testAddAndRemoveAbove() {
+        index.ensureLoaded();
+        index.add(1, 10, 15);
+        index.add(1, 20, 16);
+        index.add(2, 30, 16);
+
+        assertEquals(530L, index.getSumOfAdditions(1, 10, 16));
+        assertEquals(30L, index.getSumOfAdditions(2, 15, 16));
+
+        index.removeAbove(15);
+
+        assertEquals(510L, index.getSumOfAdditions(1, 10, 16));
+        assertEquals(50L, index.getSumOfAdditions(2, 9, 16));
+        assertEquals(3, index.size());
+
+        index.removeAbove(10);
+
+        assertEquals(100L, index.getSumOfAdditions(1, 9, 16));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testAddBelowLastHeight() {
+        index.ensureLoaded();
+        index.add(1, 10, 11);
+        index.add(1, 5, 12);
+
+        assertEquals(10L, index.getSumOfAdditions(1, 10, 11));
+        assertEquals(215L, index.getSumOfAdditions(1, 10, 12));
+        assertEquals(515L, index.getSumOfAdditions(1, 10, 15));
+    }
+
+    @Test
+    void testRemoveBelow() {
+        index.ensureLoaded();
+        for (int height = 16; height < 30; height++) {
+            index.add(1, 1, height);
+        }
+
+        index.removeBelow(15);
+
+        assertNull(index.getSumOfAdditions(1, 12, 29));
+        assertEquals(314L, index.getSumOfAdditions(1, 14, 29));
+        assertEquals(10L, index.getSumOfAdditions(1, 19, 29));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testTransactionRollbackReloadsIndex() {
+        index.ensureLoaded();
+        index.add(1, 1000, 20);
+        assertEquals(1500L, index.getSumOfAdditions(1, 10, 20));
+
+        index.rollback();
+
+        assertEquals(500L, index.getSumOfAdditions(1, 10, 20));
+    }
+
+    @Test
+    void testEmptyIndexIsCompleteFromFirstAddition() {
+        dbAdditions.clear();
+        index.ensureLoaded();
+
+        assertNull(index.getSumOfAdditions(1, 10, 20));
+
+        index.add(1, 100, 20);
+
+        assertNull(index.getSumOfAdditions(1, 10, 20));
+        assertEquals(100L, index.getSumOfAdditions(1, 19, 20));
+    }
+}
@@ -87,6 +87,21 @@ class AccountLedgerDaoTest {
         assertEquals(testData.newLedger.getEventId(), actual.getEventId());
     }
 
+    @Test
+    void testInsertBatch() {
+        LedgerEntry newLedger = testData.newLedger;
+        LedgerEntry secondLedger = new LedgerEntry(newLedger.getEvent(), newLedger.getEventId() + 1, newLedger.getAccountId(),
+            newLedger.getHolding(), newLedger.getHoldingId(), 20000L, newLedger.getBalance() + 20000L,
+            newLedger.getBlockId(), newLedger.getTimestamp(), newLedger.getHeight());
+
+        DbUtils.inTransaction(dbExtension, (con) -> table.insert(List.of(newLedger, secondLedger)));
+        List<LedgerEntry> actual = table.getEntries(newLedger.getAccountId(), null, 0, null, 0, 0, Integer.MAX_VALUE, true);
+
+        assertEquals(List.of(secondLedger.getEventId(), newLedger.getEventId()),
+            actual.stream().map(LedgerEntry::getEventId).collect(Collectors.toList()));
+        assertEquals(List.of(20000L, 10000L), actual.stream().map(LedgerEntry::getChange).collect(Collectors.toList()));
+    }
+
     @Test
     void testSave_update_existing_entity() {//SQL MERGE -> UPDATE
         LedgerEntry previous = table.getEntry(testData.ACC_LEDGER_0.getLedgerId(), true);
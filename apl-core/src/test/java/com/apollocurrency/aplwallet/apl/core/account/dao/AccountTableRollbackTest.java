@@ -0,0 +1,205 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account.dao;
+
+import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainImpl;
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainProcessor;
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainProcessorImpl;
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedDbTablesRegistryImpl;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedTablesRegistry;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.core.db.fulltext.FullTextConfig;
+import com.apollocurrency.aplwallet.apl.core.db.fulltext.FullTextConfigImpl;
+import com.apollocurrency.aplwallet.apl.data.DbTestData;
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import com.apollocurrency.aplwallet.apl.testutil.DbUtils;
+import com.apollocurrency.aplwallet.apl.testutil.EntityProducer;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.weld.junit.MockBean;
+import org.jboss.weld.junit5.EnableWeld;
+import org.jboss.weld.junit5.WeldInitiator;
+import org.jboss.weld.junit5.WeldSetup;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compare the set-based multiversion rollback of the {@link com.apollocurrency.aplwallet.apl.core.db.derived.BasicDbTable}
+ * with the legacy per-key update loop on the generated account history
+ */
+@Slf4j
+@EnableWeld
+class AccountTableRollbackTest {
+    @RegisterExtension
+    static DbExtension dbExtension = new DbExtension(DbTestData.getInMemDbProps(), "db/acc-data.sql", "db/schema.sql");
+    @Inject
+    AccountTable table;
+    @WeldSetup
+    public WeldInitiator weld = WeldInitiator.from(
+        PropertiesHolder.class, EntityProducer.class, AccountTable.class
+    )
+        .addBeans(MockBean.of(dbExtension.getDatabaseManager(), DatabaseManager.class))
+        .addBeans(MockBean.of(dbExtension.getDatabaseManager().getJdbi(), Jdbi.class))
+        .addBeans(MockBean.of(mock(BlockchainConfig.class), BlockchainConfig.class))
+        .addBeans(MockBean.of(mock(BlockchainImpl.class), Blockchain.class, BlockchainImpl.class))
+        .addBeans(MockBean.of(mock(FullTextConfig.class), FullTextConfig.class, FullTextConfigImpl.class))
+        .addBeans(MockBean.of(mock(DerivedTablesRegistry.class), DerivedTablesRegistry.class, DerivedDbTablesRegistryImpl.class))
+        .addBeans(MockBean.of(mock(BlockchainProcessor.class), BlockchainProcessor.class, BlockchainProcessorImpl.class))
+        .build();
+
+    @Test
+    void testRollbackMatchesLegacyLoop() {
+        generateHistory(1_000, 6);
+
+        compareWithLegacyLoop(200_000 + 3 * 10 + 5);
+    }
+
+    @Test
+    void testRollbackToHeightBelowAllGeneratedVersionsMatchesLegacyLoop() {
+        generateHistory(500, 4);
+
+        compareWithLegacyLoop(150_000);
+    }
+
+    @Disabled("Benchmark for the accounts-sized table, run manually")
+    @Test
+    void benchmarkRollback() {
+        generateHistory(100_000, 10);
+
+        compareWithLegacyLoop(200_000 + 7 * 10);
+    }
+
+    private void compareWithLegacyLoop(int height) {
+        TransactionalDataSource dataSource = dbExtension.getDatabaseManager().getDataSource();
+        List<String> expected;
+        long legacyTime;
+        try (Connection con = dataSource.begin()) {
+            long start = System.currentTimeMillis();
+            legacyRollback(con, height);
+            legacyTime = System.currentTimeMillis() - start;
+            expected = selectState(con);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            dataSource.rollback();
+        }
+
+        long start = System.currentTimeMillis();
+        DbUtils.inTransaction(dbExtension, con -> table.rollback(height));
+        long setBasedTime = System.currentTimeMillis() - start;
+        log.info("Rollback of the account table to height {}: legacy loop - {} ms, set-based - {} ms", height, legacyTime, setBasedTime);
+
+        List<String> actual = DbUtils.getInTransaction(dbExtension, con -> {
+            try {
+                return selectState(con);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Generate account versions at heights 200_000 + version * 10 + (account id % 10). Each 10th account is deleted
+     * at the last version (latest=false, paired deleted=true records), each 7th account is deleted at the middle version
+     * and then created again.
+     */
+    private void generateHistory(int accounts, int versions) {
+        DbUtils.inTransaction(dbExtension, con -> {
+            try (PreparedStatement pstmt = con.prepareStatement("INSERT INTO account (id, balance, unconfirmed_balance, "
+                + "has_control_phasing, forged_balance, height, latest, deleted) VALUES (?, ?, ?, FALSE, 0, ?, ?, ?)")) {
+                for (long id = 1_000_000; id < 1_000_000 + accounts; id++) {
+                    boolean deletedAtEnd = id % 10 == 0;
+                    int deletedInMiddle = id % 7 == 0 ? versions / 2 : -1;
+                    for (int version = 0; version < versions; version++) {
+                        boolean last = version == versions - 1;
+                        boolean deleted = (deletedAtEnd && version >= versions - 2)
+                            || version == deletedInMiddle || version == deletedInMiddle - 1;
+                        pstmt.setLong(1, id);
+                        pstmt.setLong(2, id * 100 + version);
+                        pstmt.setLong(3, id * 100 + version);
+                        pstmt.setInt(4, 200_000 + version * 10 + (int) (id % 10));
+                        pstmt.setBoolean(5, last && !deletedAtEnd);
+                        pstmt.setBoolean(6, deleted);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private List<String> selectState(Connection con) throws SQLException {
+        List<String> state = new ArrayList<>();
+        try (PreparedStatement pstmt = con.prepareStatement("SELECT db_id, id, height, latest, deleted FROM account ORDER BY db_id");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                state.add(rs.getLong(1) + ":" + rs.getLong(2) + ":" + rs.getInt(3) + ":" + rs.getBoolean(4) + ":" + rs.getBoolean(5));
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Previous per-key implementation of the multiversion rollback for the account table
+     */
+    private void legacyRollback(Connection con, int height) throws SQLException {
+        try (PreparedStatement pstmtSelectToDelete = con.prepareStatement("SELECT DISTINCT id FROM account WHERE height > ?");
+             PreparedStatement pstmtDelete = con.prepareStatement("DELETE FROM account WHERE height > ?");
+             PreparedStatement pstmtSetLatest = con.prepareStatement("UPDATE account SET latest = TRUE, deleted = FALSE WHERE id = ? AND height ="
+                 + " (SELECT MAX(height) FROM account WHERE id = ?)");
+             PreparedStatement pstmtSelectDeletedCount = con.prepareStatement("SELECT id FROM account WHERE height <= ? AND deleted = true"
+                 + " GROUP BY id HAVING COUNT(DISTINCT HEIGHT) % 2 = 0");
+             PreparedStatement pstmtGetLatestDeleted = con.prepareStatement("SELECT deleted FROM account WHERE id = ? AND height <= ?"
+                 + " ORDER BY db_id DESC LIMIT 1")) {
+            pstmtSelectToDelete.setInt(1, height);
+            List<Long> ids = new ArrayList<>();
+            try (ResultSet rs = pstmtSelectToDelete.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+            pstmtDelete.setInt(1, height);
+            pstmtDelete.executeUpdate();
+            pstmtSelectDeletedCount.setInt(1, height);
+            try (ResultSet rs = pstmtSelectDeletedCount.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    pstmtGetLatestDeleted.setLong(1, id);
+                    pstmtGetLatestDeleted.setInt(2, height);
+                    try (ResultSet latestDeleted = pstmtGetLatestDeleted.executeQuery()) {
+                        if (latestDeleted.next() && latestDeleted.getBoolean(1)) {
+                            ids.remove(Long.valueOf(id));
+                        }
+                    }
+                }
+            }
+            for (Long id : ids) {
+                pstmtSetLatest.setLong(1, id);
+                pstmtSetLatest.setLong(2, id);
+                pstmtSetLatest.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.peer.PeersService;
+import com.apollocurrency.aplwallet.apl.crypto.Crypto;
+import com.apollocurrency.aplwallet.apl.util.AplException;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class BinaryWireFormatTest {
+    private static final byte[] TX_1_BYTES = {1, 2, 3, 4, 5};
+    private static final byte[] TX_2_BYTES = {6, 7, 8};
+    private static final byte[] BLOCK_BYTES = {9, 10, 11, 12};
+    private static final byte[] KEY_SEED = Crypto.getKeySeed("block generator secret");
+
+    @AfterEach
+    void tearDown() {
+        PeersService.isBinaryProtocolEnabled = false;
+    }
+
+    @Test
+    void testWriteReadTransactions() throws AplException.NotValidException {
+        JSONObject prunable = new JSONObject();
+        prunable.put("message", "test");
+        Transaction tx1 = transaction(TX_1_BYTES, null);
+        Transaction tx2 = transaction(TX_2_BYTES, prunable);
+
+        List<BinaryWireFormat.TransactionData> transactions =
+            BinaryWireFormat.readTransactions(BinaryWireFormat.writeTransactions(List.of(tx1, tx2)));
+
+        assertEquals(2, transactions.size());
+        assertArrayEquals(TX_1_BYTES, transactions.get(0).getBytes());
+        assertEquals(0, transactions.get(0).getPrunableAttachments().length);
+        assertArrayEquals(TX_2_BYTES, transactions.get(1).getBytes());
+        assertEquals(prunable.toJSONString(), new String(transactions.get(1).getPrunableAttachments(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWriteReadBlocks() throws AplException.NotValidException {
+        Block block = mock(Block.class);
+        doReturn(BLOCK_BYTES).when(block).getBytes();
+        doReturn(List.of(transaction(TX_1_BYTES, null), transaction(TX_2_BYTES, null))).when(block).getOrLoadTransactions();
+        Block emptyBlock = mock(Block.class);
+        doReturn(BLOCK_BYTES).when(emptyBlock).getBytes();
+        doReturn(List.of()).when(emptyBlock).getOrLoadTransactions();
+
+        List<BinaryWireFormat.BlockData> blocks = BinaryWireFormat.readBlocks(BinaryWireFormat.writeBlocks(List.of(block, emptyBlock)));
+
+        assertEquals(2, blocks.size());
+        assertArrayEquals(BLOCK_BYTES, blocks.get(0).getBytes());
+        assertEquals(2, blocks.get(0).getTransactions().size());
+        assertArrayEquals(TX_2_BYTES, blocks.get(0).getTransactions().get(1).getBytes());
+        assertArrayEquals(BLOCK_BYTES, blocks.get(1).getBytes());
+        assertTrue(blocks.get(1).getTransactions().isEmpty());
+    }
+
+    @Test
+    void testParseBlockWithTimeout() throws AplException.NotValidException {
+        BlockImpl block = signedBlock(Block.ADAPTIVE_BLOCK_VERSION, 7);
+
+        BlockImpl parsedBlock = writeReadBlock(block);
+
+        assertBlockEquals(block, parsedBlock);
+        assertEquals(7, parsedBlock.getTimeout());
+    }
+
+    @Test
+    void testParseBlockWithoutTimeout() throws AplException.NotValidException {
+        BlockImpl block = signedBlock(Block.REGULAR_BLOCK_VERSION, 0);
+
+        BlockImpl parsedBlock = writeReadBlock(block);
+
+        assertBlockEquals(block, parsedBlock);
+        assertEquals(0, parsedBlock.getTimeout());
+    }
+
+    @Test
+    void testParseBlockWithWrongTransactionCount() {
+        BlockImpl block = signedBlock(Block.INSTANT_BLOCK_VERSION, 2);
+
+        assertThrows(AplException.NotValidException.class,
+            () -> BlockImpl.parseBlock(block.getBytes(), List.of(transaction(TX_1_BYTES, null))));
+    }
+
+    @Test
+    void testReadTruncatedData() {
+        byte[] data = Base64.getDecoder().decode(BinaryWireFormat.writeTransactions(List.of(transaction(TX_1_BYTES, null))));
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+
+        assertThrows(AplException.NotValidException.class,
+            () -> BinaryWireFormat.readTransactions(Base64.getEncoder().encodeToString(truncated)));
+    }
+
+    @Test
+    void testReadDataWithExtraBytes() {
+        byte[] data = Base64.getDecoder().decode(BinaryWireFormat.writeTransactions(List.of(transaction(TX_1_BYTES, null))));
+        byte[] extended = new byte[data.length + 1];
+        System.arraycopy(data, 0, extended, 0, data.length);
+
+        assertThrows(AplException.NotValidException.class,
+            () -> BinaryWireFormat.readTransactions(Base64.getEncoder().encodeToString(extended)));
+    }
+
+    @Test
+    void testReadInvalidCount() {
+        String data = Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE).array());
+
+        assertThrows(AplException.NotValidException.class, () -> BinaryWireFormat.readBlocks(data));
+    }
+
+    @Test
+    void testReadInvalidEncoding() {
+        assertThrows(AplException.NotValidException.class, () -> BinaryWireFormat.readBlocks("not base64!"));
+    }
+
+    @Test
+    void testNegotiation() {
+        JSONObject request = new JSONObject();
+        BinaryWireFormat.request(request);
+        assertFalse(request.containsKey(BinaryWireFormat.REQUEST_KEY));
+
+        PeersService.isBinaryProtocolEnabled = true;
+        BinaryWireFormat.request(request);
+        assertTrue(BinaryWireFormat.isAccepted(request));
+
+        request.put(BinaryWireFormat.REQUEST_KEY, (long) BinaryWireFormat.VERSION + 1);
+        assertFalse(BinaryWireFormat.isAccepted(request));
+
+        request.put(BinaryWireFormat.REQUEST_KEY, (long) BinaryWireFormat.VERSION);
+        assertTrue(BinaryWireFormat.isAccepted(request));
+        PeersService.isBinaryProtocolEnabled = false;
+        assertFalse(BinaryWireFormat.isAccepted(request));
+    }
+
+    private static BlockImpl writeReadBlock(BlockImpl block) throws AplException.NotValidException {
+        List<BinaryWireFormat.BlockData> blocks = BinaryWireFormat.readBlocks(BinaryWireFormat.writeBlocks(List.of(block)));
+        assertEquals(1, blocks.size());
+        return BinaryWireFormat.parseBlock(blocks.get(0));
+    }
+
+    private static void assertBlockEquals(BlockImpl expected, BlockImpl actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertArrayEquals(expected.getBlockSignature(), actual.getBlockSignature());
+        assertArrayEquals(expected.getBytes(), actual.getBytes());
+        assertEquals(expected.getPreviousBlockId(), actual.getPreviousBlockId());
+        assertEquals(expected.getTotalAmountATM(), actual.getTotalAmountATM());
+        assertTrue(actual.checkSignature());
+    }
+
+    private static BlockImpl signedBlock(int version, int timeout) {
+        return new BlockImpl(version, 100, 1L, 2000, 300, 0, new byte[32], Crypto.getPublicKey(KEY_SEED),
+            new byte[32], new byte[32], timeout, Collections.emptyList(), KEY_SEED);
+    }
+
+    private Transaction transaction(byte[] bytes, JSONObject prunableAttachments) {
+        Transaction transaction = mock(Transaction.class);
+        doReturn(bytes).when(transaction).getBytes();
+        doReturn(prunableAttachments).when(transaction).getPrunableAttachmentJSON();
+        return transaction;
+    }
+}
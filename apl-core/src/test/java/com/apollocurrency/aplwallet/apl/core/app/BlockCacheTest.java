@@ -0,0 +1,151 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.google.common.cache.CacheBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class BlockCacheTest {
+    private BlockCache cache;
+    private Transaction tx1;
+    private Transaction tx2;
+    private Block block1;
+    private Block block2;
+
+    @BeforeEach
+    void setUp() {
+        cache = new BlockCache(CacheBuilder.newBuilder().build(), CacheBuilder.newBuilder().build(), CacheBuilder.newBuilder().build());
+        tx1 = newTransaction(11);
+        tx2 = newTransaction(21);
+        block1 = newBlock(1, 10, List.of(tx1));
+        block2 = newBlock(2, 11, List.of(tx2));
+    }
+
+    @Test
+    void testPutAndGet() {
+        cache.put(block1, cache.getStamp());
+        cache.put(block2, cache.getStamp());
+
+        assertEquals(block1, cache.getBlock(1));
+        assertEquals(block2, cache.getBlockAtHeight(11));
+        assertNull(cache.getBlock(3));
+        assertEquals(Integer.valueOf(10), cache.getTransactionHeight(11));
+        assertSame(tx2, cache.getTransaction(21));
+        assertNull(cache.getTransaction(31));
+    }
+
+    @Test
+    void testBlockWithoutLoadedTransactions() {
+        Block block = newBlock(3, 12, null);
+        cache.put(block, cache.getStamp());
+        cache.putTransactionHeight(31, 12, cache.getStamp());
+
+        assertEquals(block, cache.getBlock(3));
+        assertEquals(Integer.valueOf(12), cache.getTransactionHeight(31));
+        assertNull(cache.getTransaction(31));
+    }
+
+    @Test
+    void testInvalidateAbove() {
+        cache.put(block1, cache.getStamp());
+        cache.put(block2, cache.getStamp());
+
+        cache.invalidateAbove(10);
+
+        assertEquals(block1, cache.getBlock(1));
+        assertNull(cache.getBlock(2));
+        assertNull(cache.getBlockAtHeight(11));
+        assertNull(cache.getTransactionHeight(21));
+        assertSame(tx1, cache.getTransaction(11));
+    }
+
+    @Test
+    void testCachedBlocksAreCopies() {
+        cache.put(block1, cache.getStamp());
+
+        Block cached = cache.getBlock(1);
+        assertNotSame(block1, cached);
+        cached.setNextBlockId(100);
+        block1.setNextBlockId(200);
+
+        assertEquals(0, cache.getBlock(1).getNextBlockId());
+        assertEquals(List.of(tx1), cache.getBlockAtHeight(10).getTransactions());
+    }
+
+    @Test
+    void testCommittedBlockIsLinkedToPreviousBlock() {
+        cache.put(block1, cache.getStamp());
+
+        cache.putCommitted(block2);
+
+        assertEquals(2, cache.getBlock(1).getNextBlockId());
+        assertEquals(0, cache.getBlock(2).getNextBlockId());
+    }
+
+    @Test
+    void testPreviousBlockReadBeforeCommitIsNotCached() {
+        cache.put(block1, cache.getStamp());
+        long stamp = cache.getStamp();
+        Block staleBlock1 = newBlock(1, 10, List.of(tx1));
+
+        cache.putCommitted(block2);
+        cache.put(staleBlock1, stamp);
+
+        assertEquals(2, cache.getBlock(1).getNextBlockId());
+    }
+
+    @Test
+    void testInvalidateAboveUnlinksNewLastBlock() {
+        cache.put(block1, cache.getStamp());
+        cache.putCommitted(block2);
+
+        cache.invalidateAbove(10);
+
+        assertEquals(0, cache.getBlock(1).getNextBlockId());
+    }
+
+    @Test
+    void testBlockReadBeforeInvalidationIsNotCached() {
+        long stamp = cache.getStamp();
+        cache.invalidateAbove(10);
+        cache.put(block2, stamp);
+        cache.putTransactionHeight(21, 11, stamp);
+
+        assertNull(cache.getBlock(2));
+        assertNull(cache.getTransactionHeight(21));
+    }
+
+    @Test
+    void testClear() {
+        cache.put(block1, cache.getStamp());
+
+        cache.clear();
+
+        assertNull(cache.getBlock(1));
+        assertNull(cache.getTransactionHeight(11));
+    }
+
+    private Transaction newTransaction(long id) {
+        Transaction transaction = mock(Transaction.class);
+        doReturn(id).when(transaction).getId();
+        return transaction;
+    }
+
+    private Block newBlock(long id, int height, List<Transaction> transactions) {
+        return new BlockImpl(4, 0, id - 1, 0, 0, 0, new byte[32], 1L, new byte[32], new byte[64], new byte[32],
+            BigInteger.ONE, 100L, 0L, height, id, 0, transactions);
+    }
+}
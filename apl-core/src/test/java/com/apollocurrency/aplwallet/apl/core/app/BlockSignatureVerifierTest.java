@@ -0,0 +1,89 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.crypto.Crypto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockSignatureVerifierTest {
+    private static final byte[] KEY_SEED = Crypto.getKeySeed("block generator secret");
+    private static final byte[] OTHER_KEY_SEED = Crypto.getKeySeed("another account secret");
+
+    private BlockSignatureVerifier verifier;
+
+    @AfterEach
+    void tearDown() {
+        if (verifier != null) {
+            verifier.shutdown();
+        }
+    }
+
+    @Test
+    void testVerifyValidBlock() throws BlockchainProcessor.BlockNotAcceptedException {
+        verifier = new BlockSignatureVerifier(1);
+
+        verifier.verify(signedBlock(1, Crypto.getPublicKey(KEY_SEED), KEY_SEED));
+    }
+
+    @Test
+    void testVerifyTamperedSignature() {
+        verifier = new BlockSignatureVerifier(1);
+        BlockImpl block = tamper(signedBlock(1, Crypto.getPublicKey(KEY_SEED), KEY_SEED));
+
+        BlockchainProcessor.BlockNotAcceptedException ex = assertThrows(BlockchainProcessor.BlockNotAcceptedException.class,
+            () -> verifier.verify(block));
+
+        assertSame(block, ex.getBlock());
+    }
+
+    @Test
+    void testVerifyWrongPublicKey() {
+        verifier = new BlockSignatureVerifier(1);
+        BlockImpl block = signedBlock(1, Crypto.getPublicKey(OTHER_KEY_SEED), KEY_SEED);
+
+        BlockchainProcessor.BlockNotAcceptedException ex = assertThrows(BlockchainProcessor.BlockNotAcceptedException.class,
+            () -> verifier.verify(block));
+
+        assertSame(block, ex.getBlock());
+    }
+
+    @Test
+    void testParallelVerifyReportsFirstInvalidBlock() throws BlockchainProcessor.BlockNotAcceptedException {
+        verifier = new BlockSignatureVerifier(2);
+        byte[] publicKey = Crypto.getPublicKey(KEY_SEED);
+        BlockImpl valid1 = signedBlock(1, publicKey, KEY_SEED);
+        BlockImpl valid2 = signedBlock(2, publicKey, KEY_SEED);
+        BlockImpl tampered = tamper(signedBlock(3, publicKey, KEY_SEED));
+        BlockImpl wrongKey = signedBlock(4, Crypto.getPublicKey(OTHER_KEY_SEED), KEY_SEED);
+
+        verifier.verify(List.of(valid1, valid2));
+        BlockchainProcessor.BlockNotAcceptedException ex = assertThrows(BlockchainProcessor.BlockNotAcceptedException.class,
+            () -> verifier.verify(List.of(valid1, valid2, tampered, wrongKey)));
+
+        assertSame(tampered, ex.getBlock());
+        assertTrue(ex.getMessage().startsWith("Block signature verification failed"));
+    }
+
+    private static BlockImpl signedBlock(int timestamp, byte[] generatorPublicKey, byte[] keySeed) {
+        return new BlockImpl(Block.INSTANT_BLOCK_VERSION, timestamp, 1L, 0, 0, 0, new byte[32],
+            generatorPublicKey, new byte[32], new byte[32], 0, Collections.emptyList(), keySeed);
+    }
+
+    private static BlockImpl tamper(BlockImpl block) {
+        byte[] signature = block.getBlockSignature().clone();
+        signature[10] ^= 1;
+        return new BlockImpl(block.getVersion(), block.getTimestamp(), block.getPreviousBlockId(), 0, 0, 0, new byte[32],
+            block.getGeneratorPublicKey(), block.getGenerationSignature(), signature, block.getPreviousBlockHash(),
+            block.getTimeout(), Collections.emptyList());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class ConfirmedTransactionFilterTest {
+    private Path dir;
+    private Path file;
+    private DatabaseManager databaseManager;
+    private ConfirmedTransactionFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Files.createTempDirectory("transaction-filter");
+        file = dir.resolve("transaction-filter.bin");
+        databaseManager = mock(DatabaseManager.class);
+        TransactionalDataSource dataSource = mock(TransactionalDataSource.class);
+        doReturn(dataSource).when(databaseManager).getDataSource();
+        Connection con = mock(Connection.class);
+        doReturn(con).when(dataSource).getConnection();
+        PreparedStatement countStatement = statement(2L);
+        PreparedStatement transactionStatement = statement(1L);
+        PreparedStatement indexStatement = statement(2L);
+        doReturn(countStatement).when(con).prepareStatement(anyString());
+        doReturn(transactionStatement).when(con).prepareStatement("SELECT id FROM transaction");
+        doReturn(indexStatement).when(con).prepareStatement("SELECT transaction_id FROM transaction_shard_index");
+        filter = new ConfirmedTransactionFilter(file, 0.001, mock(GlobalSync.class), databaseManager);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    void testMightContainAllBeforeBuild() {
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain(3));
+        assertEquals(0, filter.getChecks());
+    }
+
+    @Test
+    void testRebuild() {
+        filter.rebuild();
+
+        assertTrue(filter.isReady());
+        assertTrue(filter.mightContain(1));
+        assertTrue(filter.mightContain(2));
+        assertFalse(filter.mightContain(3));
+        assertEquals(3, filter.getChecks());
+        assertEquals(1, filter.getNegatives());
+    }
+
+    @Test
+    void testAddSavedTransaction() {
+        filter.rebuild();
+
+        filter.add(3);
+
+        assertTrue(filter.mightContain(3));
+    }
+
+    @Test
+    void testFalsePositiveRate() {
+        filter.rebuild();
+        filter.mightContain(3);
+        filter.mightContain(1);
+
+        filter.falsePositive();
+
+        assertEquals(1, filter.getFalsePositives());
+        assertEquals(0.5, filter.getFalsePositiveRate());
+    }
+
+    @Test
+    void testInvalidate() {
+        filter.rebuild();
+
+        filter.invalidate();
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain(3));
+    }
+
+    @Test
+    void testSaveAndLoad() {
+        Block lastBlock = newBlock(100);
+        filter.rebuild();
+        filter.add(3);
+        filter.shutdown(lastBlock);
+
+        ConfirmedTransactionFilter loaded = new ConfirmedTransactionFilter(file, 0.001, mock(GlobalSync.class), databaseManager);
+        loaded.init(lastBlock);
+
+        assertTrue(loaded.isReady());
+        assertTrue(loaded.mightContain(3));
+        assertFalse(loaded.mightContain(4));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void testNotLoadedForAnotherLastBlock() {
+        filter.rebuild();
+        filter.shutdown(newBlock(100));
+
+        ConfirmedTransactionFilter loaded = new ConfirmedTransactionFilter(file, 0.001, mock(GlobalSync.class), databaseManager);
+        loaded.init(newBlock(101));
+        loaded.shutdown(null);
+
+        assertFalse(Files.exists(file));
+    }
+
+    private PreparedStatement statement(long... values) throws SQLException {
+        PreparedStatement pstmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        doReturn(rs).when(pstmt).executeQuery();
+        Boolean[] next = new Boolean[values.length];
+        Long[] rest = new Long[values.length - 1];
+        for (int i = 0; i < values.length; i++) {
+            next[i] = i < values.length - 1;
+            if (i > 0) {
+                rest[i - 1] = values[i];
+            }
+        }
+        doReturn(true, (Object[]) next).when(rs).next();
+        doReturn(values[0], (Object[]) rest).when(rs).getLong(1);
+        return pstmt;
+    }
+
+    private Block newBlock(long id) {
+        Block block = mock(Block.class);
+        doReturn(id).when(block).getId();
+        return block;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.core.peer.Peer;
+import com.apollocurrency.aplwallet.apl.core.peer.PeerNotConnectedException;
+import com.apollocurrency.aplwallet.apl.crypto.Crypto;
+import com.apollocurrency.aplwallet.apl.util.env.config.Chain;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class GetNextBlocksTaskTest {
+    private static final byte[] KEY_SEED = Crypto.getKeySeed("block generator secret");
+    private static final long START_BLOCK_ID = 100L;
+
+    private BlockchainConfig blockchainConfig = mock(BlockchainConfig.class);
+    private Peer peer = mock(Peer.class);
+    private BlockSignatureVerifier signatureVerifier = new BlockSignatureVerifier(1);
+    private BlockDownloadStats stats = new BlockDownloadStats();
+
+    @BeforeEach
+    void setUp() {
+        Chain chain = mock(Chain.class);
+        doReturn(UUID.randomUUID()).when(chain).getChainId();
+        doReturn(chain).when(blockchainConfig).getChain();
+    }
+
+    @AfterEach
+    void tearDown() {
+        signatureVerifier.shutdown();
+    }
+
+    @Test
+    void testDownloadLinkedBlocks() throws PeerNotConnectedException {
+        BlockImpl block1 = block(1, START_BLOCK_ID);
+        BlockImpl block2 = block(2, block1.getId());
+        BlockImpl block3 = block(3, block2.getId());
+        mockResponse(block1, block2, block3);
+        GetNextBlocksTask task = task(List.of(START_BLOCK_ID, block1.getId(), block2.getId(), block3.getId()));
+
+        List<BlockImpl> blocks = task.call();
+
+        assertEquals(List.of(block1.getId(), block2.getId(), block3.getId()), ids(blocks));
+        assertEquals(3, stats.getDownloadedBlocks());
+        assertEquals(3, stats.getVerifiedBlocks());
+        assertEquals(3, task.getStop());
+        verify(peer, never()).blacklist(any(Exception.class));
+    }
+
+    @Test
+    void testDropBlocksNotLinkedIntoRequestedChain() throws PeerNotConnectedException {
+        BlockImpl block1 = block(1, START_BLOCK_ID);
+        BlockImpl block2 = block(2, block1.getId());
+        BlockImpl forkBlock2 = block(20, block1.getId());
+        BlockImpl forkBlock3 = block(30, forkBlock2.getId());
+        mockResponse(block1, forkBlock2, forkBlock3);
+        GetNextBlocksTask task = task(List.of(START_BLOCK_ID, block1.getId(), block2.getId(), block(3, block2.getId()).getId()));
+
+        List<BlockImpl> blocks = task.call();
+
+        assertEquals(List.of(block1.getId()), ids(blocks));
+        assertEquals(3, stats.getDownloadedBlocks());
+        assertEquals(1, stats.getVerifiedBlocks());
+    }
+
+    @Test
+    void testDiscardBlocksAfterInvalidSignature() throws PeerNotConnectedException {
+        BlockImpl block1 = block(1, START_BLOCK_ID);
+        BlockImpl block2 = block(2, block1.getId());
+        byte[] signature = block2.getBlockSignature().clone();
+        signature[0] ^= 1;
+        BlockImpl tamperedBlock2 = new BlockImpl(block2.getVersion(), block2.getTimestamp(), block2.getPreviousBlockId(), 0, 0, 0,
+            new byte[32], block2.getGeneratorPublicKey(), block2.getGenerationSignature(), signature,
+            block2.getPreviousBlockHash(), block2.getTimeout(), Collections.emptyList());
+        BlockImpl block3 = block(3, tamperedBlock2.getId());
+        mockResponse(block1, tamperedBlock2, block3);
+        GetNextBlocksTask task = task(List.of(START_BLOCK_ID, block1.getId(), tamperedBlock2.getId(), block3.getId()));
+
+        List<BlockImpl> blocks = task.call();
+
+        assertEquals(List.of(block1.getId()), ids(blocks));
+        assertEquals(1, task.getStop());
+        assertEquals(1, stats.getVerifiedBlocks());
+        verify(peer).blacklist(any(Exception.class));
+    }
+
+    @Test
+    void testNoResponse() throws PeerNotConnectedException {
+        doReturn(null).when(peer).send(any(), any());
+        GetNextBlocksTask task = task(List.of(START_BLOCK_ID, 1L));
+
+        assertNull(task.call());
+        assertEquals(0, stats.getDownloadedBlocks());
+    }
+
+    private GetNextBlocksTask task(List<Long> blockIds) {
+        GetNextBlocksTask task = new GetNextBlocksTask(blockIds, 0, blockIds.size() - 1, 1, blockchainConfig,
+            signatureVerifier, stats);
+        task.setPeer(peer);
+        return task;
+    }
+
+    private void mockResponse(BlockImpl... blocks) throws PeerNotConnectedException {
+        JSONArray nextBlocks = new JSONArray();
+        for (BlockImpl block : blocks) {
+            // block json as it is received from the peer
+            nextBlocks.add(JSONValue.parse(block.getJSONObject().toJSONString()));
+        }
+        JSONObject response = new JSONObject();
+        response.put("nextBlocks", nextBlocks);
+        doReturn(response).when(peer).send(any(), any());
+    }
+
+    private static BlockImpl block(int timestamp, long previousBlockId) {
+        return new BlockImpl(Block.INSTANT_BLOCK_VERSION, timestamp, previousBlockId, 0, 0, 0, new byte[32],
+            Crypto.getPublicKey(KEY_SEED), new byte[32], new byte[32], 0, Collections.emptyList(), KEY_SEED);
+    }
+
+    private static List<Long> ids(List<BlockImpl> blocks) {
+        return blocks.stream().map(BlockImpl::getId).collect(Collectors.toList());
+    }
+}
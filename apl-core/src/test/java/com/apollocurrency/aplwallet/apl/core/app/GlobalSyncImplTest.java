@@ -0,0 +1,108 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobalSyncImplTest {
+    private final GlobalSyncImpl globalSync = new GlobalSyncImpl();
+
+    @Test
+    void testOptimisticReadIsValidWithoutWrite() {
+        long stamp = globalSync.tryOptimisticRead();
+        globalSync.readLock();
+        globalSync.readUnlock();
+
+        assertNotEquals(0, stamp);
+        assertTrue(globalSync.validate(stamp));
+    }
+
+    @Test
+    void testOptimisticReadIsInvalidatedByWrite() {
+        long stamp = globalSync.tryOptimisticRead();
+        globalSync.writeLock();
+        globalSync.writeLock();
+        assertEquals(0, globalSync.tryOptimisticRead());
+        globalSync.writeUnlock();
+        assertEquals(0, globalSync.tryOptimisticRead());
+        globalSync.writeUnlock();
+
+        assertFalse(globalSync.validate(stamp));
+        assertFalse(globalSync.validate(0));
+        assertTrue(globalSync.validate(globalSync.tryOptimisticRead()));
+    }
+
+    @Test
+    void testReadOptimisticallyRetriesUnderReadLock() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AtomicInteger attempts = new AtomicInteger();
+            CountDownLatch readStarted = new CountDownLatch(1);
+            CountDownLatch writeDone = new CountDownLatch(1);
+            Future<?> writer = executor.submit(() -> {
+                readStarted.await();
+                globalSync.writeLock();
+                globalSync.writeUnlock();
+                writeDone.countDown();
+                return null;
+            });
+
+            int result = globalSync.readOptimistically(() -> {
+                if (attempts.incrementAndGet() == 1) {
+                    readStarted.countDown();
+                    try {
+                        writeDone.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    throw new IllegalStateException("Inconsistent read");
+                }
+                return 42;
+            });
+
+            writer.get(10, TimeUnit.SECONDS);
+            assertEquals(42, result);
+            assertEquals(2, attempts.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLockMetricsPerCallSite() {
+        globalSync.setMetricsEnabled(true);
+        globalSync.readLock();
+        globalSync.readUnlock();
+        globalSync.writeLock();
+        globalSync.writeUnlock();
+        globalSync.validate(globalSync.tryOptimisticRead());
+
+        List<LockMetrics.SiteMetrics> metrics = globalSync.getLockMetrics();
+
+        assertEquals(2, metrics.size());
+        assertTrue(metrics.stream().allMatch(m -> m.getSite().contains(GlobalSyncImplTest.class.getName() + ".testLockMetricsPerCallSite")));
+        assertTrue(metrics.stream().anyMatch(m -> m.getSite().startsWith("READ ")));
+        assertTrue(metrics.stream().anyMatch(m -> m.getSite().startsWith("WRITE ")));
+        assertTrue(metrics.stream().allMatch(m -> m.getCount() == 1));
+        assertEquals(1, globalSync.getOptimisticReads());
+        assertEquals(0, globalSync.getFailedOptimisticReads());
+
+        globalSync.resetMetrics();
+        assertTrue(globalSync.getLockMetrics().isEmpty());
+    }
+}
@@ -47,4 +47,25 @@ class TrimDaoTest {
         assertEquals(0, count);
         assertNull(dao.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSaveAndGetProgress() {
+        dao.saveProgress("account", 1000, 20000);
+        dao.saveProgress("account", 1000, 30000);
+        dao.saveProgress("alias", 1000, 100);
+
+        assertEquals(30000, dao.getProgress("account", 1000));
+        assertEquals(100, dao.getProgress("alias", 1000));
+        assertEquals(0, dao.getProgress("account", 2000));
+        assertEquals(0, dao.getProgress("currency", 1000));
+    }
+
+    @Test
+    void testClearProgress() {
+        dao.saveProgress("account", 1000, 20000);
+
+        dao.clearProgress();
+
+        assertEquals(0, dao.getProgress("account", 1000));
+    }
+}
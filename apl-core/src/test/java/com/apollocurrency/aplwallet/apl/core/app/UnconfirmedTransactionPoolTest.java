@@ -0,0 +1,135 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class UnconfirmedTransactionPoolTest {
+    private UnconfirmedTransactionPool pool;
+    private UnconfirmedTransaction tx1;
+    private UnconfirmedTransaction tx2;
+    private UnconfirmedTransaction tx3;
+    private UnconfirmedTransaction tx4;
+
+    @BeforeEach
+    void setUp() {
+        pool = new UnconfirmedTransactionPool();
+        tx1 = newTransaction(1, 100, 10, 3000, 1000);
+        tx2 = newTransaction(2, 100, 10, 1000, 2000);
+        tx3 = newTransaction(3, 200, 9, 3000, 3000);
+        tx4 = newTransaction(4, 100, 10, 5000, 4000);
+    }
+
+    @Test
+    void testAddAndGet() {
+        assertTrue(pool.add(tx1, 10));
+        assertFalse(pool.add(tx1, 11));
+
+        assertSame(tx1, pool.get(1));
+        assertTrue(pool.contains(1));
+        assertEquals(10, pool.getHeight(1));
+        assertNull(pool.get(2));
+        assertEquals(-1, pool.getHeight(2));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void testGetAllInBlockSelectionOrder() {
+        addAll();
+
+        assertEquals(List.of(tx3, tx4, tx1, tx2), pool.getAll());
+        assertEquals(List.of(tx4, tx1), pool.getAll(1, 2));
+        assertEquals(List.of(tx1, tx2), pool.getAll(2, -1));
+    }
+
+    @Test
+    void testGetBySender() {
+        addAll();
+
+        assertEquals(List.of(tx4, tx1, tx2), pool.getBySender(100));
+        assertEquals(List.of(tx3), pool.getBySender(200));
+        assertEquals(List.of(), pool.getBySender(300));
+    }
+
+    @Test
+    void testGetLowestFee() {
+        assertNull(pool.getLowestFee());
+        addAll();
+
+        assertSame(tx2, pool.getLowestFee());
+        pool.remove(2);
+        assertSame(tx3, pool.getLowestFee());
+        assertEquals(List.of(tx4, tx1), pool.getBySender(100));
+    }
+
+    @Test
+    void testRemoveAbove() {
+        addAll();
+
+        List<UnconfirmedTransaction> removed = pool.removeAbove(10);
+
+        assertEquals(2, removed.size());
+        assertTrue(removed.contains(tx3));
+        assertTrue(removed.contains(tx4));
+        assertEquals(List.of(tx1, tx2), pool.getAll());
+        assertEquals(List.of(), pool.getBySender(200));
+    }
+
+    @Test
+    void testRollbackRevertsModificationsMadeAfterUndoLogStart() {
+        pool.add(tx1, 10);
+        pool.add(tx2, 10);
+        pool.startUndoLog();
+        pool.add(tx3, 11);
+        pool.remove(1);
+        pool.clear();
+        pool.add(tx4, 12);
+
+        pool.rollback();
+
+        assertEquals(List.of(tx1, tx2), pool.getAll());
+        assertSame(tx2, pool.getLowestFee());
+        assertEquals(List.of(tx1, tx2), pool.getBySender(100));
+    }
+
+    @Test
+    void testCommitKeepsModifications() {
+        pool.startUndoLog();
+        pool.add(tx1, 10);
+        pool.commit();
+
+        pool.rollback();
+
+        assertEquals(List.of(tx1), pool.getAll());
+    }
+
+    private void addAll() {
+        pool.add(tx1, 10);
+        pool.add(tx2, 10);
+        pool.add(tx3, 11);
+        pool.add(tx4, 12);
+    }
+
+    private UnconfirmedTransaction newTransaction(long id, long senderId, int height, long fee, long arrivalTimestamp) {
+        Transaction transaction = mock(Transaction.class);
+        doReturn(id).when(transaction).getId();
+        doReturn(senderId).when(transaction).getSenderId();
+        doReturn(height).when(transaction).getHeight();
+        doReturn(fee).when(transaction).getFeeATM();
+        doReturn(100).when(transaction).getFullSize();
+        return new UnconfirmedTransaction(transaction, arrivalTimestamp);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db.derived;
+
+import com.apollocurrency.aplwallet.apl.core.account.model.Account;
+import com.apollocurrency.aplwallet.apl.core.account.model.PublicKey;
+import com.apollocurrency.aplwallet.apl.core.db.DbKey;
+import com.apollocurrency.aplwallet.apl.core.db.LongKey;
+import com.apollocurrency.aplwallet.apl.core.db.model.DerivedEntity;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VersionedEntityCacheTest {
+    private final DbKey key1 = new LongKey(1);
+    private final DbKey key2 = new LongKey(2);
+    private final DbKey key3 = new LongKey(3);
+    private VersionedEntityCache<TestEntity> cache;
+
+    private ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setUp() {
+        Cache<DbKey, TestEntity> guavaCache = CacheBuilder.newBuilder().maximumSize(100).recordStats().build();
+        cache = VersionedEntityCache.forDerivedEntities("TEST_CACHE", guavaCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        otherThread.shutdownNow();
+    }
+
+    @Test
+    void testGetReturnsCopy() {
+        TestEntity entity = new TestEntity(1, 10, 100);
+        cache.put(key1, entity);
+        entity.setValue(200);
+
+        TestEntity cached = cache.get(key1);
+
+        assertNotNull(cached);
+        assertNotSame(entity, cached);
+        assertEquals(100, cached.getValue());
+        cached.setValue(300);
+        assertEquals(100, cache.get(key1).getValue());
+    }
+
+    @Test
+    void testCachedAccountDoesNotSharePublicKey() {
+        Cache<DbKey, Account> guavaCache = CacheBuilder.newBuilder().maximumSize(100).build();
+        VersionedEntityCache<Account> accountCache = VersionedEntityCache.forDerivedEntities("TEST_ACCOUNT_CACHE", guavaCache);
+        Account account = new Account(1, 10);
+        account.setPublicKey(new PublicKey(1, new byte[]{1, 2, 3}, 10));
+        accountCache.put(key1, account);
+        account.getPublicKey().getPublicKey()[0] = 5;
+        account.getPublicKey().setPublicKey(new byte[]{4, 5, 6});
+
+        Account cached = accountCache.get(key1);
+        cached.getPublicKey().setPublicKey(new byte[]{7, 8, 9});
+
+        assertNotSame(account.getPublicKey(), cached.getPublicKey());
+        assertArrayEquals(new byte[]{1, 2, 3}, accountCache.get(key1).getPublicKey().getPublicKey());
+    }
+
+    @Test
+    void testGetAtHeight() {
+        cache.put(key1, new TestEntity(1, 10, 100));
+
+        assertNull(cache.get(key1, 9));
+        assertEquals(100, cache.get(key1, 10).getValue());
+        assertEquals(100, cache.get(key1, 20).getValue());
+    }
+
+    @Test
+    void testRollbackInvalidatesOnlyKeysAboveHeight() {
+        cache.put(key1, new TestEntity(1, 10, 100));
+        cache.put(key2, new TestEntity(2, 11, 200));
+        cache.put(key3, new TestEntity(3, 12, 300));
+
+        cache.rollback(11);
+
+        assertNotNull(cache.get(key1));
+        assertNotNull(cache.get(key2));
+        assertNull(cache.get(key3));
+    }
+
+    @Test
+    void testRollbackBelowTrimHeightInvalidatesAll() {
+        cache.put(key1, new TestEntity(1, 10, 100));
+        cache.put(key2, new TestEntity(2, 20, 200));
+        cache.trim(15);
+
+        cache.rollback(14);
+
+        assertNull(cache.get(key1));
+        assertNull(cache.get(key2));
+    }
+
+    @Test
+    void testTrimKeepsEntitiesAndRollbackAboveTrimHeight() {
+        cache.put(key1, new TestEntity(1, 10, 100));
+        cache.put(key2, new TestEntity(2, 20, 200));
+        cache.trim(15);
+
+        cache.rollback(16);
+
+        assertNotNull(cache.get(key1));
+        assertNull(cache.get(key2));
+    }
+
+    @Test
+    void testPutLoadedSkippedAfterConcurrentModification() {
+        long stamp = cache.stamp();
+        cache.put(key1, new TestEntity(1, 11, 110));
+
+        cache.putLoaded(key1, new TestEntity(1, 10, 100), stamp, false);
+
+        assertEquals(110, cache.get(key1).getValue());
+    }
+
+    @Test
+    void testPutLoaded() {
+        cache.putLoaded(key1, new TestEntity(1, 10, 100), cache.stamp(), false);
+
+        assertEquals(100, cache.get(key1).getValue());
+        cache.rollback(9);
+        assertNull(cache.get(key1));
+    }
+
+    @Test
+    void testTransactionRollbackInvalidatesWrittenKeys() {
+        cache.putLoaded(key1, new TestEntity(1, 10, 100), cache.stamp(), false);
+        cache.put(key2, new TestEntity(2, 11, 200));
+
+        cache.rollback();
+
+        assertNotNull(cache.get(key1));
+        assertNull(cache.get(key2));
+    }
+
+    @Test
+    void testTransactionRollbackInvalidatesKeysLoadedInTransaction() {
+        cache.putLoaded(key1, new TestEntity(1, 10, 100), cache.stamp(), true);
+
+        cache.rollback();
+
+        assertNull(cache.get(key1));
+    }
+
+    @Test
+    void testTransactionCommitKeepsWrittenKeys() {
+        cache.put(key2, new TestEntity(2, 11, 200));
+        cache.commit();
+
+        cache.rollback();
+
+        assertNotNull(cache.get(key2));
+    }
+
+    @Test
+    void testInvalidateAndClear() {
+        cache.put(key1, new TestEntity(1, 10, 100));
+        cache.put(key2, new TestEntity(2, 10, 200));
+
+        cache.invalidate(key1);
+        assertNull(cache.get(key1));
+        assertNotNull(cache.get(key2));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testUncommittedPutIsNotVisibleToOtherThreads() throws Exception {
+        cache.putLoaded(key1, new TestEntity(1, 10, 100), cache.stamp(), false);
+
+        cache.put(key1, new TestEntity(1, 11, 110));
+        cache.put(key2, new TestEntity(2, 11, 200));
+
+        assertEquals(110, cache.get(key1).getValue());
+        assertNull(inOtherThread(() -> cache.get(key1)));
+        assertNull(inOtherThread(() -> cache.get(key2)));
+
+        cache.commit();
+
+        assertEquals(110, inOtherThread(() -> cache.get(key1)).getValue());
+        assertEquals(200, inOtherThread(() -> cache.get(key2)).getValue());
+    }
+
+    @Test
+    void testCommittedRowLoadedByOtherThreadIsNotCachedWhileKeyIsDeleted() throws Exception {
+        cache.putLoaded(key1, new TestEntity(1, 10, 100), cache.stamp(), false);
+        cache.commit();
+
+        // transaction deletes the entity
+        cache.invalidate(key1);
+        // other thread does not see the deletion and loads the committed row
+        inOtherThread(() -> {
+            assertNull(cache.get(key1));
+            long stamp = cache.stamp();
+            cache.putLoaded(key1, new TestEntity(1, 10, 100), stamp, false);
+            return null;
+        });
+
+        assertNull(cache.get(key1));
+        assertNull(inOtherThread(() -> cache.get(key1)));
+
+        cache.commit();
+
+        assertNull(cache.get(key1));
+        assertNull(inOtherThread(() -> cache.get(key1)));
+    }
+
+    @Test
+    void testRowLoadedByOtherThreadBeforeCommitIsNotCached() throws Exception {
+        cache.put(key1, new TestEntity(1, 11, 110));
+        long stamp = inOtherThread(() -> cache.stamp());
+
+        cache.commit();
+        cache.invalidate(key1);
+        cache.commit();
+        // stale row loaded by the other thread before the commit
+        inOtherThread(() -> {
+            cache.putLoaded(key1, new TestEntity(1, 11, 110), stamp, false);
+            return null;
+        });
+
+        assertNull(cache.get(key1));
+    }
+
+    @Test
+    void testRowsLoadedByOtherThreadAreNotCachedDuringTableRollback() throws Exception {
+        cache.rollback(10);
+
+        inOtherThread(() -> {
+            cache.putLoaded(key1, new TestEntity(1, 12, 120), cache.stamp(), false);
+            return null;
+        });
+        assertNull(inOtherThread(() -> cache.get(key1)));
+
+        cache.commit();
+        inOtherThread(() -> {
+            cache.putLoaded(key1, new TestEntity(1, 9, 90), cache.stamp(), false);
+            return null;
+        });
+        assertEquals(90, cache.get(key1).getValue());
+    }
+
+    @Test
+    void testEntityLoadedInTransactionIsPublishedOnCommit() throws Exception {
+        cache.putLoaded(key1, new TestEntity(1, 10, 100), cache.stamp(), true);
+
+        assertEquals(100, cache.get(key1).getValue());
+        assertNull(inOtherThread(() -> cache.get(key1)));
+
+        cache.commit();
+
+        assertEquals(100, inOtherThread(() -> cache.get(key1)).getValue());
+    }
+
+    private <V> V inOtherThread(Callable<V> callable) throws Exception {
+        return otherThread.submit(callable).get();
+    }
+
+    private static class TestEntity extends DerivedEntity {
+        private final long id;
+        private long value;
+
+        TestEntity(long id, int height, long value) {
+            super(null, height);
+            this.id = id;
+            this.value = value;
+        }
+
+        long getValue() {
+            return value;
+        }
+
+        void setValue(long value) {
+            this.value = value;
+        }
+    }
+}
@@ -32,10 +32,21 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @EnableWeld
 class FullTextSearchServiceTest {
@@ -76,4 +87,98 @@ class FullTextSearchServiceTest {
     void reindexAll() throws Exception {
         ftl.reindexAll(extension.getDatabaseManager().getDataSource().begin());
     }
-}
\ No newline at end of file
+
+    @Test
+    void reindexAllStoresBlockchainHeight() throws Exception {
+        try (Connection con = extension.getDatabaseManager().getDataSource().getConnection()) {
+            ftl.reindexAll(con);
+            try (Statement stmt = con.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT MAX(height) FROM block")) {
+                assertTrue(rs.next());
+                assertEquals(rs.getInt(1), extension.getLuceneFullTextSearchEngine().getIndexedHeight());
+            }
+        }
+    }
+
+    @Test
+    void testRecoverIndexAboveIndexedHeight() throws Exception {
+        FullTextSearchEngine engine = mock(FullTextSearchEngine.class);
+        doReturn(3000).when(engine).getIndexedHeight();
+
+        createService(engine).init();
+
+        verify(engine, never()).clearIndex();
+        verify(engine, times(countRowsToIndex(3000))).indexRow(any(), any());
+        verify(engine).flushIndex(getBlockchainHeight());
+        verify(engine).commitIndex();
+    }
+
+    @Test
+    void testIndexAtBlockchainHeightIsNotRecovered() throws Exception {
+        FullTextSearchEngine engine = mock(FullTextSearchEngine.class);
+        doReturn(getBlockchainHeight()).when(engine).getIndexedHeight();
+
+        createService(engine).init();
+
+        verify(engine, never()).clearIndex();
+        verify(engine, never()).indexRow(any(), any());
+        verify(engine, never()).flushIndex(getBlockchainHeight());
+    }
+
+    @Test
+    void testFullReindexWhenIndexedHeightIsUnknown() throws Exception {
+        FullTextSearchEngine engine = mock(FullTextSearchEngine.class);
+        doReturn(-1).when(engine).getIndexedHeight();
+
+        createService(engine).init();
+
+        verify(engine).clearIndex();
+        verify(engine, times(countRowsToIndex(-1))).indexRow(any(), any());
+        verify(engine).flushIndex(getBlockchainHeight());
+        verify(engine).commitIndex();
+    }
+
+    @Test
+    void testFullReindexWhenIndexIsAheadOfBlockchain() throws Exception {
+        FullTextSearchEngine engine = mock(FullTextSearchEngine.class);
+        doReturn(getBlockchainHeight() + 10).when(engine).getIndexedHeight();
+
+        createService(engine).init();
+
+        verify(engine).clearIndex();
+        verify(engine, times(countRowsToIndex(-1))).indexRow(any(), any());
+        verify(engine).flushIndex(getBlockchainHeight());
+    }
+
+    private FullTextSearchServiceImpl createService(FullTextSearchEngine engine) {
+        return new FullTextSearchServiceImpl(extension.getDatabaseManager(), engine, Set.of("currency", "tagged_data"), "PUBLIC");
+    }
+
+    private int getBlockchainHeight() throws Exception {
+        try (Connection con = extension.getDatabaseManager().getDataSource().getConnection();
+             Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(height) FROM block")) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * @return number of rows, which should be indexed on recovery from the given height, both tables are versioned
+     */
+    private int countRowsToIndex(int indexedHeight) throws Exception {
+        int count = 0;
+        try (Connection con = extension.getDatabaseManager().getDataSource().getConnection();
+             Statement stmt = con.createStatement()) {
+            for (String table : List.of("currency", "tagged_data")) {
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table + " WHERE height > " + indexedHeight
+                    + " OR latest = FALSE")) {
+                    assertTrue(rs.next());
+                    count += rs.getInt(1);
+                }
+            }
+        }
+        assertTrue(count > 0);
+        return count;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db.fulltext;
+
+import com.apollocurrency.aplwallet.apl.core.app.Block;
+import com.apollocurrency.aplwallet.apl.extension.TemporaryFolderExtension;
+import com.apollocurrency.aplwallet.apl.util.NtpTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class LuceneFullTextSearchEngineTest {
+    @RegisterExtension
+    TemporaryFolderExtension temporaryFolderExtension = new TemporaryFolderExtension();
+
+    private final TableData tableData = new TableData(0, "asset", "public",
+        List.of("DB_ID", "ID", "NAME", "DESCRIPTION", "QUANTITY", "TAGS", "LATEST"),
+        List.of(Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.ARRAY, Types.BOOLEAN),
+        List.of(2, 3));
+    private LuceneFullTextSearchEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void testSearchHitsPagesWithStoredRows() throws Exception {
+        engine = createEngine(true);
+        for (long i = 1; i <= 5; i++) {
+            engine.indexRow(row(i, i * 10, "Coin " + i, "Test coin", true), tableData);
+        }
+        engine.commitIndex();
+
+        Set<Long> ids = new HashSet<>();
+        for (int offset = 0; offset < 6; offset += 2) {
+            FullTextSearchResult result = engine.searchHits("public", "asset", "coin", 2, offset, true);
+            assertEquals(5, result.getTotalHits());
+            assertEquals(offset < 4 ? 2 : 1, result.getHits().size());
+            assertTrue(result.isStored());
+            for (FullTextSearchHit hit : result.getHits()) {
+                assertEquals(hit.getDbId() * 10, hit.getStoredRow().get("ID"));
+                assertEquals("Coin " + hit.getDbId(), hit.getStoredRow().get("NAME"));
+                ids.add(hit.getDbId());
+            }
+        }
+        assertEquals(Set.of(1L, 2L, 3L, 4L, 5L), ids);
+        assertEquals(0, engine.searchHits("public", "asset", "coin", 2, 6, true).getHits().size());
+    }
+
+    @Test
+    void testSearchHitsWithoutCount() throws Exception {
+        engine = createEngine(true);
+        engine.indexRow(row(1, 10, "Coin 1", "Test coin", true), tableData);
+        engine.commitIndex();
+
+        FullTextSearchResult result = engine.searchHits("public", "asset", "coin", 10, 0, false);
+
+        assertEquals(-1, result.getTotalHits());
+        assertEquals(1, result.getHits().size());
+        assertTrue(engine.isStoreFields());
+        LuceneFullTextSearchEngine notStoringEngine = createEngine(false);
+        assertFalse(notStoringEngine.isStoreFields());
+        notStoringEngine.shutdown();
+    }
+
+    @Test
+    void testStoredRowsAsResultSet() throws Exception {
+        engine = createEngine(true);
+        engine.indexRow(row(1, 10, "Coin", null, true), tableData);
+        engine.commitIndex();
+
+        ResultSet rs = engine.searchHits("public", "asset", "coin", 10, 0, true).toResultSet();
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getLong("db_id"));
+        assertEquals(10, rs.getLong("id"));
+        assertEquals("Coin", rs.getString("name"));
+        assertNull(rs.getString("description"));
+        assertEquals(100, rs.getInt("quantity"));
+        assertArrayEquals(new Object[]{"coin", "test"}, (Object[]) rs.getArray("tags").getArray());
+        assertTrue(rs.getBoolean("latest"));
+        assertFalse(rs.next());
+    }
+
+    @Test
+    void testOutdatedRowVersionIsRemovedFromIndex() throws Exception {
+        engine = createEngine(true);
+        engine.indexRow(row(1, 10, "Coin", "Old", true), tableData);
+        engine.commitIndex();
+        engine.commitRow(row(1, 10, "Coin", "Old", true), row(1, 10, "Coin", "Old", false), tableData);
+        engine.indexRow(row(2, 10, "Coin", "New", true), tableData);
+        engine.commitIndex();
+
+        FullTextSearchResult result = engine.searchHits("public", "asset", "coin", 10, 0, true);
+
+        assertEquals(1, result.getTotalHits());
+        assertEquals(2, result.getHits().get(0).getDbId());
+        assertEquals(0, engine.searchHits("public", "asset", "old", 10, 0, true).getTotalHits());
+    }
+
+    @Test
+    void testDeletedRowIsRemovedFromIndex() throws Exception {
+        engine = createEngine(false);
+        engine.indexRow(row(1, 10, "Coin", null, true), tableData);
+        engine.commitIndex();
+        engine.commitRow(row(1, 10, "Coin", null, true), null, tableData);
+        engine.commitIndex();
+
+        assertEquals(0, engine.searchHits("public", "asset", "coin", 10, 0, true).getTotalHits());
+    }
+
+    @Test
+    void testRowsAreNotStoredWhenDisabled() throws Exception {
+        engine = createEngine(false);
+        engine.indexRow(row(1, 10, "Coin", null, true), tableData);
+        engine.commitIndex();
+
+        FullTextSearchResult result = engine.searchHits("public", "asset", "coin", 10, 0, true);
+
+        assertEquals(1, result.getHits().size());
+        assertNull(result.getHits().get(0).getStoredRow());
+        assertFalse(result.isStored());
+    }
+
+    @Test
+    void testIndexedHeightIsStoredOnFlush() throws Exception {
+        engine = createEngine(false);
+        engine.indexRow(row(1, 10, "Coin", null, true), tableData);
+        engine.flushIndex(25);
+        engine.shutdown();
+
+        engine.init();
+
+        assertEquals(25, engine.getIndexedHeight());
+        assertEquals(1, engine.searchHits("public", "asset", "coin", 10, 0, true).getTotalHits());
+    }
+
+    @Test
+    void testCommitIndexIsNotDurable() throws Exception {
+        engine = createEngine(false);
+        engine.flushIndex(10);
+        engine.indexRow(row(1, 10, "Coin", null, true), tableData);
+        engine.onBlockPushed(block(11));
+        engine.commitIndex();
+
+        assertEquals(1, engine.searchHits("public", "asset", "coin", 10, 0, true).getTotalHits());
+        assertEquals(10, engine.getIndexedHeight());
+    }
+
+    @Test
+    void testIndexIsCommittedAfterCommitBlocks() throws Exception {
+        engine = createEngine(false, 2);
+        engine.flushIndex(10);
+        engine.indexRow(row(1, 10, "Coin", null, true), tableData);
+        engine.onBlockPushed(block(11));
+        engine.commitIndex();
+        engine.onBlockPushed(block(12));
+        engine.commitIndex();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (engine.getIndexedHeight() != 12 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100); // wait for the index maintenance
+        }
+        assertEquals(12, engine.getIndexedHeight());
+    }
+
+    @Test
+    void testPopOffBelowIndexedHeightIsCommittedImmediately() throws Exception {
+        engine = createEngine(false);
+        engine.indexRow(row(1, 10, "Coin", null, true), tableData);
+        engine.flushIndex(20);
+
+        engine.onBlockPopped(block(21)); // above the indexed height
+        engine.commitIndex();
+        assertEquals(20, engine.getIndexedHeight());
+
+        engine.onBlockPopped(block(20));
+        engine.commitRow(row(1, 10, "Coin", null, true), null, tableData);
+        engine.commitIndex();
+
+        assertEquals(19, engine.getIndexedHeight());
+        assertEquals(0, engine.searchHits("public", "asset", "coin", 10, 0, true).getTotalHits());
+    }
+
+    private LuceneFullTextSearchEngine createEngine(boolean storeFields) throws IOException {
+        return createEngine(storeFields, LuceneFullTextSearchEngine.DEFAULT_COMMIT_BLOCKS);
+    }
+
+    private LuceneFullTextSearchEngine createEngine(boolean storeFields, int commitBlocks) throws IOException {
+        LuceneFullTextSearchEngine engine = new LuceneFullTextSearchEngine(mock(NtpTime.class), temporaryFolderExtension.newFolder().toPath(),
+            0, LuceneFullTextSearchEngine.DEFAULT_COMMIT_INTERVAL, commitBlocks, storeFields);
+        engine.init();
+        return engine;
+    }
+
+    private Block block(int height) {
+        Block block = mock(Block.class);
+        doReturn(height).when(block).getHeight();
+        return block;
+    }
+
+    private Object[] row(long dbId, long id, String name, String description, boolean latest) {
+        return new Object[]{dbId, id, name, description, 100, new Object[]{"coin", "test"}, latest};
+    }
+}
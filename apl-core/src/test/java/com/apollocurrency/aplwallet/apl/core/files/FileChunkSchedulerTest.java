@@ -0,0 +1,135 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.files;
+
+import com.apollocurrency.aplwallet.api.p2p.FileChunkInfo;
+import com.apollocurrency.aplwallet.api.p2p.FileChunkState;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileChunkSchedulerTest {
+    private static final long CHUNK_SIZE = 1000;
+
+    @Test
+    void testDownloadFromSinglePeer() throws InterruptedException {
+        List<FileChunkInfo> chunks = chunks(3);
+        FileChunkScheduler<String> scheduler = new FileChunkScheduler<>(chunks, List.of("peer"), 2);
+
+        for (int i = 0; i < chunks.size(); i++) {
+            FileChunkScheduler.Assignment<String> assignment = scheduler.next();
+            assertSame(chunks.get(i), assignment.getChunk());
+            assertTrue(scheduler.saved(assignment, CHUNK_SIZE, 1000));
+        }
+
+        assertNull(scheduler.next());
+        assertTrue(scheduler.isComplete());
+        chunks.forEach(chunk -> assertEquals(FileChunkState.SAVED, chunk.present));
+    }
+
+    @Test
+    void testSkipResumedChunks() throws InterruptedException {
+        List<FileChunkInfo> chunks = chunks(2);
+        chunks.get(0).present = FileChunkState.SAVED;
+        FileChunkScheduler<String> scheduler = new FileChunkScheduler<>(chunks, List.of("peer"), 2);
+
+        FileChunkScheduler.Assignment<String> assignment = scheduler.next();
+        assertSame(chunks.get(1), assignment.getChunk());
+        scheduler.saved(assignment, CHUNK_SIZE, 1000);
+
+        assertNull(scheduler.next());
+        assertTrue(scheduler.isComplete());
+    }
+
+    @Test
+    void testFastPeerGetsMoreChunks() throws InterruptedException {
+        List<FileChunkInfo> chunks = chunks(20);
+        FileChunkScheduler<String> scheduler = new FileChunkScheduler<>(chunks, List.of("fast", "slow"), 2);
+        // measure both peers
+        FileChunkScheduler.Assignment<String> first = scheduler.next();
+        FileChunkScheduler.Assignment<String> second = scheduler.next();
+        assertNotEquals(first.getPeer(), second.getPeer());
+        scheduler.saved(first, CHUNK_SIZE, "fast".equals(first.getPeer()) ? 1_000 : 100_000);
+        scheduler.saved(second, CHUNK_SIZE, "fast".equals(second.getPeer()) ? 1_000 : 100_000);
+
+        List<FileChunkScheduler.Assignment<String>> assignments = new ArrayList<>();
+        for (int i = 0; i < FileChunkScheduler.MAX_IN_FLIGHT_PER_PEER + 1; i++) {
+            assignments.add(scheduler.next());
+        }
+
+        assertEquals(FileChunkScheduler.MAX_IN_FLIGHT_PER_PEER, assignments.stream().filter(a -> "fast".equals(a.getPeer())).count());
+        assertEquals(1, assignments.stream().filter(a -> "slow".equals(a.getPeer())).count());
+    }
+
+    @Test
+    void testEndgameRequestsChunkFromAnotherPeer() throws InterruptedException {
+        List<FileChunkInfo> chunks = chunks(1);
+        FileChunkScheduler<String> scheduler = new FileChunkScheduler<>(chunks, List.of("peer1", "peer2"), 2);
+
+        FileChunkScheduler.Assignment<String> first = scheduler.next();
+        FileChunkScheduler.Assignment<String> duplicate = scheduler.next();
+
+        assertSame(first.getChunk(), duplicate.getChunk());
+        assertNotEquals(first.getPeer(), duplicate.getPeer());
+        assertTrue(scheduler.saved(duplicate, CHUNK_SIZE, 1000));
+        assertFalse(scheduler.saved(first, CHUNK_SIZE, 1000));
+        assertNull(scheduler.next());
+        assertTrue(scheduler.isComplete());
+    }
+
+    @Test
+    void testRetryFailedChunk() throws InterruptedException {
+        List<FileChunkInfo> chunks = chunks(1);
+        FileChunkScheduler<String> scheduler = new FileChunkScheduler<>(chunks, List.of("peer"), 2);
+
+        FileChunkScheduler.Assignment<String> assignment = scheduler.next();
+        scheduler.failed(assignment);
+        assertEquals(FileChunkState.PRESENT_IN_PEER, chunks.get(0).present);
+        assertEquals(1, chunks.get(0).failedAttempts);
+
+        assignment = scheduler.next();
+        assertNotNull(assignment);
+        scheduler.failed(assignment);
+
+        assertNull(scheduler.next());
+        assertFalse(scheduler.isComplete());
+    }
+
+    @Test
+    void testFailWhenNoUsablePeers() throws InterruptedException {
+        List<FileChunkInfo> chunks = chunks(FileChunkScheduler.MAX_PEER_ERRORS + 1);
+        FileChunkScheduler<String> scheduler = new FileChunkScheduler<>(chunks, List.of("peer"), 100);
+
+        for (int i = 0; i < FileChunkScheduler.MAX_PEER_ERRORS; i++) {
+            scheduler.failed(scheduler.next());
+        }
+
+        assertNull(scheduler.next());
+        assertFalse(scheduler.isComplete());
+    }
+
+    private List<FileChunkInfo> chunks(int count) {
+        List<FileChunkInfo> chunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            FileChunkInfo chunk = new FileChunkInfo();
+            chunk.fileId = "file";
+            chunk.chunkId = i;
+            chunk.offset = i * CHUNK_SIZE;
+            chunk.size = CHUNK_SIZE;
+            chunk.present = FileChunkState.PRESENT_IN_PEER;
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
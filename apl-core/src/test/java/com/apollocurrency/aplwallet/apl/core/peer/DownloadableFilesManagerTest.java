@@ -1,11 +1,14 @@
 package com.apollocurrency.aplwallet.apl.core.peer;
 
+import com.apollocurrency.aplwallet.api.p2p.FileChunkInfo;
 import com.apollocurrency.aplwallet.api.p2p.FileDownloadInfo;
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
 import com.apollocurrency.aplwallet.apl.core.files.DownloadableFilesManager;
+import com.apollocurrency.aplwallet.apl.core.files.ServedFile;
 import com.apollocurrency.aplwallet.apl.core.shard.ShardNameHelper;
 import com.apollocurrency.aplwallet.apl.crypto.Convert;
 import com.apollocurrency.aplwallet.apl.testutil.ResourceFileLoader;
+import com.apollocurrency.aplwallet.apl.util.CheckSum;
 import com.apollocurrency.aplwallet.apl.util.Constants;
 import com.apollocurrency.aplwallet.apl.util.Zip;
 import com.apollocurrency.aplwallet.apl.util.ZipImpl;
@@ -22,14 +25,23 @@ import org.slf4j.Logger;
 import javax.inject.Inject;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.doReturn;
@@ -114,6 +126,74 @@ class DownloadableFilesManagerTest {
         f.delete();
     }
 
+    @Test
+    void getServedFile() throws IOException {
+        String fileId = "debug::" + zipFileName;
+        String tdir = createTestZip();
+        FileUtils.deleteDirectory(new File(tdir));
+        try {
+            FileDownloadInfo fi = filesManager.getFileDownloadInfo(fileId);
+            ServedFile servedFile = filesManager.getServedFile(fileId);
+            assertSame(servedFile, filesManager.getServedFile(fileId));
+
+            FileChunkInfo lastChunk = fi.chunks.get(fi.chunks.size() - 1);
+            byte[] data = new byte[lastChunk.size.intValue()];
+            assertEquals(lastChunk.offset + lastChunk.size, servedFile.size());
+            assertEquals(data.length, servedFile.read(lastChunk.offset, data));
+            assertEquals(lastChunk.crc, servedFile.getCrc(lastChunk.offset, data));
+            CheckSum checkSum = new CheckSum();
+            checkSum.update(data);
+            assertEquals(checkSum.finish(), servedFile.getCrc(lastChunk.offset, data));
+            // read beyond the end of file
+            assertEquals(data.length, servedFile.read(lastChunk.offset, new byte[data.length + 10]));
+
+            servedFile.served(data.length, 1000);
+            assertEquals(1, servedFile.getServedChunks());
+            assertEquals(data.length, servedFile.getServedBytes());
+
+            filesManager.updateFileDownloadInfo(fileId);
+            assertNotSame(servedFile, filesManager.getServedFile(fileId));
+            assertThrows(IOException.class, () -> servedFile.read(0, data)); // changed file is closed
+        } finally {
+            filesManager.shutdown();
+            new File(fileBaseDir + "/" + zipFileName).delete();
+        }
+    }
+
+    @Test
+    void getServedFileConcurrently() throws Exception {
+        String fileId = "debug::" + zipFileName;
+        String tdir = createTestZip();
+        FileUtils.deleteDirectory(new File(tdir));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<ServedFile>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return filesManager.getServedFile(fileId);
+                }));
+            }
+            start.countDown();
+
+            ServedFile servedFile = results.get(0).get();
+            for (Future<ServedFile> result : results) {
+                assertSame(servedFile, result.get());
+            }
+            assertEquals(filesManager.getFileDownloadInfo(fileId).fileInfo.size.longValue(), servedFile.size());
+        } finally {
+            executor.shutdownNow();
+            filesManager.shutdown();
+            new File(fileBaseDir + "/" + zipFileName).delete();
+        }
+    }
+
+    @Test
+    void getServedMissingFile() {
+        assertThrows(FileNotFoundException.class, () -> filesManager.getServedFile("debug::MISSING-archive.zip"));
+    }
+
     @Test
     void getMissingResource() {
         String zipFileName = "MISSING-archive.zip";
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2018-2020 Apollo Foundation
+ */
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeerRequestExecutorTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PeerRequestExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testExtractRequestType() {
+        assertEquals("getNextBlocks", PeerRequestExecutor.extractRequestType("{\"protocol\":1,\"requestType\":\"getNextBlocks\",\"blockId\":\"1\"}"));
+        assertEquals("processBlock", PeerRequestExecutor.extractRequestType("{\"requestType\" : \"processBlock\"}"));
+        assertNull(PeerRequestExecutor.extractRequestType("{\"error\":\"Peer is busy\"}"));
+        assertNull(PeerRequestExecutor.extractRequestType("{\"requestType\":1}"));
+        assertNull(PeerRequestExecutor.extractRequestType("{\"requestType\":\"getInfo"));
+    }
+
+    @Test
+    void testRequestPool() {
+        assertEquals(PeerRequestExecutor.RequestPool.PRIORITY, PeerRequestExecutor.RequestPool.of("processBlock"));
+        assertEquals(PeerRequestExecutor.RequestPool.PRIORITY, PeerRequestExecutor.RequestPool.of(null));
+        assertEquals(PeerRequestExecutor.RequestPool.SYNC, PeerRequestExecutor.RequestPool.of("getNextBlocks"));
+        assertEquals(PeerRequestExecutor.RequestPool.FILES, PeerRequestExecutor.RequestPool.of("getFileChunk"));
+    }
+
+    @Test
+    void testRejectTooManyRequestsOfPeer() throws InterruptedException {
+        executor = new PeerRequestExecutor(100, 2);
+
+        assertTrue(executor.execute("getNextBlocks", "peer1", this::await));
+        assertTrue(executor.execute("getNextBlocks", "peer1", this::await));
+        assertFalse(executor.execute("getNextBlocks", "peer1", this::await));
+        // other peer and other pool are not affected
+        assertTrue(executor.execute("getNextBlocks", "peer2", this::await));
+        CountDownLatch processed = new CountDownLatch(1);
+        assertTrue(executor.execute("processBlock", "peer1", processed::countDown));
+        assertTrue(processed.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, executor.getBulkheads().get(PeerRequestExecutor.RequestPool.SYNC).getRejectedPerPeer());
+    }
+
+    @Test
+    void testRejectWhenPoolIsSaturated() {
+        executor = new PeerRequestExecutor(1, 100);
+        PeerRequestExecutor.Bulkhead files = executor.getBulkheads().get(PeerRequestExecutor.RequestPool.FILES);
+
+        int accepted = 0;
+        while (executor.execute("getFileChunk", "peer" + accepted, this::await)) {
+            accepted++;
+        }
+
+        assertEquals(files.getThreads() + 1, accepted);
+        assertEquals(1, files.getRejected());
+        assertTrue(executor.execute("processTransactions", "peer", () -> {
+        }));
+        assertTrue(executor.getRetryAfterMs("getFileChunk") > 0);
+    }
+
+    @Test
+    void testLatencyHistogram() {
+        executor = new PeerRequestExecutor(1, 1);
+        for (int i = 1; i <= 100; i++) {
+            executor.recordLatency("getInfo", TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        LatencyHistogram histogram = executor.getLatencies().get("getInfo");
+        assertEquals(100, histogram.getCount());
+        assertEquals(50.5, histogram.getMeanMs(), 0.001);
+        assertEquals(50, histogram.getPercentileMs(50));
+        assertEquals(100, histogram.getPercentileMs(90));
+        assertEquals(100, histogram.getMaxMs());
+        long[] buckets = histogram.getBuckets();
+        assertEquals(50, buckets[0] + buckets[1] + buckets[2] + buckets[3] + buckets[4] + buckets[5]);
+        assertEquals(50, buckets[6]);
+        assertEquals(0, buckets[buckets.length - 1]);
+    }
+
+    private void await() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.peer.endpoint;
+
+import com.apollocurrency.aplwallet.apl.core.files.DownloadableFilesManager;
+import com.apollocurrency.aplwallet.apl.core.files.ServedFile;
+import com.apollocurrency.aplwallet.apl.core.peer.Peer;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class GetFileChunkTest {
+    private static final String FILE_ID = "debug::test.zip";
+    private DownloadableFilesManager filesManager = mock(DownloadableFilesManager.class);
+    private ServedFile servedFile = mock(ServedFile.class);
+    private GetFileChunk getFileChunk = new GetFileChunk(filesManager);
+
+    @Test
+    void testNegativeOffsetIsRejected() throws IOException {
+        JSONObject response = (JSONObject) getFileChunk.processRequest(request(-1, 100), mock(Peer.class));
+
+        assertEquals(-1, ((Number) response.get("errorCode")).intValue());
+        assertNotNull(response.get("error"));
+        verify(filesManager, never()).getServedFile(any());
+    }
+
+    @Test
+    void testOffsetOutOfFileIsRejected() throws IOException {
+        doReturn(servedFile).when(filesManager).getServedFile(FILE_ID);
+        doReturn(1000L).when(servedFile).size();
+
+        JSONObject response = (JSONObject) getFileChunk.processRequest(request(1000, 100), mock(Peer.class));
+
+        assertEquals(-1, ((Number) response.get("errorCode")).intValue());
+        assertNotNull(response.get("error"));
+        verify(servedFile, never()).read(anyLong(), any());
+    }
+
+    @Test
+    void testChunkIsServed() throws IOException {
+        doReturn(servedFile).when(filesManager).getServedFile(FILE_ID);
+        doReturn(1000L).when(servedFile).size();
+        doReturn(100).when(servedFile).read(anyLong(), any());
+
+        JSONObject response = (JSONObject) getFileChunk.processRequest(request(900, 100), mock(Peer.class));
+
+        assertEquals(0, ((Number) response.get("errorCode")).intValue());
+        assertNotNull(response.get("chunk"));
+        verify(servedFile).read(900L, new byte[100]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private JSONObject request(long offset, long size) {
+        JSONObject request = new JSONObject();
+        request.put("fileId", FILE_ID);
+        request.put("offset", offset);
+        request.put("size", size);
+        return request;
+    }
+}
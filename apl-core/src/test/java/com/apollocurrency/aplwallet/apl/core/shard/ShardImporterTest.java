@@ -1,5 +1,7 @@
 package com.apollocurrency.aplwallet.apl.core.shard;
 
+import com.apollocurrency.aplwallet.apl.core.account.dao.AccountGuaranteedBalanceIndex;
+import com.apollocurrency.aplwallet.apl.core.account.dao.AccountGuaranteedBalanceTable;
 import com.apollocurrency.aplwallet.apl.core.app.AplAppStatus;
 import com.apollocurrency.aplwallet.apl.core.app.Block;
 import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
@@ -25,6 +27,8 @@ import com.apollocurrency.aplwallet.apl.core.shard.helper.csv.CsvEscaperImpl;
 import com.apollocurrency.aplwallet.apl.core.shard.helper.csv.ValueParser;
 import com.apollocurrency.aplwallet.apl.core.tagged.dao.DataTagDao;
 import com.apollocurrency.aplwallet.apl.core.tagged.model.DataTag;
+import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderBook;
+import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderTable;
 import com.apollocurrency.aplwallet.apl.extension.DbExtension;
 import com.apollocurrency.aplwallet.apl.extension.TemporaryFolderExtension;
 import com.apollocurrency.aplwallet.apl.testutil.DbUtils;
@@ -253,6 +257,28 @@ class ShardImporterTest {
         verify(aplAppStatus).durableTaskFinished(null, false, "Shard data import"); //success
     }
 
+    @Test
+    void testImportShardResetsTableIndexes() {
+        doReturn(Paths.get("")).when(downloadableFilesManager).mapFileIdToLocalPath("fileId");
+        doReturn(true).when(zipComponent).extract(Paths.get("").toAbsolutePath().toString(), csvImporter.getDataExportPath().toAbsolutePath().toString(), true);
+        doNothing().when(genesisImporter).importGenesisJson(true);
+        AccountGuaranteedBalanceTable balanceTable = mock(AccountGuaranteedBalanceTable.class);
+        AccountGuaranteedBalanceIndex balanceIndex = mock(AccountGuaranteedBalanceIndex.class);
+        doReturn(balanceIndex).when(balanceTable).getBalanceIndex();
+        doReturn(balanceTable).when(derivedTablesRegistry).getDerivedTable(ShardConstants.ACCOUNT_GUARANTEED_BALANCE_TABLE_NAME);
+        DexOrderTable orderTable = mock(DexOrderTable.class);
+        DexOrderBook orderBook = mock(DexOrderBook.class);
+        doReturn(orderBook).when(orderTable).getOrderBook();
+        doReturn(orderTable).when(derivedTablesRegistry).getDerivedTable(ShardConstants.DEX_ORDER_TABLE_NAME);
+
+        shardImporter.importShard(
+            new ShardPresentData(null, "fileId", List.of()), List.of(ShardConstants.SHARD_TABLE_NAME));
+
+        verify(balanceIndex).reset();
+        verify(orderBook).reset();
+        verify(aplAppStatus).durableTaskFinished(null, false, "Shard data import");
+    }
+
     @Test
     void testImportShardWhenLastShardExist() {
         doReturn(Paths.get("")).when(downloadableFilesManager).mapFileIdToLocalPath("fileId");
@@ -0,0 +1,117 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.shard.hash;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingMerkleTreeTest {
+    private final Random random = new Random(42);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testEmptyTree() throws NoSuchAlgorithmException {
+        StreamingMerkleTree tree = new StreamingMerkleTree(sha256());
+
+        assertNull(tree.getRoot());
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    void testRootIsSameAsMerkleTreeRoot() throws NoSuchAlgorithmException {
+        for (int size = 1; size <= 70; size++) {
+            List<byte[]> data = data(size);
+            StreamingMerkleTree tree = new StreamingMerkleTree(sha256());
+            data.forEach(tree::appendLeaf);
+
+            assertArrayEquals(new MerkleTree(sha256(), data).getRoot().getValue(), tree.getRoot(), "Root mismatch for " + size + " leaves");
+        }
+    }
+
+    @Test
+    void testParallelRootIsSameAsMerkleTreeRoot() throws NoSuchAlgorithmException {
+        List<byte[]> data = data(10_007);
+        StreamingMerkleTree tree = new StreamingMerkleTree(sha256());
+        data.forEach(tree::appendLeaf);
+
+        byte[] expected = new MerkleTree(sha256(), data).getRoot().getValue();
+        assertArrayEquals(expected, tree.getRoot(executor));
+        assertArrayEquals(expected, tree.getRoot());
+    }
+
+    @Test
+    void testRestoreAndContinueAppending() throws NoSuchAlgorithmException {
+        List<byte[]> data = data(25);
+        StreamingMerkleTree tree = new StreamingMerkleTree(sha256());
+        data.subList(0, 10).forEach(tree::appendLeaf);
+
+        StreamingMerkleTree restored = StreamingMerkleTree.fromBytes(sha256(), tree.toBytes());
+        data.subList(10, 25).forEach(restored::appendLeaf);
+
+        assertEquals(25, restored.size());
+        assertArrayEquals(new MerkleTree(sha256(), data).getRoot().getValue(), restored.getRoot());
+    }
+
+    @Test
+    void testTruncate() throws NoSuchAlgorithmException {
+        List<byte[]> data = data(20);
+        StreamingMerkleTree tree = new StreamingMerkleTree(sha256());
+        data.forEach(tree::appendLeaf);
+
+        tree.truncate(13);
+
+        assertArrayEquals(new MerkleTree(sha256(), data.subList(0, 13)).getRoot().getValue(), tree.getRoot());
+        assertThrows(IllegalArgumentException.class, () -> tree.truncate(14));
+    }
+
+    @Test
+    void testAppendHashOfDifferentSize() throws NoSuchAlgorithmException {
+        StreamingMerkleTree tree = new StreamingMerkleTree(sha256());
+        tree.appendHashedLeaf(new byte[32]);
+
+        assertThrows(IllegalArgumentException.class, () -> tree.appendHashedLeaf(new byte[16]));
+    }
+
+    @Test
+    void testLeafNumber() {
+        // leaves of the tree with 8 leaves in the order of nodes: 0, 4, 2, 5, 1, 6, 3, 7
+        int[] expected = {0, 4, 2, 5, 1, 6, 3, 7};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], StreamingMerkleTree.leafNumber(7 + i));
+        }
+    }
+
+    private List<byte[]> data(int size) {
+        List<byte[]> data = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            byte[] bytes = new byte[64];
+            random.nextBytes(bytes);
+            data.add(bytes);
+        }
+        return data;
+    }
+
+    private MessageDigest sha256() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256");
+    }
+}
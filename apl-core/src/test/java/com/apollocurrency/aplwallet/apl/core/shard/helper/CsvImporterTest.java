@@ -83,6 +83,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -90,6 +91,7 @@ import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doReturn;
@@ -524,6 +526,44 @@ class CsvImporterTest {
         });
     }
 
+    @Test
+    void testImportWithPartialLastBatchInOwnTransaction() throws Exception {
+        ResourceFileLoader resourceFileLoader = new ResourceFileLoader();
+        TransactionalDataSource dataSource = extension.getDatabaseManager().getDataSource();
+        csvImporter = new CsvImporterImpl(resourceFileLoader.getResourcePath(), extension.getDatabaseManager(), null, valueParser, translator);
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        long result = csvImporter.importCsvWithRowHook("goods", 5, true, rows::add); // 13 rows in batches of 5, 5 and 3
+
+        assertEquals(13, result);
+        assertEquals(13, rows.size());
+        assertTrue(rows.get(12).containsKey("seller_id"));
+        assertFalse(dataSource.isInTransaction(), "Transaction opened by the importer should be closed");
+        verifyCount(dataSource, "goods", 13);
+    }
+
+    @Test
+    void testImportWithMultipleDefaultParams() throws Exception {
+        Path dataPath = temporaryFolderExtension.newFolder().toPath();
+        Files.write(dataPath.resolve("account.csv"), List.of(
+            "ID(-5|19|0),BALANCE(-5|19|0),UNCONFIRMED_BALANCE(-5|19|0),HAS_CONTROL_PHASING(16|1|0),FORGED_BALANCE(-5|19|0),ACTIVE_LESSEE_ID(-5|19|0),DELETED(16|1|0)",
+            "100,1000,900,FALSE,0,null,FALSE",
+            "200,2000,2000,FALSE,10,300,FALSE",
+            "300,3000,3000,TRUE,0,null,FALSE"));
+        TransactionalDataSource dataSource = extension.getDatabaseManager().getDataSource();
+        csvImporter = new CsvImporterImpl(dataPath, extension.getDatabaseManager(), null, valueParser, translator);
+
+        long result = csvImporter.importCsvWithDefaultParams("account", 2, true, Map.of("height", 100, "latest", false));
+
+        assertEquals(3, result);
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("select count(*) from account where height = 100 and latest = false")) {
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            assertEquals(3, rs.getInt(1));
+        }
+    }
+
     private void verifyCount(TransactionalDataSource dataSource, String tableName, long count) {
         try (Connection con = dataSource.getConnection();
              PreparedStatement preparedCount = con.prepareStatement("select count(*) as count from " + tableName)
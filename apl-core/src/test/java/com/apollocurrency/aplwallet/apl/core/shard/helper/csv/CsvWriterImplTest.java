@@ -0,0 +1,134 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.shard.helper.csv;
+
+import com.apollocurrency.aplwallet.apl.core.shard.helper.CsvExportData;
+import com.apollocurrency.aplwallet.apl.core.shard.helper.jdbc.SimpleResultSet;
+import com.apollocurrency.aplwallet.apl.extension.TemporaryFolderExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvWriterImplTest {
+    private static final int PAGE_SIZE = 200;
+    private static final long START_TIME = 1_500_000_000_000L;
+    @RegisterExtension
+    TemporaryFolderExtension folder = new TemporaryFolderExtension();
+
+    private CsvEscaper translator = new CsvEscaperImpl();
+
+    @Test
+    void testAppendPages() throws Exception {
+        Path dataPath = folder.newFolder("export").toPath();
+
+        List<CsvExportData> pages = export(dataPath, "test_table");
+
+        assertEquals(PAGE_SIZE, pages.get(0).getProcessCount());
+        assertEquals(PAGE_SIZE - 1L, pages.get(0).getLastRow().get("DB_ID"));
+        assertEquals(PAGE_SIZE, pages.get(1).getProcessCount());
+        assertEquals(2 * PAGE_SIZE - 1L, pages.get(1).getLastRow().get("DB_ID"));
+        assertEquals("'default'", pages.get(1).getLastRow().get("NAME"));
+        List<String> lines = Files.readAllLines(dataPath.resolve("test_table.csv"));
+        assertEquals(2 * PAGE_SIZE + 1, lines.size());
+        assertEquals("DB_ID(-5|19|0),NAME(12|2147483647|0),CREATED(93|26|0)", lines.get(0));
+    }
+
+    @Test
+    void testConcurrentExportProducesSameFiles() throws Exception {
+        Path serialPath = folder.newFolder("serial").toPath();
+        Path concurrentPath = folder.newFolder("concurrent").toPath();
+        int tables = 8;
+        for (int i = 0; i < tables; i++) {
+            export(serialPath, "table_" + i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<CsvExportData>>> exports = new ArrayList<>();
+            for (int i = 0; i < tables; i++) {
+                String tableName = "table_" + i;
+                exports.add(executor.submit(() -> export(concurrentPath, tableName)));
+            }
+            for (Future<List<CsvExportData>> export : exports) {
+                assertEquals(2 * PAGE_SIZE - 1L, export.get().get(1).getLastRow().get("DB_ID"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < tables; i++) {
+            String fileName = "table_" + i + ".csv";
+            assertArrayEquals(Files.readAllBytes(serialPath.resolve(fileName)), Files.readAllBytes(concurrentPath.resolve(fileName)),
+                "Concurrently exported file " + fileName + " differs");
+        }
+    }
+
+    @Test
+    void testWriteBinaryColumn() throws Exception {
+        Path dataPath = folder.newFolder("binary").toPath();
+        byte[] small = {1, 2, 3, 4};
+        byte[] large = new byte[1000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        SimpleResultSet rs = new SimpleResultSet();
+        rs.addColumn("DB_ID", Types.BIGINT, 19, 0);
+        rs.addColumn("DATA", Types.VARBINARY, Integer.MAX_VALUE, 0);
+        rs.addRow(1L, small);
+        rs.addRow(2L, new byte[0]);
+        rs.addRow(3L, null);
+        rs.addRow(4L, large);
+
+        try (CsvWriter csvWriter = new CsvWriterImpl(dataPath, Collections.emptySet(), translator)) {
+            assertEquals(4, csvWriter.write("binary_table", rs).getProcessCount());
+        }
+
+        List<String> lines = Files.readAllLines(dataPath.resolve("binary_table.csv"));
+        assertEquals(List.of(
+            "\"DB_ID(-5|19|0)\",\"DATA(-3|2147483647|0)\"",
+            "\"1\",\"" + translator.translate(small) + "\"",
+            "\"2\",\"" + translator.translate(new byte[0]) + "\"",
+            "\"3\",\"null\"",
+            "\"4\",\"" + translator.translate(large) + "\""), lines);
+    }
+
+    /**
+     * Export two pages of the table, the second one with the default value of the NAME column
+     */
+    private List<CsvExportData> export(Path dataPath, String tableName) throws SQLException {
+        try (CsvWriter csvWriter = new CsvWriterImpl(dataPath, Collections.emptySet(), translator)) {
+            csvWriter.setOptions("fieldDelimiter="); // do not put ""
+            CsvExportData first = csvWriter.append(tableName, page(0));
+            CsvExportData second = csvWriter.append(tableName, page(PAGE_SIZE), Map.of("name", "'default'"));
+            return List.of(first, second);
+        }
+    }
+
+    private static SimpleResultSet page(int fromDbId) {
+        SimpleResultSet rs = new SimpleResultSet();
+        rs.addColumn("DB_ID", Types.BIGINT, 19, 0);
+        rs.addColumn("NAME", Types.VARCHAR, Integer.MAX_VALUE, 0);
+        rs.addColumn("CREATED", Types.TIMESTAMP, 26, 0);
+        for (long dbId = fromDbId; dbId < fromDbId + PAGE_SIZE; dbId++) {
+            rs.addRow(dbId, "name " + dbId, new Timestamp(START_TIME + dbId * 3_700_000L));
+        }
+        return rs;
+    }
+}
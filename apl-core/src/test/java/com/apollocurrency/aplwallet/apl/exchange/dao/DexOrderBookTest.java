@@ -0,0 +1,207 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.exchange.dao;
+
+import com.apollocurrency.aplwallet.apl.exchange.model.DBSortOrder;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexCurrency;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrder;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrderDBRequest;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrderSortBy;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderStatus;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DexOrderBookTest {
+    private List<DexOrder> dbOrders;
+    private DexOrderBook book;
+
+    @BeforeEach
+    void setUp() {
+        dbOrders = new ArrayList<>(List.of(
+            order(1, 100, OrderType.BUY, DexCurrency.ETH, "0.0001", 500, 10),
+            order(2, 200, OrderType.BUY, DexCurrency.ETH, "0.0002", 400, 11),
+            order(3, 300, OrderType.BUY, DexCurrency.ETH, "0.0001", 300, 12),
+            order(4, 100, OrderType.SELL, DexCurrency.ETH, "0.0001", 600, 13),
+            order(5, 200, OrderType.BUY, DexCurrency.PAX, "0.0001", 700, 14)
+        ));
+        book = new DexOrderBook(() -> dbOrders);
+    }
+
+    @Test
+    void testGetOrdersForMatchingInCreationOrder() {
+        List<DexOrder> orders = book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 1000, 200, 350);
+
+        assertEquals(List.of(1L), ids(orders));
+        assertEquals(List.of(1L, 3L), ids(book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 1000, 200, 250)));
+        assertEquals(List.of(), ids(book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 2000, 200, 250)));
+        assertEquals(List.of(), ids(book.getOrdersForMatching(OrderType.SELL, DexCurrency.PAX, 100_000, 1000, 200, 250)));
+    }
+
+    @Test
+    void testReturnedOrdersAreCopies() {
+        DexOrder order = book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 200_000, 1000, 100, 0).get(0);
+        order.setStatus(OrderStatus.EXPIRED);
+
+        assertEquals(OrderStatus.OPEN, book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 200_000, 1000, 100, 0).get(0).getStatus());
+    }
+
+    @Test
+    void testGetOverdueOrders() {
+        assertEquals(List.of(3L, 2L), ids(book.getOverdueOrders(500)));
+    }
+
+    @Test
+    void testGetOrdersSortedByRate() {
+        DexOrderDBRequest request = request().type(OrderType.BUY.ordinal()).pairCur(DexCurrency.ETH.ordinal())
+            .sortOrder(DBSortOrder.DESC).offset(0).limit(10).build();
+
+        assertEquals(List.of(2L, 1L, 3L), ids(book.getOrders(request)));
+        request.setSortOrder(DBSortOrder.ASC);
+        assertEquals(List.of(1L, 3L, 2L), ids(book.getOrders(request)));
+        request.setOffset(1);
+        request.setLimit(1);
+        assertEquals(List.of(3L), ids(book.getOrders(request)));
+    }
+
+    @Test
+    void testGetOrdersByAccountAndTime() {
+        DexOrderDBRequest request = request().accountId(200L).sortBy(DexOrderSortBy.DB_ID).sortOrder(DBSortOrder.ASC).build();
+        assertEquals(List.of(2L, 5L), ids(book.getOrders(request)));
+
+        request = request().currentTime(450).sortOrder(DBSortOrder.DESC).build();
+        assertEquals(List.of(1L, 4L, 5L), ids(book.getOrders(request)));
+    }
+
+    @Test
+    void testIsSupported() {
+        assertTrue(DexOrderBook.isSupported(request().build()));
+        assertFalse(DexOrderBook.isSupported(request().dbId(10).build()));
+        assertFalse(DexOrderBook.isSupported(DexOrderDBRequest.builder().status(OrderStatus.CLOSED).build()));
+    }
+
+    @Test
+    void testUpdateAndTransactionRollback() {
+        book.ensureLoaded();
+        DexOrder closed = order(1, 100, OrderType.BUY, DexCurrency.ETH, "0.0001", 500, 20);
+        closed.setStatus(OrderStatus.PENDING);
+        book.update(closed);
+        book.update(order(6, 400, OrderType.BUY, DexCurrency.ETH, "0.0001", 800, 20));
+
+        assertEquals(List.of(3L, 6L), ids(book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 1000, 200, 0)));
+
+        book.rollback();
+
+        assertEquals(List.of(1L, 3L), ids(book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 1000, 200, 0)));
+        assertEquals(5, book.size());
+    }
+
+    @Test
+    void testUpdateAtSameHeightKeepsCreationOrder() {
+        book.ensureLoaded();
+        DexOrder order6 = order(6, 400, OrderType.BUY, DexCurrency.ETH, "0.0001", 800, 20);
+        book.update(order6);
+        book.update(order(7, 500, OrderType.BUY, DexCurrency.ETH, "0.0001", 800, 20));
+        order6.setFinishTime(900);
+        book.update(order6);
+
+        assertEquals(List.of(1L, 3L, 6L, 7L), ids(book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 1000, 200, 0)));
+    }
+
+    @Test
+    void testReloadAfterTableRollback() {
+        book.ensureLoaded();
+        DexOrder pending = order(1, 100, OrderType.BUY, DexCurrency.ETH, "0.0001", 500, 20);
+        pending.setStatus(OrderStatus.PENDING);
+        book.update(pending);
+        book.update(order(6, 400, OrderType.BUY, DexCurrency.ETH, "0.0001", 800, 21));
+        book.commit();
+
+        book.reload();
+        book.commit();
+
+        assertEquals(List.of(1L, 3L), ids(book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 1000, 200, 0)));
+        assertEquals(5, book.size());
+
+        book.update(order(6, 400, OrderType.BUY, DexCurrency.ETH, "0.0001", 800, 21));
+
+        assertEquals(List.of(1L, 3L, 6L), ids(book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 1000, 200, 0)));
+    }
+
+    @Test
+    void testTransactionRollbackAfterReload() {
+        book.ensureLoaded();
+        DexOrder order6 = order(6, 400, OrderType.BUY, DexCurrency.ETH, "0.0001", 800, 21);
+        book.update(order6);
+        book.commit();
+
+        book.reload(); // order 6 is not committed yet
+        assertEquals(5, book.size());
+        book.rollback();
+        dbOrders.add(order6);
+
+        assertEquals(List.of(1L, 3L, 6L), ids(book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 1000, 200, 0)));
+        assertEquals(6, book.size());
+    }
+
+    @Test
+    void testChangesAreVisibleToOtherThreadsAfterCommit() throws Exception {
+        book.ensureLoaded();
+        DexOrder closed = order(1, 100, OrderType.BUY, DexCurrency.ETH, "0.0001", 500, 20);
+        closed.setStatus(OrderStatus.CLOSED);
+        book.update(closed);
+        book.update(order(6, 400, OrderType.BUY, DexCurrency.ETH, "0.0001", 800, 20));
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+        try {
+            Callable<List<Long>> matchingOrders = () -> ids(book.getOrdersForMatching(OrderType.BUY, DexCurrency.ETH, 100_000, 1000, 200, 0));
+
+            assertEquals(List.of(3L, 6L), matchingOrders.call());
+            assertEquals(List.of(1L, 3L), otherThread.submit(matchingOrders).get());
+            assertEquals(5, (int) otherThread.submit(book::size).get());
+
+            book.commit();
+
+            assertEquals(List.of(3L, 6L), otherThread.submit(matchingOrders).get());
+            assertEquals(5, (int) otherThread.submit(book::size).get());
+        } finally {
+            otherThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void testReset() {
+        assertEquals(5, book.getOverdueOrders(Integer.MAX_VALUE).size());
+        dbOrders.remove(0);
+
+        book.reset();
+
+        assertEquals(4, book.getOverdueOrders(Integer.MAX_VALUE).size());
+    }
+
+    private DexOrderDBRequest.DexOrderDBRequestBuilder request() {
+        return DexOrderDBRequest.builder().status(OrderStatus.OPEN);
+    }
+
+    private List<Long> ids(List<DexOrder> orders) {
+        return orders.stream().map(DexOrder::getId).collect(Collectors.toList());
+    }
+
+    private DexOrder order(long id, long accountId, OrderType type, DexCurrency pairCurrency, String rate, int finishTime, int height) {
+        return new DexOrder(id, id, type, accountId, DexCurrency.APL, 1000L, pairCurrency, new BigDecimal(rate), finishTime,
+            OrderStatus.OPEN, height, null, null);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.exchange.dao;
+
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainImpl;
+import com.apollocurrency.aplwallet.apl.core.app.TimeServiceImpl;
+import com.apollocurrency.aplwallet.apl.core.app.TransactionDaoImpl;
+import com.apollocurrency.aplwallet.apl.core.cache.NullCacheProducerForTests;
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.core.config.DaoConfig;
+import com.apollocurrency.aplwallet.apl.core.db.BlockDaoImpl;
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedDbTablesRegistryImpl;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.core.db.cdi.transaction.JdbiHandleFactory;
+import com.apollocurrency.aplwallet.apl.core.db.cdi.transaction.JdbiTransactionalSqlObjectDaoProxyInvocationHandler;
+import com.apollocurrency.aplwallet.apl.core.db.fulltext.FullTextConfigImpl;
+import com.apollocurrency.aplwallet.apl.core.shard.BlockIndexServiceImpl;
+import com.apollocurrency.aplwallet.apl.data.DexTestData;
+import com.apollocurrency.aplwallet.apl.exchange.model.DBSortOrder;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrder;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrderDBRequest;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrderSortBy;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderStatus;
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import com.apollocurrency.aplwallet.apl.testutil.DbUtils;
+import com.apollocurrency.aplwallet.apl.util.NtpTime;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import org.jboss.weld.junit.MockBean;
+import org.jboss.weld.junit5.EnableWeld;
+import org.jboss.weld.junit5.WeldInitiator;
+import org.jboss.weld.junit5.WeldSetup;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+@EnableWeld
+class DexOrderTableTest {
+
+    @RegisterExtension
+    DbExtension extension = new DbExtension();
+
+    @WeldSetup
+    public WeldInitiator weld = WeldInitiator.from(
+        PropertiesHolder.class, BlockchainConfig.class, BlockchainImpl.class, DaoConfig.class,
+        JdbiHandleFactory.class,
+        FullTextConfigImpl.class,
+        DexOrderTable.class,
+        DerivedDbTablesRegistryImpl.class,
+        TimeServiceImpl.class, BlockDaoImpl.class, TransactionDaoImpl.class,
+        BlockIndexServiceImpl.class, NullCacheProducerForTests.class)
+        .addBeans(MockBean.of(extension.getDatabaseManager(), DatabaseManager.class))
+        .addBeans(MockBean.of(extension.getDatabaseManager().getJdbi(), Jdbi.class))
+        .addBeans(MockBean.of(mock(NtpTime.class), NtpTime.class))
+        .build();
+    @Inject
+    DexOrderTable table;
+    DexOrderDao dexOrderDao;
+    DexTestData td;
+    ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setUp() {
+        JdbiHandleFactory jdbiHandleFactory = new JdbiHandleFactory();
+        jdbiHandleFactory.setJdbi(extension.getDatabaseManager().getJdbi());
+        dexOrderDao = JdbiTransactionalSqlObjectDaoProxyInvocationHandler.createProxy(jdbiHandleFactory, DexOrderDao.class);
+        td = new DexTestData();
+    }
+
+    @AfterEach
+    void tearDown() {
+        otherThread.shutdownNow();
+    }
+
+    @Test
+    void testInsertIsAppliedToBookOnCommit() {
+        assertBookEqualsDb(List.of(3L, 5L));
+
+        DbUtils.inTransaction(extension, con -> {
+            table.insert(closedOrder5());
+            table.insert(newOrder11());
+
+            assertEquals(List.of(3L, 11L), ids(table.getOrderBook().getOrders(openOrders())));
+            assertEquals(List.of(3L, 5L), inOtherThread(() -> ids(table.getOrderBook().getOrders(openOrders()))));
+            assertEquals(List.of(3L, 5L), inOtherThread(() -> ids(table.getOrderBook().getOverdueOrders(Integer.MAX_VALUE))));
+            assertEquals(List.of(3L, 11L), ids(table.getOrderBook().getOverdueOrders(Integer.MAX_VALUE)));
+        });
+
+        assertBookEqualsDb(List.of(3L, 11L));
+        assertEquals(List.of(3L, 11L), inOtherThread(() -> ids(table.getOrderBook().getOrders(openOrders()))));
+    }
+
+    @Test
+    void testInsertRollback() {
+        table.getOrderBook().ensureLoaded();
+        TransactionalDataSource dataSource = extension.getDatabaseManager().getDataSource();
+        dataSource.begin();
+        try {
+            table.insert(closedOrder5());
+            table.insert(newOrder11());
+            assertEquals(List.of(3L, 11L), ids(table.getOrderBook().getOrders(openOrders())));
+        } finally {
+            dataSource.rollback();
+        }
+
+        assertBookEqualsDb(List.of(3L, 5L));
+        assertEquals(List.of(3L, 5L), inOtherThread(() -> ids(table.getOrderBook().getOrders(openOrders()))));
+    }
+
+    @Test
+    void testTableRollbackIsAppliedToBookOnCommit() {
+        DbUtils.inTransaction(extension, con -> {
+            table.insert(closedOrder5());
+            table.insert(newOrder11());
+        });
+        assertBookEqualsDb(List.of(3L, 11L));
+
+        DbUtils.inTransaction(extension, con -> {
+            table.rollback(125);
+
+            assertEquals(List.of(3L, 5L), ids(table.getOrderBook().getOrders(openOrders())));
+            assertEquals(List.of(3L, 11L), inOtherThread(() -> ids(table.getOrderBook().getOrders(openOrders()))));
+        });
+
+        assertBookEqualsDb(List.of(3L, 5L));
+    }
+
+    private void assertBookEqualsDb(List<Long> expectedIds) {
+        DexOrderDBRequest request = openOrders();
+        List<DexOrder> dbOrders = dexOrderDao.getOrders(request, request.getSortBy(), request.getSortOrder());
+
+        assertEquals(expectedIds, ids(dbOrders));
+        assertEquals(ids(dbOrders), ids(table.getOrderBook().getOrders(request)));
+        assertEquals(expectedIds.size(), table.getOrderBook().size());
+    }
+
+    private <T> T inOtherThread(Callable<T> callable) {
+        try {
+            return otherThread.submit(callable).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    private DexOrder closedOrder5() {
+        DexOrder order = td.ORDER_BEA_4;
+        return new DexOrder(null, order.getId(), order.getType(), order.getAccountId(), order.getOrderCurrency(), order.getOrderAmount(),
+            order.getPairCurrency(), order.getPairRate(), order.getFinishTime(), OrderStatus.CLOSED, 130, order.getFromAddress(), order.getToAddress());
+    }
+
+    private DexOrder newOrder11() {
+        DexOrder order = td.ORDER_BPB_1;
+        return new DexOrder(null, 11L, order.getType(), order.getAccountId(), order.getOrderCurrency(), order.getOrderAmount(),
+            order.getPairCurrency(), order.getPairRate(), 20000, OrderStatus.OPEN, 130, order.getFromAddress(), order.getToAddress());
+    }
+
+    private static DexOrderDBRequest openOrders() {
+        return DexOrderDBRequest.builder().status(OrderStatus.OPEN).sortBy(DexOrderSortBy.DB_ID).sortOrder(DBSortOrder.ASC)
+            .offset(0).limit(100).build();
+    }
+
+    private static List<Long> ids(List<DexOrder> orders) {
+        return orders.stream().map(DexOrder::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.exchange.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DexAccountProcessingQueueTest {
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+    private final List<String> processed = new ArrayList<>();
+    private DexAccountProcessingQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new DexAccountProcessingQueue(tasks::add, (account, fullScan) -> processed.add(account + ":" + fullScan));
+    }
+
+    @Test
+    void testSubmissionsOfWaitingAccountAreMerged() {
+        queue.submit(1, false);
+        queue.submit(2, false);
+        queue.submit(1, true);
+        queue.submit(1, false);
+
+        assertEquals(2, tasks.size());
+        assertEquals(2, queue.size());
+
+        runAll();
+
+        assertEquals(List.of("1:true", "2:false"), processed);
+        assertEquals(0, queue.size());
+        assertEquals(2, queue.getWaitTime().getCount());
+    }
+
+    @Test
+    void testAccountSubmittedDuringProcessingIsProcessedAgainAfterCurrentRun() {
+        queue = new DexAccountProcessingQueue(tasks::add, (account, fullScan) -> {
+            processed.add(account + ":" + fullScan);
+            if (processed.size() == 1) {
+                queue.submit(account, false);
+                assertEquals(0, tasks.size()); // not scheduled while running
+            }
+        });
+        queue.submit(1, true);
+
+        runAll();
+
+        assertEquals(List.of("1:true", "1:false"), processed);
+    }
+
+    @Test
+    void testProcessingErrorDoesNotStopQueue() {
+        queue = new DexAccountProcessingQueue(tasks::add, (account, fullScan) -> {
+            processed.add(account + ":" + fullScan);
+            throw new IllegalStateException("Test error");
+        });
+        queue.submit(1, false);
+        runAll();
+        queue.submit(1, false);
+        runAll();
+
+        assertEquals(List.of("1:false", "1:false"), processed);
+    }
+
+    @Test
+    void testRejectedAccountIsRemovedFromQueue() {
+        queue = new DexAccountProcessingQueue(task -> {
+            throw new RejectedExecutionException("Shutdown");
+        }, (account, fullScan) -> processed.add(account + ":" + fullScan));
+
+        queue.submit(1, false);
+
+        assertEquals(0, queue.size());
+    }
+
+    private void runAll() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *  Copyright © 2018-2020 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.exchange.service.graph;
+
+import com.apollocurrency.aplwallet.api.trading.SimpleTradingEntry;
+import com.apollocurrency.aplwallet.apl.core.app.Block;
+import com.apollocurrency.aplwallet.apl.core.app.GenesisImporter;
+import com.apollocurrency.aplwallet.apl.core.app.TimeService;
+import com.apollocurrency.aplwallet.apl.exchange.dao.DexOrderDao;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexCurrency;
+import com.apollocurrency.aplwallet.apl.exchange.model.DexOrder;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderStatus;
+import com.apollocurrency.aplwallet.apl.exchange.model.OrderType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.apollocurrency.aplwallet.apl.exchange.service.graph.CandlestickTestUtil.apl;
+import static com.apollocurrency.aplwallet.apl.exchange.service.graph.CandlestickTestUtil.dec;
+import static com.apollocurrency.aplwallet.apl.exchange.service.graph.CandlestickTestUtil.fromRawData;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class DexTradingDataCacheTest {
+    private static final int NOW = 1574857800; // 12:30 27.11.2019
+
+    DexOrderDao orderDao = mock(DexOrderDao.class);
+    TimeService timeService = mock(TimeService.class);
+    DexTradingDataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        GenesisImporter.EPOCH_BEGINNING = 0;
+        doReturn((long) NOW).when(timeService).systemTime();
+        doReturn(List.of()).when(orderDao).getOrdersFromDbIdBetweenTimestamps(any());
+        cache = new DexTradingDataCache(orderDao, timeService, true, 10);
+    }
+
+    @Test
+    void testGetBarsLoadedFromDb() {
+        doReturn(List.of(order(1, NOW - 1000, "0.0001", 100, 10), order(2, NOW - 950, "0.0003", 200, 11), order(3, NOW - 100, "0.0002", 50, 12)))
+            .when(orderDao).getOrdersFromDbIdBetweenTimestamps(any());
+
+        List<SimpleTradingEntry> quarters = cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER);
+
+        assertEquals(List.of(
+            fromRawData("0.0001", "0.0003", "0.0001", "0.0003", "300", "0.07", NOW - 1800),
+            fromRawData("0.0002", "0.0002", "0.0002", "0.0002", "50", "0.01", NOW - 900)), quarters);
+        List<SimpleTradingEntry> hours = cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.HOUR);
+        assertEquals(List.of(fromRawData("0.0001", "0.0003", "0.0001", "0.0002", "350", "0.08", NOW - 1800)), hours);
+    }
+
+    @Test
+    void testGetBarsOutsideOfCachedTimeRange() {
+        assertNull(cache.getBars(NOW - 10 * 900, NOW, DexCurrency.ETH, TimeFrame.QUARTER));
+        assertEquals(List.of(), cache.getBars(NOW - 9 * 900, NOW, DexCurrency.ETH, TimeFrame.QUARTER));
+    }
+
+    @Test
+    void testGetBarsWhenDisabled() {
+        cache = new DexTradingDataCache(orderDao, timeService, false, 10);
+
+        assertNull(cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER));
+        verify(orderDao, never()).getOrdersFromDbIdBetweenTimestamps(any());
+    }
+
+    @Test
+    void testLastCandlestickIncludesOnlyOrdersBeforeUpperBound() {
+        doReturn(List.of(order(1, NOW - 1000, "0.0001", 100, 10), order(2, NOW - 950, "0.0003", 200, 11)))
+            .when(orderDao).getOrdersFromDbIdBetweenTimestamps(any());
+
+        List<SimpleTradingEntry> bars = cache.getBars(NOW - 3600, NOW - 960, DexCurrency.ETH, TimeFrame.QUARTER);
+
+        assertEquals(List.of(fromRawData("0.0001", "0.0001", "0.0001", "0.0001", "100", "0.01", NOW - 1800)), bars);
+    }
+
+    @Test
+    void testBlockPushedAndPopped() {
+        cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER);
+        doReturn(List.of(order(1, NOW - 1000, "0.0001", 100, 10), order(2, NOW - 950, "0.0003", 200, 10)))
+            .when(orderDao).getClosedOrdersAtHeight(10);
+        doReturn(List.of(order(3, NOW - 990, "0.0002", 100, 11)))
+            .when(orderDao).getClosedOrdersAtHeight(11);
+
+        cache.onBlockPushed(block(10));
+        cache.onBlockPushed(block(11));
+        cache.onBlockPushed(block(10)); // duplicate orders should be ignored
+
+        assertEquals(List.of(fromRawData("0.0001", "0.0003", "0.0001", "0.0003", "400", "0.09", NOW - 1800)),
+            cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER));
+
+        cache.onBlockPopped(block(11));
+
+        assertEquals(List.of(fromRawData("0.0001", "0.0003", "0.0001", "0.0003", "300", "0.07", NOW - 1800)),
+            cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER));
+
+        cache.onBlockPopped(block(10));
+
+        assertEquals(List.of(), cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER));
+    }
+
+    @Test
+    void testBlockPushedToColdCache() {
+        cache.onBlockPushed(block(10));
+
+        verify(orderDao, never()).getClosedOrdersAtHeight(anyInt());
+        doReturn(List.of(order(1, NOW - 1000, "0.0001", 100, 10))).when(orderDao).getOrdersFromDbIdBetweenTimestamps(any());
+        assertEquals(List.of(fromRawData("0.0001", "0.0001", "0.0001", "0.0001", "100", "0.01", NOW - 1800)),
+            cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER));
+    }
+
+    @Test
+    void testGetPreviousCandlestickTime() {
+        doReturn(List.of(order(1, NOW - 5000, "0.0001", 100, 10), order(2, NOW - 1000, "0.0003", 200, 11)))
+            .when(orderDao).getOrdersFromDbIdBetweenTimestamps(any());
+        cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER);
+
+        assertEquals(Integer.valueOf(NOW - 1800), cache.getPreviousCandlestickTime(NOW - 900, DexCurrency.ETH, TimeFrame.QUARTER));
+        assertEquals(Integer.valueOf(NOW - 5400), cache.getPreviousCandlestickTime(NOW - 1000, DexCurrency.ETH, TimeFrame.QUARTER));
+        assertNull(cache.getPreviousCandlestickTime(NOW - 5000, DexCurrency.ETH, TimeFrame.QUARTER));
+        assertNull(cache.getPreviousCandlestickTime(NOW, DexCurrency.PAX, TimeFrame.QUARTER));
+    }
+
+    @Test
+    void testRescanResetsCache() {
+        cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER);
+        cache.onRescanBegin(block(10));
+
+        assertNull(cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER));
+
+        doReturn(List.of(order(1, NOW - 1000, "0.0001", 100, 10))).when(orderDao).getOrdersFromDbIdBetweenTimestamps(any());
+        cache.onRescanEnd(block(10));
+
+        assertEquals(List.of(fromRawData("0.0001", "0.0001", "0.0001", "0.0001", "100", "0.01", NOW - 1800)),
+            cache.getBars(NOW - 3600, NOW, DexCurrency.ETH, TimeFrame.QUARTER));
+    }
+
+    private Block block(int height) {
+        Block block = mock(Block.class);
+        doReturn(height).when(block).getHeight();
+        return block;
+    }
+
+    // finish time is an epoch time, which is converted to the unix time with -500ms shift, see Convert2.fromEpochTime
+    private DexOrder order(long id, int unixFinishTime, String rate, long amount, int height) {
+        return new DexOrder(id, id, OrderType.BUY, 1L, DexCurrency.APL, apl(amount), DexCurrency.ETH, dec(rate),
+            unixFinishTime + 1, OrderStatus.CLOSED, height, null, null);
+    }
+}
@@ -164,6 +164,24 @@ public class EntityProducer {
                 return 0;
             }
 
+            @Override
+            public long getEncodingTime() {
+                return 0;
+            }
+
+            @Override
+            public long getDecodingTime() {
+                return 0;
+            }
+
+            @Override
+            public void updateEncodingTime(long nanos) {
+            }
+
+            @Override
+            public void updateDecodingTime(long nanos) {
+            }
+
             @Override
             public int getLastUpdated() {
                 return 0;
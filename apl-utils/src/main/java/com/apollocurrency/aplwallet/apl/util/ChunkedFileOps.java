@@ -88,9 +88,10 @@ public class ChunkedFileOps {
             res = -2;
             return res;
         }
-        RandomAccessFile rf = new RandomAccessFile(absPath.toFile(), "r");
-        rf.skipBytes(offset.intValue());
-        res = rf.read(dataBuf, 0, size.intValue());
+        try (RandomAccessFile rf = new RandomAccessFile(absPath.toFile(), "r")) {
+            rf.seek(offset);
+            res = rf.read(dataBuf, 0, size.intValue());
+        }
         CheckSum cs = new CheckSum();
         cs.update(dataBuf, size.intValue());
         lastRDChunkCrc = cs.finish();
@@ -152,6 +153,18 @@ public class ChunkedFileOps {
         return fileHash;
     }
 
+    /**
+     * Assign hash sum and partial CRCs calculated while the file was written, so the file is not read again
+     *
+     * @param hash   crypto hash sum of entire file
+     * @param chunks CRCs of the file chunks of {@link #FILE_CHUNK_SIZE}
+     */
+    void setFileHashSums(byte[] hash, List<ChunkInfo> chunks) {
+        fileCRCs.clear();
+        fileCRCs.addAll(chunks);
+        fileHash = hash;
+    }
+
     public List<ChunkInfo> getChunksCRC() {
         if (fileCRCs.size() == 0) {
             getFileHashSums();
@@ -4,14 +4,24 @@
 
 package com.apollocurrency.aplwallet.apl.util;
 
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import com.apollocurrency.aplwallet.apl.util.task.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
@@ -20,21 +30,35 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 /**
  * Class is used for zip-unzip filtered files in specified directory
+ * <p>Files are compressed in parallel, each one into the separate single entry archive part by its own deflater,
+ * then parts are joined in the order of files with the common central directory. Joined archive is byte to byte
+ * the same as the archive written sequentially by the {@link ZipOutputStream}, so archive hash does not depend on
+ * the number of threads. Archive hash and chunk CRCs are calculated while the archive is written.</p>
  *
  * @author alukin@gmail.com
  */
@@ -44,10 +68,49 @@ public class ZipImpl implements Zip {
 
     // magic constant copied from DownloadableFilesManager class
     private final static int BUF_SIZE = 1024 * 16; // 16 Kb
-    private static final int ZIP_COMPRESSION_LEVEL = 9;
+    private final static int WRITE_BUF_SIZE = 1024 * 64; // 64 Kb
+    public static final int DEFAULT_COMPRESSION_LEVEL = 9;
+    public static final String COMPRESSION_LEVEL_PROPERTY = "apl.sharding.zipCompressionLevel";
+    private static final int DEFAULT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
     public static Instant DEFAULT_BACK_TO_1970 = Instant.EPOCH; // in past
+    private static final String PART_SUFFIX = ".part";
+    /**
+     * Archives of that size and more need zip64 records, so they are written sequentially
+     */
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP64_ENTRIES_LIMIT = 0xFFFF;
+    private static final int END_SIG = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int CEN_LOCAL_OFFSET = 42;
+
+    private final int compressionLevel;
+    private final int threads;
 
     public ZipImpl() {
+        this(DEFAULT_COMPRESSION_LEVEL, DEFAULT_THREADS);
+    }
+
+    @Inject
+    public ZipImpl(Instance<PropertiesHolder> propertiesHolder) {
+        this(propertiesHolder.isResolvable()
+            ? propertiesHolder.get().getIntProperty(COMPRESSION_LEVEL_PROPERTY, DEFAULT_COMPRESSION_LEVEL)
+            : DEFAULT_COMPRESSION_LEVEL, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param compressionLevel deflate level from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION},
+     *                         archives of the same files compressed with different levels have different hashes
+     * @param threads          number of files compressed in parallel
+     */
+    public ZipImpl(int compressionLevel, int threads) {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Zip compression level should be in range [0..9], got " + compressionLevel);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of zip threads should be positive, got " + threads);
+        }
+        this.compressionLevel = compressionLevel;
+        this.threads = threads;
     }
 
     /**
@@ -106,14 +169,11 @@ public class ZipImpl implements Zip {
     public ChunkedFileOps compressAndHash(String zipFile, String inputFolder, Long filesTimeFromEpoch,
                                           FilenameFilter filenameFilter, boolean recursive) {
         long start = System.currentTimeMillis();
-        boolean compressed = compress(zipFile, inputFolder, filesTimeFromEpoch, filenameFilter, recursive);
+        ChunkedFileOps chunkedFileOps = new ChunkedFileOps(zipFile);
+        boolean compressed = compress(zipFile, inputFolder, filesTimeFromEpoch, filenameFilter, recursive, chunkedFileOps);
         if (compressed) {
-            // compute CRC/hash sum on zip file
-            ChunkedFileOps chunkedFileOps = new ChunkedFileOps(zipFile);
-            byte[] zipCrcHash = chunkedFileOps.getFileHashSums();
-
-            log.debug("Created archive '{}', CRC/hash = [{}] within {} sec",
-                zipFile, zipCrcHash.length, (System.currentTimeMillis() - start) / 1000);
+            log.debug("Created archive '{}', CRC/hash = [{}] within {} ms",
+                zipFile, chunkedFileOps.getFileHash().length, System.currentTimeMillis() - start);
             return chunkedFileOps;
         } else {
             return new ChunkedFileOps("");
@@ -138,6 +198,11 @@ public class ZipImpl implements Zip {
     @Override
     public boolean compress(String zipFile, String inputFolder, Long filesTimeFromEpoch,
                             FilenameFilter filenameFilter, boolean recursive) {
+        return compress(zipFile, inputFolder, filesTimeFromEpoch, filenameFilter, recursive, null);
+    }
+
+    private boolean compress(String zipFile, String inputFolder, Long filesTimeFromEpoch,
+                             FilenameFilter filenameFilter, boolean recursive, ChunkedFileOps hashSums) {
         Objects.requireNonNull(zipFile, "zipFile is NULL");
         Objects.requireNonNull(inputFolder, "inputFolder is NULL");
         StringValidator.requireNonBlank(zipFile);
@@ -156,19 +221,22 @@ public class ZipImpl implements Zip {
             if (filesToZip.isEmpty()) {
                 return false;
             }
-            try (FileOutputStream fos = new FileOutputStream(zipFile);
-                 ZipOutputStream zos = new ZipOutputStream(fos)) {
-                zos.setComment("");
-                zos.setLevel(ZIP_COMPRESSION_LEVEL);
-                zos.setMethod(ZipOutputStream.DEFLATED);
-                for (Path file : filesToZip) {
-                    if (Files.isDirectory(file)) {
-                        zipDir(zos, ft, inputDirPath, file);
-                    } else {
-                        zipFile(zos, ft, inputDirPath, file);
+            try (HashingOutputStream out = new HashingOutputStream(
+                new BufferedOutputStream(new FileOutputStream(zipFile), WRITE_BUF_SIZE))) {
+                if (threads > 1 && filesToZip.size() > 1 && !needsZip64(filesToZip)) {
+                    zipConcurrently(out, ft, inputDirPath, filesToZip, zipFile);
+                } else {
+                    try (ZipOutputStream zos = createZipOutputStream(out)) {
+                        for (Path file : filesToZip) {
+                            zipEntry(zos, ft, inputDirPath, file);
+                        }
+                        zos.finish();
                     }
                 }
-                zos.finish();
+                out.flush();
+                if (hashSums != null) {
+                    hashSums.setFileHashSums(out.digest(), out.getChunks());
+                }
                 return true;
             }
         } catch (IOException e) {
@@ -209,6 +277,22 @@ public class ZipImpl implements Zip {
         return files;
     }
 
+    private ZipOutputStream createZipOutputStream(OutputStream out) {
+        ZipOutputStream zos = new ZipOutputStream(out);
+        zos.setComment("");
+        zos.setLevel(compressionLevel);
+        zos.setMethod(ZipOutputStream.DEFLATED);
+        return zos;
+    }
+
+    private void zipEntry(ZipOutputStream zos, FileTime ft, Path inputDir, Path file) throws IOException {
+        if (Files.isDirectory(file)) {
+            zipDir(zos, ft, inputDir, file);
+        } else {
+            zipFile(zos, ft, inputDir, file);
+        }
+    }
+
     private void zipDir(ZipOutputStream zos, FileTime ft, Path inputDir, Path dir) throws IOException {
         ZipEntry zipEntry = makeZipEntry(inputDir.relativize(dir).toString() + "/", ft);
         zos.putNextEntry(zipEntry);
@@ -229,6 +313,132 @@ public class ZipImpl implements Zip {
         }
     }
 
+    private boolean needsZip64(List<Path> files) throws IOException {
+        if (files.size() >= ZIP64_ENTRIES_LIMIT) {
+            return true;
+        }
+        long size = 0;
+        for (Path file : files) {
+            if (!Files.isDirectory(file)) {
+                size += Files.size(file);
+            }
+        }
+        // reserve space for the headers and for the incompressible data growth
+        return size + size / 64 + files.size() * 1024L >= ZIP64_LIMIT;
+    }
+
+    /**
+     * Compress files in parallel into the single entry archive parts and join parts in the order of files
+     */
+    private void zipConcurrently(OutputStream out, FileTime ft, Path inputDir, List<Path> files, String zipFile) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()), new NamedThreadFactory("ZipCompressor"));
+        List<Path> parts = new ArrayList<>(files.size());
+        List<Future<?>> futures = new ArrayList<>(files.size());
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                Path file = files.get(i);
+                Path part = Paths.get(zipFile + "." + i + PART_SUFFIX);
+                parts.add(part);
+                futures.add(executor.submit(() -> {
+                    try (ZipOutputStream zos = createZipOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(part), WRITE_BUF_SIZE))) {
+                        zipEntry(zos, ft, inputDir, file);
+                        zos.finish();
+                    }
+                    return null;
+                }));
+            }
+            ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+            long offset = 0;
+            for (int i = 0; i < parts.size(); i++) {
+                awaitPart(futures.get(i));
+                offset += appendPart(parts.get(i), out, offset, centralDirectory);
+                Files.delete(parts.get(i));
+            }
+            centralDirectory.writeTo(out);
+            ByteBuffer end = ByteBuffer.allocate(END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(END_SIG)
+                .putShort((short) 0) // number of this disk
+                .putShort((short) 0) // disk with the central directory
+                .putShort((short) files.size())
+                .putShort((short) files.size())
+                .putInt(centralDirectory.size())
+                .putInt((int) offset)
+                .putShort((short) 0); // comment length
+            out.write(end.array());
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    private void awaitPart(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing zip entries", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.toString(), cause);
+        }
+    }
+
+    /**
+     * Copy local header and data of the single entry archive part and its central directory record
+     * with the entry offset of the joined archive
+     *
+     * @return number of bytes written to the joined archive
+     */
+    private long appendPart(Path part, OutputStream out, long offset, ByteArrayOutputStream centralDirectory) throws IOException {
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+            ByteBuffer end = ByteBuffer.allocate(END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, end, channel.size() - END_SIZE);
+            if (end.getInt(0) != END_SIG || end.getShort(10) != 1 || end.getShort(20) != 0) {
+                throw new IOException("Unexpected end of zip part " + part);
+            }
+            long cenSize = Integer.toUnsignedLong(end.getInt(12));
+            long cenOffset = Integer.toUnsignedLong(end.getInt(16));
+            if (offset + cenOffset >= ZIP64_LIMIT) {
+                throw new IOException("Zip entry offset exceeds 4 GB for part " + part);
+            }
+            ByteBuffer cen = ByteBuffer.allocate((int) cenSize).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, cen, cenOffset);
+            cen.putInt(CEN_LOCAL_OFFSET, (int) offset);
+            centralDirectory.write(cen.array());
+
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUF_SIZE);
+            long position = 0;
+            while (position < cenOffset) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), cenOffset - position));
+                readFully(channel, buffer, position);
+                out.write(buffer.array(), 0, buffer.limit());
+                position += buffer.limit();
+            }
+            return cenOffset;
+        }
+    }
+
+    private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if (count < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
     private ZipEntry makeZipEntry(String name, FileTime ft) {
         ZipEntry zipEntry = new ZipEntry(name);
         zipEntry.setCreationTime(ft);
@@ -240,4 +450,84 @@ public class ZipImpl implements Zip {
         return zipEntry;
     }
 
+    /**
+     * Calculates hash of the written data and CRCs of its {@link ChunkedFileOps#FILE_CHUNK_SIZE} chunks
+     * the same way as {@link ChunkedFileOps#getFileHashSums()} does for the file
+     */
+    private static final class HashingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final MessageDigest digest;
+        private final List<ChunkedFileOps.ChunkInfo> chunks = new ArrayList<>();
+        private final CRC32 chunkCrc = new CRC32();
+        private long chunkOffset;
+        private int chunkSize;
+        private boolean closed;
+
+        private HashingOutputStream(OutputStream out) throws IOException {
+            this.out = out;
+            try {
+                this.digest = MessageDigest.getInstance(ChunkedFileOps.DIGESTER);
+            } catch (NoSuchAlgorithmException e) {
+                out.close();
+                throw new IOException(e.toString(), e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            digest.update(b, off, len);
+            int position = off;
+            int remaining = len;
+            while (remaining > 0) {
+                int length = Math.min(remaining, ChunkedFileOps.FILE_CHUNK_SIZE - chunkSize);
+                chunkCrc.update(b, position, length);
+                chunkSize += length;
+                position += length;
+                remaining -= length;
+                if (chunkSize == ChunkedFileOps.FILE_CHUNK_SIZE) {
+                    finishChunk();
+                }
+            }
+        }
+
+        private void finishChunk() {
+            chunks.add(new ChunkedFileOps.ChunkInfo(chunkOffset, chunkSize, chunkCrc.getValue()));
+            chunkOffset += chunkSize;
+            chunkSize = 0;
+            chunkCrc.reset();
+        }
+
+        /**
+         * @return hash of the written data, no data should be written after
+         */
+        private byte[] digest() {
+            if (chunkSize > 0) {
+                finishChunk();
+            }
+            return digest.digest();
+        }
+
+        private List<ChunkedFileOps.ChunkInfo> getChunks() {
+            return chunks;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.close();
+            }
+        }
+    }
 }
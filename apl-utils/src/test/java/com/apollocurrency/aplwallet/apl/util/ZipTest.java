@@ -25,7 +25,9 @@ import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -203,6 +205,36 @@ class ZipTest {
         return List.of(file1, file2, file3, file4, file5);
     }
 
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testConcurrentCompressionIsSameAsSequential(@TempDir Path tempDir) throws IOException {
+        Path inputDir = tempDir.resolve("input");
+        List<Path> files = prepareFiles(inputDir);
+        Files.write(files.get(0), new byte[ChunkedFileOps.FILE_CHUNK_SIZE * 3 + 17]);
+        String sequentialZip = tempDir.resolve("sequential.zip").toString();
+        String concurrentZip = tempDir.resolve("concurrent.zip").toString();
+
+        ChunkedFileOps sequential = new ZipImpl(6, 1).compressAndHash(sequentialZip, inputDir.toString(), null, null, true);
+        ChunkedFileOps concurrent = new ZipImpl(6, 3).compressAndHash(concurrentZip, inputDir.toString(), null, null, true);
+
+        assertArrayEquals(Files.readAllBytes(Paths.get(sequentialZip)), Files.readAllBytes(Paths.get(concurrentZip)));
+        ChunkedFileOps readBack = new ChunkedFileOps(concurrentZip);
+        assertArrayEquals(readBack.getFileHashSums(), concurrent.getFileHash());
+        assertArrayEquals(sequential.getFileHash(), concurrent.getFileHash());
+        assertEquals(readBack.getChunksCRC().size(), concurrent.getChunksCRC().size());
+        for (int i = 0; i < readBack.getChunksCRC().size(); i++) {
+            assertEquals(readBack.getChunksCRC().get(i).offset, concurrent.getChunksCRC().get(i).offset);
+            assertEquals(readBack.getChunksCRC().get(i).size, concurrent.getChunksCRC().get(i).size);
+            assertEquals(readBack.getChunksCRC().get(i).crc, concurrent.getChunksCRC().get(i).crc);
+        }
+        try (Stream<Path> tempFiles = Files.list(tempDir)) {
+            assertEquals(3, tempFiles.count(), "Zip parts should be deleted");
+        }
+        Path extractDir = tempDir.resolve("extract");
+        assertTrue(zipComponent.extract(concurrentZip, extractDir.toString(), true));
+        verifyExtraction(true, files, extractDir);
+    }
+
     @Test
     void testCalculateHash() throws URISyntaxException {
 